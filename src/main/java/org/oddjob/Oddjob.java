@@ -32,6 +32,7 @@ import org.oddjob.jobs.EchoJob;
 import org.oddjob.oddballs.OddballsDescriptorFactory;
 import org.oddjob.persist.FilePersister;
 import org.oddjob.persist.OddjobPersister;
+import org.oddjob.persist.WriteBehindPersisterService;
 import org.oddjob.scheduling.DefaultExecutors;
 import org.oddjob.scheduling.OddjobServicesBean;
 import org.oddjob.sql.SQLPersisterService;
@@ -185,6 +186,7 @@ import java.util.*;
  * <ul>
  *  <li>{@link FilePersister}</li>
  *  <li>{@link SQLPersisterService}</li>
+ *  <li>{@link WriteBehindPersisterService}</li>
  *  <li>{@link OddballsDescriptorFactory}</li>
  *  <li>{@link URLClassLoaderType}</li>
  * </ul>
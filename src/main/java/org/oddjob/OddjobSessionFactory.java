@@ -20,6 +20,7 @@ import org.oddjob.arooa.standard.StandardArooaDescriptor;
 import org.oddjob.arooa.standard.StandardPropertyManager;
 import org.oddjob.arooa.standard.StandardTools;
 import org.oddjob.persist.OddjobPersister;
+import org.oddjob.persist.PrefetchingPersister;
 
 /**
  * Constructs an {@link ArooaSession} for Oddjob. This is quite complicated
@@ -171,6 +172,11 @@ public class OddjobSessionFactory {
     			break;
     		}
     	}
+    	
+    	// Start restoring before the configuration asks for anything.
+    	if (componentPersister instanceof PrefetchingPersister) {
+    		((PrefetchingPersister) componentPersister).prefetch(classLoader);
+    	}
     			
 		if (componentProxyResolver == null) {
 			componentProxyResolver = new OddjobComponentResolver();
@@ -1,5 +1,6 @@
 package org.oddjob.beanbus.destinations;
 
+import org.oddjob.arooa.deploy.annotations.ArooaHidden;
 import org.oddjob.beanbus.BusFilter;
 import org.oddjob.framework.adapt.HardReset;
 import org.oddjob.framework.adapt.SoftReset;
@@ -8,16 +9,45 @@ import org.oddjob.framework.adapt.Stop;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Inject;
 import java.io.Flushable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 /**
  * @oddjob.description Provide batching of beans.
+ * <p>
+ * A batch is passed on when it reaches the batch size, when the bus is flushed, or, if
+ * a maximum linger time is set, when that time has passed since the first bean of the
+ * batch arrived.
+ * </p>
+ * <p>
+ * Batches are passed on by the thread that provides the beans unless maxInFlight is set.
+ * Then batches are passed on by the executor so the next component, such as a slow insert
+ * into a database, doesn't hold up the beans arriving. When maxInFlight batches are being
+ * passed on, accepting a bean that completes another batch waits for one to finish.
+ * With a maxInFlight of 1 batches are passed on one at a time in order. With more than 1
+ * the next component must be safe to use from many threads. Flushing and closing wait for
+ * all the batches in flight, and a failure passing on a batch is thrown from the next
+ * accept or flush so the bus crashes.
+ * </p>
+ * <p>
+ * A batch that has lingered for maxLinger is always passed on by the executor, so the
+ * scheduler is never held up by the next component. Batches are still passed on one
+ * at a time when maxInFlight isn't set.
+ * </p>
  *
  * @oddjob.example Create Batches of 2 beans.
  * <p>
@@ -35,15 +65,59 @@ public class Batcher<T> implements Consumer<T>, BusFilter<T, Collection<T>>, Flu
 
     private int batchSize;
 
+    /**
+     * @oddjob.property
+     * @oddjob.description The longest time in milliseconds a bean waits in a batch before
+     * the batch is passed on.
+     * @oddjob.required No, defaults to waiting until the batch is full or flushed.
+     */
+    private volatile long maxLinger;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The number of batches that may be passed on by the executor at
+     * the same time.
+     * @oddjob.required No, defaults to 0 which passes batches on synchronously.
+     */
+    private volatile int maxInFlight;
+
     private Consumer<? super Collection<T>> to;
 
     private volatile List<T> batch;
 
     private final AtomicInteger count = new AtomicInteger();
 
+    private final AtomicInteger dispatched = new AtomicInteger();
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private final Object lock = new Object();
+
+    private volatile ExecutorService executorService;
+
+    private volatile ScheduledExecutorService scheduler;
+
+    private volatile Semaphore inFlight;
+
+    private ScheduledFuture<?> lingering;
+
     @Start
     @Override
     public void run() {
+
+        if (maxLinger > 0) {
+            Objects.requireNonNull(scheduler, "No Scheduler for max linger.");
+            Objects.requireNonNull(executorService, "No Executor Service for max linger.");
+        }
+        if (maxInFlight > 0) {
+            Objects.requireNonNull(executorService, "No Executor Service for batches in flight.");
+            inFlight = new Semaphore(maxInFlight);
+        }
+        else {
+            inFlight = null;
+        }
+
+        failure.set(null);
         batch = new ArrayList<>(batchSize);
     }
 
@@ -51,6 +125,16 @@ public class Batcher<T> implements Consumer<T>, BusFilter<T, Collection<T>>, Flu
     @Stop
     public void close() throws Exception {
 
+        synchronized (lock) {
+            cancelLinger();
+        }
+
+        awaitInFlight();
+
+        Throwable failure = this.failure.get();
+        if (failure != null) {
+            logger.warn("{}: Closed after failing to pass on a batch: {}", this, failure.toString());
+        }
     }
 
 
@@ -58,52 +142,195 @@ public class Batcher<T> implements Consumer<T>, BusFilter<T, Collection<T>>, Flu
     @SoftReset
     public void reset() {
         count.set(0);
+        dispatched.set(0);
     }
 
     @Override
     public void accept(T bean) {
 
-        batch.add(bean);
-        count.incrementAndGet();
+        checkFailure();
 
-        if (batch.size() == batchSize) {
-            dispatch();
+        synchronized (lock) {
+            List<T> batch = this.batch;
+
+            batch.add(bean);
+            count.incrementAndGet();
+
+            if (batch.size() == batchSize) {
+                dispatch();
+            }
+            else if (batch.size() == 1 && maxLinger > 0) {
+                lingering = scheduler.schedule(() -> lingered(batch),
+                        maxLinger, TimeUnit.MILLISECONDS);
+            }
         }
     }
 
     @Override
     public void flush() throws IOException {
-        dispatch();
+
+        synchronized (lock) {
+            dispatch();
+        }
+
+        awaitInFlight();
+
+        checkFailure();
     }
 
     /**
      * Dispatch the beans. Called when a batch is ready of a trip
-     * is ending.
+     * is ending. Must be called holding the lock.
      */
     protected void dispatch() {
+        cancelLinger();
+
         if (batch.isEmpty()) {
             return;
         }
 
-        int batchSize = batch.size();
+        List<T> batch = this.batch;
+        this.batch = new ArrayList<>(batchSize);
+
+        Consumer<? super Collection<T>> to = this.to;
+        Semaphore inFlight = this.inFlight;
 
         if (to == null) {
-            logger.info("Discarding batch of " + batchSize +
-                    " beans because there is no destination.");
-        } else {
-            logger.info("Dispatching batch of " + batchSize +
-                    " beans.");
+            logger.debug("Discarding batch of {} beans because there is no destination.",
+                    batch.size());
+        }
+        else if (inFlight == null) {
+            logger.debug("Dispatching batch of {} beans.", batch.size());
 
             to.accept(batch);
+            dispatched.incrementAndGet();
+        }
+        else {
+            try {
+                inFlight.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting to dispatch a batch.", e);
+            }
+
+            logger.debug("Dispatching batch of {} beans asynchronously.", batch.size());
+
+            try {
+                executorService.execute(() -> {
+                    try {
+                        if (failure.get() == null) {
+                            to.accept(batch);
+                            dispatched.incrementAndGet();
+                        }
+                    }
+                    catch (Throwable t) {
+                        if (failure.compareAndSet(null, t)) {
+                            logger.error("{}: Failed to pass on a batch.", this, t);
+                        }
+                    }
+                    finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            catch (RejectedExecutionException e) {
+                inFlight.release();
+                throw e;
+            }
         }
+    }
 
-        batch = new ArrayList<>(batchSize);
+    /**
+     * Called by the scheduler when a batch has waited for the max linger time.
+     * The batch is dispatched by the executor because dispatching may take the
+     * next component a while, or wait for a batch in flight.
+     */
+    protected void lingered(List<T> lingered) {
+        try {
+            executorService.execute(() -> linger(lingered));
+        }
+        catch (RejectedExecutionException e) {
+            if (failure.compareAndSet(null, e)) {
+                logger.error("{}: Failed to pass on a batch.", this, e);
+            }
+        }
+    }
+
+    /**
+     * Dispatch a batch that has waited for the max linger time, if it hasn't
+     * already been dispatched.
+     */
+    protected void linger(List<T> lingered) {
+        synchronized (lock) {
+            if (batch != lingered) {
+                return;
+            }
+            lingering = null;
+            try {
+                dispatch();
+            }
+            catch (RuntimeException e) {
+                if (failure.compareAndSet(null, e)) {
+                    logger.error("{}: Failed to pass on a batch.", this, e);
+                }
+            }
+        }
+    }
+
+    protected void cancelLinger() {
+        ScheduledFuture<?> lingering = this.lingering;
+        if (lingering != null) {
+            lingering.cancel(false);
+            this.lingering = null;
+        }
+    }
+
+    protected void awaitInFlight() throws IOException {
+        Semaphore inFlight = this.inFlight;
+        if (inFlight == null) {
+            return;
+        }
+        try {
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for batches in flight.", e);
+        }
+    }
+
+    protected void checkFailure() {
+        Throwable failure = this.failure.get();
+        if (failure != null) {
+            throw new IllegalStateException("Failed to pass on a batch from " + this, failure);
+        }
     }
 
     public int getCount() {
         return count.get();
     }
 
+    /**
+     * @oddjob.property dispatched
+     * @oddjob.description The number of batches passed on.
+     * @oddjob.required Read only.
+     */
+    public int getDispatched() {
+        return dispatched.get();
+    }
+
+    /**
+     * @oddjob.property inFlight
+     * @oddjob.description The number of batches being passed on by the executor.
+     * @oddjob.required Read only.
+     */
+    public int getInFlight() {
+        Semaphore inFlight = this.inFlight;
+        return inFlight == null ? 0 : maxInFlight - inFlight.availablePermits();
+    }
+
     public int getSize() {
         Collection<?> batch = this.batch;
         if (batch == null) {
@@ -121,6 +348,43 @@ public class Batcher<T> implements Consumer<T>, BusFilter<T, Collection<T>>, Flu
         this.batchSize = batchSize;
     }
 
+    public long getMaxLinger() {
+        return maxLinger;
+    }
+
+    public void setMaxLinger(long maxLinger) {
+        this.maxLinger = maxLinger;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * @oddjob.property executorService
+     * @oddjob.description The Executor Service used to pass on batches when
+     * maxInFlight or maxLinger is set. This will be automatically set by Oddjob.
+     * @oddjob.required No.
+     */
+    @Inject
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    @ArooaHidden
+    @Inject
+    public void setScheduleExecutorService(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
     public Consumer<? super Collection<T>> getTo() {
         return to;
     }
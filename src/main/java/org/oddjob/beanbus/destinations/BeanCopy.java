@@ -3,6 +3,7 @@ package org.oddjob.beanbus.destinations;
 import org.oddjob.arooa.ArooaSession;
 import org.oddjob.arooa.ArooaTools;
 import org.oddjob.arooa.beanutils.MagicBeanClassCreator;
+import org.oddjob.arooa.convert.ArooaConverter;
 import org.oddjob.arooa.deploy.annotations.ArooaHidden;
 import org.oddjob.arooa.life.ArooaSessionAware;
 import org.oddjob.arooa.reflect.ArooaClass;
@@ -15,11 +16,17 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.Type;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
  * @oddjob.description Copy the properties of a bean to another bean.
+ * <p>
+ * How to copy the properties is worked out once for each class of bean
+ * copied from, so that copying many beans doesn't look up each property
+ * and conversion again for every bean.
+ * </p>
  * 
  * @oddjob.example
  * 
@@ -59,6 +66,11 @@ implements Consumer<F>, BusFilter<F, T>, ArooaSessionAware {
 	
 	private PropertyAccessor accessor;
 	
+	private ArooaConverter converter;
+	
+	private final Map<ArooaClass, BeanCopyPlan> plans =
+			new ConcurrentHashMap<>();
+	
 	private final Map<String, String> mappings =
 			new LinkedHashMap<>();
 		
@@ -66,8 +78,9 @@ implements Consumer<F>, BusFilter<F, T>, ArooaSessionAware {
 	@Override
 	public void setArooaSession(ArooaSession session) {
 		ArooaTools tools = session.getTools();
+		this.converter = tools.getArooaConverter();
 		this.accessor = tools.getPropertyAccessor().accessorWithConversions(
-				tools.getArooaConverter());
+				converter);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -80,15 +93,15 @@ implements Consumer<F>, BusFilter<F, T>, ArooaSessionAware {
 		
 		Object toBean = arooaClass.newInstance();
 		
+		BeanCopyPlan plan = plans.computeIfAbsent(
+				accessor.getClassName(bean), 
+				sourceClass -> {
+					logger.debug("Creating copy plan for [" + sourceClass + "]");
+					return BeanCopyPlan.create(bean, toBean, mappings, 
+							accessor, converter);
+				});
 		
-		for (Map.Entry<String, String> mapping : mappings.entrySet()) {
-			
-			String from = mapping.getKey();
-			String to = mapping.getValue();
-			
-			accessor.setProperty(toBean, to, 
-					accessor.getProperty(bean, from));
-		}
+		plan.copy(bean, toBean);
 
 		to.accept((T) toBean);
 	}
@@ -128,6 +141,7 @@ implements Consumer<F>, BusFilter<F, T>, ArooaSessionAware {
 	
 	public void setArooaClass(ArooaClass arooaClass) {
 		this.arooaClass = arooaClass;
+		plans.clear();
 	}
 	
 	@Override
@@ -141,6 +155,7 @@ implements Consumer<F>, BusFilter<F, T>, ArooaSessionAware {
 	
 	public void setMappings(String from, String to) {
 		mappings.put(from, to);
+		plans.clear();
 	}
 
 	public String getName() {
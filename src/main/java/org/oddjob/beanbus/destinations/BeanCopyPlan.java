@@ -0,0 +1,331 @@
+package org.oddjob.beanbus.destinations;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.DynaProperty;
+import org.oddjob.arooa.convert.ArooaConversionException;
+import org.oddjob.arooa.convert.ArooaConverter;
+import org.oddjob.arooa.reflect.PropertyAccessor;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The plan for copying the properties of one class of bean to another, worked
+ * out once by {@link BeanCopy} for each class of bean it is given.
+ * <p>
+ * Simple properties of Java beans are read and written with method handles,
+ * and simple properties of dynamic beans directly. A conversion is only
+ * attempted when the type of the value isn't already the type of the
+ * property being written. Anything else, such as a nested property, is left
+ * to the property accessor as before.
+ *
+ * @author rob
+ */
+class BeanCopyPlan {
+
+	private static final MethodType GETTER_TYPE =
+			MethodType.methodType(Object.class, Object.class);
+
+	private static final MethodType SETTER_TYPE =
+			MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final Step[] steps;
+
+	private BeanCopyPlan(Step[] steps) {
+		this.steps = steps;
+	}
+
+	/**
+	 * Work out a plan.
+	 *
+	 * @param from An example of the beans to copy from.
+	 * @param to An example of the beans to copy to.
+	 * @param mappings The mappings of from property names to to property names.
+	 * @param accessor The accessor to use for properties that can't be planned.
+	 * @param converter The converter to use for values of the wrong type.
+	 *
+	 * @return A plan. Never null.
+	 */
+	static BeanCopyPlan create(Object from, Object to, Map<String, String> mappings,
+			PropertyAccessor accessor, ArooaConverter converter) {
+
+		List<Step> steps = new ArrayList<>(mappings.size());
+
+		for (Map.Entry<String, String> mapping : mappings.entrySet()) {
+
+			String fromProperty = mapping.getKey();
+			String toProperty = mapping.getValue();
+
+			Getter getter = getterFor(from, fromProperty);
+			Setter setter = setterFor(to, toProperty);
+
+			if (getter == null || setter == null) {
+				steps.add(new AccessorStep(fromProperty, toProperty, accessor));
+			}
+			else {
+				Class<?> required = boxed(setter.type);
+				boolean convert = !required.isAssignableFrom(boxed(getter.type));
+				steps.add(new DirectStep(fromProperty, toProperty, getter, setter,
+						convert ? required : null, accessor, converter));
+			}
+		}
+
+		return new BeanCopyPlan(steps.toArray(new Step[0]));
+	}
+
+	/**
+	 * Copy the properties.
+	 *
+	 * @param from The bean to copy from.
+	 * @param to The bean to copy to.
+	 */
+	void copy(Object from, Object to) {
+		for (Step step : steps) {
+			step.copy(from, to);
+		}
+	}
+
+	static Class<?> boxed(Class<?> type) {
+		return type.isPrimitive() ?
+				MethodType.methodType(type).wrap().returnType() : type;
+	}
+
+	static boolean isSimple(String property) {
+		for (int i = 0; i < property.length(); ++i) {
+			if (!Character.isJavaIdentifierPart(property.charAt(i))) {
+				return false;
+			}
+		}
+		return !property.isEmpty();
+	}
+
+	static Getter getterFor(Object bean, String property) {
+
+		if (!isSimple(property)) {
+			return null;
+		}
+
+		if (bean instanceof DynaBean) {
+			DynaProperty dynaProperty = ((DynaBean) bean).getDynaClass()
+					.getDynaProperty(property);
+			if (dynaProperty == null || dynaProperty.isIndexed() || dynaProperty.isMapped()) {
+				return null;
+			}
+			return new Getter(dynaProperty.getType(),
+					b -> ((DynaBean) b).get(property));
+		}
+
+		PropertyDescriptor descriptor = descriptorFor(bean.getClass(), property);
+		if (descriptor == null || descriptor.getReadMethod() == null) {
+			return null;
+		}
+
+		MethodHandle handle = handleFor(descriptor.getReadMethod(), GETTER_TYPE);
+		if (handle == null) {
+			return null;
+		}
+
+		return new Getter(descriptor.getPropertyType(),
+				b -> (Object) handle.invokeExact(b));
+	}
+
+	static Setter setterFor(Object bean, String property) {
+
+		if (!isSimple(property)) {
+			return null;
+		}
+
+		if (bean instanceof DynaBean) {
+			DynaProperty dynaProperty = ((DynaBean) bean).getDynaClass()
+					.getDynaProperty(property);
+			if (dynaProperty == null || dynaProperty.isIndexed() || dynaProperty.isMapped()) {
+				return null;
+			}
+			return new Setter(dynaProperty.getType(),
+					(b, v) -> ((DynaBean) b).set(property, v));
+		}
+
+		PropertyDescriptor descriptor = descriptorFor(bean.getClass(), property);
+		if (descriptor == null || descriptor.getWriteMethod() == null) {
+			return null;
+		}
+
+		MethodHandle handle = handleFor(descriptor.getWriteMethod(), SETTER_TYPE);
+		if (handle == null) {
+			return null;
+		}
+
+		return new Setter(descriptor.getPropertyType(),
+				(b, v) -> {
+					handle.invokeExact(b, v);
+				});
+	}
+
+	static PropertyDescriptor descriptorFor(Class<?> beanClass, String property) {
+		try {
+			for (PropertyDescriptor descriptor :
+					Introspector.getBeanInfo(beanClass).getPropertyDescriptors()) {
+				if (descriptor.getName().equals(property)) {
+					return descriptor;
+				}
+			}
+			return null;
+		}
+		catch (IntrospectionException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Provide a method handle, or null if the method can't be accessed, for
+	 * instance because the class isn't public.
+	 */
+	static MethodHandle handleFor(Method method, MethodType type) {
+		try {
+			return MethodHandles.publicLookup().unreflect(method).asType(type);
+		}
+		catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	interface GetFunction {
+		Object get(Object bean) throws Throwable;
+	}
+
+	interface SetFunction {
+		void set(Object bean, Object value) throws Throwable;
+	}
+
+	static class Getter {
+
+		private final Class<?> type;
+
+		private final GetFunction function;
+
+		Getter(Class<?> type, GetFunction function) {
+			this.type = type;
+			this.function = function;
+		}
+	}
+
+	static class Setter {
+
+		private final Class<?> type;
+
+		private final SetFunction function;
+
+		Setter(Class<?> type, SetFunction function) {
+			this.type = type;
+			this.function = function;
+		}
+	}
+
+	interface Step {
+		void copy(Object from, Object to);
+	}
+
+	/**
+	 * Copy a property with a getter and setter, converting only if needed.
+	 */
+	static class DirectStep implements Step {
+
+		private final String name;
+
+		private final String toName;
+
+		private final GetFunction getter;
+
+		private final SetFunction setter;
+
+		private final Class<?> required;
+
+		private final boolean primitive;
+
+		private final PropertyAccessor accessor;
+
+		private final ArooaConverter converter;
+
+		DirectStep(String name, String toName, Getter getter, Setter setter,
+				Class<?> required, PropertyAccessor accessor, ArooaConverter converter) {
+			this.name = name;
+			this.toName = toName;
+			this.getter = getter.function;
+			this.setter = setter.function;
+			this.required = required;
+			this.primitive = setter.type.isPrimitive();
+			this.accessor = accessor;
+			this.converter = converter;
+		}
+
+		@Override
+		public void copy(Object from, Object to) {
+
+			Object value;
+			try {
+				value = getter.get(from);
+			}
+			catch (Throwable t) {
+				throw new IllegalStateException("Failed getting property [" +
+						name + "] from [" + from + "]", t);
+			}
+
+			if (value == null) {
+				if (primitive) {
+					// Leave what null means for a primitive to the accessor.
+					accessor.setProperty(to, toName, null);
+					return;
+				}
+			}
+			else if (required != null && !required.isInstance(value)) {
+				try {
+					value = converter.convert(value, required);
+				}
+				catch (ArooaConversionException e) {
+					throw new IllegalArgumentException("Failed converting property [" +
+							name + "] value [" + value + "] to " + required.getName(), e);
+				}
+			}
+
+			try {
+				setter.set(to, value);
+			}
+			catch (Throwable t) {
+				throw new IllegalStateException("Failed setting property [" +
+						toName + "] on [" + to + "]", t);
+			}
+		}
+	}
+
+	/**
+	 * Copy a property with the property accessor.
+	 */
+	static class AccessorStep implements Step {
+
+		private final String from;
+
+		private final String to;
+
+		private final PropertyAccessor accessor;
+
+		AccessorStep(String from, String to, PropertyAccessor accessor) {
+			this.from = from;
+			this.to = to;
+			this.accessor = accessor;
+		}
+
+		@Override
+		public void copy(Object fromBean, Object toBean) {
+			accessor.setProperty(toBean, to,
+					accessor.getProperty(fromBean, from));
+		}
+	}
+}
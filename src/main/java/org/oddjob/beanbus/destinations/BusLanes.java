@@ -0,0 +1,465 @@
+package org.oddjob.beanbus.destinations;
+
+import org.oddjob.arooa.deploy.annotations.ArooaHidden;
+import org.oddjob.beanbus.BusConductor;
+import org.oddjob.beanbus.BusFilter;
+import org.oddjob.framework.Service;
+import org.oddjob.framework.adapt.HardReset;
+import org.oddjob.framework.adapt.SoftReset;
+import org.oddjob.scheduling.OddjobThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @oddjob.description Spread the work of a Bean Bus over a number of threads. Each bean
+ * is handed to one of a number of lanes, each with its own thread and queue. The lane
+ * applies the function to the bean and passes the result on to the next component.
+ * <p>
+ * Beans are given to the lanes in turn, unless a key function is provided in which case
+ * the lane is chosen from the hash of the key. All beans with the same key are processed
+ * by the same lane so they reach the next component in the order they arrived.
+ * Beans with different keys, or without a key function, may arrive in any order.
+ * </p>
+ * <p>
+ * By default the results of the lanes are merged so that the next component is only
+ * ever given one bean at a time. If merge is false the next component, and so the
+ * rest of the bus, is run in each of the lanes and must be safe to use from many threads.
+ * </p>
+ * <p>
+ * Flushing waits for the lanes to process all beans accepted so far. If the function or the
+ * next component fails in a lane, the lane stops processing, the bus is asked to stop,
+ * and the failure is thrown from the next accept or flush so the bus crashes.
+ * </p>
+ *
+ * @oddjob.example Double numbers with two lanes.
+ *
+ * {@oddjob.xml.resource org/oddjob/beanbus/destinations/BusLanesExample.xml}
+ *
+ * @author rob
+ *
+ * @param <F> The accepting from type.
+ * @param <T> The onward to type.
+ */
+public class BusLanes<F, T> implements BusFilter<F, T>, Flushable, Service {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusLanes.class);
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private static final Object STOP = new Object();
+
+    private static final long FLUSH_CHECK_MILLIS = 100;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The next component in a bus. Set automatically in a
+     * {@link org.oddjob.beanbus.bus.BasicBusService}.
+     * @oddjob.required No.
+     */
+    private volatile Consumer<? super T> to;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The name of this component.
+     * @oddjob.required No.
+     */
+    private volatile String name;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The function to apply to beans in the lanes. If the function
+     * returns null nothing is passed on.
+     * @oddjob.required No, beans are passed on unchanged.
+     */
+    private volatile Function<? super F, ? extends T> function;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description A function that provides the key of a bean. Beans with
+     * equal keys always go to the same lane.
+     * @oddjob.required No, beans go to each lane in turn.
+     */
+    private volatile Function<? super F, ?> key;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The number of lanes.
+     * @oddjob.required No, defaults to the number of processors.
+     */
+    private volatile int lanes;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The capacity of the queue of each lane. Accepting a bean
+     * blocks while the queue of its lane is full.
+     * @oddjob.required No, defaults to 1024.
+     */
+    private volatile int capacity;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description Merge the results of the lanes so the next component is only
+     * given one bean at a time.
+     * @oddjob.required No, defaults to true.
+     */
+    private volatile boolean merge = true;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The number of beans accepted.
+     * @oddjob.required Read only.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The number of beans passed on to the next component.
+     * @oddjob.required Read only.
+     */
+    private final AtomicInteger passed = new AtomicInteger();
+
+    private final AtomicInteger turn = new AtomicInteger();
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private final Object mergeLock = new Object();
+
+    private volatile List<Lane> running;
+
+    private volatile List<Integer> laneCounts;
+
+    private volatile BusConductor busConductor;
+
+    @Override
+    public void start() {
+
+        int lanes = this.lanes < 1 ? Runtime.getRuntime().availableProcessors() : this.lanes;
+        int capacity = this.capacity < 1 ? DEFAULT_CAPACITY : this.capacity;
+
+        failure.set(null);
+        laneCounts = null;
+
+        ThreadFactory threadFactory = new OddjobThreadFactory(toString() + "-lane");
+
+        List<Lane> running = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; ++i) {
+            running.add(new Lane(capacity));
+        }
+        for (Lane lane : running) {
+            lane.thread = threadFactory.newThread(lane);
+            lane.thread.start();
+        }
+        this.running = running;
+
+        logger.debug("{}: Started {} lanes.", this, lanes);
+    }
+
+    @Override
+    public void stop() {
+
+        List<Lane> running = this.running;
+        if (running == null) {
+            return;
+        }
+        this.running = null;
+
+        logger.debug("{}: Stopping lanes.", this);
+
+        try {
+            for (Lane lane : running) {
+                lane.queue.put(STOP);
+            }
+            for (Lane lane : running) {
+                lane.thread.join();
+            }
+        }
+        catch (InterruptedException e) {
+            for (Lane lane : running) {
+                lane.thread.interrupt();
+            }
+            Thread.currentThread().interrupt();
+        }
+
+        this.laneCounts = countsOf(running);
+
+        Throwable failure = this.failure.get();
+        if (failure != null) {
+            logger.warn("{}: Stopped after lane failure: {}", this, failure.toString());
+        }
+    }
+
+    @Override
+    public void accept(F bean) {
+
+        checkFailure();
+
+        List<Lane> running = Objects.requireNonNull(this.running, "Lanes not started.");
+
+        int index;
+        Function<? super F, ?> key = this.key;
+        if (key == null) {
+            index = Math.floorMod(turn.getAndIncrement(), running.size());
+        }
+        else {
+            int h = Objects.hashCode(key.apply(bean));
+            index = Math.floorMod(h ^ (h >>> 16), running.size());
+        }
+
+        try {
+            running.get(index).queue.put(bean);
+            count.incrementAndGet();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a lane of " + this, e);
+        }
+    }
+
+    /**
+     * Wait for all the beans accepted so far to be processed.
+     */
+    @Override
+    public void flush() throws IOException {
+
+        List<Lane> running = this.running;
+        if (running != null) {
+
+            CountDownLatch latch = new CountDownLatch(running.size());
+            try {
+                for (Lane lane : running) {
+                    lane.queue.put(latch);
+                }
+                // Lanes stopped by a failure closing the bus won't count down.
+                while (!latch.await(FLUSH_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (this.running != running) {
+                        break;
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for lanes to flush.", e);
+            }
+        }
+
+        checkFailure();
+    }
+
+    protected void checkFailure() {
+        Throwable failure = this.failure.get();
+        if (failure != null) {
+            throw new IllegalStateException("Failure in a lane of " + this, failure);
+        }
+    }
+
+    protected void process(F bean) {
+
+        Function<? super F, ? extends T> function = this.function;
+
+        @SuppressWarnings("unchecked")
+        T result = function == null ? (T) bean : function.apply(bean);
+
+        if (result == null) {
+            return;
+        }
+
+        Consumer<? super T> to = this.to;
+        if (to == null) {
+            passed.incrementAndGet();
+        }
+        else if (merge) {
+            synchronized (mergeLock) {
+                to.accept(result);
+                passed.incrementAndGet();
+            }
+        }
+        else {
+            to.accept(result);
+            passed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record the failure of a lane and ask the bus to stop. Closing the bus flushes
+     * and stops the lanes, which a lane can't wait for itself, so the bus is closed
+     * from a new thread.
+     */
+    protected void failed(Throwable t) {
+
+        if (failure.compareAndSet(null, t)) {
+            logger.error("{}: Lane failed.", this, t);
+
+            BusConductor busConductor = this.busConductor;
+            if (busConductor != null) {
+                new OddjobThreadFactory(toString() + "-close")
+                        .newThread(busConductor::close).start();
+            }
+        }
+    }
+
+    /**
+     * A lane. Processes beans from its queue until told to stop. Processing stops after any
+     * lane fails but the queue is still drained so no one waits forever.
+     */
+    class Lane implements Runnable {
+
+        private final BlockingQueue<Object> queue;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private volatile Thread thread;
+
+        Lane(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Object next = queue.take();
+                    if (next == STOP) {
+                        break;
+                    }
+                    if (next instanceof CountDownLatch) {
+                        ((CountDownLatch) next).countDown();
+                        continue;
+                    }
+                    if (failure.get() != null) {
+                        continue;
+                    }
+                    try {
+                        process((F) next);
+                        count.incrementAndGet();
+                    }
+                    catch (Throwable t) {
+                        failed(t);
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                logger.debug("{}: Lane interrupted.", BusLanes.this);
+            }
+        }
+    }
+
+    @HardReset
+    @SoftReset
+    public void reset() {
+        count.set(0);
+        passed.set(0);
+        turn.set(0);
+        laneCounts = null;
+    }
+
+    /**
+     * @oddjob.property laneCounts
+     * @oddjob.description The number of beans each lane has processed.
+     * @oddjob.required Read only.
+     */
+    public List<Integer> getLaneCounts() {
+        List<Lane> running = this.running;
+        return running == null ? laneCounts : countsOf(running);
+    }
+
+    static List<Integer> countsOf(List<? extends BusLanes<?, ?>.Lane> lanes) {
+        List<Integer> counts = new ArrayList<>(lanes.size());
+        for (BusLanes<?, ?>.Lane lane : lanes) {
+            counts.add(lane.count.get());
+        }
+        return counts;
+    }
+
+    public int getCount() {
+        return count.get();
+    }
+
+    public int getPassed() {
+        return passed.get();
+    }
+
+    public Function<? super F, ? extends T> getFunction() {
+        return function;
+    }
+
+    public void setFunction(Function<? super F, ? extends T> function) {
+        this.function = function;
+    }
+
+    public Function<? super F, ?> getKey() {
+        return key;
+    }
+
+    public void setKey(Function<? super F, ?> key) {
+        this.key = key;
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public void setLanes(int lanes) {
+        this.lanes = lanes;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public boolean isMerge() {
+        return merge;
+    }
+
+    public void setMerge(boolean merge) {
+        this.merge = merge;
+    }
+
+    @ArooaHidden
+    @Inject
+    public void setBusConductor(BusConductor busConductor) {
+        this.busConductor = busConductor;
+    }
+
+    public Consumer<? super T> getTo() {
+        return to;
+    }
+
+    @Override
+    public void setTo(Consumer<? super T> to) {
+        this.to = to;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.requireNonNullElseGet(name, () -> getClass().getSimpleName());
+    }
+}
@@ -7,14 +7,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
  * @oddjob.description A Queue for beans. A work in progress.
+ * <p>
+ * By default the queue is a blocking queue that any number of threads may put to and take from.
+ * When moving many beans from one producer to one consumer, setting ringBuffer to true uses a
+ * lock free ring buffer instead. Beans are then taken from the buffer in batches, and a thread
+ * that finds the buffer full or empty waits as given by the wait strategy. Only one thread may
+ * put beans at a time and only one iterator may take them at a time.
+ * </p>
  *
  * @oddjob.example A simple example.
  * <p>
@@ -34,15 +43,57 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
 
     private final static Object STOP = new Object();
 
+    private static final int DEFAULT_RING_CAPACITY = 1024;
+
+    private static final int MAX_DRAIN = 256;
+
+    /**
+     * How a ring buffer waits when it is full or empty.
+     */
+    public enum WaitStrategy {
+
+        /** Busy spin, yielding now and again. Lowest latency but uses a whole core while waiting. */
+        SPIN,
+
+        /** Yield to other threads while waiting. */
+        YIELD,
+
+        /** Yield a few times then park the thread until it is woken. Uses no CPU while waiting long. */
+        PARK,
+    }
+
     /**
      * @oddjob.property
-     * @oddjob.description Capacity of the queue before it blocks.
-     * @oddjob.required No, defaults to no limit.
+     * @oddjob.description Capacity of the queue before it blocks. The capacity of a ring
+     * buffer is rounded up to a power of two.
+     * @oddjob.required No, defaults to no limit, or 1024 for a ring buffer.
      */
     private volatile int capacity;
 
     private volatile CompletableFuture<BlockingQueue<Object>> queueFuture = new CompletableFuture<>();
 
+    /**
+     * @oddjob.property
+     * @oddjob.description Use a single producer, single consumer ring buffer instead of a
+     * blocking queue.
+     * @oddjob.required No, defaults to false.
+     */
+    private volatile boolean ringBuffer;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description How a ring buffer waits when it is full or empty. One of SPIN,
+     * YIELD or PARK.
+     * @oddjob.required No, defaults to PARK.
+     */
+    private volatile WaitStrategy waitStrategy;
+
+    private volatile CompletableFuture<SpscRingBuffer> ringFuture = new CompletableFuture<>();
+
+    private volatile SpscRingBuffer ring;
+
+    private final AtomicBoolean ringConsumer = new AtomicBoolean();
+
     /**
      * @oddjob.property
      * @oddjob.description The name of this component.
@@ -66,7 +117,13 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
 
     @Override
     public void start() {
-        if (capacity == 0) {
+        if (ringBuffer) {
+            SpscRingBuffer ring = new SpscRingBuffer(
+                    capacity == 0 ? DEFAULT_RING_CAPACITY : capacity,
+                    Objects.requireNonNullElse(waitStrategy, WaitStrategy.PARK));
+            this.ring = ring;
+            ringFuture.complete(ring);
+        } else if (capacity == 0) {
             queueFuture.complete(new LinkedBlockingDeque<>());
         } else {
             queueFuture.complete(new ArrayBlockingQueue<>(capacity));
@@ -78,6 +135,10 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
     public void stop() {
         logger.debug("Stopping Queue.");
         try {
+            if (ringBuffer) {
+                ringFuture.get().stop();
+                return;
+            }
             queueFuture.get().put(STOP);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -89,7 +150,12 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
     @Override
     public void accept(E bean) {
         try {
-            queueFuture.getNow(null).put(bean);
+            SpscRingBuffer ring = this.ring;
+            if (ring == null) {
+                queueFuture.getNow(null).put(bean);
+            } else {
+                ring.put(bean);
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
@@ -97,6 +163,12 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
 
     @Override
     public Iterator<E> iterator() {
+        if (ringBuffer) {
+            if (!ringConsumer.compareAndSet(false, true)) {
+                throw new IllegalStateException(this + " is a ring buffer and is already being consumed.");
+            }
+            return new RingIterator<>(ringFuture, ringConsumer, waitingConsumers, taken, toString());
+        }
         return new BlockerIterator<>(queueFuture, waitingConsumers, taken, toString() );
     }
 
@@ -104,6 +176,9 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
     @SoftReset
     public void onReset() {
         this.queueFuture = new CompletableFuture<>();
+        this.ringFuture = new CompletableFuture<>();
+        this.ring = null;
+        this.ringConsumer.set(false);
         this.taken.set(0);
     }
 
@@ -206,6 +281,97 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
         }
     }
 
+    /**
+     * The iterator for a ring buffer. Takes beans from the buffer in batches.
+     */
+    static class RingIterator<E> implements Iterator<E> {
+
+        private final Future<SpscRingBuffer> ringFuture;
+
+        private final AtomicBoolean consumer;
+
+        private final AtomicInteger waitingConsumers;
+
+        private final AtomicInteger queueTaken;
+
+        private final String name;
+
+        private SpscRingBuffer ring;
+
+        private Object[] batch;
+
+        private int index;
+
+        private int size;
+
+        private boolean finished;
+
+        private int taken;
+
+        RingIterator(Future<SpscRingBuffer> ringFuture, AtomicBoolean consumer,
+                     AtomicInteger waitingConsumers, AtomicInteger queueTaken, String name) {
+            this.ringFuture = ringFuture;
+            this.consumer = consumer;
+            this.waitingConsumers = waitingConsumers;
+            this.queueTaken = queueTaken;
+            this.name = name;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            if (index < size) {
+                return true;
+            }
+            if (finished) {
+                return false;
+            }
+
+            try {
+                if (ring == null) {
+                    ring = ringFuture.get();
+                    batch = new Object[Math.min(ring.capacity(), MAX_DRAIN)];
+                }
+                index = 0;
+                size = ring.drainTo(batch, waitingConsumers);
+            } catch (InterruptedException e) {
+                logger.info("Interrupted waiting for next value.");
+                Thread.currentThread().interrupt();
+                size = 0;
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+
+            if (size == 0) {
+                finished = true;
+                consumer.set(false);
+                return false;
+            }
+
+            taken += size;
+            queueTaken.addAndGet(size);
+
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            E next = (E) batch[index];
+            batch[index++] = null;
+            return next;
+        }
+
+        @Override
+        public String toString() {
+            return "Ring Iterator for " + name +
+                    ", taken=" + taken;
+        }
+    }
+
 
     /**
      * @oddjob.property
@@ -213,6 +379,10 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
      * @oddjob.required Read only.
      */
     public int getSize() {
+        if (ringBuffer) {
+            SpscRingBuffer ring = this.ring;
+            return ring == null ? 0 : ring.size();
+        }
         Queue<?> queue = this.queueFuture.getNow(null);
         return (queue == null ? 0 : queue.size());
     }
@@ -246,6 +416,22 @@ public class BusQueue<E> implements Consumer<E>, Iterable<E>, Service {
         this.capacity = capacity;
     }
 
+    public boolean isRingBuffer() {
+        return ringBuffer;
+    }
+
+    public void setRingBuffer(boolean ringBuffer) {
+        this.ringBuffer = ringBuffer;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
     public int getWaitingConsumers() {
         return waitingConsumers.get();
     }
@@ -0,0 +1,238 @@
+package org.oddjob.beanbus.destinations;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded ring buffer for exactly one producer thread and one consumer thread. No locks
+ * are used. The producer and consumer each own one index into the buffer and only read
+ * the other's when their cached copy says the buffer is full or empty.
+ * <p>
+ * The buffer may be stopped by any thread. Once the buffer is stopped and empty every
+ * drain returns nothing, which is how {@link BusQueue} signals the end. Stopping doesn't
+ * put anything in the buffer so the thread stopping it isn't another producer.
+ *
+ * @see BusQueue.WaitStrategy
+ */
+class SpscRingBuffer {
+
+    private static final int SPINS_BEFORE_YIELD = 127;
+
+    private static final int YIELDS_BEFORE_PARK = 32;
+
+    private final Object[] buffer;
+
+    private final int mask;
+
+    private final BusQueue.WaitStrategy waitStrategy;
+
+    /** The next position to read. Only written by the consumer. */
+    private final AtomicLong head = new AtomicLong();
+
+    /** The next position to write. Only written by the producer. */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** The producer's copy of head. */
+    private long headCache;
+
+    /** The consumer's copy of tail. */
+    private long tailCache;
+
+    private volatile Thread waitingProducer;
+
+    private volatile Thread waitingConsumer;
+
+    private volatile boolean stopped;
+
+    /**
+     * Create a new instance.
+     *
+     * @param capacity The capacity. Rounded up to a power of two.
+     * @param waitStrategy How to wait when the buffer is full or empty.
+     */
+    SpscRingBuffer(int capacity, BusQueue.WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity " + capacity + " out of range.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new Object[size];
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Put an item, waiting while the buffer is full. Must only be called by the producer.
+     *
+     * @param item The item. Must not be null.
+     * @throws InterruptedException If interrupted waiting.
+     */
+    void put(Object item) throws InterruptedException {
+
+        long t = tail.get();
+
+        if (t - headCache >= buffer.length) {
+            headCache = head.get();
+            if (t - headCache >= buffer.length) {
+                awaitSpace(t);
+            }
+        }
+
+        buffer[(int) t & mask] = item;
+
+        if (waitStrategy == BusQueue.WaitStrategy.PARK) {
+            tail.set(t + 1);
+            Thread consumer = waitingConsumer;
+            if (consumer != null) {
+                LockSupport.unpark(consumer);
+            }
+        }
+        else {
+            tail.lazySet(t + 1);
+        }
+    }
+
+    /**
+     * Take as many items as are available, up to the size of the array, waiting while the
+     * buffer is empty. Must only be called by the consumer.
+     *
+     * @param into The array to copy items into.
+     * @param waiting Counts consumers waiting for an item.
+     * @return The number of items taken. 0 only if the buffer is stopped and empty.
+     * @throws InterruptedException If interrupted waiting.
+     */
+    int drainTo(Object[] into, AtomicInteger waiting) throws InterruptedException {
+
+        long h = head.get();
+
+        if (tailCache - h <= 0) {
+            tailCache = tail.get();
+            if (tailCache - h <= 0 && !awaitItems(h, waiting)) {
+                return 0;
+            }
+        }
+
+        int taken = (int) Math.min(tailCache - h, into.length);
+        for (int i = 0; i < taken; ++i) {
+            int index = (int) (h + i) & mask;
+            into[i] = buffer[index];
+            buffer[index] = null;
+        }
+
+        if (taken > 0) {
+            if (waitStrategy == BusQueue.WaitStrategy.PARK) {
+                head.set(h + taken);
+                Thread producer = waitingProducer;
+                if (producer != null) {
+                    LockSupport.unpark(producer);
+                }
+            }
+            else {
+                head.lazySet(h + taken);
+            }
+        }
+
+        return taken;
+    }
+
+    /**
+     * Stop the buffer. Items already put can still be taken. May be called by any thread.
+     */
+    void stop() {
+        stopped = true;
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * The number of items in the buffer.
+     *
+     * @return The number of items.
+     */
+    int size() {
+        long h = head.get();
+        return (int) (tail.get() - h);
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    private void awaitSpace(long t) throws InterruptedException {
+        waitingProducer = Thread.currentThread();
+        try {
+            for (int attempt = 0; t - (headCache = head.get()) >= buffer.length; ++attempt) {
+                idle(attempt);
+            }
+        }
+        finally {
+            waitingProducer = null;
+        }
+    }
+
+    /**
+     * Wait for an item.
+     *
+     * @return false if the buffer was stopped with nothing in it.
+     */
+    private boolean awaitItems(long h, AtomicInteger waiting) throws InterruptedException {
+        waiting.incrementAndGet();
+        waitingConsumer = Thread.currentThread();
+        try {
+            for (int attempt = 0; (tailCache = tail.get()) - h <= 0; ++attempt) {
+                if (stopped) {
+                    // Anything put before the stop is now visible.
+                    return (tailCache = tail.get()) - h > 0;
+                }
+                idle(attempt);
+            }
+            return true;
+        }
+        finally {
+            waitingConsumer = null;
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Wait once. Spinning yields now and again so that it can't starve the other thread
+     * when they share a processor, and parking yields a few times first as most waits are
+     * short.
+     */
+    private void idle(int attempt) throws InterruptedException {
+        switch (waitStrategy) {
+            case SPIN:
+                if ((attempt & SPINS_BEFORE_YIELD) == SPINS_BEFORE_YIELD) {
+                    Thread.yield();
+                }
+                else {
+                    Thread.onSpinWait();
+                }
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            default:
+                if (attempt < YIELDS_BEFORE_PARK) {
+                    Thread.yield();
+                }
+                else {
+                    LockSupport.park(this);
+                }
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ", capacity=" + buffer.length +
+                ", size=" + size() + ", wait=" + waitStrategy;
+    }
+}
@@ -55,6 +55,12 @@ class ForEachDesign extends BaseDC {
 
     private final SimpleTextAttribute purgeAfter;
 
+    private final SimpleTextAttribute streaming;
+
+    private final SimpleTextAttribute keepFailures;
+
+    private final SimpleTextAttribute cacheConfiguration;
+
     ForEachDesign(ArooaElement element, ArooaContext parentContext) {
         super(element, parentContext);
 
@@ -75,6 +81,12 @@ class ForEachDesign extends BaseDC {
         preLoad = new SimpleTextAttribute("preLoad", this);
 
         purgeAfter = new SimpleTextAttribute("purgeAfter", this);
+
+        streaming = new SimpleTextAttribute("streaming", this);
+
+        keepFailures = new SimpleTextAttribute("keepFailures", this);
+
+        cacheConfiguration = new SimpleTextAttribute("cacheConfiguration", this);
     }
 
     public Form detail() {
@@ -86,7 +98,7 @@ class ForEachDesign extends BaseDC {
                         new FieldSelection()
                                 .add(file.view().setTitle("Configuration File"))
                                 .add(configuration.view().setTitle("Configuration"))
-                ))
+                ).add(cacheConfiguration.view().setTitle("Cache Configuration")))
                 .addFormItem(
                         new TabGroup()
                                 .add(new FieldGroup("Parallel")
@@ -94,13 +106,16 @@ class ForEachDesign extends BaseDC {
                                         .add(executorService.view().setTitle("Execution Service")))
                                 .add(new FieldGroup("Execution Window")
                                         .add(preLoad.view().setTitle("Pre-Load"))
-                                        .add(purgeAfter.view().setTitle("Purge After"))))
+                                        .add(purgeAfter.view().setTitle("Purge After"))
+                                        .add(streaming.view().setTitle("Streaming"))
+                                        .add(keepFailures.view().setTitle("Keep Failures"))))
                 ;
     }
 
     @Override
     public DesignProperty[] children() {
         return new DesignProperty[]{name, values, file, configuration,
-                parallel, executorService, preLoad, purgeAfter};
+                parallel, executorService, preLoad, purgeAfter,
+                streaming, keepFailures, cacheConfiguration};
     }
 }
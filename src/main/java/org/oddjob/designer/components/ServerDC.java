@@ -38,6 +38,8 @@ class ServerDesign extends BaseDC {
 	
 	private final SimpleDesignProperty handlerFactories;
 	
+	private final SimpleTextAttribute notificationWindow;
+	
 	public ServerDesign(ArooaElement element, ArooaContext parentContext) {
 		super(element, parentContext);
 
@@ -50,6 +52,8 @@ class ServerDesign extends BaseDC {
 		logFormat = new SimpleTextAttribute("logFormat", this);
 		
 		handlerFactories = new SimpleDesignProperty("handlerFactories", this);
+		
+		notificationWindow = new SimpleTextAttribute("notificationWindow", this);
 	}
 	
 	public Form detail() {
@@ -64,13 +68,14 @@ class ServerDesign extends BaseDC {
 					new BorderedGroup("Advanced")
 						.add(logFormat.view().setTitle("Log Format"))
 						.add(handlerFactories.view().setTitle("Handler Factories"))
+						.add(notificationWindow.view().setTitle("Notification Window"))
 			);
 	}
 
 	@Override
 	public DesignProperty[] children() {
 		return new DesignProperty[] { name, root, url, environment,
-				logFormat, handlerFactories };
+				logFormat, handlerFactories, notificationWindow };
 	}
 }
 
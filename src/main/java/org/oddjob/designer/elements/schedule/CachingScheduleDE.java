@@ -0,0 +1,61 @@
+package org.oddjob.designer.elements.schedule;
+
+import org.oddjob.arooa.design.DesignFactory;
+import org.oddjob.arooa.design.DesignInstance;
+import org.oddjob.arooa.design.DesignProperty;
+import org.oddjob.arooa.design.DesignValueBase;
+import org.oddjob.arooa.design.SimpleDesignProperty;
+import org.oddjob.arooa.design.SimpleTextAttribute;
+import org.oddjob.arooa.design.screem.BorderedGroup;
+import org.oddjob.arooa.design.screem.Form;
+import org.oddjob.arooa.design.screem.StandardForm;
+import org.oddjob.arooa.parsing.ArooaContext;
+import org.oddjob.arooa.parsing.ArooaElement;
+
+/**
+ * Caching Schedule.
+ *
+ */
+public class CachingScheduleDE implements DesignFactory {
+	
+	public DesignInstance createDesign(ArooaElement element,
+			ArooaContext parentContext) {
+
+		return new CachingScheduleDesign(element, parentContext);
+	}
+}
+
+class CachingScheduleDesign extends DesignValueBase {
+	
+	private final SimpleDesignProperty schedule;
+	
+	private final SimpleTextAttribute size;
+	
+	private final SimpleTextAttribute ahead;
+	
+	public CachingScheduleDesign(ArooaElement element, ArooaContext parentContext) {
+		super(element, parentContext);
+		
+		schedule = new SimpleDesignProperty(
+				"schedule", this);
+		
+		size = new SimpleTextAttribute("size", this);
+		
+		ahead = new SimpleTextAttribute("ahead", this);
+	}
+	
+	public Form detail() {
+		return new StandardForm(this).addFormItem(
+				new BorderedGroup()
+			.add(schedule.view().setTitle("Schedule"))
+			.add(size.view().setTitle("Size"))
+			.add(ahead.view().setTitle("Ahead"))
+			);
+	}
+
+	@Override
+	public DesignProperty[] children() {
+		return new DesignProperty[] { schedule, size, ahead };
+	}
+	
+}
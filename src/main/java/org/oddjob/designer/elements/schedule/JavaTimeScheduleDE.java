@@ -0,0 +1,50 @@
+package org.oddjob.designer.elements.schedule;
+
+import org.oddjob.arooa.design.DesignFactory;
+import org.oddjob.arooa.design.DesignInstance;
+import org.oddjob.arooa.design.DesignProperty;
+import org.oddjob.arooa.design.DesignValueBase;
+import org.oddjob.arooa.design.SimpleDesignProperty;
+import org.oddjob.arooa.design.screem.BorderedGroup;
+import org.oddjob.arooa.design.screem.Form;
+import org.oddjob.arooa.design.screem.StandardForm;
+import org.oddjob.arooa.parsing.ArooaContext;
+import org.oddjob.arooa.parsing.ArooaElement;
+
+/**
+ * Java Time Schedule.
+ *
+ */
+public class JavaTimeScheduleDE implements DesignFactory {
+	
+	public DesignInstance createDesign(ArooaElement element,
+			ArooaContext parentContext) {
+
+		return new JavaTimeScheduleDesign(element, parentContext);
+	}
+}
+
+class JavaTimeScheduleDesign extends DesignValueBase {
+	
+	private final SimpleDesignProperty schedule;
+	
+	public JavaTimeScheduleDesign(ArooaElement element, ArooaContext parentContext) {
+		super(element, parentContext);
+		
+		schedule = new SimpleDesignProperty(
+				"schedule", this);
+	}
+	
+	public Form detail() {
+		return new StandardForm(this).addFormItem(
+				new BorderedGroup()
+			.add(schedule.view().setTitle("Schedule"))
+			);
+	}
+
+	@Override
+	public DesignProperty[] children() {
+		return new DesignProperty[] { schedule };
+	}
+	
+}
@@ -29,13 +29,8 @@ implements Serializable {
 	throws IOException {
 		s.defaultWriteObject();
 		s.writeObject(getName());
-		if (loggerName().startsWith(getClass().getName())) {
-			s.writeObject(null);
-		}
-		else {
-			s.writeObject(loggerName());
-		}
-		s.writeObject(stateHandler().lastStateEvent().serializable());
+		s.writeObject(loggerNameToSave());
+		s.writeObject(stateDetailToSave());
 	}
 
 	/**
@@ -51,6 +46,39 @@ implements Serializable {
 		
 		completeConstruction();
 		
+		restoreSaved(name, savedEvent);
+	}
+
+	/**
+	 * The logger name to save. Null if it is the default for the class.
+	 * 
+	 * @return The logger name or null.
+	 */
+	String loggerNameToSave() {
+		if (loggerName().startsWith(getClass().getName())) {
+			return null;
+		}
+		else {
+			return loggerName();
+		}
+	}
+	
+	/**
+	 * The last state to save.
+	 * 
+	 * @return The state detail. Never null.
+	 */
+	StateDetail stateDetailToSave() {
+		return stateHandler().lastStateEvent().serializable();
+	}
+	
+	/**
+	 * Restore the name and state that were saved.
+	 * 
+	 * @param name The name. May be null.
+	 * @param savedEvent The saved state. Must not be null.
+	 */
+	void restoreSaved(String name, StateDetail savedEvent) {
 		setName(name);
 		stateHandler().restoreLastJobStateEvent(savedEvent);
 		iconHelper().changeIcon(
@@ -0,0 +1,66 @@
+package org.oddjob.framework.extend;
+
+import org.oddjob.state.StateDetail;
+
+import java.util.Objects;
+
+/**
+ * The part of a {@link SerializableJob} that is saved by its custom
+ * serialisation, made available so that a persistence format other than
+ * Java Serialization can save and restore it.
+ *
+ * @see org.oddjob.persist.CompactJobCodec
+ */
+public class SerializableJobSnapshot {
+
+	private final String name;
+
+	private final String loggerName;
+
+	private final StateDetail stateDetail;
+
+	public SerializableJobSnapshot(String name, String loggerName,
+			StateDetail stateDetail) {
+		this.name = name;
+		this.loggerName = loggerName;
+		this.stateDetail = Objects.requireNonNull(stateDetail);
+	}
+
+	/**
+	 * Take a snapshot of the job.
+	 *
+	 * @param job The job. Must not be null.
+	 * @return A snapshot. Never null.
+	 */
+	public static SerializableJobSnapshot of(SerializableJob job) {
+		return new SerializableJobSnapshot(job.getName(),
+				job.loggerNameToSave(), job.stateDetailToSave());
+	}
+
+	/**
+	 * Restore this snapshot to a job, as if it had been deserialized.
+	 *
+	 * @param job The job. Must not be null.
+	 */
+	public void restoreTo(SerializableJob job) {
+		job.logger(loggerName);
+		job.restoreSaved(name, stateDetail);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * The logger name.
+	 *
+	 * @return The logger name, or null if it was the default.
+	 */
+	public String getLoggerName() {
+		return loggerName;
+	}
+
+	public StateDetail getStateDetail() {
+		return stateDetail;
+	}
+}
@@ -70,9 +70,9 @@ public class JMXClientJob extends ClientBase
     public static final long DEFAULT_LOG_POLLING_INTERVAL = 5000;
 
     /**
-     * The log poller thread
+     * Receives log and console events from the server.
      */
-    private RemoteLogPoller logPoller;
+    private RemoteLogStreamer logPoller;
 
     /**
      * Child helper
@@ -108,7 +108,9 @@ public class JMXClientJob extends ClientBase
     /**
      * @oddjob.property
      * @oddjob.description The number of milliseconds between polling for new
-     * log events. Defaults to 5.
+     * log events. Servers that push log events to the client aren't polled,
+     * instead the subscription is renewed, so this should be well within the
+     * two minute lease a server gives. Defaults to 5000.
      * @oddjob.required No.
      */
     private long logPollingInterval = 5000;
@@ -147,10 +149,6 @@ public class JMXClientJob extends ClientBase
             throw new NullPointerException("logPoller not available");
         }
         logPoller.addLogListener(l, component, level, last, history);
-        // force poller to poll.
-        synchronized (logPoller) {
-            logPoller.notifyAll();
-        }
     }
 
     /* (non-Javadoc)
@@ -177,10 +175,6 @@ public class JMXClientJob extends ClientBase
             throw new NullPointerException("logPoller not available");
         }
         logPoller.addConsoleListener(l, component, last, max);
-        // force main thread to poll.
-        synchronized (this) {
-            notifyAll();
-        }
     }
 
     /* (non-Javadoc)
@@ -246,7 +240,7 @@ public class JMXClientJob extends ClientBase
 
         serverView = new ServerView(serverMain);
 
-        this.logPoller = new RemoteLogPoller(serverMain,
+        this.logPoller = new RemoteLogStreamer(serverMain,
                 maxConsoleLines, maxLoggerLines);
 
         serverView.startStructural(childHelper);
@@ -270,17 +264,24 @@ public class JMXClientJob extends ClientBase
             }
         }, getHeartbeat(), getHeartbeat(), TimeUnit.MILLISECONDS);
 
-        logPoller.setLogPollingInterval(logPollingInterval);
+        RemoteLogStreamer streamer = this.logPoller;
+        notificationProcessor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                streamer.poll();
+            }
 
-        Thread t = new Thread(logPoller);
-        t.start();
+            @Override
+            public String toString() {
+                return "Log Poller";
+            }
+        }, logPollingInterval, logPollingInterval, TimeUnit.MILLISECONDS);
     }
 
 
     @Override
     protected void onStop(final WhyStop why) {
 
-        logPoller.stop();
+        logPoller.onDestroy();
 
         // if not destroyed by remote peer
         if (why == WhyStop.STOP_REQUEST) {
@@ -108,7 +108,9 @@ public class JMXServerJob implements ArooaSessionAware, JmxServer {
     /**
      * @oddjob.property
      * @oddjob.description The JMX service URL. If this is not provided the
-     * server connects to the Platform MBean Server.
+     * server connects to the Platform MBean Server. A URL such as
+     * <code>service:jmx:oddjob://localhost:2013</code> will serve clients over
+     * a plain socket rather than RMI. There is no security with this protocol.
      * @oddjob.required No.
      */
     private String url;
@@ -161,6 +163,19 @@ public class JMXServerJob implements ArooaSessionAware, JmxServer {
      */
     private Map<String, ?> environment;
 
+    /**
+     * @oddjob.property
+     * @oddjob.description The number of milliseconds over which to batch
+     * state, icon and structural notifications before sending them to
+     * clients. Only the latest icon and child list of a job are sent.
+     * This reduces the traffic from jobs that change very frequently,
+     * such as a <code>foreach</code> with thousands of children. Clients
+     * must be of a version that understands batched notifications. The
+     * default is 0 which sends notifications as they happen.
+     * @oddjob.required No.
+     */
+    private long notificationWindow;
+
     @ArooaHidden
     public void setArooaSession(ArooaSession session) {
         this.session = session;
@@ -265,6 +280,7 @@ public class JMXServerJob implements ArooaSessionAware, JmxServer {
                 .andEnvironment(environment)
                 .andHandlerFactories(this.handlerFactories)
                 .andLogFormat(this.logFormat)
+                .andNotificationWindow(this.notificationWindow)
                 .buildWith(server,
                         serverStrategy.serverIdText(),
                         root);
@@ -320,4 +336,12 @@ public class JMXServerJob implements ArooaSessionAware, JmxServer {
     public void setEnvironment(Map<String, ?> environment) {
         this.environment = environment;
     }
+
+    public long getNotificationWindow() {
+        return notificationWindow;
+    }
+
+    public void setNotificationWindow(long notificationWindow) {
+        this.notificationWindow = notificationWindow;
+    }
 }
@@ -69,7 +69,9 @@ class ConnectorServerStrategy extends ServerStrategy {
 	
 	@Override
 	public String serverIdText() {
-		return serviceURL.getURLPath();
+		String path = serviceURL.getURLPath();
+		// Protocols such as the Oddjob socket protocol have no path.
+		return path.isEmpty() ? serviceURL.toString() : path;
 	}
 	
 	@Override
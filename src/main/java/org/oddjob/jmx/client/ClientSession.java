@@ -54,4 +54,14 @@ public interface ClientSession extends RemoteIdMappings {
 
 	ClientInterfaceManagerFactory getInterfaceManagerFactory();
 
+	/**
+	 * Get the results of operations fetched in bulk ahead of handlers
+	 * invoking them.
+	 *
+	 * @return The cache, or null if this session doesn't prefetch.
+	 */
+	default PrefetchCache getPrefetchCache() {
+		return null;
+	}
+
 }
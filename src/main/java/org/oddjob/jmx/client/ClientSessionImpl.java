@@ -32,6 +32,8 @@ public class ClientSessionImpl implements ClientSession {
 
 	private final ClientInterfaceManagerFactory interfaceManagerFactory;
 
+	private final PrefetchCache prefetchCache = new PrefetchCache();
+
 	/**
 	 * Constructor.
 	 * 
@@ -107,6 +109,7 @@ public class ClientSessionImpl implements ClientSession {
 		destroyer.destroy();
 		long name = names.remove(proxy);
 		proxies.remove(name);
+		prefetchCache.discard(name);
 	}
 	
 	@Override
@@ -132,6 +135,11 @@ public class ClientSessionImpl implements ClientSession {
 		return interfaceManagerFactory;
 	}
 
+	@Override
+	public PrefetchCache getPrefetchCache() {
+		return prefetchCache;
+	}
+
 	@Override
 	public void destroyAll() {
 		List<Object> proxies = new ArrayList<>(names.keySet());
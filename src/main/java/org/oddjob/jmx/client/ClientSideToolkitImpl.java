@@ -17,6 +17,7 @@ import javax.management.ObjectName;
 import javax.management.ReflectionException;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -55,6 +56,15 @@ class ClientSideToolkitImpl implements ClientSideToolkit {
 	public <T> T invoke(RemoteOperation<T> remote, Object... args) throws RemoteException {
 		Objects.requireNonNull(remote);
 
+		if (args == null || args.length == 0) {
+			Optional<Object> prefetched = clientSession.getPrefetchCache()
+					.take(remoteId, remote.getActionName());
+			if (prefetched.isPresent()) {
+				logger.trace("Using prefetched result of {} for remote {}", remote, remoteId);
+				return (T) Utils.importResolve(prefetched.get(), clientSession);
+			}
+		}
+
 		Object result;
 		try {
 			Object[] exported = Utils.export(args);
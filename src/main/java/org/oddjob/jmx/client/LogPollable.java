@@ -1,6 +1,7 @@
 package org.oddjob.jmx.client;
 
 import org.oddjob.logging.LogEvent;
+import org.oddjob.logging.LogListener;
 
 /**
  * An interface for a client side proxy to implement so that a
@@ -15,6 +16,11 @@ import org.oddjob.logging.LogEvent;
  * <p>
  * Polling provides an indication that a remote component is
  * working or what a potential problem might be.
+ * <p>
+ * Servers that support it will also push new events to subscribers
+ * as they happen. Subscribers still poll once after subscribing, and
+ * whenever the message numbers of pushed events show a gap, to retrieve
+ * anything missed.
  * 
  * @author Rob Gordon
  */
@@ -56,4 +62,45 @@ public interface LogPollable {
 	 */
 	LogEvent[] retrieveConsoleEvents(long from, int max);
 
+	/**
+	 * Subscribe to log events being pushed from the server as they
+	 * happen. Subscribing again with the same listener renews the subscription.
+	 * The server stops pushing events if it isn't renewed within its lease.
+	 *
+	 * @param listener The listener that will receive the events.
+	 * @return true if events will be pushed, false if the server can't
+	 * push events and they must be polled for.
+	 */
+	default boolean subscribeLogEvents(LogListener listener) {
+		return false;
+	}
+
+	/**
+	 * Stop log events being pushed to the listener.
+	 *
+	 * @param listener The listener.
+	 */
+	default void unsubscribeLogEvents(LogListener listener) {
+	}
+
+	/**
+	 * Subscribe to console events being pushed from the server as they
+	 * happen. Subscribing again with the same listener renews the subscription.
+	 * The server stops pushing events if it isn't renewed within its lease.
+	 *
+	 * @param listener The listener that will receive the events.
+	 * @return true if events will be pushed, false if the server can't
+	 * push events and they must be polled for.
+	 */
+	default boolean subscribeConsoleEvents(LogListener listener) {
+		return false;
+	}
+
+	/**
+	 * Stop console events being pushed to the listener.
+	 *
+	 * @param listener The listener.
+	 */
+	default void unsubscribeConsoleEvents(LogListener listener) {
+	}
 }
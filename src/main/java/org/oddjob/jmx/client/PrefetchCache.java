@@ -0,0 +1,150 @@
+package org.oddjob.jmx.client;
+
+import org.oddjob.jmx.handlers.TreeSnapshot;
+
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Holds the results of operations fetched in bulk with a {@link TreeSnapshot}
+ * until the client side handlers invoke them.
+ * <p>
+ * Each result is only given out once, after that handlers go back to the
+ * server. Results are also only given out for a short time after they were
+ * fetched. Synchronising a handler from a result relies on the handler
+ * having registered for notifications soon enough after the snapshot
+ * that it will have missed nothing, as notifications carry the whole state
+ * not a change to it, anything missed will be corrected by the next
+ * notification.
+ *
+ * @author rob
+ */
+public class PrefetchCache {
+
+	/** Default time results are kept for. */
+	public static final long DEFAULT_MAX_AGE_MILLIS = 30_000L;
+
+	private final long maxAgeMillis;
+
+	private final Clock clock;
+
+	/** Results by remote id. */
+	private final Map<Long, Node> nodes = new HashMap<>();
+
+	/** Set when the server doesn't support snapshots. */
+	private volatile boolean unsupported;
+
+	public PrefetchCache() {
+		this(DEFAULT_MAX_AGE_MILLIS, Clock.systemUTC());
+	}
+
+	public PrefetchCache(long maxAgeMillis, Clock clock) {
+		this.maxAgeMillis = maxAgeMillis;
+		this.clock = clock;
+	}
+
+	/**
+	 * Add the results from a snapshot. Any results that have expired are
+	 * discarded.
+	 *
+	 * @param snapshot The snapshot.
+	 */
+	public synchronized void load(TreeSnapshot snapshot) {
+		long now = clock.millis();
+		for (Iterator<Node> it = nodes.values().iterator(); it.hasNext(); ) {
+			if (it.next().isExpired(now)) {
+				it.remove();
+			}
+		}
+		for (long remoteId : snapshot.getRemoteIds()) {
+			Node node = new Node(now);
+			snapshot.getResults(remoteId).forEach((actionName, result) -> {
+				if (result != null) {
+					node.results.put(actionName, result);
+				}
+			});
+			nodes.put(remoteId, node);
+		}
+	}
+
+	/**
+	 * Is there a result available for an operation.
+	 *
+	 * @param remoteId The remote id.
+	 * @param actionName The operation name.
+	 *
+	 * @return true if {@link #take(long, String)} would provide a result.
+	 */
+	public synchronized boolean contains(long remoteId, String actionName) {
+		Node node = nodes.get(remoteId);
+		return node != null && !node.isExpired(clock.millis())
+				&& node.results.containsKey(actionName);
+	}
+
+	/**
+	 * Take the result of an operation.
+	 *
+	 * @param remoteId The remote id.
+	 * @param actionName The operation name.
+	 *
+	 * @return The result, or empty if there isn't one, in which case
+	 * the operation should be invoked on the server.
+	 */
+	public synchronized Optional<Object> take(long remoteId, String actionName) {
+		Node node = nodes.get(remoteId);
+		if (node == null) {
+			return Optional.empty();
+		}
+		if (node.isExpired(clock.millis())) {
+			nodes.remove(remoteId);
+			return Optional.empty();
+		}
+		Object result = node.results.remove(actionName);
+		if (node.results.isEmpty()) {
+			nodes.remove(remoteId);
+		}
+		return Optional.ofNullable(result);
+	}
+
+	/**
+	 * Discard any results for a remote id.
+	 *
+	 * @param remoteId The remote id.
+	 */
+	public synchronized void discard(long remoteId) {
+		nodes.remove(remoteId);
+	}
+
+	/**
+	 * Record that the server can't provide snapshots so that it isn't
+	 * asked again.
+	 */
+	public void setUnsupported() {
+		this.unsupported = true;
+	}
+
+	public boolean isUnsupported() {
+		return unsupported;
+	}
+
+	/**
+	 * The results for a single node.
+	 */
+	class Node {
+
+		private final long loaded;
+
+		private final Map<String, Object> results = new HashMap<>();
+
+		Node(long loaded) {
+			this.loaded = loaded;
+		}
+
+		boolean isExpired(long now) {
+			return now - loaded > maxAgeMillis;
+		}
+	}
+}
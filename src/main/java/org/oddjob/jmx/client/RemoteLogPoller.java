@@ -14,7 +14,10 @@ import org.slf4j.LoggerFactory;
  * log information.
  * 
  * @author Rob Gordon
+ * @deprecated Use {@link RemoteLogStreamer} which receives events pushed
+ * from the server and only polls servers that can't push.
  */
+@Deprecated
 public class RemoteLogPoller 
 implements Runnable, LogArchiver, ConsoleArchiver {
 	private static final Logger logger = LoggerFactory.getLogger(RemoteLogPoller.class);
@@ -0,0 +1,149 @@
+package org.oddjob.jmx.client;
+
+import org.oddjob.arooa.logging.LogLevel;
+import org.oddjob.logging.ConsoleArchiver;
+import org.oddjob.logging.LogArchiver;
+import org.oddjob.logging.LogEvent;
+import org.oddjob.logging.LogListener;
+import org.oddjob.logging.cache.LogEventStream;
+import org.oddjob.logging.cache.StreamingLogArchiver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A LogArchiver which maintains it's log archives from log and console
+ * events pushed by the server.
+ * <p>
+ * Events for servers that can't push them, or for which subscribing
+ * failed, are retrieved when {@link #poll()} is called, as they were by
+ * {@link RemoteLogPoller}.
+ *
+ * @author rob
+ */
+public class RemoteLogStreamer implements LogArchiver, ConsoleArchiver {
+	private static final Logger logger = LoggerFactory.getLogger(RemoteLogStreamer.class);
+
+	/** Archiver to store console messages pushed from the server side. */
+	private final StreamingLogArchiver consoleArchiver;
+
+	/** Archiver to store log messages pushed from the server side. */
+	private final StreamingLogArchiver loggerArchiver;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param root The root component. Only used to check it's there.
+	 * @param consoleHistoryLines The number of console lines to keep.
+	 * @param logHistoryLines The number of log lines to keep.
+	 */
+	public RemoteLogStreamer(Object root,
+			int consoleHistoryLines, int logHistoryLines) {
+		if (root == null) {
+			throw new NullPointerException("Root component must not be null.");
+		}
+		if (consoleHistoryLines < 1) {
+			throw new IllegalArgumentException("Console history lines must be greater than zero.");
+		}
+		if (logHistoryLines < 1) {
+			throw new IllegalArgumentException("Log history lines must be greater than zero.");
+		}
+
+		consoleArchiver = new StreamingLogArchiver(consoleHistoryLines,
+				component -> {
+					if (component instanceof LogPollable) {
+						return RemoteLogPoller.consoleArchiveFor((LogPollable) component);
+					}
+					else {
+						return null;
+					}
+				},
+				new LogEventStream() {
+					@Override
+					public boolean subscribe(Object component, LogListener listener) {
+						return ((LogPollable) component).subscribeConsoleEvents(listener);
+					}
+
+					@Override
+					public void unsubscribe(Object component, LogListener listener) {
+						((LogPollable) component).unsubscribeConsoleEvents(listener);
+					}
+
+					@Override
+					public LogEvent[] retrieveEvents(Object component, long from, int max) {
+						logger.debug("Retrieving console events for [{}]", component);
+						return ((LogPollable) component).retrieveConsoleEvents(from, max);
+					}
+				});
+
+		loggerArchiver = new StreamingLogArchiver(logHistoryLines,
+				component -> {
+					if (component instanceof LogPollable) {
+						return RemoteLogPoller.logArchiveFor((LogPollable) component);
+					}
+					else {
+						return null;
+					}
+				},
+				new LogEventStream() {
+					@Override
+					public boolean subscribe(Object component, LogListener listener) {
+						return ((LogPollable) component).subscribeLogEvents(listener);
+					}
+
+					@Override
+					public void unsubscribe(Object component, LogListener listener) {
+						((LogPollable) component).unsubscribeLogEvents(listener);
+					}
+
+					@Override
+					public LogEvent[] retrieveEvents(Object component, long from, int max) {
+						LogEvent[] results = ((LogPollable) component).retrieveLogEvents(from, max);
+						logger.debug("Retrieved [{}] log events for [{}]", results.length, component);
+						return results;
+					}
+				});
+	}
+
+	@Override
+	public void addLogListener(LogListener l, Object component,
+			LogLevel level, long last, int max) {
+		loggerArchiver.addLogListener(l, component, level, last, max);
+	}
+
+	@Override
+	public void removeLogListener(LogListener l, Object component) {
+		loggerArchiver.removeLogListener(l, component);
+	}
+
+	@Override
+	public void addConsoleListener(LogListener l, Object component, long last,
+			int max) {
+		consoleArchiver.addLogListener(l, component, LogLevel.DEBUG, last, max);
+	}
+
+	@Override
+	public void removeConsoleListener(LogListener l, Object component) {
+		consoleArchiver.removeLogListener(l, component);
+	}
+
+	@Override
+	public String consoleIdFor(Object component) {
+		return RemoteLogPoller.consoleArchiveFor((LogPollable) component);
+	}
+
+	/**
+	 * Retrieve events for components whose server can't push them.
+	 */
+	public void poll() {
+		consoleArchiver.poll();
+		loggerArchiver.poll();
+	}
+
+	/**
+	 * Stop all subscriptions.
+	 */
+	public void onDestroy() {
+		consoleArchiver.onDestroy();
+		loggerArchiver.onDestroy();
+	}
+}
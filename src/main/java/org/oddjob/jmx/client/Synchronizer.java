@@ -1,6 +1,7 @@
 package org.oddjob.jmx.client;
 
 import org.oddjob.remote.Notification;
+import org.oddjob.remote.NotificationBatch;
 import org.oddjob.remote.NotificationListener;
 
 import java.util.Arrays;
@@ -13,8 +14,13 @@ import java.util.List;
  * get initial state.
  * <p>
  * During the synchronisation phase any asynchronous events are queued and
- * processed after synchronisation. Duplicates are detected by the
- * notification number and removed.
+ * processed after synchronisation. Any queued notification with a sequence
+ * number at or below that of the last synchronous notification is a
+ * duplicate, or older, and is removed.
+ * <p>
+ * A compound notification from a server that batches notifications is
+ * unpacked and the notifications it contains are treated as if they had
+ * arrived one at a time.
  *
  * @author rob
  */
@@ -29,13 +35,16 @@ public class Synchronizer<T> implements NotificationListener<T> {
     }
 
     public void handleNotification(Notification<T> notification) {
+        List<Notification<T>> notifications = NotificationBatch.unpack(notification);
         synchronized (this) {
             if (pending != null) {
-                pending.addLast(notification);
+                pending.addAll(notifications);
                 return;
             }
         }
-        listener.handleNotification(notification);
+        for (Notification<T> each : notifications) {
+            listener.handleNotification(each);
+        }
     }
 
     public final void synchronize(Notification<T> last) {
@@ -57,7 +66,7 @@ public class Synchronizer<T> implements NotificationListener<T> {
      * @param last The last notifications.
      */
     public final void synchronize(List<Notification<T>> last) {
-        long seq = 0;
+        long seq = -1;
 
         for (Notification<T> notification : last) {
             listener.handleNotification(notification);
@@ -72,7 +81,7 @@ public class Synchronizer<T> implements NotificationListener<T> {
                     return;
                 }
                 notification = pending.removeFirst();
-                if (notification.getSequence() < seq) {
+                if (notification.getSequence() <= seq) {
                     continue;
                 }
             }
@@ -258,6 +258,11 @@ public class LocalRemoteConnection implements RemoteConnection {
             }
         }
 
+        @Override
+        public ServerInterfaceManager interfaceManagerFor(long remoteId) {
+            return nodes.get(remoteId);
+        }
+
         @Override
         public ArooaSession getArooaSession() {
             return session;
@@ -23,7 +23,7 @@ implements ServerInterfaceHandlerFactory<Object, LogEnabled> {
 	
 	public static final HandlerVersion VERSION = new HandlerVersion(2, 0);
 	
-	private static final JMXOperation<String> GET_LOGGER = 
+	static final JMXOperation<String> GET_LOGGER = 
 		new JMXOperationFactory(LogEnabled.class
 				).operationFor("loggerName", MBeanOperationInfo.INFO);
 
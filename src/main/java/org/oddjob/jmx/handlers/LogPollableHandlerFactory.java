@@ -1,5 +1,6 @@
 package org.oddjob.jmx.handlers;
 
+import org.oddjob.arooa.logging.LogLevel;
 import org.oddjob.jmx.RemoteOperation;
 import org.oddjob.jmx.SharedConstants;
 import org.oddjob.jmx.client.ClientInterfaceHandlerFactory;
@@ -7,38 +8,119 @@ import org.oddjob.jmx.client.ClientSideToolkit;
 import org.oddjob.jmx.client.HandlerVersion;
 import org.oddjob.jmx.client.LogPollable;
 import org.oddjob.jmx.server.*;
+import org.oddjob.logging.ConsoleArchiver;
+import org.oddjob.logging.LogArchiver;
 import org.oddjob.logging.LogEvent;
+import org.oddjob.logging.LogListener;
 import org.oddjob.remote.NoSuchOperationException;
+import org.oddjob.remote.NotificationListener;
 import org.oddjob.remote.NotificationType;
+import org.oddjob.remote.RemoteException;
+import org.oddjob.scheduling.OddjobThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanNotificationInfo;
 import javax.management.MBeanOperationInfo;
 import java.lang.reflect.UndeclaredThrowableException;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Provide Handlers for the {@link LogPollable} interface.
  * <p>
  * This is a special handler because url and consoleId never
  * change on the server so we can cache the values.
+ * <p>
+ * Since version 2.1 new log and console events are also pushed as
+ * notifications while a client is subscribed to them. Each notification
+ * carries the events from a single write to the archive. Clients use the
+ * message numbers of the events to detect a gap, and poll to fill it.
+ * <p>
+ * Clients subscribe with an operation rather than by just adding a
+ * notification listener because a JMX connector may listen to all
+ * notifications of every MBean on behalf of its clients. A subscription
+ * is a lease that lapses unless the client renews it by subscribing
+ * again, so that a client that goes away without unsubscribing doesn't
+ * leave the events being pushed forever.
  * 
  * @author rob
  */
 public class LogPollableHandlerFactory 
 implements ServerInterfaceHandlerFactory<Object, LogPollable> {
+
+	private static final Logger logger = LoggerFactory.getLogger(LogPollableHandlerFactory.class);
 	
-	public static final HandlerVersion VERSION = new HandlerVersion(2, 0);
+	public static final HandlerVersion VERSION = new HandlerVersion(2, 1);
+
+	public static final NotificationType<LogEvent[]> LOG_EVENTS_NOTIF_TYPE =
+			NotificationType.ofName("org.oddjob.logevents")
+					.andDataType(LogEvent[].class);
+
+	public static final NotificationType<LogEvent[]> CONSOLE_EVENTS_NOTIF_TYPE =
+			NotificationType.ofName("org.oddjob.consoleevents")
+					.andDataType(LogEvent[].class);
+
+	/**
+	 * Sends pushed events, so that they are sent outside of the archive's
+	 * lock. The thread goes when there is nothing to send.
+	 */
+	private static final Executor PUSHER;
+
+	static {
+		ThreadFactory threadFactory = new OddjobThreadFactory("LogEventPusher");
+		PUSHER = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(),
+				r -> {
+					Thread t = threadFactory.newThread(r);
+					t.setDaemon(true);
+					return t;
+				});
+	}
+
+	/** The default length of a subscription lease. */
+	public static final long DEFAULT_LEASE_MILLIS = 120_000L;
+
+	static final JMXOperationPlus<Long> SUBSCRIBE_EVENTS =
+			new JMXOperationPlus<>(
+					"logEventsSubscribe",
+					"Subscribe to, or renew a Subscription to, Pushed Events",
+					Long.class,
+					MBeanOperationInfo.ACTION)
+			.addParam("type", String.class, "Notification Type")
+			.addParam("subscriber", String.class, "Subscriber Id");
+
+	private static final JMXOperationPlus<Void> UNSUBSCRIBE_EVENTS =
+			new JMXOperationPlus<>(
+					"logEventsUnsubscribe",
+					"Unsubscribe from Pushed Events",
+					Void.TYPE,
+					MBeanOperationInfo.ACTION)
+			.addParam("type", String.class, "Notification Type")
+			.addParam("subscriber", String.class, "Subscriber Id");
 	
-	private static final JMXOperationPlus<String> CONSOLE_ID =
+	static final JMXOperationPlus<String> CONSOLE_ID =
 			new JMXOperationPlus<>(
 					"consoleId",
 					"Console ID",
 					String.class,
 					MBeanOperationInfo.INFO);
 	
-	private static final JMXOperationPlus<String> URL =
+	static final JMXOperationPlus<String> URL =
 			new JMXOperationPlus<>(
 					"url",
 					"Remote URL",
@@ -63,7 +145,22 @@ implements ServerInterfaceHandlerFactory<Object, LogPollable> {
 			.addParam("seqNum", Long.TYPE, "Sequence Number")
 			.addParam("history", Integer.TYPE, "History");
 
-	
+	/** How long a subscription lasts unless it's renewed. */
+	private final long leaseMillis;
+
+	public LogPollableHandlerFactory() {
+		this(DEFAULT_LEASE_MILLIS);
+	}
+
+	/**
+	 * Constructor for a different lease length.
+	 *
+	 * @param leaseMillis How long a subscription lasts unless it's renewed.
+	 */
+	LogPollableHandlerFactory(long leaseMillis) {
+		this.leaseMillis = leaseMillis;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.oddjob.jmx.server.ServerInterfaceHandlerFactory#interfaceClass()
@@ -94,13 +191,15 @@ implements ServerInterfaceHandlerFactory<Object, LogPollable> {
 				CONSOLE_ID.getOpInfo(),
 				URL.getOpInfo(),
 				RETRIEVE_CONSOLE_EVENTS.getOpInfo(),
-				RETRIEVE_LOG_EVENTS.getOpInfo()
+				RETRIEVE_LOG_EVENTS.getOpInfo(),
+				SUBSCRIBE_EVENTS.getOpInfo(),
+				UNSUBSCRIBE_EVENTS.getOpInfo()
 		};
 	}
 
 	@Override
 	public List<NotificationType<?>> getNotificationTypes() {
-		return Collections.emptyList();
+		return Arrays.asList(LOG_EVENTS_NOTIF_TYPE, CONSOLE_EVENTS_NOTIF_TYPE);
 	}
 
 	public MBeanNotificationInfo[] getMBeanNotificationInfo() {
@@ -109,7 +208,7 @@ implements ServerInterfaceHandlerFactory<Object, LogPollable> {
 
 	@Override
 	public ServerInterfaceHandler createServerHandler(Object target, ServerSideToolkit ojmb) {
-		return new ServerLogPollableHandler(target, ojmb);
+		return new ServerLogPollableHandler(target, ojmb, leaseMillis);
 	}
 
 	public static class ClientFactory
@@ -137,6 +236,32 @@ implements ServerInterfaceHandlerFactory<Object, LogPollable> {
 		private final String url;
 
 		private final ClientSideToolkit toolkit;
+
+		private final Map<LogListener, Subscription> logSubscriptions =
+				new HashMap<>();
+
+		private final Map<LogListener, Subscription> consoleSubscriptions =
+				new HashMap<>();
+
+		/**
+		 * A listener's subscription. The id identifies the subscription
+		 * to the server.
+		 */
+		static class Subscription {
+
+			private final String id = UUID.randomUUID().toString();
+
+			private final NotificationListener<LogEvent[]> notificationListener;
+
+			Subscription(LogListener listener) {
+				this.notificationListener = notification -> {
+					LogEvent[] events = notification.getData();
+					if (events != null && events.length > 0) {
+						listener.logEvents(Arrays.asList(events));
+					}
+				};
+			}
+		}
 		
 		ClientLogPollableHandler(ClientSideToolkit toolkit) {
 
@@ -191,6 +316,84 @@ implements ServerInterfaceHandlerFactory<Object, LogPollable> {
 				throw new UndeclaredThrowableException(t);
 			}
 		}
+
+		@Override
+		public boolean subscribeLogEvents(LogListener listener) {
+			return subscribe(LOG_EVENTS_NOTIF_TYPE, logSubscriptions, listener);
+		}
+
+		@Override
+		public void unsubscribeLogEvents(LogListener listener) {
+			unsubscribe(LOG_EVENTS_NOTIF_TYPE, logSubscriptions, listener);
+		}
+
+		@Override
+		public boolean subscribeConsoleEvents(LogListener listener) {
+			return subscribe(CONSOLE_EVENTS_NOTIF_TYPE, consoleSubscriptions, listener);
+		}
+
+		@Override
+		public void unsubscribeConsoleEvents(LogListener listener) {
+			unsubscribe(CONSOLE_EVENTS_NOTIF_TYPE, consoleSubscriptions, listener);
+		}
+
+		/**
+		 * Subscribe, or renew the subscription if the listener is already
+		 * subscribed. Servers before version 2.1 of this handler don't
+		 * have the operation, and so don't push events.
+		 *
+		 * @return true if the server will push events.
+		 */
+		private boolean subscribe(NotificationType<LogEvent[]> type,
+								  Map<LogListener, Subscription> subscriptions,
+								  LogListener listener) {
+			Subscription subscription;
+			boolean renewing;
+			synchronized (subscriptions) {
+				subscription = subscriptions.get(listener);
+				renewing = subscription != null;
+				if (!renewing) {
+					subscription = new Subscription(listener);
+					subscriptions.put(listener, subscription);
+				}
+			}
+			try {
+				if (!renewing) {
+					toolkit.registerNotificationListener(type,
+							subscription.notificationListener);
+				}
+				toolkit.invoke(SUBSCRIBE_EVENTS, type.getName(), subscription.id);
+				return true;
+			} catch (Throwable t) {
+				logger.debug("Failed to subscribe to {} for [{}], events will be polled.",
+						type, url, t);
+				unsubscribe(type, subscriptions, listener);
+				return false;
+			}
+		}
+
+		private void unsubscribe(NotificationType<LogEvent[]> type,
+								 Map<LogListener, Subscription> subscriptions,
+								 LogListener listener) {
+			Subscription subscription;
+			synchronized (subscriptions) {
+				subscription = subscriptions.remove(listener);
+			}
+			if (subscription == null) {
+				return;
+			}
+			try {
+				toolkit.removeNotificationListener(type,
+						subscription.notificationListener);
+			} catch (RemoteException e) {
+				logger.debug("Failed to remove listener for {} for [{}].", type, url, e);
+			}
+			try {
+				toolkit.invoke(UNSUBSCRIBE_EVENTS, type.getName(), subscription.id);
+			} catch (Throwable t) {
+				logger.debug("Failed to unsubscribe from {} for [{}].", type, url, t);
+			}
+		}
 	}
 	
 	static class ServerLogPollableHandler implements ServerInterfaceHandler {
@@ -198,10 +401,53 @@ implements ServerInterfaceHandlerFactory<Object, LogPollable> {
 		private final Object node;
 		
 		private final ServerSideToolkit toolkit;
+
+		private final EventPusher logPusher;
+
+		private final EventPusher consolePusher;
+
+		private final long leaseMillis;
 		
-		ServerLogPollableHandler(Object object, ServerSideToolkit toolkit) {
+		ServerLogPollableHandler(Object object, ServerSideToolkit toolkit, long leaseMillis) {
 			this.node = object;
 			this.toolkit = toolkit;
+			this.leaseMillis = leaseMillis;
+
+			this.logPusher = new EventPusher(LOG_EVENTS_NOTIF_TYPE) {
+				@Override
+				void listen() {
+					LogArchiver archiver = toolkit.getContext().getLogArchiver();
+					if (archiver != null) {
+						archiver.addLogListener(this, node, LogLevel.DEBUG, -1, 0);
+					}
+				}
+
+				@Override
+				void stopListening() {
+					LogArchiver archiver = toolkit.getContext().getLogArchiver();
+					if (archiver != null) {
+						archiver.removeLogListener(this, node);
+					}
+				}
+			};
+
+			this.consolePusher = new EventPusher(CONSOLE_EVENTS_NOTIF_TYPE) {
+				@Override
+				void listen() {
+					ConsoleArchiver archiver = toolkit.getContext().getConsoleArchiver();
+					if (archiver != null) {
+						archiver.addConsoleListener(this, node, -1, 0);
+					}
+				}
+
+				@Override
+				void stopListening() {
+					ConsoleArchiver archiver = toolkit.getContext().getConsoleArchiver();
+					if (archiver != null) {
+						archiver.removeConsoleListener(this, node);
+					}
+				}
+			};
 		}
 
 		@Override
@@ -222,15 +468,173 @@ implements ServerInterfaceHandlerFactory<Object, LogPollable> {
 				return LogArchiverHelper.retrieveConsoleEvents(node,
 						toolkit.getContext().getConsoleArchiver(),
 						(Long)params[0], (Integer)params[1]);
-			}				
+			}
+			else if (SUBSCRIBE_EVENTS.equals(operation)) {
+				return pusherFor((String) params[0]).subscribe((String) params[1]);
+			}
+			else if (UNSUBSCRIBE_EVENTS.equals(operation)) {
+				pusherFor((String) params[0]).unsubscribe((String) params[1]);
+				return null;
+			}
 			else {
 				throw NoSuchOperationException.of(toolkit.getRemoteId(),
 						operation.getActionName(), operation.getSignature());
 			}
 		}
 
+		private EventPusher pusherFor(String type) {
+			if (LOG_EVENTS_NOTIF_TYPE.getName().equals(type)) {
+				return logPusher;
+			}
+			else if (CONSOLE_EVENTS_NOTIF_TYPE.getName().equals(type)) {
+				return consolePusher;
+			}
+			else {
+				throw new IllegalArgumentException("No events of type " + type);
+			}
+		}
+
 		@Override
 		public void destroy() {
+			logPusher.stop();
+			consolePusher.stop();
+		}
+
+		/**
+		 * Listens to an archive while there are subscribers to a
+		 * notification type, and sends the archived events on as notifications
+		 * of that type.
+		 * <p>
+		 * Subscribers are tracked by id with the time their lease expires.
+		 * Leases are checked when there are events to send and when
+		 * subscribers change, and listening stops once they have all
+		 * lapsed or been unsubscribed.
+		 * <p>
+		 * Events are received while the archive holds its lock, so they are
+		 * queued and sent by another thread. Otherwise slow or blocked
+		 * delivery would hold up all logging. Events queued while a send is
+		 * in progress are sent together in the next notification.
+		 */
+		abstract class EventPusher implements LogListener {
+
+			private final NotificationType<LogEvent[]> type;
+
+			/** Subscriber ids and the time their lease expires. */
+			private final Map<String, Long> leases = new HashMap<>();
+
+			/** Events waiting to be sent, in order. */
+			private final Queue<LogEvent[]> queue = new ConcurrentLinkedQueue<>();
+
+			/** Is a send scheduled or in progress. */
+			private final AtomicBoolean sending = new AtomicBoolean();
+
+			EventPusher(NotificationType<LogEvent[]> type) {
+				this.type = type;
+			}
+
+			/** Start listening to the archive. */
+			abstract void listen();
+
+			/** Stop listening to the archive. */
+			abstract void stopListening();
+
+			/**
+			 * Add a subscriber or renew their lease.
+			 *
+			 * @param subscriber The subscriber id.
+			 * @return The length of the lease.
+			 */
+			synchronized long subscribe(String subscriber) {
+				boolean listening = hasSubscribers();
+				leases.put(subscriber, System.currentTimeMillis() + leaseMillis);
+				if (!listening) {
+					listen();
+				}
+				return leaseMillis;
+			}
+
+			synchronized void unsubscribe(String subscriber) {
+				if (leases.remove(subscriber) != null && leases.isEmpty()) {
+					stopListening();
+				}
+			}
+
+			/**
+			 * Remove lapsed leases, and stop listening if none are left.
+			 *
+			 * @return true if there are still subscribers.
+			 */
+			synchronized boolean hasSubscribers() {
+				if (leases.isEmpty()) {
+					return false;
+				}
+				long now = System.currentTimeMillis();
+				for (Iterator<Long> it = leases.values().iterator(); it.hasNext(); ) {
+					if (it.next() < now) {
+						it.remove();
+					}
+				}
+				if (leases.isEmpty()) {
+					logger.debug("Subscriptions to {} for [{}] have lapsed.", type, node);
+					stopListening();
+					return false;
+				}
+				return true;
+			}
+
+			synchronized void stop() {
+				if (!leases.isEmpty()) {
+					leases.clear();
+					stopListening();
+				}
+			}
+
+			@Override
+			public void logEvent(LogEvent logEvent) {
+				if (logEvent == LogArchiver.NO_LOG_AVAILABLE) {
+					// Clients get this when they poll.
+					return;
+				}
+				push(new LogEvent[] { logEvent });
+			}
+
+			@Override
+			public void logEvents(List<LogEvent> logEvents) {
+				push(logEvents.toArray(new LogEvent[0]));
+			}
+
+			private void push(LogEvent[] events) {
+				queue.add(events);
+				if (sending.compareAndSet(false, true)) {
+					PUSHER.execute(this::send);
+				}
+			}
+
+			/**
+			 * Send everything queued. Only ever run by one thread at a
+			 * time for each pusher so events stay in order.
+			 */
+			private void send() {
+				do {
+					List<LogEvent> events = new ArrayList<>();
+					for (LogEvent[] next; (next = queue.poll()) != null; ) {
+						events.addAll(Arrays.asList(next));
+					}
+					if (!events.isEmpty() && hasSubscribers()) {
+						try {
+							toolkit.sendNotification(toolkit.createNotification(
+									type, events.toArray(new LogEvent[0])));
+						}
+						catch (RuntimeException e) {
+							logger.warn("Failed sending {} for [{}].", type, node, e);
+						}
+					}
+					sending.set(false);
+				}
+				// Something may have been queued after the queue was emptied
+				// but before the flag was cleared.
+				while (!queue.isEmpty() && sending.compareAndSet(false, true));
+			}
 		}
 	}
 	
@@ -21,12 +21,22 @@ import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Provide Handlers for the {@link Structural} interface.
+ * <p>
+ * Since version 2.1 the server handler also provides a {@link TreeSnapshot}
+ * of all the nodes below it. The first client handler to synchronise fetches
+ * a snapshot so that the proxies and handlers for the nodes below it can be
+ * created and synchronised from it, rather than each making their own
+ * calls to the server. Servers before 2.1 are synchronised node by node
+ * as before.
+ */
 public class StructuralHandlerFactory
         implements ServerInterfaceHandlerFactory<Structural, Structural> {
 
     private static final Logger logger = LoggerFactory.getLogger(StructuralHandlerFactory.class);
 
-    public static final HandlerVersion VERSION = new HandlerVersion(2, 0);
+    public static final HandlerVersion VERSION = new HandlerVersion(2, 1);
 
     public static final NotificationType<ChildData> STRUCTURAL_NOTIF_TYPE =
             NotificationType.ofName("org.oddjob.structural")
@@ -40,6 +50,28 @@ public class StructuralHandlerFactory
                     Notification.class,
                     MBeanOperationInfo.INFO);
 
+    static final JMXOperationPlus<TreeSnapshot> SNAPSHOT =
+            new JMXOperationPlus<>(
+                    "structuralSnapshot",
+                    "Snapshot of Operation Results for the Tree.",
+                    TreeSnapshot.class,
+                    MBeanOperationInfo.INFO)
+                    .addParam("operations", String[].class, "Operation Names.");
+
+    /**
+     * The operations a client fetches in a snapshot. These are the operations
+     * invoked when creating and synchronising a proxy.
+     */
+    static final String[] SNAPSHOT_OPERATIONS = {
+            RemoteOddjobHandlerFactory.SERVER_INFO.getActionName(),
+            LogEnabledHandlerFactory.GET_LOGGER.getActionName(),
+            LogPollableHandlerFactory.CONSOLE_ID.getActionName(),
+            LogPollableHandlerFactory.URL.getActionName(),
+            StatefulHandlerFactory.SYNCHRONIZE.getActionName(),
+            IconicHandlerFactory.SYNCHRONIZE.getActionName(),
+            SYNCHRONIZE.getActionName()
+    };
+
     @Override
     public Class<Structural> serverClass() {
         return Structural.class;
@@ -63,7 +95,8 @@ public class StructuralHandlerFactory
     @Override
     public MBeanOperationInfo[] getMBeanOperationInfo() {
         return new MBeanOperationInfo[]{
-                SYNCHRONIZE.getOpInfo()
+                SYNCHRONIZE.getOpInfo(),
+                SNAPSHOT.getOpInfo()
         };
     }
 
@@ -158,6 +191,8 @@ public class StructuralHandlerFactory
                         toolkit.registerNotificationListener(
                                 STRUCTURAL_NOTIF_TYPE, synchronizer);
 
+                        prefetchTree();
+
                         lastNotification = toolkit.invoke(SYNCHRONIZE);
                     } catch (RemoteException e) {
                         throw new RemoteRuntimeException(e);
@@ -170,6 +205,38 @@ public class StructuralHandlerFactory
             structuralHelper.addStructuralListener(listener);
         }
 
+        /**
+         * Fetch a snapshot of the tree below this node unless this node was
+         * part of a snapshot already. Failure isn't fatal, the handlers will
+         * just synchronise node by node.
+         * <p>
+         * This must happen after registering for notifications so that
+         * nothing is missed between the snapshot and the notifications for
+         * this node. Handlers below this node register later, so their
+         * results are only used for a short time, see {@link PrefetchCache}.
+         */
+        private void prefetchTree() {
+            ClientSession clientSession = toolkit.getClientSession();
+            PrefetchCache cache = clientSession == null ? null : clientSession.getPrefetchCache();
+            if (cache == null || cache.isUnsupported()) {
+                return;
+            }
+            long remoteId = clientSession.idFor(proxy);
+            if (cache.contains(remoteId, SYNCHRONIZE.getActionName())) {
+                return;
+            }
+            try {
+                TreeSnapshot snapshot = toolkit.invoke(SNAPSHOT,
+                        (Object) SNAPSHOT_OPERATIONS);
+                logger.debug("Fetched {} for remote id {}", snapshot, remoteId);
+                cache.load(snapshot);
+            } catch (RemoteException | RuntimeException e) {
+                // Most likely a server before snapshots, so don't try again.
+                logger.debug("Failed to fetch snapshot for remote id {}", remoteId, e);
+                cache.setUnsupported();
+            }
+        }
+
         /*
          * Remove a structural listener. From the Structural interface.
          */
@@ -293,6 +360,9 @@ public class StructuralHandlerFactory
 
                 toolkit.runSynchronized(() -> toolkit.sendNotification(notification));
 
+                // Clients must see the child go before its MBean does.
+                toolkit.flushNotifications();
+
                 try {
                     toolkit.getServerSession().destroy(child);
                 } catch (RemoteException e1) {
@@ -322,6 +392,54 @@ public class StructuralHandlerFactory
             return lastNotifications.get();
         }
 
+        /**
+         * Invoke the operations on this node and every node below it.
+         *
+         * @param operations Names of operations that take no arguments.
+         *
+         * @return The snapshot.
+         */
+        private TreeSnapshot snapshot(String[] operations) {
+
+            TreeSnapshot snapshot = new TreeSnapshot();
+            ServerSession serverSession = toolkit.getServerSession();
+
+            Deque<Long> pending = new ArrayDeque<>();
+            pending.add(toolkit.getRemoteId());
+
+            while (!pending.isEmpty()) {
+                long remoteId = pending.removeFirst();
+                ServerInterfaceManager manager = serverSession.interfaceManagerFor(remoteId);
+                if (manager == null) {
+                    // Destroyed since its parent was visited.
+                    continue;
+                }
+                for (String actionName : operations) {
+                    if (!manager.supports(actionName, new String[0])) {
+                        continue;
+                    }
+                    Object result;
+                    try {
+                        result = manager.invoke(actionName, new Object[0], new String[0]);
+                    } catch (RemoteException | RuntimeException e) {
+                        logger.debug("Failed to invoke {} on {} for snapshot.", actionName, remoteId, e);
+                        continue;
+                    }
+                    snapshot.put(remoteId, actionName, result);
+
+                    if (SYNCHRONIZE.getActionName().equals(actionName)
+                            && result instanceof Notification
+                            && ((Notification<?>) result).getData() instanceof ChildData) {
+                        for (long childId : ((ChildData) ((Notification<?>) result).getData()).getRemoteIds()) {
+                            pending.add(childId);
+                        }
+                    }
+                }
+            }
+
+            return snapshot;
+        }
+
         @Override
         public Object invoke(RemoteOperation<?> operation, Object[] params)
                 throws RemoteException {
@@ -331,6 +449,10 @@ public class StructuralHandlerFactory
                 return lastNotification();
             }
 
+            if (SNAPSHOT.equals(operation)) {
+                return snapshot((String[]) params[0]);
+            }
+
             throw NoSuchOperationException.of(toolkit.getRemoteId(),
                     operation.getActionName(), operation.getSignature());
         }
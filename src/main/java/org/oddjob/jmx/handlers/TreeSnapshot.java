@@ -0,0 +1,71 @@
+package org.oddjob.jmx.handlers;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The results of invoking a set of operations, that take no arguments,
+ * on every node in a subtree. This allows a client to create and synchronise
+ * proxies for a whole tree of remote components with one remote call instead
+ * of several calls per component.
+ * <p>
+ * Nodes are in the order they were visited, a parent before its children.
+ *
+ * @see StructuralHandlerFactory
+ */
+public class TreeSnapshot implements Serializable {
+    private static final long serialVersionUID = 2026101800L;
+
+    private final Map<Long, Map<String, Object>> results = new LinkedHashMap<>();
+
+    /**
+     * Add the result of an operation.
+     *
+     * @param remoteId The remote id of the node.
+     * @param actionName The name of the operation.
+     * @param result The result. May be null.
+     */
+    public void put(long remoteId, String actionName, Object result) {
+        results.computeIfAbsent(remoteId, k -> new LinkedHashMap<>())
+                .put(actionName, result);
+    }
+
+    /**
+     * Get the remote ids of the nodes in this snapshot.
+     *
+     * @return The remote ids. Never null.
+     */
+    public Set<Long> getRemoteIds() {
+        return Collections.unmodifiableSet(results.keySet());
+    }
+
+    /**
+     * Get the results for a node.
+     *
+     * @param remoteId The remote id of the node.
+     *
+     * @return The results keyed by operation name. Empty if the node
+     * isn't in this snapshot.
+     */
+    public Map<String, Object> getResults(long remoteId) {
+        return Collections.unmodifiableMap(
+                results.getOrDefault(remoteId, Collections.emptyMap()));
+    }
+
+    /**
+     * The number of nodes in this snapshot.
+     *
+     * @return The number of nodes.
+     */
+    public int size() {
+        return results.size();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ", nodes=" + results.size();
+    }
+}
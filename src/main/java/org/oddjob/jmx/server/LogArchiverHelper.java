@@ -27,6 +27,10 @@ public class LogArchiverHelper {
 		public void logEvent(LogEvent logEvent) {
 			events.add(logEvent);
 		}
+		@Override
+		public void logEvents(List<LogEvent> logEvents) {
+			events.addAll(logEvents);
+		}
 	}
 	
 	/**
@@ -0,0 +1,205 @@
+package org.oddjob.jmx.server;
+
+import org.oddjob.jmx.handlers.IconicHandlerFactory;
+import org.oddjob.jmx.handlers.StatefulHandlerFactory;
+import org.oddjob.jmx.handlers.StructuralHandlerFactory;
+import org.oddjob.remote.Notification;
+import org.oddjob.remote.NotificationBatch;
+import org.oddjob.remote.NotificationType;
+import org.oddjob.remote.util.NotificationControl;
+import org.oddjob.remote.util.NotifierListener;
+import org.oddjob.scheduling.OddjobThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batches the notifications of each {@link OddjobMBean} over a small window
+ * so that a component changing rapidly, such as a {@code foreach} working
+ * through thousands of children, doesn't flood connected clients and the
+ * connector's notification buffer with one notification per change.
+ * <p>
+ * Only notification types that clients receive through a
+ * {@link org.oddjob.jmx.client.Synchronizer} are batched because that is
+ * what unpacks the compound notification. These are state, icon and
+ * structural notifications. Icon and structural notifications carry the
+ * whole of what they describe so only the latest of these is kept. All state
+ * notifications are kept because listeners may be interested in every
+ * transition. Other types are sent straight away.
+ * <p>
+ * A window where only one notification of a type was sent results in
+ * that notification being sent as normal.
+ */
+public class NotificationCoalescer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationCoalescer.class);
+
+    /** Types that are batched and only the latest of which is kept. */
+    private static final Set<NotificationType<?>> LATEST_ONLY = Set.of(
+            IconicHandlerFactory.ICON_CHANGED_NOTIF_TYPE,
+            StructuralHandlerFactory.STRUCTURAL_NOTIF_TYPE);
+
+    /** Types that are batched. */
+    private static final Set<NotificationType<?>> BATCHED = Set.of(
+            StatefulHandlerFactory.STATE_CHANGE_NOTIF_TYPE,
+            IconicHandlerFactory.ICON_CHANGED_NOTIF_TYPE,
+            StructuralHandlerFactory.STRUCTURAL_NOTIF_TYPE);
+
+    private final long windowMillis;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Create a new instance.
+     *
+     * @param windowMillis The time in milliseconds to wait after the first
+     *                     notification before sending what has been collected.
+     */
+    public NotificationCoalescer(long windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Window must be positive, not " + windowMillis);
+        }
+        this.windowMillis = windowMillis;
+        ThreadFactory threadFactory = new OddjobThreadFactory("NotificationCoalescer");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                r -> {
+                    Thread t = threadFactory.newThread(r);
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Provide a control that batches notifications before passing them on
+     * to the given control.
+     *
+     * @param delegate The control that sends notifications to listeners.
+     *
+     * @return A batching control.
+     */
+    public Control controlFor(NotificationControl delegate) {
+        return new Control(Objects.requireNonNull(delegate));
+    }
+
+    /**
+     * Stop the background thread. Anything not yet sent is sent first.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(windowMillis * 2, TimeUnit.MILLISECONDS)) {
+                logger.warn("Pending notifications not sent within {} ms.", windowMillis * 2);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The batching {@link NotificationControl} for one MBean.
+     */
+    public class Control implements NotificationControl {
+
+        private final NotificationControl delegate;
+
+        /** Notifications waiting to be sent by type. Guarded by this. */
+        private Map<NotificationType<?>, List<Notification<?>>> pending = new LinkedHashMap<>();
+
+        /** Ensures batches are passed on in order. */
+        private final Object sendLock = new Object();
+
+        Control(NotificationControl delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public <T> void setNotifierListener(NotificationType<T> type, NotifierListener<T> notifierListener) {
+            delegate.setNotifierListener(type, notifierListener);
+        }
+
+        @Override
+        public void sendNotification(Notification<?> notification) {
+
+            if (!BATCHED.contains(notification.getType())) {
+                delegate.sendNotification(notification);
+                return;
+            }
+
+            boolean first;
+            synchronized (this) {
+                first = pending.isEmpty();
+                List<Notification<?>> ofType = pending.computeIfAbsent(
+                        notification.getType(), type -> new ArrayList<>());
+                if (LATEST_ONLY.contains(notification.getType())) {
+                    ofType.clear();
+                }
+                ofType.add(notification);
+            }
+
+            if (first) {
+                try {
+                    scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+                }
+                catch (RuntimeException e) {
+                    // Shutting down, don't lose the notification.
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * Send anything pending now.
+         */
+        @Override
+        public void flush() {
+            synchronized (sendLock) {
+                Map<NotificationType<?>, List<Notification<?>>> batches;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                    batches = pending;
+                    pending = new LinkedHashMap<>();
+                }
+                for (List<Notification<?>> batch : batches.values()) {
+                    try {
+                        delegate.sendNotification(compound(batch));
+                    }
+                    catch (RuntimeException e) {
+                        logger.error("Failed sending {} notifications.", batch.size(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the notification to send for a batch.
+     *
+     * @param batch The notifications, all of one type. Not empty.
+     *
+     * @return A single notification.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Notification<?> compound(List<Notification<?>> batch) {
+        Notification<?> last = batch.get(batch.size() - 1);
+        if (batch.size() == 1) {
+            return last;
+        }
+        // The data isn't of the notification type's data type, but it goes
+        // with the type so that it reaches the listeners for that type.
+        return new Notification(last.getRemoteId(), last.getType(),
+                last.getSequence(), new NotificationBatch(batch));
+    }
+}
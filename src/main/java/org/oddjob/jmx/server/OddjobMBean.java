@@ -46,6 +46,11 @@ public class OddjobMBean implements
 
     private final NotificationEmitter listeners;
 
+    /**
+     * Batches notifications. May be null.
+     */
+    private final NotificationCoalescer.Control coalescing;
+
     /**
      * Constructor.
      *
@@ -56,18 +61,21 @@ public class OddjobMBean implements
      * @param serverInterfaceManager The Server Interface Manager responsible for invoking operations. Must not be null.
      * @param notificationEmitter    The Notification Emitter responsible for registering and removing listeners. Must
      *                               not be null.
+     * @param coalescing             Batches notifications sent by handlers. May be null.
      */
     private OddjobMBean(Object node,
                         ObjectName objectName,
                         ServerSession serverSession,
                         ServerInterfaceManager serverInterfaceManager,
-                        NotificationEmitter notificationEmitter) {
+                        NotificationEmitter notificationEmitter,
+                        NotificationCoalescer.Control coalescing) {
 
         this.node = Objects.requireNonNull(node, "Component must not be null");
         this.objectName = Objects.requireNonNull(objectName);
         this.serverSession = Objects.requireNonNull(serverSession);
         this.serverInterfaceManager = Objects.requireNonNull(serverInterfaceManager);
         this.listeners = Objects.requireNonNull(notificationEmitter);
+        this.coalescing = coalescing;
     }
 
     /**
@@ -95,16 +103,21 @@ public class OddjobMBean implements
 
         JmxListenerHelper listeners = new JmxListenerHelper(objectName);
 
+        NotificationCoalescer coalescer = serverContext.getModel().getNotificationCoalescer();
+        NotificationCoalescer.Control coalescing = coalescer == null ? null : coalescer.controlFor(listeners);
+
         ServerInterfaceManager serverInterfaceManager = imf.create(node,
-                ServerSideToolkitImpl.create(remoteId, listeners, serverSession, serverContext,
-                        remoteBean));
+                ServerSideToolkitImpl.create(remoteId,
+                        coalescing == null ? listeners : coalescing,
+                        serverSession, serverContext, remoteBean));
 
         // Chicken and egg situation with client info.
         remoteBean.setImplementationsProvider(serverInterfaceManager);
 
         listeners.setNotificationTypes(serverInterfaceManager.getNotificationTypes());
 
-        return new OddjobMBean(node, objectName, serverSession, serverInterfaceManager, listeners);
+        return new OddjobMBean(node, objectName, serverSession, serverInterfaceManager, listeners,
+                coalescing);
     }
 
     public static OddjobMBean create(Object node,
@@ -115,7 +128,7 @@ public class OddjobMBean implements
 
         return new OddjobMBean(node,
                 OddjobMBeanFactory.objectName(remoteId),
-                serverSession, serverInterfaceManager, notificationEmitter);
+                serverSession, serverInterfaceManager, notificationEmitter, null);
     }
 
 
@@ -127,6 +140,10 @@ public class OddjobMBean implements
         return objectName;
     }
 
+    ServerInterfaceManager getServerInterfaceManager() {
+        return serverInterfaceManager;
+    }
+
     /*
      *  (non-Javadoc)
      * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
@@ -275,6 +292,10 @@ public class OddjobMBean implements
     public void destroy() {
         logger.debug("Destroying [{}]", this);
         serverInterfaceManager.destroy();
+        if (coalescing != null) {
+            // Send anything pending while listeners are still registered.
+            coalescing.flush();
+        }
     }
 
     @Override
@@ -148,6 +148,15 @@ public class OddjobMBeanFactory implements ServerSession {
 		return mBean.getNode();
 	}
 	
+	@Override
+	public ServerInterfaceManager interfaceManagerFor(long remoteId) {
+		OddjobMBean mBean;
+		synchronized (this) {
+			mBean = mBeans.get(remoteId);
+		}
+		return mBean == null ? null : mBean.getServerInterfaceManager();
+	}
+
 	@Override
 	public ArooaSession getArooaSession() {
 		return session;
@@ -117,5 +117,10 @@ public class ServerContextMain implements ServerContext {
 		public ThreadManager getThreadManager() {
 			return model.getThreadManager();
 		}
+
+		@Override
+		public NotificationCoalescer getNotificationCoalescer() {
+			return model.getNotificationCoalescer();
+		}
 	}
 }
@@ -8,6 +8,8 @@ import org.oddjob.remote.NotificationType;
 import org.oddjob.remote.RemoteException;
 
 import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
 import java.util.Set;
 
 /**
@@ -53,6 +55,37 @@ public interface ServerInterfaceManager {
 	Object invoke(String actionName, Object[] params, String[] signature)
 	throws RemoteException;
 
+	/**
+	 * Is the operation supported by one of the interfaces.
+	 *
+	 * @param actionName The action (method) name.
+	 * @param signature An array of Strings that are class names.
+	 *
+	 * @return true if the operation can be invoked.
+	 */
+	default boolean supports(String actionName, String[] signature) {
+		for (MBeanOperationInfo opInfo : getMBeanInfo().getOperations()) {
+			if (!opInfo.getName().equals(actionName)) {
+				continue;
+			}
+			MBeanParameterInfo[] params = opInfo.getSignature();
+			if (params.length != signature.length) {
+				continue;
+			}
+			boolean matches = true;
+			for (int i = 0; i < params.length; ++i) {
+				if (!params[i].getType().equals(signature[i])) {
+					matches = false;
+					break;
+				}
+			}
+			if (matches) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Called when an MBean is being destroyed. Used to InterfaceHandlers
 	 * a chance to remove listeners.
@@ -36,4 +36,13 @@ public interface ServerModel {
 	 * @return The log format.
 	 */
 	String getLogFormat();
+
+	/**
+	 * Getter for the notification coalescer.
+	 *
+	 * @return The coalescer, or null if notifications are sent as they happen.
+	 */
+	default NotificationCoalescer getNotificationCoalescer() {
+		return null;
+	}
 }
@@ -25,6 +25,9 @@ public class ServerModelImpl implements ServerModel {
 	/** The log format to use when remembering log messages. */
 	private String logFormat;
 	
+	/** Batches notifications. May be null. */
+	private NotificationCoalescer notificationCoalescer;
+	
 	/**
 	 * A constructor for the top most server 
 	 * context.
@@ -89,4 +92,23 @@ public class ServerModelImpl implements ServerModel {
 		this.logFormat = logFormat;
 	}
 	
+	/**
+	 * Getter for the notification coalescer.
+	 * 
+	 * @return The notification coalescer. May be null.
+	 */
+	@Override
+	public NotificationCoalescer getNotificationCoalescer() {
+		return notificationCoalescer;
+	}
+	
+	/**
+	 * The notification coalescer.
+	 * 
+	 * @param notificationCoalescer The notification coalescer. May be null.
+	 */
+	public void setNotificationCoalescer(NotificationCoalescer notificationCoalescer) {
+		this.notificationCoalescer = notificationCoalescer;
+	}
+	
 }
@@ -38,6 +38,20 @@ public interface ServerSession extends RemoteIdMappings {
 	void destroy(long childId)
 	throws RemoteException;
 
+	/**
+	 * Get the interface manager for another MBean in this session. This allows
+	 * handlers to gather information about many components in a single remote
+	 * call.
+	 *
+	 * @param remoteId The remote id of the MBean.
+	 *
+	 * @return The interface manager, or null if there is no MBean with
+	 * this id or the session doesn't provide access to them.
+	 */
+	default ServerInterfaceManager interfaceManagerFor(long remoteId) {
+		return null;
+	}
+
 	/**
 	 * Get the session used by the server.
 	 * 
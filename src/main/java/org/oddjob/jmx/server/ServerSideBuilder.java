@@ -32,6 +32,8 @@ public class ServerSideBuilder {
 
     private String logFormat;
 
+    private long notificationWindow;
+
     private  ServerSideBuilder(ArooaSession session) {
         this.session = session;
     }
@@ -60,6 +62,19 @@ public class ServerSideBuilder {
         return this;
     }
 
+    /**
+     * Batch notifications over a window of the given milliseconds.
+     *
+     * @param notificationWindow The window in milliseconds. 0 or less to send
+     *                           notifications as they happen.
+     *
+     * @return This builder.
+     */
+    public ServerSideBuilder andNotificationWindow(long notificationWindow) {
+        this.notificationWindow = notificationWindow;
+        return this;
+    }
+
     public ServerSide buildWith(MBeanServer mBeanServer, String serverId, Object root) throws RemoteException {
         return new Impl(this,
                 Objects.requireNonNull(mBeanServer),
@@ -81,6 +96,9 @@ public class ServerSideBuilder {
 
         private final MBeanServerConnection serverConnection;
 
+        /** Batches notifications. May be null. */
+        private final NotificationCoalescer notificationCoalescer;
+
         Impl(ServerSideBuilder builder, MBeanServer mBeanServer,
              String serverId, Object root) throws RemoteException {
 
@@ -112,6 +130,14 @@ public class ServerSideBuilder {
 
             model.setLogFormat(builder.logFormat);
 
+            if (builder.notificationWindow > 0) {
+                notificationCoalescer = new NotificationCoalescer(builder.notificationWindow);
+                model.setNotificationCoalescer(notificationCoalescer);
+            }
+            else {
+                notificationCoalescer = null;
+            }
+
             factory = new OddjobMBeanFactory(mBeanServer, builder.session);
 
             ServerMainBean serverBean = new ServerMainBean(
@@ -150,6 +176,10 @@ public class ServerSideBuilder {
                 logger.error("Failed destroying main MBean.", e);
             }
 
+            if (notificationCoalescer != null) {
+                notificationCoalescer.close();
+            }
+
         }
     }
 
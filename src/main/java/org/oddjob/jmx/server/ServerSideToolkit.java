@@ -22,6 +22,14 @@ public interface ServerSideToolkit extends NotificationNotifier {
 	 */
 	void sendNotification(Notification<?> notification);
 
+	/**
+	 * Send any notifications that are being held back to be batched. This
+	 * allows a handler to be sure clients have been told about a change
+	 * before it does something that depends on it.
+	 */
+	default void flushNotifications() {
+	}
+
 	/**
 	 * Create a Notification.
 	 *
@@ -75,6 +75,11 @@ public class ServerSideToolkitImpl implements ServerSideToolkit {
         dispatch.sendNotification(notification);
     }
 
+    @Override
+    public void flushNotifications() {
+        dispatch.flush();
+    }
+
     @Override
     public <T> void setNotifierListener(NotificationType<T> type, NotifierListener<T> notifierListener) {
         dispatch.setNotifierListener(type, notifierListener);
@@ -0,0 +1,368 @@
+package org.oddjob.jmx.socket;
+
+import org.oddjob.jmx.server.OddjobMBeanFactory;
+import org.oddjob.scheduling.OddjobThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.*;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The client end of a connection to a {@link SocketServer}. Requests may be
+ * made from any number of threads. Each waits only for its own response.
+ * <p>
+ * Notifications are delivered in the order received on a single thread of
+ * their own because a listener will often make a request and the thread
+ * reading the socket must be free to read the response.
+ */
+class ClientChannel implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientChannel.class);
+
+    private final SocketChannel channel;
+
+    private final ClassLoader classLoader;
+
+    /** Filter for serialized values. May be null. */
+    private final ObjectInputFilter serialFilter;
+
+    /** Ids for requests and listeners. */
+    private final AtomicLong ids = new AtomicLong();
+
+    private final Map<Long, CompletableFuture<Object>> pending = new ConcurrentHashMap<>();
+
+    private final Map<Long, Listening> listeners = new ConcurrentHashMap<>();
+
+    private final ExecutorService notifier;
+
+    private final Thread reader;
+
+    private final Object writeLock = new Object();
+
+    /** Told when the connection is lost, with the cause or null if the server closed it. */
+    private final Consumer<Exception> onLost;
+
+    private volatile boolean closed;
+
+    private ClientChannel(SocketChannel channel, ClassLoader classLoader,
+                          ObjectInputFilter serialFilter, Consumer<Exception> onLost) {
+        this.channel = channel;
+        this.classLoader = classLoader;
+        this.serialFilter = serialFilter;
+        this.onLost = onLost;
+
+        OddjobThreadFactory threadFactory = new OddjobThreadFactory("SocketClient");
+        this.notifier = Executors.newSingleThreadExecutor(r -> {
+            Thread t = threadFactory.newThread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        this.reader = threadFactory.newThread(this::read);
+        this.reader.setDaemon(true);
+    }
+
+    /**
+     * Connect to a server.
+     *
+     * @param address The server's address.
+     * @param classLoader The class loader for results and notifications. May be null.
+     * @param serialFilter The filter for serialized results and notifications.
+     *                     May be null.
+     * @param onLost Told if the connection is lost other than by closing it.
+     *
+     * @return A connected channel.
+     *
+     * @throws IOException If the connection fails.
+     */
+    static ClientChannel connect(InetSocketAddress address, ClassLoader classLoader,
+                                 ObjectInputFilter serialFilter,
+                                 Consumer<Exception> onLost) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+        ClientChannel clientChannel = new ClientChannel(channel, classLoader,
+                serialFilter, onLost);
+        clientChannel.reader.start();
+        return clientChannel;
+    }
+
+    /**
+     * Invoke an operation.
+     *
+     * @return The result.
+     *
+     * @throws Exception The exception from the server, or an IOException
+     * if the request couldn't be made.
+     */
+    Object invoke(long remoteId, String actionName, String[] signature, Object[] args)
+            throws Exception {
+        long id = ids.incrementAndGet();
+        return request(id, new Frames.Output(Frames.INVOKE, id)
+                .writeLong(remoteId)
+                .writeString(actionName)
+                .writeStrings(signature)
+                .writeValues(args));
+    }
+
+    boolean isRegistered(long remoteId) throws Exception {
+        long id = ids.incrementAndGet();
+        return (Boolean) request(id, new Frames.Output(Frames.IS_REGISTERED, id)
+                .writeLong(remoteId));
+    }
+
+    Object getAttribute(ObjectName name, String attribute) throws Exception {
+        long id = ids.incrementAndGet();
+        return request(id, new Frames.Output(Frames.GET_ATTRIBUTE, id)
+                .writeValue(name)
+                .writeString(attribute));
+    }
+
+    MBeanInfo getMBeanInfo(ObjectName name) throws Exception {
+        long id = ids.incrementAndGet();
+        return (MBeanInfo) request(id, new Frames.Output(Frames.GET_MBEAN_INFO, id)
+                .writeValue(name));
+    }
+
+    @SuppressWarnings("unchecked")
+    Set<ObjectName> queryNames(ObjectName name, QueryExp query) throws Exception {
+        long id = ids.incrementAndGet();
+        return (Set<ObjectName>) request(id, new Frames.Output(Frames.QUERY_NAMES, id)
+                .writeValue(name)
+                .writeValue(query));
+    }
+
+    Integer getMBeanCount() throws Exception {
+        long id = ids.incrementAndGet();
+        return (Integer) request(id, new Frames.Output(Frames.GET_MBEAN_COUNT, id));
+    }
+
+    /**
+     * Add a notification listener.
+     *
+     * @return The listener id, to remove it with.
+     */
+    long addListener(long remoteId, NotificationFilter filter,
+                     NotificationListener listener, Object handback) throws Exception {
+        long listenerId = ids.incrementAndGet();
+        listeners.put(listenerId, new Listening(remoteId, listener, handback));
+        try {
+            request(listenerId, new Frames.Output(Frames.ADD_LISTENER, listenerId)
+                    .writeLong(remoteId)
+                    .writeValue(filter));
+        }
+        catch (Exception e) {
+            listeners.remove(listenerId);
+            throw e;
+        }
+        return listenerId;
+    }
+
+    void removeListener(long remoteId, long listenerId) throws Exception {
+        long id = ids.incrementAndGet();
+        try {
+            request(id, new Frames.Output(Frames.REMOVE_LISTENER, id)
+                    .writeLong(remoteId)
+                    .writeLong(listenerId));
+        }
+        finally {
+            listeners.remove(listenerId);
+        }
+    }
+
+    /**
+     * The ids of listeners added with the given listener and remote id.
+     */
+    long[] listenerIdsFor(long remoteId, NotificationListener listener) {
+        return listeners.entrySet().stream()
+                .filter(e -> e.getValue().remoteId == remoteId && e.getValue().listener == listener)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+    }
+
+    private Object request(long id, Frames.Output frame) throws Exception {
+        CompletableFuture<Object> response = new CompletableFuture<>();
+        pending.put(id, response);
+        try {
+            write(frame.toBuffer());
+            return response.get();
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            else {
+                throw new IOException(cause);
+            }
+        }
+        finally {
+            pending.remove(id);
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        if (closed) {
+            throw new IOException("Connection closed.");
+        }
+        synchronized (writeLock) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private void read() {
+        Exception cause = null;
+        ByteBuffer length = ByteBuffer.allocate(4);
+        try {
+            while (true) {
+                length.clear();
+                readFully(length);
+                int size = length.getInt(0);
+                if (size < 9 || size > Frames.MAX_FRAME) {
+                    throw new IOException("Bad frame length " + size);
+                }
+                ByteBuffer body = ByteBuffer.allocate(size);
+                readFully(body);
+                dispatch(new Frames.Input(body.array(), classLoader, serialFilter));
+            }
+        }
+        catch (EOFException e) {
+            logger.debug("Server closed connection.");
+        }
+        catch (Exception e) {
+            if (!closed) {
+                logger.debug("Connection failed.", e);
+                cause = e;
+            }
+        }
+        finally {
+            boolean lost = !closed;
+            shutdown();
+            if (lost && onLost != null) {
+                onLost.accept(cause);
+            }
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void dispatch(Frames.Input frame) throws IOException {
+
+        if (frame.getKind() == Frames.NOTIFICATION) {
+            Listening listening = listeners.get(frame.getId());
+            long remoteId = frame.readLong();
+            Notification notification = new Notification(frame.readString(),
+                    OddjobMBeanFactory.objectName(remoteId),
+                    frame.readLong(),
+                    frame.readLong());
+            try {
+                notification.setUserData(frame.readValue());
+            }
+            catch (ClassNotFoundException | IOException e) {
+                logger.error("Failed reading data of {}", notification, e);
+                return;
+            }
+            if (listening == null) {
+                logger.trace("No listener for {}", notification);
+                return;
+            }
+            notifier.execute(() -> {
+                try {
+                    listening.listener.handleNotification(notification, listening.handback);
+                }
+                catch (RuntimeException e) {
+                    logger.error("Listener failed handling {}", notification, e);
+                }
+            });
+            return;
+        }
+
+        CompletableFuture<Object> response = pending.get(frame.getId());
+        if (response == null) {
+            logger.warn("No request for response {}", frame.getId());
+            return;
+        }
+        try {
+            Object value = frame.readValue();
+            if (frame.getKind() == Frames.FAILURE) {
+                response.completeExceptionally((Throwable) value);
+            }
+            else {
+                response.complete(value);
+            }
+        }
+        catch (ClassNotFoundException | IOException | ClassCastException e) {
+            response.completeExceptionally(e);
+        }
+    }
+
+    private void shutdown() {
+        closed = true;
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            logger.debug("Failed closing channel.", e);
+        }
+        IOException closedException = new IOException("Connection closed.");
+        pending.values().forEach(response -> response.completeExceptionally(closedException));
+        notifier.shutdown();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        shutdown();
+        try {
+            reader.join(5000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A listener added.
+     */
+    static class Listening {
+
+        private final long remoteId;
+
+        private final NotificationListener listener;
+
+        private final Object handback;
+
+        Listening(long remoteId, NotificationListener listener, Object handback) {
+            this.remoteId = remoteId;
+            this.listener = listener;
+            this.handback = handback;
+        }
+    }
+}
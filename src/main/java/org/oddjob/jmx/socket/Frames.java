@@ -0,0 +1,321 @@
+package org.oddjob.jmx.socket;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The framing used between a {@link SocketServer} and its clients.
+ * <p>
+ * Every frame is an int length of what follows, a byte kind and a long id.
+ * For requests and their responses the id is chosen by the client and
+ * echoed by the server so that many requests may be in flight at once. For
+ * notifications the id is the client's listener id.
+ * <p>
+ * Values are written with a tag so that nulls, strings and boxed
+ * primitives, the most common arguments and results, don't pay the price
+ * of Java Serialization. Anything else is serialized separately with a
+ * length so that a value that fails to read doesn't corrupt the frame.
+ * <p>
+ * Serialized values are only read if their classes pass a filter. By
+ * default this is the JVM-wide filter, if any, so the same values are
+ * accepted as by the RMI connector. A filter can be given with the
+ * {@value SocketConnectorProvider#SERIAL_FILTER_PATTERN} system property
+ * or environment attribute, using the pattern syntax of
+ * {@link ObjectInputFilter.Config#createFilter(String)}.
+ */
+final class Frames {
+
+    /** Invoke an operation. Remote id, action, signature, arguments. */
+    static final byte INVOKE = 1;
+
+    /** Add a listener. Remote id, filter. The id is the listener id. */
+    static final byte ADD_LISTENER = 2;
+
+    /** Remove a listener. Remote id, listener id. */
+    static final byte REMOVE_LISTENER = 3;
+
+    /** Is an MBean registered. Remote id. */
+    static final byte IS_REGISTERED = 4;
+
+    /** Get an attribute. Object name, attribute. */
+    static final byte GET_ATTRIBUTE = 5;
+
+    /** Get MBean info. Object name. */
+    static final byte GET_MBEAN_INFO = 6;
+
+    /** Query names. Object name, query. */
+    static final byte QUERY_NAMES = 7;
+
+    /** Get the MBean count. Nothing. */
+    static final byte GET_MBEAN_COUNT = 8;
+
+    /** The successful result of a request. Value. */
+    static final byte RESULT = 10;
+
+    /** The failure of a request. Throwable. */
+    static final byte FAILURE = 11;
+
+    /** A notification. Remote id, type, sequence, time stamp, user data. */
+    static final byte NOTIFICATION = 20;
+
+    /** Frames larger than this are taken to be corruption. */
+    static final int MAX_FRAME = 64 * 1024 * 1024;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte SERIALIZED = 5;
+
+    private Frames() {
+    }
+
+    /**
+     * Provide the filter for serialized values.
+     *
+     * @param pattern The pattern from an environment. If null the
+     * {@value SocketConnectorProvider#SERIAL_FILTER_PATTERN} system property
+     * is used.
+     *
+     * @return The filter, or null if neither is set, leaving only the
+     * JVM-wide filter.
+     */
+    static ObjectInputFilter serialFilter(String pattern) {
+        if (pattern == null) {
+            pattern = System.getProperty(SocketConnectorProvider.SERIAL_FILTER_PATTERN);
+        }
+        if (pattern == null) {
+            return null;
+        }
+        return ObjectInputFilter.Config.createFilter(pattern);
+    }
+
+    /**
+     * Builds a frame.
+     */
+    static class Output {
+
+        private final Buffer bytes = new Buffer();
+
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        Output(byte kind, long id) {
+            try {
+                out.writeInt(0);
+                out.writeByte(kind);
+                out.writeLong(id);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        Output writeLong(long value) throws IOException {
+            out.writeLong(value);
+            return this;
+        }
+
+        Output writeString(String value) throws IOException {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+            return this;
+        }
+
+        Output writeStrings(String[] values) throws IOException {
+            if (values == null) {
+                out.writeInt(0);
+                return this;
+            }
+            out.writeInt(values.length);
+            for (String value : values) {
+                writeString(value);
+            }
+            return this;
+        }
+
+        Output writeValues(Object[] values) throws IOException {
+            if (values == null) {
+                out.writeInt(0);
+                return this;
+            }
+            out.writeInt(values.length);
+            for (Object value : values) {
+                writeValue(value);
+            }
+            return this;
+        }
+
+        Output writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            }
+            else if (value instanceof String) {
+                out.writeByte(STRING);
+                writeString((String) value);
+            }
+            else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            }
+            else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeInt((Integer) value);
+            }
+            else if (value instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            }
+            else {
+                ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(serialized)) {
+                    oos.writeObject(value);
+                }
+                out.writeByte(SERIALIZED);
+                out.writeInt(serialized.size());
+                serialized.writeTo(out);
+            }
+            return this;
+        }
+
+        /**
+         * Provide the frame ready for writing.
+         *
+         * @return A buffer containing the whole frame.
+         */
+        ByteBuffer toBuffer() {
+            ByteBuffer buffer = bytes.wrap();
+            buffer.putInt(0, buffer.remaining() - 4);
+            return buffer;
+        }
+    }
+
+    /**
+     * Reads a frame body, that's everything after the length.
+     */
+    static class Input {
+
+        private final DataInputStream in;
+
+        private final ClassLoader classLoader;
+
+        private final ObjectInputFilter serialFilter;
+
+        private final byte kind;
+
+        private final long id;
+
+        Input(byte[] body, ClassLoader classLoader, ObjectInputFilter serialFilter)
+                throws IOException {
+            this.in = new DataInputStream(new ByteArrayInputStream(body));
+            this.classLoader = classLoader;
+            this.serialFilter = serialFilter;
+            this.kind = in.readByte();
+            this.id = in.readLong();
+        }
+
+        byte getKind() {
+            return kind;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        long readLong() throws IOException {
+            return in.readLong();
+        }
+
+        String readString() throws IOException {
+            byte[] utf8 = new byte[in.readInt()];
+            in.readFully(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        String[] readStrings() throws IOException {
+            String[] values = new String[in.readInt()];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        Object[] readValues() throws IOException, ClassNotFoundException {
+            Object[] values = new Object[in.readInt()];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = readValue();
+            }
+            return values;
+        }
+
+        Object readValue() throws IOException, ClassNotFoundException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case LONG:
+                    return in.readLong();
+                case INTEGER:
+                    return in.readInt();
+                case BOOLEAN:
+                    return in.readBoolean();
+                case SERIALIZED:
+                    byte[] serialized = new byte[in.readInt()];
+                    in.readFully(serialized);
+                    try (ObjectInputStream ois = new LoaderObjectInputStream(
+                            new ByteArrayInputStream(serialized), classLoader)) {
+                        if (serialFilter != null) {
+                            ois.setObjectInputFilter(serialFilter);
+                        }
+                        return ois.readObject();
+                    }
+                default:
+                    throw new StreamCorruptedException("Unknown value tag " + tag);
+            }
+        }
+    }
+
+    /**
+     * Gives access to the bytes without a copy.
+     */
+    static class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(128);
+        }
+
+        ByteBuffer wrap() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    /**
+     * Resolves classes with a given class loader first.
+     */
+    static class LoaderObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        LoaderObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                }
+                catch (ClassNotFoundException e) {
+                    // Fall back to the default.
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.oddjob.jmx.socket;
+
+import javax.management.*;
+import javax.management.remote.JMXConnectionNotification;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import javax.security.auth.Subject;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link JMXConnector} to a {@link SocketConnectorServer}.
+ */
+class SocketConnector implements JMXConnector {
+
+    private final JMXServiceURL serviceURL;
+
+    private final Map<String, ?> environment;
+
+    private final NotificationBroadcasterSupport connectionBroadcaster =
+            new NotificationBroadcasterSupport();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private volatile ClientChannel channel;
+
+    private volatile String connectionId;
+
+    SocketConnector(JMXServiceURL serviceURL, Map<String, ?> environment) {
+        this.serviceURL = serviceURL;
+        this.environment = environment;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        connect(null);
+    }
+
+    @Override
+    public synchronized void connect(Map<String, ?> env) throws IOException {
+        if (channel != null) {
+            return;
+        }
+
+        Map<String, ?> useEnv = Optional.<Map<String, ?>>ofNullable(env).orElse(environment);
+
+        if (useEnv != null && useEnv.containsKey(JMXConnector.CREDENTIALS)) {
+            throw new IllegalArgumentException("The " + SocketConnectorProvider.PROTOCOL +
+                    " protocol has no security so can't send credentials.");
+        }
+
+        ClassLoader classLoader = Optional.ofNullable(useEnv)
+                .map(e -> (ClassLoader) e.get(JMXConnectorFactory.DEFAULT_CLASS_LOADER))
+                .orElse(Thread.currentThread().getContextClassLoader());
+
+        String serialFilter = Optional.ofNullable(useEnv)
+                .map(e -> (String) e.get(SocketConnectorProvider.SERIAL_FILTER_PATTERN))
+                .orElse(null);
+
+        InetSocketAddress address = new InetSocketAddress(serviceURL.getHost(), serviceURL.getPort());
+
+        channel = ClientChannel.connect(address, classLoader,
+                Frames.serialFilter(serialFilter), this::lost);
+        connectionId = "oddjob://" + address.getHostString() + ":" + address.getPort() + " " +
+                System.identityHashCode(this);
+
+        connectionBroadcaster.sendNotification(new JMXConnectionNotification(
+                JMXConnectionNotification.OPENED, this, connectionId,
+                sequence.getAndIncrement(), "Connected to " + serviceURL, null));
+    }
+
+    private void lost(Exception cause) {
+        String type = cause == null ? JMXConnectionNotification.CLOSED : JMXConnectionNotification.FAILED;
+        connectionBroadcaster.sendNotification(new JMXConnectionNotification(
+                type, this, connectionId, sequence.getAndIncrement(),
+                "Connection to " + serviceURL + " lost.", cause));
+    }
+
+    @Override
+    public MBeanServerConnection getMBeanServerConnection() throws IOException {
+        ClientChannel channel = this.channel;
+        if (channel == null) {
+            throw new IOException("Not connected.");
+        }
+        return new SocketMBeanServerConnection(channel);
+    }
+
+    @Override
+    public MBeanServerConnection getMBeanServerConnection(Subject delegationSubject) throws IOException {
+        if (delegationSubject != null) {
+            throw new UnsupportedOperationException("Delegation is not supported.");
+        }
+        return getMBeanServerConnection();
+    }
+
+    @Override
+    public synchronized void close() {
+        ClientChannel channel = this.channel;
+        if (channel == null) {
+            return;
+        }
+        this.channel = null;
+        channel.close();
+        connectionBroadcaster.sendNotification(new JMXConnectionNotification(
+                JMXConnectionNotification.CLOSED, this, connectionId,
+                sequence.getAndIncrement(), "Closed.", null));
+    }
+
+    @Override
+    public void addConnectionNotificationListener(NotificationListener listener,
+                                                  NotificationFilter filter, Object handback) {
+        connectionBroadcaster.addNotificationListener(listener, filter, handback);
+    }
+
+    @Override
+    public void removeConnectionNotificationListener(NotificationListener listener)
+            throws ListenerNotFoundException {
+        connectionBroadcaster.removeNotificationListener(listener);
+    }
+
+    @Override
+    public void removeConnectionNotificationListener(NotificationListener listener,
+                                                     NotificationFilter filter, Object handback)
+            throws ListenerNotFoundException {
+        connectionBroadcaster.removeNotificationListener(listener, filter, handback);
+    }
+
+    @Override
+    public String getConnectionId() throws IOException {
+        if (connectionId == null) {
+            throw new IOException("Not connected.");
+        }
+        return connectionId;
+    }
+
+    @Override
+    public String toString() {
+        return "SocketConnector{" + serviceURL + '}';
+    }
+}
@@ -0,0 +1,37 @@
+package org.oddjob.jmx.socket;
+
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorProvider;
+import javax.management.remote.JMXServiceURL;
+import java.net.MalformedURLException;
+import java.util.Map;
+
+/**
+ * Provides the client side of the Oddjob socket protocol to the
+ * {@link javax.management.remote.JMXConnectorFactory}. The service URL
+ * is of the form {@code service:jmx:oddjob://host:port}.
+ */
+public class SocketConnectorProvider implements JMXConnectorProvider {
+
+    /** The protocol in the service URL. */
+    public static final String PROTOCOL = "oddjob";
+
+    /**
+     * The environment attribute, or system property, for the pattern of
+     * classes allowed in serialized values, in the syntax of
+     * {@link java.io.ObjectInputFilter.Config#createFilter(String)}. Without
+     * it only the JVM-wide filter applies, as with the RMI connector.
+     */
+    public static final String SERIAL_FILTER_PATTERN = "oddjob.jmx.socket.serialFilter";
+
+    @Override
+    public JMXConnector newJMXConnector(JMXServiceURL serviceURL,
+                                        Map<String, ?> environment)
+            throws MalformedURLException {
+        if (!PROTOCOL.equals(serviceURL.getProtocol())) {
+            throw new MalformedURLException("Protocol not " + PROTOCOL + ": " +
+                    serviceURL.getProtocol());
+        }
+        return new SocketConnector(serviceURL, environment);
+    }
+}
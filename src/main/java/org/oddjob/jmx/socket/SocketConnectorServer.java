@@ -0,0 +1,125 @@
+package org.oddjob.jmx.socket;
+
+import org.oddjob.jmx.JMXServerJob;
+
+import javax.management.MBeanServer;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+import javax.management.remote.rmi.RMIConnectorServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link JMXConnectorServer} that serves Oddjob MBeans with a {@link SocketServer}.
+ * <p>
+ * The socket protocol has no security, so an environment asking for
+ * authentication, access control or encryption is rejected rather than
+ * being ignored. Without a host in the service URL the server only listens
+ * on the loopback address.
+ */
+class SocketConnectorServer extends JMXConnectorServer {
+
+    /** Environment entries, or prefixes of them, that need security this server doesn't have. */
+    static final List<String> SECURITY_ENVIRONMENT = List.of(
+            JMXConnectorServer.AUTHENTICATOR,
+            JMXServerJob.ACCESS_FILE_PROPERTY,
+            "jmx.remote.x.password.file",
+            "jmx.remote.x.access.file",
+            "jmx.remote.x.login.config",
+            "jmx.remote.tls.",
+            "jmx.remote.sasl.",
+            "jmx.remote.profiles",
+            RMIConnectorServer.RMI_CLIENT_SOCKET_FACTORY_ATTRIBUTE,
+            RMIConnectorServer.RMI_SERVER_SOCKET_FACTORY_ATTRIBUTE);
+
+    private final JMXServiceURL serviceURL;
+
+    private final Map<String, ?> environment;
+
+    private volatile SocketServer socketServer;
+
+    SocketConnectorServer(JMXServiceURL serviceURL, Map<String, ?> environment,
+                          MBeanServer mBeanServer) {
+        super(mBeanServer);
+        this.serviceURL = serviceURL;
+        this.environment = Optional.<Map<String, ?>>ofNullable(environment)
+                .map(HashMap::new)
+                .orElse(new HashMap<>());
+
+        Set<String> unsupported = this.environment.keySet().stream()
+                .filter(key -> SECURITY_ENVIRONMENT.stream().anyMatch(key::startsWith))
+                .collect(Collectors.toCollection(TreeSet::new));
+        if (!unsupported.isEmpty()) {
+            throw new IllegalArgumentException("The " + SocketConnectorProvider.PROTOCOL +
+                    " protocol has no security so can't support environment " + unsupported);
+        }
+    }
+
+    @Override
+    public synchronized void start() throws IOException {
+        if (socketServer != null) {
+            return;
+        }
+        MBeanServer mBeanServer = getMBeanServer();
+        if (mBeanServer == null) {
+            throw new IllegalStateException("No MBean Server.");
+        }
+
+        ClassLoader classLoader = Optional.ofNullable(
+                (ClassLoader) environment.get(JMXConnectorServerFactory.DEFAULT_CLASS_LOADER))
+                .orElse(Thread.currentThread().getContextClassLoader());
+
+        String host = serviceURL.getHost();
+        InetSocketAddress address = host == null || host.isEmpty() ?
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), serviceURL.getPort()) :
+                new InetSocketAddress(host, serviceURL.getPort());
+
+        socketServer = SocketServer.start(address, mBeanServer, classLoader,
+                Frames.serialFilter((String) environment.get(
+                        SocketConnectorProvider.SERIAL_FILTER_PATTERN)));
+    }
+
+    @Override
+    public synchronized void stop() {
+        SocketServer socketServer = this.socketServer;
+        if (socketServer == null) {
+            return;
+        }
+        this.socketServer = null;
+        socketServer.close();
+    }
+
+    @Override
+    public boolean isActive() {
+        SocketServer socketServer = this.socketServer;
+        return socketServer != null && socketServer.isActive();
+    }
+
+    @Override
+    public JMXServiceURL getAddress() {
+        SocketServer socketServer = this.socketServer;
+        if (socketServer == null) {
+            return serviceURL;
+        }
+        String host = serviceURL.getHost();
+        if (host == null || host.isEmpty()) {
+            host = socketServer.getAddress().getHostString();
+        }
+        try {
+            return new JMXServiceURL(SocketConnectorProvider.PROTOCOL, host,
+                    socketServer.getAddress().getPort());
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Map<String, ?> getAttributes() {
+        return Collections.unmodifiableMap(environment);
+    }
+}
@@ -0,0 +1,29 @@
+package org.oddjob.jmx.socket;
+
+import javax.management.MBeanServer;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerProvider;
+import javax.management.remote.JMXServiceURL;
+import java.net.MalformedURLException;
+import java.util.Map;
+
+/**
+ * Provides the server side of the Oddjob socket protocol to the
+ * {@link javax.management.remote.JMXConnectorServerFactory}. The service URL
+ * is of the form {@code service:jmx:oddjob://host:port}. A port of 0 will
+ * use any free port. Without a host only local connections are accepted.
+ */
+public class SocketConnectorServerProvider implements JMXConnectorServerProvider {
+
+    @Override
+    public JMXConnectorServer newJMXConnectorServer(JMXServiceURL serviceURL,
+                                                    Map<String, ?> environment,
+                                                    MBeanServer mbeanServer)
+            throws MalformedURLException {
+        if (!SocketConnectorProvider.PROTOCOL.equals(serviceURL.getProtocol())) {
+            throw new MalformedURLException("Protocol not " + SocketConnectorProvider.PROTOCOL +
+                    ": " + serviceURL.getProtocol());
+        }
+        return new SocketConnectorServer(serviceURL, environment, mbeanServer);
+    }
+}
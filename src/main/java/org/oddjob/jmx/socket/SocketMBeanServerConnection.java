@@ -0,0 +1,261 @@
+package org.oddjob.jmx.socket;
+
+import javax.management.*;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * The {@link MBeanServerConnection} provided by a socket connector. Only
+ * what the Oddjob client and the JMX service job use is supported, that's
+ * invoking operations and listening to notifications on Oddjob MBeans, and
+ * querying names, info and attributes of any MBean.
+ */
+class SocketMBeanServerConnection implements MBeanServerConnection {
+
+    private final ClientChannel channel;
+
+    SocketMBeanServerConnection(ClientChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Provide the remote id from the name of an Oddjob MBean.
+     *
+     * @param name The name.
+     * @return The remote id.
+     *
+     * @throws InstanceNotFoundException If the name isn't that of an Oddjob MBean.
+     */
+    static long remoteIdFor(ObjectName name) throws InstanceNotFoundException {
+        String uid = name.getKeyProperty("uid");
+        if (!"oddjob".equals(name.getDomain()) || uid == null) {
+            throw new InstanceNotFoundException("Not an Oddjob MBean: " + name);
+        }
+        try {
+            return Long.parseLong(uid);
+        }
+        catch (NumberFormatException e) {
+            throw new InstanceNotFoundException("Not an Oddjob MBean: " + name);
+        }
+    }
+
+    @Override
+    public Object invoke(ObjectName name, String operationName, Object[] params, String[] signature)
+            throws InstanceNotFoundException, MBeanException, ReflectionException, IOException {
+        try {
+            return channel.invoke(remoteIdFor(name), operationName, signature, params);
+        }
+        catch (InstanceNotFoundException | MBeanException | ReflectionException | IOException
+               | RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public boolean isRegistered(ObjectName name) throws IOException {
+        try {
+            return channel.isRegistered(remoteIdFor(name));
+        }
+        catch (InstanceNotFoundException e) {
+            return false;
+        }
+        catch (IOException | RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void addNotificationListener(ObjectName name, NotificationListener listener,
+                                        NotificationFilter filter, Object handback)
+            throws InstanceNotFoundException, IOException {
+        try {
+            channel.addListener(remoteIdFor(name), filter, listener, handback);
+        }
+        catch (InstanceNotFoundException | IOException | RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void removeNotificationListener(ObjectName name, NotificationListener listener)
+            throws InstanceNotFoundException, ListenerNotFoundException, IOException {
+        long remoteId = remoteIdFor(name);
+        long[] listenerIds = channel.listenerIdsFor(remoteId, listener);
+        if (listenerIds.length == 0) {
+            throw new ListenerNotFoundException("Listener not found: " + listener);
+        }
+        for (long listenerId : listenerIds) {
+            try {
+                channel.removeListener(remoteId, listenerId);
+            }
+            catch (InstanceNotFoundException | ListenerNotFoundException | IOException
+                   | RuntimeException e) {
+                throw e;
+            }
+            catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void removeNotificationListener(ObjectName name, NotificationListener listener,
+                                           NotificationFilter filter, Object handback)
+            throws InstanceNotFoundException, ListenerNotFoundException, IOException {
+        removeNotificationListener(name, listener);
+    }
+
+    @Override
+    public ObjectInstance createMBean(String className, ObjectName name) {
+        throw unsupported();
+    }
+
+    @Override
+    public ObjectInstance createMBean(String className, ObjectName name, ObjectName loaderName) {
+        throw unsupported();
+    }
+
+    @Override
+    public ObjectInstance createMBean(String className, ObjectName name, Object[] params, String[] signature) {
+        throw unsupported();
+    }
+
+    @Override
+    public ObjectInstance createMBean(String className, ObjectName name, ObjectName loaderName,
+                                      Object[] params, String[] signature) {
+        throw unsupported();
+    }
+
+    @Override
+    public void unregisterMBean(ObjectName name) {
+        throw unsupported();
+    }
+
+    @Override
+    public ObjectInstance getObjectInstance(ObjectName name) {
+        throw unsupported();
+    }
+
+    @Override
+    public Set<ObjectInstance> queryMBeans(ObjectName name, QueryExp query) {
+        throw unsupported();
+    }
+
+    @Override
+    public Set<ObjectName> queryNames(ObjectName name, QueryExp query) throws IOException {
+        try {
+            return channel.queryNames(name, query);
+        }
+        catch (IOException | RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public Integer getMBeanCount() throws IOException {
+        try {
+            return channel.getMBeanCount();
+        }
+        catch (IOException | RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public Object getAttribute(ObjectName name, String attribute)
+            throws MBeanException, AttributeNotFoundException, InstanceNotFoundException,
+            ReflectionException, IOException {
+        try {
+            return channel.getAttribute(name, attribute);
+        }
+        catch (MBeanException | AttributeNotFoundException | InstanceNotFoundException
+               | ReflectionException | IOException | RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public AttributeList getAttributes(ObjectName name, String[] attributes) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setAttribute(ObjectName name, Attribute attribute) {
+        throw unsupported();
+    }
+
+    @Override
+    public AttributeList setAttributes(ObjectName name, AttributeList attributes) {
+        throw unsupported();
+    }
+
+    @Override
+    public String getDefaultDomain() {
+        throw unsupported();
+    }
+
+    @Override
+    public String[] getDomains() {
+        throw unsupported();
+    }
+
+    @Override
+    public void addNotificationListener(ObjectName name, ObjectName listener,
+                                        NotificationFilter filter, Object handback) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeNotificationListener(ObjectName name, ObjectName listener) {
+        throw unsupported();
+    }
+
+    @Override
+    public void removeNotificationListener(ObjectName name, ObjectName listener,
+                                           NotificationFilter filter, Object handback) {
+        throw unsupported();
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo(ObjectName name)
+            throws InstanceNotFoundException, IntrospectionException, ReflectionException,
+            IOException {
+        try {
+            return channel.getMBeanInfo(name);
+        }
+        catch (InstanceNotFoundException | IntrospectionException | ReflectionException
+               | IOException | RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public boolean isInstanceOf(ObjectName name, String className) {
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Not supported by the Oddjob socket connector.");
+    }
+}
@@ -0,0 +1,204 @@
+package org.oddjob.jmx.socket;
+
+import org.oddjob.arooa.utils.ClassUtils;
+import org.oddjob.jmx.general.RemoteBridge;
+import org.oddjob.remote.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceNotFoundException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link RemoteConnection} to a {@link SocketServer}. This provides the
+ * same as a {@link RemoteBridge} over an RMI connector but with a compact
+ * framing and without an RMI call for each request. Requests from different
+ * threads are pipelined over the one connection.
+ */
+public class SocketRemoteConnection implements RemoteConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocketRemoteConnection.class);
+
+    private final ClientChannel channel;
+
+    /** Signatures as class names, to save working them out for every call. */
+    private final ConcurrentMap<OperationType<?>, String[]> signatures = new ConcurrentHashMap<>();
+
+    /** Listener ids by remote id and type and listener. */
+    private final ConcurrentMap<Key, Long> listenerIds = new ConcurrentHashMap<>();
+
+    SocketRemoteConnection(ClientChannel channel) {
+        this.channel = Objects.requireNonNull(channel);
+    }
+
+    /**
+     * Connect to a server.
+     *
+     * @param address The address of the server.
+     * @param classLoader The class loader for results and notifications. May be null.
+     *
+     * @return The connection.
+     *
+     * @throws RemoteException If the connection fails.
+     */
+    public static SocketRemoteConnection connect(InetSocketAddress address,
+                                                 ClassLoader classLoader) throws RemoteException {
+        try {
+            return new SocketRemoteConnection(ClientChannel.connect(address, classLoader,
+                    Frames.serialFilter(null),
+                    e -> logger.info("Connection to {} lost.", address, e)));
+        }
+        catch (IOException e) {
+            throw new RemoteException("Failed to connect to " + address, e);
+        }
+    }
+
+    @Override
+    public <T> T invoke(long remoteId, OperationType<T> operationType, Object... args)
+            throws RemoteException {
+
+        String[] signature = signatures.computeIfAbsent(operationType,
+                type -> ClassUtils.classesToStrings(type.getSignature()));
+
+        Object result;
+        try {
+            logger.trace("Invoking {} on {}", operationType, remoteId);
+
+            result = channel.invoke(remoteId, operationType.getName(), signature, args);
+        }
+        catch (InstanceNotFoundException e) {
+            throw new RemoteUnknownException(remoteId, e);
+        }
+        catch (Exception e) {
+            throw RemoteInvocationException.of(remoteId, operationType, args, e);
+        }
+
+        return ClassUtils.cast(operationType.getReturnType(), result);
+    }
+
+    @Override
+    public <T> void addNotificationListener(long remoteId,
+                                            NotificationType<T> notificationType,
+                                            NotificationListener<T> notificationListener)
+            throws RemoteException {
+
+        Key key = new Key(remoteId, notificationType, notificationListener);
+
+        if (listenerIds.containsKey(key)) {
+            throw new RemoteComponentException(remoteId, "Listener already existed for remote id [" +
+                    remoteId + "], type [" + notificationType + "], listener [" + notificationListener + "]");
+        }
+
+        long listenerId;
+        try {
+            listenerId = channel.addListener(remoteId,
+                    RemoteBridge.createTypeFilterFor(notificationType),
+                    RemoteBridge.toJmxListener(remoteId, notificationListener,
+                            notificationType.getDataType()),
+                    null);
+        }
+        catch (InstanceNotFoundException e) {
+            throw new RemoteUnknownException(remoteId, e);
+        }
+        catch (Exception e) {
+            throw new RemoteComponentException(remoteId, e);
+        }
+
+        listenerIds.put(key, listenerId);
+    }
+
+    @Override
+    public <T> void removeNotificationListener(long remoteId,
+                                               NotificationType<T> notificationType,
+                                               NotificationListener<T> notificationListener)
+            throws RemoteException {
+
+        Key key = new Key(remoteId, notificationType, notificationListener);
+
+        Long listenerId = listenerIds.remove(key);
+        if (listenerId == null) {
+            throw new RemoteComponentException(remoteId, "No Listener for " + key + ", remoteId " + remoteId);
+        }
+
+        removeListener(remoteId, listenerId);
+    }
+
+    @Override
+    public void destroy(long remoteId) throws RemoteException {
+
+        for (Iterator<Map.Entry<Key, Long>> it = listenerIds.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, Long> entry = it.next();
+            if (entry.getKey().remoteId == remoteId) {
+                it.remove();
+                logger.warn("Destroy {}, cleanup required for {}.", remoteId, entry.getKey());
+                removeListener(remoteId, entry.getValue());
+            }
+        }
+    }
+
+    private void removeListener(long remoteId, long listenerId) throws RemoteException {
+        try {
+            channel.removeListener(remoteId, listenerId);
+        }
+        catch (Exception e) {
+            // A client may be trying to remove listeners from a destroyed component.
+            logger.debug("Failed removing listener {} from {}", listenerId, remoteId, e);
+            if (!channel.isClosed()) {
+                throw new RemoteComponentException(remoteId, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        channel.close();
+    }
+
+    /**
+     * Key for listeners.
+     */
+    static class Key {
+
+        private final long remoteId;
+
+        private final NotificationType<?> notificationType;
+
+        private final NotificationListener<?> listener;
+
+        Key(long remoteId, NotificationType<?> notificationType, NotificationListener<?> listener) {
+            this.remoteId = remoteId;
+            this.notificationType = Objects.requireNonNull(notificationType);
+            this.listener = Objects.requireNonNull(listener);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return remoteId == key.remoteId &&
+                    notificationType.equals(key.notificationType) &&
+                    listener.equals(key.listener);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(remoteId, notificationType, listener);
+        }
+
+        @Override
+        public String toString() {
+            return "Key{" +
+                    "remoteId=" + remoteId +
+                    ", notificationType=" + notificationType +
+                    ", listener=" + listener +
+                    '}';
+        }
+    }
+}
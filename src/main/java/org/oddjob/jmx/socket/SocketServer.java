@@ -0,0 +1,662 @@
+package org.oddjob.jmx.socket;
+
+import org.oddjob.jmx.server.OddjobMBeanFactory;
+import org.oddjob.scheduling.OddjobThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.*;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Serves the Oddjob MBeans of an MBean Server to {@link SocketRemoteConnection}s
+ * and {@link SocketConnectorProvider} connectors over a plain socket using
+ * the framing of {@link Frames}.
+ * <p>
+ * A single selector thread accepts connections and reads frames. The
+ * requests of each connection are then processed one at a time in the order
+ * they arrived, on a bounded pool of threads shared by all the connections.
+ * A client may still have many requests in flight at once, they just queue
+ * on the server, and reading from a client with too many queued is paused
+ * until it catches up. Responses and notifications are written directly by the thread that
+ * creates them unless the socket is backed up, in which case the selector
+ * thread finishes the writing.
+ * <p>
+ * There is no security. This is only intended for trusted networks.
+ */
+public class SocketServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocketServer.class);
+
+    /**
+     * A client with this many frames waiting is disconnected rather than
+     * have notifications dropped, so that it knows to reconnect and resync.
+     */
+    static final int MAX_QUEUED_FRAMES = 100_000;
+
+    /** The most threads processing requests for all the connections. */
+    static final int MAX_WORKERS = 16;
+
+    /**
+     * Reading from a client with this many requests waiting is paused until
+     * half of them have been processed.
+     */
+    static final int MAX_QUEUED_REQUESTS = 1_000;
+
+    private final MBeanServerConnection mBeanServer;
+
+    private final ClassLoader classLoader;
+
+    private final ObjectInputFilter serialFilter;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final Selector selector;
+
+    private final ThreadPoolExecutor workers;
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    private final Thread selectorThread;
+
+    private volatile boolean closed;
+
+    private SocketServer(MBeanServerConnection mBeanServer,
+                         ClassLoader classLoader,
+                         ObjectInputFilter serialFilter,
+                         ServerSocketChannel serverChannel,
+                         Selector selector) {
+        this.mBeanServer = mBeanServer;
+        this.classLoader = classLoader;
+        this.serialFilter = serialFilter;
+        this.serverChannel = serverChannel;
+        this.selector = selector;
+
+        OddjobThreadFactory threadFactory = new OddjobThreadFactory("SocketServer");
+        this.workers = new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = threadFactory.newThread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        this.workers.allowCoreThreadTimeOut(true);
+        this.selectorThread = threadFactory.newThread(this::select);
+        this.selectorThread.setDaemon(true);
+    }
+
+    /**
+     * Start serving with the serial filter from the
+     * {@value SocketConnectorProvider#SERIAL_FILTER_PATTERN} system property,
+     * if set.
+     *
+     * @param address The address to listen on. A port of 0 will choose a free port.
+     * @param mBeanServer The server with the Oddjob MBeans.
+     * @param classLoader The class loader for arguments. May be null.
+     *
+     * @return The started server.
+     *
+     * @throws IOException If the socket can't be opened.
+     */
+    public static SocketServer start(InetSocketAddress address,
+                                     MBeanServerConnection mBeanServer,
+                                     ClassLoader classLoader) throws IOException {
+        return start(address, mBeanServer, classLoader, Frames.serialFilter(null));
+    }
+
+    /**
+     * Start serving.
+     *
+     * @param address The address to listen on. A port of 0 will choose a free port.
+     * @param mBeanServer The server with the Oddjob MBeans.
+     * @param classLoader The class loader for arguments. May be null.
+     * @param serialFilter The filter for serialized arguments. May be null
+     *                     to only use the JVM-wide filter.
+     *
+     * @return The started server.
+     *
+     * @throws IOException If the socket can't be opened.
+     */
+    public static SocketServer start(InetSocketAddress address,
+                                     MBeanServerConnection mBeanServer,
+                                     ClassLoader classLoader,
+                                     ObjectInputFilter serialFilter) throws IOException {
+
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+
+            Selector selector = Selector.open();
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+            SocketServer server = new SocketServer(Objects.requireNonNull(mBeanServer),
+                    classLoader, serialFilter, serverChannel, selector);
+            server.selectorThread.start();
+
+            logger.info("Socket Server listening on {}", server.getAddress());
+            return server;
+        }
+        catch (IOException | RuntimeException e) {
+            serverChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The address being listened on.
+     *
+     * @return The address.
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public boolean isActive() {
+        return !closed;
+    }
+
+    /**
+     * Stop serving. All clients are disconnected.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        selector.wakeup();
+        try {
+            selectorThread.join(5000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+    }
+
+    private void select() {
+        try {
+            while (!closed) {
+                selector.select();
+                for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.writeQueued();
+                        }
+                    }
+                    catch (IOException | CancelledKeyException e) {
+                        logger.debug("Connection {} failed.", connection, e);
+                        connection.close();
+                    }
+                }
+            }
+        }
+        catch (IOException | ClosedSelectorException e) {
+            if (!closed) {
+                logger.error("Socket Server failed.", e);
+            }
+        }
+        finally {
+            closed = true;
+            for (Connection connection : connections) {
+                connection.close();
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            }
+            catch (IOException e) {
+                logger.debug("Failed closing.", e);
+            }
+            logger.info("Socket Server stopped.");
+        }
+    }
+
+    private void accept() {
+        SocketChannel channel = null;
+        try {
+            channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+            logger.debug("Accepted {}", connection);
+        }
+        catch (IOException e) {
+            logger.warn("Failed accepting connection.", e);
+            if (channel != null) {
+                try {
+                    channel.close();
+                }
+                catch (IOException e2) {
+                    // Ignore.
+                }
+            }
+        }
+    }
+
+    /**
+     * A client connection.
+     */
+    class Connection {
+
+        private final SocketChannel channel;
+
+        private volatile SelectionKey key;
+
+        /** Bytes read but not yet made into a frame. Only used by the selector thread. */
+        private ByteBuffer in = ByteBuffer.allocate(8192);
+
+        /** Frames waiting to be written. Guarded by itself. */
+        private final Deque<ByteBuffer> out = new ArrayDeque<>();
+
+        /** Request bodies waiting to be processed. Guarded by itself. */
+        private final Deque<byte[]> requests = new ArrayDeque<>();
+
+        /** Is a worker processing the requests. Guarded by requests. */
+        private boolean processing;
+
+        /** Has reading been paused because too many requests are waiting. */
+        private volatile boolean readPaused;
+
+        /** Listeners added by the client. */
+        private final ConcurrentMap<Long, Registration> listeners = new ConcurrentHashMap<>();
+
+        private volatile boolean open = true;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            in.flip();
+            while (in.remaining() >= 4) {
+                int length = in.getInt(in.position());
+                if (length < 9 || length > Frames.MAX_FRAME) {
+                    throw new IOException("Bad frame length " + length);
+                }
+                if (in.remaining() < length + 4) {
+                    if (in.capacity() < length + 4) {
+                        ByteBuffer bigger = ByteBuffer.allocate(length + 4);
+                        bigger.put(in);
+                        in = bigger;
+                        return;
+                    }
+                    break;
+                }
+                in.getInt();
+                byte[] body = new byte[length];
+                in.get(body);
+                enqueue(body);
+            }
+            in.compact();
+        }
+
+        /**
+         * Queue a request for processing after any before it.
+         */
+        void enqueue(byte[] body) {
+            boolean pause = false;
+            boolean start = false;
+            synchronized (requests) {
+                requests.addLast(body);
+                if (!readPaused && requests.size() >= MAX_QUEUED_REQUESTS) {
+                    readPaused = true;
+                    pause = true;
+                }
+                if (!processing) {
+                    processing = true;
+                    start = true;
+                }
+            }
+            if (pause) {
+                logger.debug("{} has {} requests waiting, pausing reading.", this,
+                        MAX_QUEUED_REQUESTS);
+                updateInterest();
+            }
+            if (start) {
+                processNext();
+            }
+        }
+
+        /**
+         * Give the next request to a worker. Only one request is processed
+         * for each turn so that a busy connection doesn't keep a worker from
+         * the others.
+         */
+        void processNext() {
+            try {
+                workers.execute(() -> {
+                    byte[] body;
+                    boolean resume = false;
+                    synchronized (requests) {
+                        body = requests.pollFirst();
+                        if (readPaused && requests.size() <= MAX_QUEUED_REQUESTS / 2) {
+                            readPaused = false;
+                            resume = true;
+                        }
+                    }
+                    if (resume) {
+                        updateInterest();
+                    }
+                    if (body != null && open) {
+                        process(body);
+                    }
+                    synchronized (requests) {
+                        if (requests.isEmpty() || !open) {
+                            processing = false;
+                            return;
+                        }
+                    }
+                    processNext();
+                });
+            }
+            catch (RejectedExecutionException e) {
+                // Only when closing.
+                logger.debug("Request on {} rejected.", this);
+                synchronized (requests) {
+                    processing = false;
+                }
+            }
+        }
+
+        void process(byte[] body) {
+            long id = 0;
+            try {
+                Frames.Input frame = new Frames.Input(body, classLoader, serialFilter);
+                id = frame.getId();
+                switch (frame.getKind()) {
+                    case Frames.INVOKE:
+                        invoke(frame);
+                        break;
+                    case Frames.ADD_LISTENER:
+                        addListener(frame);
+                        break;
+                    case Frames.REMOVE_LISTENER:
+                        removeListener(frame);
+                        break;
+                    case Frames.IS_REGISTERED:
+                        respond(id, mBeanServer.isRegistered(
+                                OddjobMBeanFactory.objectName(frame.readLong())));
+                        break;
+                    case Frames.GET_ATTRIBUTE:
+                        respond(id, mBeanServer.getAttribute(
+                                (ObjectName) frame.readValue(), frame.readString()));
+                        break;
+                    case Frames.GET_MBEAN_INFO:
+                        respond(id, mBeanServer.getMBeanInfo((ObjectName) frame.readValue()));
+                        break;
+                    case Frames.QUERY_NAMES:
+                        respond(id, new HashSet<>(mBeanServer.queryNames(
+                                (ObjectName) frame.readValue(), (QueryExp) frame.readValue())));
+                        break;
+                    case Frames.GET_MBEAN_COUNT:
+                        respond(id, mBeanServer.getMBeanCount());
+                        break;
+                    default:
+                        throw new IOException("Unexpected frame kind " + frame.getKind());
+                }
+            }
+            catch (Exception e) {
+                fail(id, e);
+            }
+        }
+
+        void invoke(Frames.Input frame) throws Exception {
+            long remoteId = frame.readLong();
+            String actionName = frame.readString();
+            String[] signature = frame.readStrings();
+            Object[] args = frame.readValues();
+            Object result = mBeanServer.invoke(OddjobMBeanFactory.objectName(remoteId),
+                    actionName, args, signature);
+            respond(frame.getId(), result);
+        }
+
+        void addListener(Frames.Input frame) throws Exception {
+            long listenerId = frame.getId();
+            long remoteId = frame.readLong();
+            NotificationFilter filter = (NotificationFilter) frame.readValue();
+            ObjectName objectName = OddjobMBeanFactory.objectName(remoteId);
+
+            NotificationListener listener = (notification, handback) ->
+                    notify(listenerId, remoteId, notification);
+
+            listeners.put(listenerId, new Registration(objectName, listener));
+            try {
+                mBeanServer.addNotificationListener(objectName, listener, filter, null);
+            }
+            catch (Exception e) {
+                listeners.remove(listenerId);
+                throw e;
+            }
+            respond(listenerId, null);
+        }
+
+        void removeListener(Frames.Input frame) throws Exception {
+            frame.readLong();
+            long listenerId = frame.readLong();
+            Registration registration = listeners.remove(listenerId);
+            if (registration == null) {
+                throw new ListenerNotFoundException("No listener " + listenerId);
+            }
+            registration.remove();
+            respond(frame.getId(), null);
+        }
+
+        void notify(long listenerId, long remoteId, Notification notification) {
+            if (!open) {
+                return;
+            }
+            boolean backedUp;
+            synchronized (out) {
+                backedUp = out.size() >= MAX_QUEUED_FRAMES;
+            }
+            if (backedUp) {
+                logger.warn("{} is not keeping up with notifications, disconnecting.", this);
+                close();
+                return;
+            }
+            try {
+                send(new Frames.Output(Frames.NOTIFICATION, listenerId)
+                        .writeLong(remoteId)
+                        .writeString(notification.getType())
+                        .writeLong(notification.getSequenceNumber())
+                        .writeLong(notification.getTimeStamp())
+                        .writeValue(notification.getUserData())
+                        .toBuffer());
+            }
+            catch (IOException e) {
+                logger.error("Failed sending notification {}", notification, e);
+            }
+        }
+
+        void respond(long id, Object result) throws IOException {
+            send(new Frames.Output(Frames.RESULT, id)
+                    .writeValue(result)
+                    .toBuffer());
+        }
+
+        void fail(long id, Throwable t) {
+            logger.debug("Request {} on {} failed.", id, this, t);
+            try {
+                send(new Frames.Output(Frames.FAILURE, id)
+                        .writeValue(t)
+                        .toBuffer());
+            }
+            catch (IOException e) {
+                // Probably the throwable couldn't be serialized.
+                try {
+                    send(new Frames.Output(Frames.FAILURE, id)
+                            .writeValue(new IOException(t.toString()))
+                            .toBuffer());
+                }
+                catch (IOException e2) {
+                    logger.error("Failed sending failure of request {}", id, e2);
+                }
+            }
+        }
+
+        /**
+         * Send a frame. If nothing is waiting the frame is written now, otherwise
+         * it's queued for the selector. A failure to write closes the connection.
+         */
+        void send(ByteBuffer frame) {
+            try {
+                synchronized (out) {
+                    if (!open) {
+                        return;
+                    }
+                    if (out.isEmpty()) {
+                        channel.write(frame);
+                        if (!frame.hasRemaining()) {
+                            return;
+                        }
+                    }
+                    out.addLast(frame);
+                    if (out.size() == 1) {
+                        key.interestOps(interestOps());
+                        selector.wakeup();
+                    }
+                }
+            }
+            catch (IOException | CancelledKeyException e) {
+                logger.debug("Failed writing to {}", this, e);
+                close();
+            }
+        }
+
+        void writeQueued() throws IOException {
+            synchronized (out) {
+                while (!out.isEmpty()) {
+                    ByteBuffer frame = out.peekFirst();
+                    channel.write(frame);
+                    if (frame.hasRemaining()) {
+                        return;
+                    }
+                    out.removeFirst();
+                }
+                key.interestOps(interestOps());
+            }
+        }
+
+        /**
+         * The operations the selector should be interested in. Only called
+         * holding the out lock.
+         */
+        private int interestOps() {
+            return (readPaused ? 0 : SelectionKey.OP_READ) |
+                    (out.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Tell the selector to pause or resume reading.
+         */
+        void updateInterest() {
+            try {
+                synchronized (out) {
+                    if (!open) {
+                        return;
+                    }
+                    key.interestOps(interestOps());
+                }
+                selector.wakeup();
+            }
+            catch (CancelledKeyException e) {
+                logger.trace("{} already closed.", this);
+            }
+        }
+
+        void close() {
+            synchronized (out) {
+                if (!open) {
+                    return;
+                }
+                open = false;
+                out.clear();
+            }
+            synchronized (requests) {
+                requests.clear();
+            }
+            connections.remove(this);
+            for (Registration registration : listeners.values()) {
+                try {
+                    registration.remove();
+                }
+                catch (Exception e) {
+                    logger.trace("Failed removing listener on close.", e);
+                }
+            }
+            listeners.clear();
+            try {
+                channel.close();
+            }
+            catch (IOException e) {
+                logger.debug("Failed closing {}", this, e);
+            }
+            logger.debug("Closed {}", this);
+        }
+
+        @Override
+        public String toString() {
+            try {
+                return "Connection from " + channel.getRemoteAddress();
+            }
+            catch (IOException e) {
+                return "Connection (closed)";
+            }
+        }
+    }
+
+    /**
+     * A listener added for a client.
+     */
+    class Registration {
+
+        private final ObjectName objectName;
+
+        private final NotificationListener listener;
+
+        Registration(ObjectName objectName, NotificationListener listener) {
+            this.objectName = objectName;
+            this.listener = listener;
+        }
+
+        void remove() throws Exception {
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.removeNotificationListener(objectName, listener);
+            }
+        }
+    }
+}
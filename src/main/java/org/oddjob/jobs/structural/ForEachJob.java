@@ -17,6 +17,7 @@ import org.oddjob.arooa.standard.StandardArooaParser;
 import org.oddjob.arooa.standard.StandardPropertyManager;
 import org.oddjob.arooa.utils.ListenerSupportBase;
 import org.oddjob.arooa.utils.RootConfigurationFileCreator;
+import org.oddjob.arooa.xml.XMLArooaParser;
 import org.oddjob.arooa.xml.XMLConfiguration;
 import org.oddjob.designer.components.ForEachRootDC;
 import org.oddjob.framework.ExecutionWatcher;
@@ -36,6 +37,7 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 
@@ -94,6 +96,17 @@ import java.util.stream.Stream;
  * pre-loaded, and only the last three complete jobs will remain loaded.
  * <p>
  * {@oddjob.xml.resource org/oddjob/jobs/structural/ForEachExecutionWindow.xml}
+ * @oddjob.example Caching the configuration. The configuration is only
+ * parsed once and the in-memory result is used to create the child for each
+ * value. This is much quicker when there are many values.
+ * <p>
+ * {@oddjob.xml.resource org/oddjob/jobs/structural/ForEachCacheConfiguration.xml}
+ * @oddjob.example Streaming values. Values are only read from the iterable
+ * as they are needed. Only two children are loaded at once and they are
+ * purged as soon as they are complete. The results are available from the
+ * summary property.
+ * <p>
+ * {@oddjob.xml.resource org/oddjob/jobs/structural/ForEachStreaming.xml}
  */
 public class ForEachJob extends StructuralJob<Object>
         implements Stoppable, Loadable, ConfigurationOwner, BeanDirectoryOwner {
@@ -141,6 +154,39 @@ public class ForEachJob extends StructuralJob<Object>
      */
     private int purgeAfter;
 
+    /**
+     * @oddjob.property
+     * @oddjob.description Stream the values so that memory use is bounded
+     * regardless of the number of values. Values are read only as they
+     * are needed, no more than <code>preLoad</code> configurations (or one if
+     * <code>preLoad</code> is not set) are loaded ahead of execution, complete
+     * children are purged once there are more than <code>purgeAfter</code> of
+     * them (0 meaning straight away) and only the most recent
+     * <code>keepFailures</code> failed children are kept. The outcome of
+     * all children is available from the <code>summary</code> property.
+     * @oddjob.required No. Defaults to false.
+     */
+    private transient boolean streaming;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The number of failed children to keep when streaming,
+     * and the number of failures to describe in the summary. When streaming at
+     * least one failed child is always kept so that the state of this job
+     * reflects the failure.
+     * @oddjob.required No. Defaults to 10.
+     */
+    private transient int keepFailures = 10;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description A summary of the children that have finished
+     * executing, with counts by state and descriptions of the most recent
+     * failures.
+     * @oddjob.required R/O.
+     */
+    private transient volatile ForEachSummary summary;
+
     /**
      * @oddjob.property
      * @oddjob.description The configuration that will be parsed
@@ -149,6 +195,25 @@ public class ForEachJob extends StructuralJob<Object>
      */
     private transient ArooaConfiguration configuration;
 
+    /**
+     * @oddjob.property
+     * @oddjob.description Parse the configuration only once into an in-memory
+     * template which is then used to create the child job for each value.
+     * Without this the configuration is read and parsed again for every value
+     * which is slow when there are many values.
+     * <p>
+     * Changes made to the configuration of a child job when this is set are
+     * saved back to the original configuration, and the template is created
+     * again for the next child.
+     * @oddjob.required No. Defaults to false.
+     */
+    private transient boolean cacheConfiguration;
+
+    /**
+     * The cached configuration when {@link #cacheConfiguration} is set.
+     */
+    private transient volatile ArooaConfiguration template;
+
     /**
      * The configuration file.
      */
@@ -190,6 +255,11 @@ public class ForEachJob extends StructuralJob<Object>
      */
     private transient LinkedList<Stateful> complete;
 
+    /**
+     * List of failed jobs to be removed when streaming.
+     */
+    private transient LinkedList<Stateful> failed;
+
     /**
      * @oddjob.property
      * @oddjob.description Should jobs be executed in parallel.
@@ -265,19 +335,25 @@ public class ForEachJob extends StructuralJob<Object>
 
     @Override
     protected StateOperator getInitialStateOp() {
-        return new StateOperator() {
-            final StateOperator anyStateOp = new AnyActiveStateOp();
-
-            @Override
-            public StateEvent evaluate(StateEvent... states) {
-                if (states.length == 0) {
-                    return StateEvent.now(ForEachJob.this,
-                            ParentState.COMPLETE);
-                } else {
-                    return anyStateOp.evaluate(states);
-                }
-            }
-        };
+        return new ForEachStateOp();
+    }
+
+    /**
+     * Any Active, but Complete when there are no children. Only the result
+     * for no children is changed so this can still be evaluated incrementally.
+     */
+    class ForEachStateOp extends AnyActiveStateOp {
+
+        @Override
+        protected StateEvent evaluateNoStates() {
+            return StateEvent.now(ForEachJob.this,
+                    ParentState.COMPLETE);
+        }
+
+        @Override
+        protected boolean isIncremental() {
+            return true;
+        }
     }
 
     /*
@@ -337,13 +413,14 @@ public class ForEachJob extends StructuralJob<Object>
         RegistryOverrideSession session = new RegistryOverrideSession(
                 existingSession, psudoRegistry);
 
-        LocalBean seed = new LocalBean(index++, value);
+        final LocalBean seed = new LocalBean(index++, value);
 
         StandardArooaParser parser = new StandardArooaParser(seed,
                 session);
         parser.setExpectedDocumentElement(FOREACH_ELEMENT);
 
-        ConfigurationHandle<ArooaContext> handle = parser.parse(configuration);
+        ConfigurationHandle<ArooaContext> handle = parser.parse(
+                configurationForChild());
 
         Object root = seed.job;
 
@@ -353,18 +430,42 @@ public class ForEachJob extends StructuralJob<Object>
         }
 
         if (root instanceof Stateful) {
+            // The state the child last finished in, so a re-run isn't counted twice.
+            AtomicReference<State> finished = new AtomicReference<>();
             ((Stateful) root).addStateListener(event -> {
                 Stateful source = event.getSource();
                 State state = event.getState();
 
                 if (state.isReady()) {
                     ready.add((Runnable) source);
+                    if (streaming) {
+                        failed.remove(source);
+                    }
                 }
 
                 if (state.isComplete()) {
                     ready.remove(source);
                     complete.add(source);
                 }
+
+                if (state.isIncomplete() || state.isException()) {
+                    if (streaming) {
+                        ready.remove(source);
+                        failed.add(source);
+                    }
+                }
+
+                ForEachSummary summary = this.summary;
+                if (summary != null) {
+                    if (ForEachSummary.isFinished(state)) {
+                        summary.record(seed.index, seed.current,
+                                finished.getAndSet(state), state);
+                    }
+                    else if (state.isReady()) {
+                        summary.record(seed.index, seed.current,
+                                finished.getAndSet(null), state);
+                    }
+                }
             });
         } else {
             throw new UnsupportedOperationException("Job " + root +
@@ -380,6 +481,36 @@ public class ForEachJob extends StructuralJob<Object>
         return root;
     }
 
+    /**
+     * Provide the configuration to parse for the next child. When caching
+     * the original configuration is parsed into a tree of configuration nodes
+     * the first time and the root node is used for subsequent children.
+     *
+     * @return The configuration. Never null.
+     * @throws ArooaParseException If the template can't be created.
+     */
+    private ArooaConfiguration configurationForChild() throws ArooaParseException {
+
+        if (!cacheConfiguration) {
+            return configuration;
+        }
+
+        ArooaConfiguration template = this.template;
+        if (template == null) {
+            logger().debug("Creating configuration template.");
+
+            XMLArooaParser templateParser = new XMLArooaParser(
+                    getArooaSession().getArooaDescriptor());
+
+            ConfigurationHandle<SimpleParseContext> handle =
+                    templateParser.parse(configuration);
+
+            template = handle.getDocumentContext().getConfigurationNode();
+            this.template = template;
+        }
+        return template;
+    }
+
     /**
      * Remove a child and clear up it's configuration.
      *
@@ -387,7 +518,12 @@ public class ForEachJob extends StructuralJob<Object>
      */
     private void remove(Object child) {
 
-        childTracking.remove(child).getConfigurationHandle().getDocumentContext().getRuntime().destroy();
+        ChildInfo childInfo = childTracking.remove(child);
+        if (childInfo == null) {
+            // Already removed.
+            return;
+        }
+        childInfo.getConfigurationHandle().getDocumentContext().getRuntime().destroy();
     }
 
     @Override
@@ -404,7 +540,8 @@ public class ForEachJob extends StructuralJob<Object>
      * Setup and load the first jobs.
      * <p>
      * if {@link #preLoad} is 0 all will be loaded otherwise up to
-     * that number will be loaded.
+     * that number will be loaded. When streaming at least one, but never all,
+     * will be loaded.
      *
      * @throws ArooaParseException
      */
@@ -430,6 +567,7 @@ public class ForEachJob extends StructuralJob<Object>
         childTracking = new ChildTracking();
         ready = new LinkedList<>();
         complete = new LinkedList<>();
+        failed = new LinkedList<>();
         jobThreads = new HashMap<>();
 
         if (values == null) {
@@ -439,6 +577,11 @@ public class ForEachJob extends StructuralJob<Object>
             iterator = values.iterator();
         }
 
+        int preLoad = this.preLoad;
+        if (streaming && preLoad < 1) {
+            preLoad = 1;
+        }
+
         while ((preLoad < 1 || ready.size() < preLoad)) {
             if (loadNext() == null) {
                 break;
@@ -509,11 +652,13 @@ public class ForEachJob extends StructuralJob<Object>
 
         executionWatcher.reset();
 
-        List<Object> readyNow = new ArrayList<>(ready);
+        summary = new ForEachSummary(keepFailures);
 
-        for (int i = 0; i < readyNow.size() && !stop; ++i) {
+        // A queue so that jobs that have run aren't referenced when purged.
+        Queue<Object> readyNow = new LinkedList<>(ready);
 
-            Object now = readyNow.get(i);
+        Object now;
+        while (!stop && (now = readyNow.poll()) != null) {
 
             if (!(now instanceof Runnable)) {
                 continue;
@@ -564,6 +709,15 @@ public class ForEachJob extends StructuralJob<Object>
 
             job.run();
 
+            // Once run there is nothing to cancel. Locked so that this can't
+            // happen before the future has been added below.
+            synchronized (ForEachJob.this) {
+                Map<Runnable, Future<?>> jobThreads = this.jobThreads;
+                if (jobThreads != null) {
+                    jobThreads.remove(job);
+                }
+            }
+
             if (stop) {
                 return;
             }
@@ -594,14 +748,38 @@ public class ForEachJob extends StructuralJob<Object>
      */
     private synchronized Object purgeAndLoad() throws ArooaParseException {
 
-        while (purgeAfter > 0 && complete.size() > purgeAfter) {
+        while ((streaming || purgeAfter > 0) && complete.size() > purgeAfter) {
 
             remove(complete.removeFirst());
         }
 
+        while (streaming && failed.size() > Math.max(keepFailures, 1)) {
+
+            Stateful purge = leastFailed();
+            failed.remove(purge);
+            remove(purge);
+        }
+
         return loadNext();
     }
 
+    /**
+     * Find the failed child to purge. This is the oldest incomplete child
+     * if there is one, so that an exception is never purged while there are
+     * incomplete children and the state of this job still reflects the
+     * worst failure.
+     *
+     * @return The child to purge. Never null.
+     */
+    private Stateful leastFailed() {
+        for (Stateful child : failed) {
+            if (!child.lastStateEvent().getState().isException()) {
+                return child;
+            }
+        }
+        return failed.getFirst();
+    }
+
     @Override
     protected void startChildStateReflector() {
         // This is started by us so override and do nothing.
@@ -817,8 +995,11 @@ public class ForEachJob extends StructuralJob<Object>
         }
 
         this.childTracking = null;
+        this.template = null;
         this.ready = null;
         this.complete = null;
+        this.failed = null;
+        this.summary = null;
         this.index = 0;
         this.stop = false;
         this.jobThreads = null;
@@ -881,6 +1062,7 @@ public class ForEachJob extends StructuralJob<Object>
                     .createIfNone(file);
             configuration = new XMLConfiguration(file);
         }
+        this.template = null;
         this.file = file;
     }
 
@@ -897,6 +1079,7 @@ public class ForEachJob extends StructuralJob<Object>
 
     public void setConfiguration(ArooaConfiguration configuration) {
         this.configuration = configuration;
+        this.template = null;
     }
 
     public int getPreLoad() {
@@ -915,6 +1098,34 @@ public class ForEachJob extends StructuralJob<Object>
         this.purgeAfter = purgeAfter;
     }
 
+    public boolean isCacheConfiguration() {
+        return cacheConfiguration;
+    }
+
+    public void setCacheConfiguration(boolean cacheConfiguration) {
+        this.cacheConfiguration = cacheConfiguration;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public int getKeepFailures() {
+        return keepFailures;
+    }
+
+    public void setKeepFailures(int keepFailures) {
+        this.keepFailures = keepFailures;
+    }
+
+    public ForEachSummary getSummary() {
+        return summary;
+    }
+
     public boolean isParallel() {
         return parallel;
     }
@@ -954,6 +1165,17 @@ public class ForEachJob extends StructuralJob<Object>
         public ForeachConfigurationSession() {
             this.mainSession = new ConfigConfigurationSession(
                     getArooaSession(), configuration);
+            // The template is stale once the main configuration is saved.
+            this.mainSession.addSessionStateListener(new SessionStateListener() {
+                @Override
+                public void sessionSaved(ConfigSessionEvent event) {
+                    template = null;
+                }
+
+                @Override
+                public void sessionModified(ConfigSessionEvent event) {
+                }
+            });
         }
 
         public DragPoint dragPointFor(Object component) {
@@ -976,6 +1198,9 @@ public class ForEachJob extends StructuralJob<Object>
                             @Override
                             public void sessionSaved(ConfigSessionEvent event) {
                                 lastModifiedChildSession = null;
+                                if (cacheConfiguration) {
+                                    saveTemplate(configHandle);
+                                }
                                 Iterable<SessionStateListener> listeners = copy();
                                 for (SessionStateListener listener : listeners) {
                                     listener.sessionSaved(event);
@@ -1000,6 +1225,39 @@ public class ForEachJob extends StructuralJob<Object>
             }
         }
 
+        /**
+         * When caching, a child is created from the template so saving it
+         * only changes the template. Write the child's configuration back
+         * over the original configuration so the change isn't lost when the
+         * template is next created.
+         *
+         * @param childHandle The handle of the saved child.
+         */
+        void saveTemplate(ConfigurationHandle<ArooaContext> childHandle) {
+
+            XMLArooaParser xmlParser = new XMLArooaParser(getArooaDescriptor());
+            try {
+                xmlParser.parse(childHandle.getDocumentContext().getConfigurationNode());
+
+                XMLArooaParser parser = new XMLArooaParser(getArooaDescriptor());
+                ConfigurationHandle<SimpleParseContext> handle = parser.parse(configuration);
+
+                SimpleParseContext documentContext = handle.getDocumentContext();
+
+                CutAndPasteSupport.replace(documentContext.getParent(),
+                        documentContext,
+                        new XMLConfiguration("Edited Template", xmlParser.getXml()));
+                handle.save();
+            }
+            catch (ArooaParseException e) {
+                throw new IllegalStateException(
+                        "Failed to save template to configuration.", e);
+            }
+            finally {
+                template = null;
+            }
+        }
+
         public ArooaDescriptor getArooaDescriptor() {
             return mainSession.getArooaDescriptor();
         }
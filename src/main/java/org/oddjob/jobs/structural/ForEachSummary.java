@@ -0,0 +1,155 @@
+package org.oddjob.jobs.structural;
+
+import org.oddjob.state.State;
+
+import java.util.*;
+
+/**
+ * A compact summary of the children of a {@link ForEachJob} that have
+ * finished executing. This allows the results of children to be known
+ * once they have been purged.
+ * <p>
+ * Counts are kept for each state the children finish in, and a description
+ * of the last few failures is kept.
+ *
+ * @author rob
+ */
+public class ForEachSummary {
+
+    /** The number of failures to keep descriptions of. */
+    private final int failuresToKeep;
+
+    /** Count of children finishing in each state. */
+    private final Map<State, Long> counts = new LinkedHashMap<>();
+
+    /** Descriptions of the most recent failures. */
+    private final LinkedList<String> failures = new LinkedList<>();
+
+    private long complete;
+
+    private long incomplete;
+
+    private long exception;
+
+    /**
+     * Create a new instance.
+     *
+     * @param failuresToKeep The number of failure descriptions to keep.
+     */
+    public ForEachSummary(int failuresToKeep) {
+        this.failuresToKeep = failuresToKeep;
+    }
+
+    /**
+     * Record a child finishing. States that aren't complete, incomplete or exception
+     * are ignored.
+     *
+     * @param index The index of the child.
+     * @param value The value the child was created for.
+     * @param state The state the child finished in.
+     */
+    public synchronized void record(int index, Object value, State state) {
+        record(index, value, null, state);
+    }
+
+    /**
+     * Record a change in the state of a child that may have finished
+     * before, such as when it is reset and run again. The state it
+     * previously finished in is no longer counted, so each child is only
+     * counted once.
+     *
+     * @param index The index of the child.
+     * @param value The value the child was created for.
+     * @param previous The state the child previously finished in. May be null.
+     * @param state The new state of the child.
+     */
+    public synchronized void record(int index, Object value, State previous, State state) {
+
+        if (previous != null) {
+            count(previous, -1);
+        }
+
+        if (!count(state, 1)) {
+            return;
+        }
+
+        if (!state.isComplete() && failuresToKeep > 0) {
+            failures.add("Index " + index + " [" + value + "] " + state);
+            while (failures.size() > failuresToKeep) {
+                failures.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Tell if a state is one that is counted as finished.
+     *
+     * @param state The state.
+     * @return true if it is complete, incomplete or exception.
+     */
+    public static boolean isFinished(State state) {
+        return state.isComplete() || state.isIncomplete() || state.isException();
+    }
+
+    private boolean count(State state, int delta) {
+
+        if (state.isComplete()) {
+            complete += delta;
+        }
+        else if (state.isIncomplete()) {
+            incomplete += delta;
+        }
+        else if (state.isException()) {
+            exception += delta;
+        }
+        else {
+            return false;
+        }
+
+        counts.merge(state, (long) delta,
+                (was, change) -> was + change == 0 ? null : was + change);
+        return true;
+    }
+
+    /**
+     * Get the number of children that finished in each state.
+     *
+     * @return A map of state name to count. Never null.
+     */
+    public synchronized Map<String, Long> getCounts() {
+        Map<String, Long> copy = new LinkedHashMap<>();
+        counts.forEach((state, count) -> copy.put(state.toString(), count));
+        return copy;
+    }
+
+    public synchronized long getComplete() {
+        return complete;
+    }
+
+    public synchronized long getIncomplete() {
+        return incomplete;
+    }
+
+    public synchronized long getException() {
+        return exception;
+    }
+
+    public synchronized long getTotal() {
+        return complete + incomplete + exception;
+    }
+
+    /**
+     * Get descriptions of the most recent failures, oldest first.
+     *
+     * @return The failures. Never null.
+     */
+    public synchronized List<String> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Complete: " + complete + ", Incomplete: " + incomplete +
+                ", Exception: " + exception;
+    }
+}
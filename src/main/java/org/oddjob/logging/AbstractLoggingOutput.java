@@ -1,99 +1,154 @@
-package org.oddjob.logging;
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
-
-/**
- * An output stream that splits output into an existing
- * output stream if supplied, and a console archive. 
- * <p>
- * The internal buffer is synchronised so this class is
- * thread safe, however no synchronisation occurs between writing
- * to the underlying stream and the log so output could be in
- * a different order.
- *
- */
-abstract public class AbstractLoggingOutput extends OutputStream {
-	
-	private final ByteArrayOutputStream buffer;
-	
-	/** The existing OutputStream to also write to. */
-	private final OutputStream existing;
-	
-	/**
-	 * Constructor.
-	 * 
-	 * @param existing The output stream to also write to. May be null.
-	 */
-	public AbstractLoggingOutput(OutputStream existing) {
-		this.buffer = new ByteArrayOutputStream();
-		this.existing = existing;
-	}
-	
-	public void write(int c) throws IOException {
-		add(new byte[] { (byte) c }, 0, 1);
-		if (existing != null) existing.write(c);
-	}
-	
-	public void write(byte[] b) throws IOException {
-		add(b, 0, b.length);
-		if (existing != null) existing.write(b);
-	}
-	
-	public void write(byte[] buf, int off, int len) throws IOException {
-		add(buf, off, len);
-		if (existing != null) existing.write(buf, off, len);
-	}
-	
-	@Override
-	public void flush() throws IOException {
-		if (existing != null) {
-			existing.flush();
-		}
-	}
-	
-	public void close() throws IOException {
-		next();
-		if (existing != null) existing.close();
-	}
-	
-	/**
-	 * Add bytes to the internal buffer.
-	 * 
-	 * @param buf
-	 * @param off
-	 * @param length
-	 */
-	void add(byte[] buf, int off , int length) {
-		synchronized (buffer) {
-			int currentOffset = off;
-			for (int i = off; i < off + length; ++i) {
-				if (buf[i] == '\n') {
-					buffer.write(buf, currentOffset, i - currentOffset + 1);
-					currentOffset = i + 1;
-					next();
-				}
-			}
-			buffer.write(buf, currentOffset, length - currentOffset + off);
-		}
-	}
-
-	/**
-	 * Called when a line is ready to be written to the {@link LogArchive}.
-	 *
-	 */
-	void next() {
-		String message;
-		synchronized (buffer) {
-			if (buffer.size() == 0) {
-				return;
-			}
-			message = buffer.toString();
-			buffer.reset();
-		}
-		dispatch(message);
-	}
-	
-	abstract protected void dispatch(String message);
+package org.oddjob.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An output stream that splits output into an existing
+ * output stream if supplied, and a console archive. 
+ * <p>
+ * The internal buffer is synchronised so this class is
+ * thread safe, however no synchronisation occurs between writing
+ * to the underlying stream and the log so output could be in
+ * a different order.
+ * <p>
+ * Bytes are decoded with the given charset, or the default charset
+ * if none is given. All the lines completed by a single write are
+ * dispatched together with {@link #dispatchBatch(List)}.
+ *
+ */
+abstract public class AbstractLoggingOutput extends OutputStream {
+
+	/** The most lines dispatched in one batch. */
+	public static final int MAX_BATCH = 1024;
+
+	/** Splits the bytes into lines. Also the lock. */
+	private final LineSplitter splitter;
+
+	/** Lines waiting to be dispatched. Reused between writes. */
+	private final List<String> batch = new ArrayList<>();
+
+	/** The existing OutputStream to also write to. */
+	private final OutputStream existing;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param existing The output stream to also write to. May be null.
+	 */
+	public AbstractLoggingOutput(OutputStream existing) {
+		this(existing, new LineSplitter());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param existing The output stream to also write to. May be null.
+	 * @param charset The charset to decode output with.
+	 */
+	public AbstractLoggingOutput(OutputStream existing, Charset charset) {
+		this(existing, new LineSplitter(charset));
+	}
+
+	private AbstractLoggingOutput(OutputStream existing, LineSplitter splitter) {
+		this.splitter = splitter;
+		this.existing = existing;
+	}
+	
+	public void write(int c) throws IOException {
+		synchronized (splitter) {
+			splitter.split(c, this::collect);
+			dispatchCollected();
+		}
+		if (existing != null) existing.write(c);
+	}
+	
+	public void write(byte[] b) throws IOException {
+		add(b, 0, b.length);
+		if (existing != null) existing.write(b);
+	}
+	
+	public void write(byte[] buf, int off, int len) throws IOException {
+		add(buf, off, len);
+		if (existing != null) existing.write(buf, off, len);
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		if (existing != null) {
+			existing.flush();
+		}
+	}
+	
+	public void close() throws IOException {
+		next();
+		if (existing != null) existing.close();
+	}
+	
+	/**
+	 * Add bytes to the internal buffer.
+	 * 
+	 * @param buf
+	 * @param off
+	 * @param length
+	 */
+	void add(byte[] buf, int off , int length) {
+		synchronized (splitter) {
+			splitter.split(buf, off, length, this::collect);
+			dispatchCollected();
+		}
+	}
+
+	/**
+	 * Called when a line is ready to be written to the {@link LogArchive}.
+	 *
+	 */
+	void next() {
+		synchronized (splitter) {
+			splitter.flush(this::collect);
+			dispatchCollected();
+		}
+	}
+
+	private void collect(String line) {
+		batch.add(line);
+		if (batch.size() >= MAX_BATCH) {
+			dispatchCollected();
+		}
+	}
+
+	private void dispatchCollected() {
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			if (batch.size() == 1) {
+				dispatch(batch.get(0));
+			}
+			else {
+				dispatchBatch(batch);
+			}
+		}
+		finally {
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Dispatch several lines. The list is only valid for the duration of
+	 * the call. This implementation dispatches each line in turn, subclasses
+	 * may override it to pass the lines on together.
+	 *
+	 * @param messages The lines.
+	 */
+	protected void dispatchBatch(List<String> messages) {
+		for (String message : messages) {
+			dispatch(message);
+		}
+	}
+
+	abstract protected void dispatch(String message);
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package org.oddjob.logging;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Splits bytes into lines of text. Bytes are collected in a buffer that is
+ * reused from line to line so nothing is allocated other than the
+ * resulting {@code String}s. Lines include their line terminator.
+ * <p>
+ * Lines are found by looking for the new line byte so the charset must be
+ * one where a new line is a single byte of 10 that never appears as part
+ * of another character, such as UTF-8, ISO-8859-1 or any of the other single
+ * byte charsets. Multi byte characters that span writes are decoded correctly
+ * because decoding only happens once a whole line is available. Only the
+ * default charset may be one without a single byte new line, see
+ * {@link #LineSplitter()}.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author rob
+ */
+public class LineSplitter {
+
+	/** The initial size of the buffer. */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/** A buffer grown past this is shrunk after the long line is gone. */
+	static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	private final Charset charset;
+
+	private final int initialCapacity;
+
+	private byte[] buffer;
+
+	private int count;
+
+	/**
+	 * Create a splitter for the default charset. If the default charset
+	 * doesn't have a single byte new line, such as UTF-16, bytes are still
+	 * split at each new line byte and decoded with it, as logged output
+	 * always was before. The text will be wrong if a new line byte is
+	 * part of another character, but logging still works.
+	 */
+	public LineSplitter() {
+		this(Charset.defaultCharset(), DEFAULT_CAPACITY, false);
+	}
+
+	/**
+	 * Create a splitter for the given charset.
+	 *
+	 * @param charset The charset. Must not be null.
+	 */
+	public LineSplitter(Charset charset) {
+		this(charset, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a splitter for the given charset with a buffer of the given
+	 * initial size.
+	 *
+	 * @param charset The charset. Must not be null.
+	 * @param initialCapacity The initial size of the buffer.
+	 */
+	public LineSplitter(Charset charset, int initialCapacity) {
+		this(charset, initialCapacity, true);
+	}
+
+	/**
+	 * Create a splitter, possibly for a charset that doesn't have a single
+	 * byte new line.
+	 *
+	 * @param charset The charset. Must not be null.
+	 * @param initialCapacity The initial size of the buffer.
+	 * @param check Reject a charset without a single byte new line.
+	 */
+	LineSplitter(Charset charset, int initialCapacity, boolean check) {
+		this.charset = Objects.requireNonNull(charset);
+		if (check && !Arrays.equals(new byte[] { '\n' }, "\n".getBytes(charset))) {
+			throw new IllegalArgumentException("Charset " + charset +
+					" does not have a single byte new line.");
+		}
+		this.initialCapacity = Math.max(1, initialCapacity);
+		this.buffer = new byte[this.initialCapacity];
+	}
+
+	/**
+	 * Add bytes, providing any lines that are completed by them.
+	 *
+	 * @param buf The bytes.
+	 * @param off The offset of the first byte.
+	 * @param len The number of bytes.
+	 * @param lines Consumer of completed lines.
+	 */
+	public void split(byte[] buf, int off, int len, Consumer<? super String> lines) {
+		int start = off;
+		int end = off + len;
+		for (int i = off; i < end; ++i) {
+			if (buf[i] == '\n') {
+				if (count == 0) {
+					// Nothing held over so decode straight from the input.
+					lines.accept(new String(buf, start, i - start + 1, charset));
+				}
+				else {
+					append(buf, start, i - start + 1);
+					lines.accept(take());
+				}
+				start = i + 1;
+			}
+		}
+		append(buf, start, end - start);
+	}
+
+	/**
+	 * Add a single byte, providing the line if the byte completes it.
+	 *
+	 * @param b The byte.
+	 * @param lines Consumer of a completed line.
+	 */
+	public void split(int b, Consumer<? super String> lines) {
+		ensureCapacity(count + 1);
+		buffer[count++] = (byte) b;
+		if (b == '\n') {
+			lines.accept(take());
+		}
+	}
+
+	/**
+	 * Provide any text that hasn't been terminated by a new line.
+	 *
+	 * @param lines Consumer of the remaining text, only called if there
+	 * is some.
+	 */
+	public void flush(Consumer<? super String> lines) {
+		if (count > 0) {
+			lines.accept(take());
+		}
+	}
+
+	/**
+	 * The number of bytes waiting for a new line.
+	 *
+	 * @return The number of bytes.
+	 */
+	public int getPending() {
+		return count;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	private void append(byte[] buf, int off, int len) {
+		if (len == 0) {
+			return;
+		}
+		ensureCapacity(count + len);
+		System.arraycopy(buf, off, buffer, count, len);
+		count += len;
+	}
+
+	private String take() {
+		String line = new String(buffer, 0, count, charset);
+		count = 0;
+		if (buffer.length > MAX_RETAINED_CAPACITY) {
+			buffer = new byte[initialCapacity];
+		}
+		return line;
+	}
+
+	private void ensureCapacity(int required) {
+		if (required > buffer.length) {
+			buffer = Arrays.copyOf(buffer,
+					Math.max(required, buffer.length * 2));
+		}
+	}
+}
@@ -2,6 +2,8 @@ package org.oddjob.logging;
 
 import org.oddjob.arooa.logging.LogLevel;
 
+import java.util.List;
+
 /**
  * Something that is able to accept log messages.
  * 
@@ -17,5 +19,17 @@ public interface LogEventSink {
 	 * @param line The message.
 	 */
 	public void addEvent(LogLevel level, String line);
-	
+
+	/**
+	 * Add several events, all at the same level, to this archive. The
+	 * default implementation adds each in turn.
+	 *
+	 * @param level The level.
+	 * @param lines The messages.
+	 */
+	default void addEvents(LogLevel level, List<String> lines) {
+		for (String line : lines) {
+			addEvent(level, line);
+		}
+	}
 }
@@ -3,6 +3,8 @@
  */
 package org.oddjob.logging;
 
+import java.util.List;
+
 /**
  * A Listener that is able to listen to log events.
  * 
@@ -17,4 +19,18 @@ public interface LogListener {
 	 * @param logEvent The LogEvent.
 	 */
 	public void logEvent(LogEvent logEvent);
+
+	/**
+	 * Called when several LogEvents occur together, such as the lines
+	 * of console output from a single write. Events are in message number
+	 * order. The default implementation calls {@link #logEvent(LogEvent)}
+	 * for each in turn.
+	 *
+	 * @param logEvents The LogEvents. Never empty.
+	 */
+	default void logEvents(List<LogEvent> logEvents) {
+		for (LogEvent logEvent : logEvents) {
+			logEvent(logEvent);
+		}
+	}
 }
@@ -1,6 +1,8 @@
 package org.oddjob.logging;
 
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
 
 import org.oddjob.arooa.logging.LogLevel;
 
@@ -29,9 +31,29 @@ public class LoggingOutputStream extends AbstractLoggingOutput {
 		this.level = level;
 		this.consoleArchiver = consoleArchiver;
 	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param existing The output stream to also write to. May be null.
+	 * @param level The level to use when logging.
+	 * @param consoleArchiver The logger to write to.
+	 * @param charset The charset to decode output with.
+	 */
+	public LoggingOutputStream(OutputStream existing, LogLevel level,
+			LogEventSink consoleArchiver, Charset charset) {
+		super(existing, charset);
+		this.level = level;
+		this.consoleArchiver = consoleArchiver;
+	}
 	
 	@Override
 	protected void dispatch(String message) {
 		consoleArchiver.addEvent(level, message);
 	}
+
+	@Override
+	protected void dispatchBatch(List<String> messages) {
+		consoleArchiver.addEvents(level, messages);
+	}
 }
\ No newline at end of file
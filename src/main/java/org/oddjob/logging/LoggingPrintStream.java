@@ -7,6 +7,7 @@ import org.oddjob.arooa.logging.LogLevel;
 
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
 
 /**
  * Provide a PrintStream that logs to a logger.
@@ -19,4 +20,10 @@ public class LoggingPrintStream extends PrintStream {
 			LogEventSink consoleArchiver) {
 		super(new LoggingOutputStream(existing, level, consoleArchiver));
 	}
+
+	public LoggingPrintStream(OutputStream existing, LogLevel level,
+			LogEventSink consoleArchiver, Charset charset) {
+		super(new LoggingOutputStream(existing, level, consoleArchiver, charset),
+				false, charset);
+	}
 }
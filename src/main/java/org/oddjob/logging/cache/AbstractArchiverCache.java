@@ -14,7 +14,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * A base implementation of a Cache of Log Messages.
@@ -28,7 +30,7 @@ abstract public class AbstractArchiverCache implements LogArchiverCache {
     /**
      * Map of archive name to archive. Should this be concurrent?
      */
-    private final Map<String, LogArchiveImpl> archives =
+    private final Map<String, LogArchiveSink> archives =
             new HashMap<>();
 
     /**
@@ -40,6 +42,8 @@ abstract public class AbstractArchiverCache implements LogArchiverCache {
 
     private final ArchiveNameResolver resolver;
 
+    private final LogArchiveFactory archiveFactory;
+
     private final StateListener stateListener = event -> {
         if (event.getState().isDestroyed()) {
             removeArchive(event.getSource());
@@ -59,8 +63,21 @@ abstract public class AbstractArchiverCache implements LogArchiverCache {
      * @param maxHistory The number of lines to store for each logger
      */
     public AbstractArchiverCache(ArchiveNameResolver resolver, int maxHistory) {
+        this(resolver, maxHistory, LogArchiveFactory.fromSystemProperty());
+    }
+
+    /**
+     * Construct a LogArchiver with the given amount of history, and
+     * the given type of archive.
+     *
+     * @param maxHistory     The number of lines to store for each logger
+     * @param archiveFactory Creates the archive for each logger.
+     */
+    public AbstractArchiverCache(ArchiveNameResolver resolver, int maxHistory,
+                                 LogArchiveFactory archiveFactory) {
         this.resolver = resolver;
         this.maxHistory = maxHistory;
+        this.archiveFactory = Objects.requireNonNull(archiveFactory);
     }
 
     /*
@@ -158,7 +175,7 @@ abstract public class AbstractArchiverCache implements LogArchiverCache {
         logger.debug("Adding archive [{}] for [{}]", archiveName, component);
 
         counter.add(archiveName, () -> {
-            LogArchiveImpl logArchive = new LogArchiveImpl(archiveName, getMaxHistory());
+            LogArchiveSink logArchive = archiveFactory.createArchive(archiveName, getMaxHistory());
             archives.put(archiveName, logArchive);
             logger.debug("Adding archive for [{}]", archiveName);
         });
@@ -196,12 +213,29 @@ abstract public class AbstractArchiverCache implements LogArchiverCache {
      */
     @Override
     public void addEvent(String archive, LogLevel level, String message) {
-        LogArchiveImpl logArchive = archives.get(archive);
+        LogArchiveSink logArchive = archives.get(archive);
         if (logArchive == null) {
             throw new IllegalArgumentException("Archive [" + archive + "] does not exist in this LogArchiver.");
         }
         logArchive.addEvent(level, message);
     }
 
+    /**
+     * Add several events to the cache. They are passed to the archive
+     * together.
+     *
+     * @param archive  The archive.
+     * @param level    The level.
+     * @param messages The messages.
+     */
+    @Override
+    public void addEvents(String archive, LogLevel level, List<String> messages) {
+        LogArchiveSink logArchive = archives.get(archive);
+        if (logArchive == null) {
+            throw new IllegalArgumentException("Archive [" + archive + "] does not exist in this LogArchiver.");
+        }
+        logArchive.addEvents(level, messages);
+    }
+
     public abstract void destroy();
 }
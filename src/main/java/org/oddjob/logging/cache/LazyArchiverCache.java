@@ -41,6 +41,20 @@ public class LazyArchiverCache extends AbstractArchiverCache {
 		super(resolver, maxHistory);
 	}
 
+	/**
+	 * Construct a LogArchiver with the given amount of history and
+	 * type of archive.
+	 *
+	 * @param maxHistory The number of lines to store for each logger
+	 * @param resolver A reslover which resolves archive name, either locally
+	 * or using a remote url.
+	 * @param archiveFactory Creates the archive for each logger.
+	 */
+	public LazyArchiverCache(int maxHistory, ArchiveNameResolver resolver,
+							 LogArchiveFactory archiveFactory) {
+		super(resolver, maxHistory, archiveFactory);
+	}
+
 	@Override
 	synchronized public void addLogListener(LogListener l, Object component, LogLevel level,
 			long last, int history) {
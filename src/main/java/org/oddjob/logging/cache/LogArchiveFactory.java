@@ -0,0 +1,49 @@
+package org.oddjob.logging.cache;
+
+/**
+ * Creates the {@link LogArchiveSink}s held by an {@link AbstractArchiverCache}.
+ *
+ * @author rob
+ */
+public interface LogArchiveFactory {
+
+	/** System property to choose the type of archive used by default. Either
+	 * <code>linked</code> or <code>ring</code>. */
+	String ARCHIVE_TYPE_PROPERTY = "oddjob.logging.archive.type";
+
+	/** Creates the original {@link LogArchiveImpl}. */
+	LogArchiveFactory LINKED = LogArchiveImpl::new;
+
+	/** Creates a {@link RingBufferLogArchive}. */
+	LogArchiveFactory RING = RingBufferLogArchive::new;
+
+	/**
+	 * Create an archive.
+	 *
+	 * @param archive The name of the archive.
+	 * @param maxHistory The maximum number of lines of history to keep.
+	 *
+	 * @return A new archive. Never null.
+	 */
+	LogArchiveSink createArchive(String archive, int maxHistory);
+
+	/**
+	 * Provide the factory chosen by the {@link #ARCHIVE_TYPE_PROPERTY} system
+	 * property.
+	 *
+	 * @return A factory. {@link #LINKED} if the property isn't set.
+	 */
+	static LogArchiveFactory fromSystemProperty() {
+		String type = System.getProperty(ARCHIVE_TYPE_PROPERTY);
+		if (type == null || "linked".equalsIgnoreCase(type)) {
+			return LINKED;
+		}
+		else if ("ring".equalsIgnoreCase(type)) {
+			return RING;
+		}
+		else {
+			throw new IllegalArgumentException("Unknown log archive type [" + type +
+					"] for property " + ARCHIVE_TYPE_PROPERTY);
+		}
+	}
+}
@@ -13,9 +13,7 @@ import java.util.Map;
 import java.util.Stack;
 
 import org.oddjob.arooa.logging.LogLevel;
-import org.oddjob.logging.LogArchive;
 import org.oddjob.logging.LogEvent;
-import org.oddjob.logging.LogEventSink;
 import org.oddjob.logging.LogListener;
 
 /**
@@ -23,7 +21,7 @@ import org.oddjob.logging.LogListener;
  * 
  * @author Rob Gordon
  */
-public class LogArchiveImpl implements LogArchive, LogEventSink {
+public class LogArchiveImpl implements LogArchiveSink {
 	
 	/** Maximum archived lines */
 	private final int maxHistory;
@@ -92,6 +90,40 @@ public class LogArchiveImpl implements LogArchive, LogEventSink {
 			}
 		}
 	}
+
+	/**
+	 * Add several events to this archive. The events are archived under a
+	 * single lock and each listener is notified once.
+	 *
+	 * @param level The level.
+	 * @param lines The messages.
+	 */
+	@Override
+	public void addEvents(LogLevel level, List<String> lines) {
+		if (lines.isEmpty()) {
+			return;
+		}
+		synchronized (events) {
+			long number = getLastMessageNumber();
+			List<LogEvent> added = new ArrayList<LogEvent>(lines.size());
+			for (String line : lines) {
+				LogEvent event = new LogEvent(archive, ++number, level, line);
+				events.addFirst(event);
+				added.add(event);
+			}
+			while (events.size() > maxHistory) {
+				events.removeLast();
+			}
+			added = Collections.unmodifiableList(added);
+			// send events to listeners
+			for (Map.Entry<LogListener, LogLevel> entry : listeners.entrySet()) {
+				if (level.isLessThan(entry.getValue())) {
+					continue;
+				}
+				entry.getKey().logEvents(added);
+			}
+		}
+	}
 	
 	/**
 	 * Retrieve events from the archive. The most recent events are retrieved
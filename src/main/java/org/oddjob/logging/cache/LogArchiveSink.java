@@ -0,0 +1,14 @@
+package org.oddjob.logging.cache;
+
+import org.oddjob.logging.LogArchive;
+import org.oddjob.logging.LogEventSink;
+
+/**
+ * A {@link LogArchive} that events are added to directly. This is what an
+ * {@link AbstractArchiverCache} keeps for each archive.
+ *
+ * @author rob
+ */
+public interface LogArchiveSink extends LogArchive, LogEventSink {
+
+}
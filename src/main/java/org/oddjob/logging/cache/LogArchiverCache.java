@@ -4,6 +4,8 @@ import org.oddjob.arooa.logging.LogLevel;
 import org.oddjob.logging.LogArchive;
 import org.oddjob.logging.LogListener;
 
+import java.util.List;
+
 /**
  * Maintains a collection of {@link LogArchive}s by archive name.
  * 
@@ -54,6 +56,20 @@ public interface LogArchiverCache {
 	 * @param message The message.
 	 */
     void addEvent(String archive, LogLevel level, String message);
+
+	/**
+	 * Add several events, all at the same level, to the cache. The default
+	 * implementation adds each event in turn.
+	 *
+	 * @param archive The archive.
+	 * @param level The level.
+	 * @param messages The messages.
+	 */
+    default void addEvents(String archive, LogLevel level, List<String> messages) {
+        for (String message : messages) {
+            addEvent(archive, level, message);
+        }
+    }
 	
 	void destroy();
 }
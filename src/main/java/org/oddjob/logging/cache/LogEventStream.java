@@ -0,0 +1,33 @@
+package org.oddjob.logging.cache;
+
+import org.oddjob.logging.LogListener;
+
+/**
+ * A source of log events that can also push new events as they happen.
+ * 
+ * @author rob
+ */
+public interface LogEventStream extends LogEventSource {
+
+	/**
+	 * Start new events for the component being pushed to the listener.
+	 * Subscribing again with the same listener renews the subscription,
+	 * which may lapse if it isn't renewed. Events missed while it had
+	 * lapsed show as a gap in the event numbers.
+	 * 
+	 * @param component The component.
+	 * @param listener The listener.
+	 * 
+	 * @return true if events will be pushed, false if they can only be
+	 * retrieved.
+	 */
+	boolean subscribe(Object component, LogListener listener);
+
+	/**
+	 * Stop events for the component being pushed to the listener.
+	 * 
+	 * @param component The component.
+	 * @param listener The listener.
+	 */
+	void unsubscribe(Object component, LogListener listener);
+}
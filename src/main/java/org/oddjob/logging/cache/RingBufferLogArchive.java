@@ -0,0 +1,351 @@
+package org.oddjob.logging.cache;
+
+import org.oddjob.arooa.logging.LogLevel;
+import org.oddjob.logging.LogArchive;
+import org.oddjob.logging.LogEvent;
+import org.oddjob.logging.LogListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link LogArchive} that keeps its history in a fixed size ring buffer
+ * indexed by message number.
+ * <p>
+ * Adding an event doesn't take a lock. A message number is claimed and the
+ * event stored in its slot, then the event is published in message number
+ * order so that retrieving events never sees an event that isn't there yet.
+ * Retrieving events goes straight to the slot of the first message required
+ * instead of walking the history. Events that are overwritten while they are
+ * being retrieved are treated as having dropped out of the history, so only
+ * the unbroken run of the most recent events is retrieved.
+ * <p>
+ * Listeners are notified after the event is published, on the thread adding
+ * the event as with {@link LogArchiveImpl}, and also in message number order.
+ * A slow listener will hold up the logging of other threads but not the
+ * retrieving of events. Threads held up spin briefly and then wait to be
+ * woken. A listener must not add events to the archive it is listening to.
+ *
+ * @author rob
+ */
+public class RingBufferLogArchive implements LogArchiveSink {
+
+	/** Maximum archived lines */
+	private final int maxHistory;
+
+	private final String archive;
+
+	/** The events. The event numbered n is in slot n % the length. */
+	private final AtomicReferenceArray<LogEvent> ring;
+
+	/** The next message number to be claimed. */
+	private final AtomicLong claimed = new AtomicLong();
+
+	/** The last message number that has been published. */
+	private final AtomicLong published = new AtomicLong(-1);
+
+	/** The last message number that listeners have been notified of. */
+	private final AtomicLong notified = new AtomicLong(-1);
+
+	/** The number of spins waiting for progress before blocking. */
+	private static final int SPINS = 100;
+
+	/** Threads blocked waiting for progress wait on this. */
+	private final Object progressLock = new Object();
+
+	/** The number of threads blocked waiting for progress. */
+	private final AtomicInteger waiting = new AtomicInteger();
+
+	/** The listeners. */
+	private final List<ListenerWrapper> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param archive The name of the archive.
+	 * @param maxHistory The maximum history lines.
+	 */
+	public RingBufferLogArchive(String archive, int maxHistory) {
+		if (archive == null) {
+			throw new NullPointerException("Logger Name must not be null.");
+		}
+		this.archive = archive;
+		this.maxHistory = maxHistory;
+		this.ring = new AtomicReferenceArray<>(Math.max(1, maxHistory));
+	}
+
+	@Override
+	public long getLastMessageNumber() {
+		return published.get();
+	}
+
+	@Override
+	public void addEvent(LogLevel level, String line) {
+
+		long number = claimed.getAndIncrement();
+
+		LogEvent event = new LogEvent(archive, number, level, line);
+
+		ring.set(slotFor(number), event);
+
+		await(published, number - 1);
+		advance(published, number);
+
+		await(notified, number - 1);
+		try {
+			for (ListenerWrapper listener : listeners) {
+				listener.live(event);
+			}
+		}
+		finally {
+			advance(notified, number);
+		}
+	}
+
+	@Override
+	public void addEvents(LogLevel level, List<String> lines) {
+
+		int size = lines.size();
+		if (size == 0) {
+			return;
+		}
+
+		long first = claimed.getAndAdd(size);
+
+		List<LogEvent> added = new ArrayList<>(size);
+		long number = first;
+		for (String line : lines) {
+			LogEvent event = new LogEvent(archive, number, level, line);
+			ring.set(slotFor(number++), event);
+			added.add(event);
+		}
+
+		await(published, first - 1);
+		advance(published, number - 1);
+
+		await(notified, first - 1);
+		try {
+			for (ListenerWrapper listener : listeners) {
+				listener.live(added);
+			}
+		}
+		finally {
+			advance(notified, number - 1);
+		}
+	}
+
+	/**
+	 * Wait for events with earlier numbers to be published, or for
+	 * listeners to have been notified of them. This is only held up by
+	 * another thread part way through adding events, which may be for a
+	 * while if a listener is slow, so after a short spin the thread blocks
+	 * until woken by {@link #advance(AtomicLong, long)}.
+	 *
+	 * @param progress Either the published or the notified number.
+	 * @param number The number that must have been published or notified.
+	 */
+	private void await(AtomicLong progress, long number) {
+		for (int i = 0; i < SPINS; ++i) {
+			if (progress.get() >= number) {
+				return;
+			}
+			Thread.onSpinWait();
+		}
+		boolean interrupted = false;
+		synchronized (progressLock) {
+			// Counted before checking progress so advance can't miss us.
+			waiting.incrementAndGet();
+			try {
+				while (progress.get() < number) {
+					try {
+						progressLock.wait();
+					}
+					catch (InterruptedException e) {
+						// The events must still be added in order.
+						interrupted = true;
+					}
+				}
+			}
+			finally {
+				waiting.decrementAndGet();
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Record progress, waking any threads waiting for it.
+	 *
+	 * @param progress Either the published or the notified number.
+	 * @param number The number now published or notified.
+	 */
+	private void advance(AtomicLong progress, long number) {
+		progress.set(number);
+		if (waiting.get() > 0) {
+			synchronized (progressLock) {
+				progressLock.notifyAll();
+			}
+		}
+	}
+
+	@Override
+	public LogEvent[] retrieveEvents(long from, int max) {
+
+		long last = published.get();
+		if (from > last) {
+			// Our numbering has restarted so the caller needs everything.
+			from = -1;
+		}
+
+		long first = Math.max(from + 1,
+				Math.max(last - max + 1, last - maxHistory + 1));
+
+		return eventsBetween(first, last).toArray(new LogEvent[0]);
+	}
+
+	@Override
+	public void addListener(LogListener logListener,
+							LogLevel level, long last, int history) {
+
+		removeListener(logListener);
+
+		ListenerWrapper wrapper = new ListenerWrapper(logListener, level);
+
+		// Listen first, so that anything claimed after this is sent live.
+		listeners.add(wrapper);
+
+		long upTo = claimed.get() - 1;
+		await(published, upTo);
+
+		wrapper.replay(Math.max(last + 1,
+				Math.max(upTo - history + 1, upTo - maxHistory + 1)),
+				upTo);
+	}
+
+	@Override
+	public boolean removeListener(LogListener logListener) {
+		for (ListenerWrapper wrapper : listeners) {
+			if (wrapper.listener == logListener) {
+				return listeners.remove(wrapper);
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String getArchive() {
+		return archive;
+	}
+
+	@Override
+	public int getMaxHistory() {
+		return maxHistory;
+	}
+
+	private int slotFor(long number) {
+		return (int) (number % ring.length());
+	}
+
+	/**
+	 * Get the published events between two numbers. If an event has been
+	 * overwritten, which can happen while retrieving as other threads add
+	 * events, the events before it are dropped too. The result is always an
+	 * unbroken run of the most recent events, as if the history had been
+	 * shorter.
+	 *
+	 * @param from The first message number, inclusive.
+	 * @param to The last message number, inclusive.
+	 * @return The events. Never null.
+	 */
+	private List<LogEvent> eventsBetween(long from, long to) {
+		List<LogEvent> events = new ArrayList<>();
+		for (long number = Math.max(0, from); number <= to; ++number) {
+			LogEvent event = ring.get(slotFor(number));
+			if (event == null || event.getNumber() != number) {
+				events.clear();
+			}
+			else {
+				events.add(event);
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Wraps a listener so that live events received while history is being
+	 * replayed are held until the replay has finished. The history and
+	 * the held events are then delivered together.
+	 */
+	class ListenerWrapper {
+
+		private final LogListener listener;
+
+		private final LogLevel level;
+
+		/** Events received before the replay. */
+		private List<LogEvent> pending = new ArrayList<>();
+
+		/** The last event delivered. */
+		private long delivered = -1;
+
+		ListenerWrapper(LogListener listener, LogLevel level) {
+			this.listener = listener;
+			this.level = level;
+		}
+
+		synchronized void live(LogEvent event) {
+			if (pending != null) {
+				pending.add(event);
+			}
+			else if (accept(event)) {
+				listener.logEvent(event);
+			}
+		}
+
+		synchronized void live(List<LogEvent> events) {
+			if (pending != null) {
+				pending.addAll(events);
+			}
+			else {
+				deliver(events);
+			}
+		}
+
+		synchronized void replay(long from, long to) {
+			deliver(eventsBetween(from, to));
+			delivered = Math.max(delivered, to);
+			deliver(pending);
+			pending = null;
+		}
+
+		private void deliver(List<LogEvent> events) {
+			List<LogEvent> wanted = new ArrayList<>(events.size());
+			for (LogEvent event : events) {
+				if (accept(event)) {
+					wanted.add(event);
+				}
+			}
+			if (wanted.size() == 1) {
+				listener.logEvent(wanted.get(0));
+			}
+			else if (!wanted.isEmpty()) {
+				listener.logEvents(Collections.unmodifiableList(wanted));
+			}
+		}
+
+		private boolean accept(LogEvent event) {
+			if (event.getNumber() <= delivered) {
+				return false;
+			}
+			delivered = event.getNumber();
+			return !event.getLevel().isLessThan(level);
+		}
+	}
+}
@@ -0,0 +1,410 @@
+package org.oddjob.logging.cache;
+
+import org.oddjob.arooa.logging.LogLevel;
+import org.oddjob.logging.ArchiveNameResolver;
+import org.oddjob.logging.LogArchiver;
+import org.oddjob.logging.LogEvent;
+import org.oddjob.logging.LogListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A LogArchiver which maintains it's log archives from events pushed to
+ * it by a {@link LogEventStream}.
+ * <p>
+ * When the first listener is added for an archive this archiver subscribes
+ * to the stream and then retrieves any history. Pushed events are
+ * held until the history has been archived. Events carry their message
+ * number, so a gap in the numbers of pushed events, which can happen
+ * if a notification is lost, is filled by retrieving the missing events.
+ * <p>
+ * As with the {@link PollingLogArchiver} only the first component is
+ * subscribed to where many components share the same archive, and
+ * the subscription stops when no more listeners are listening.
+ * <p>
+ * Subscriptions are renewed each time {@link #poll()} is called. If the
+ * stream can't push events for a component, or stops being able to,
+ * that component's events are retrieved by {@link #poll()} instead.
+ * <p>
+ * Subscribing and retrieving are remote calls so they are never made
+ * while holding the lock on the archives, only the lock of the archive
+ * concerned.
+ *
+ * @author rob
+ */
+public class StreamingLogArchiver implements LogArchiver {
+	private static final Logger logger = LoggerFactory.getLogger(StreamingLogArchiver.class);
+
+	/** A local LogArchiver we delegate to. */
+	private final LogArchiverCache cache;
+
+	private final ArchiveNameResolver resolver;
+
+	private final LogEventStream stream;
+
+	/** Streams by archive name. Kept so numbering continues if listening resumes. */
+	private final Map<String, ArchiveStream> streams = new HashMap<>();
+
+	/** Components being listened to and their archive name. */
+	private final Map<Object, String> components = new HashMap<>();
+
+	/** How many listeners are listening to a component. */
+	private final Map<Object, Integer> listenerCounts = new HashMap<>();
+
+	/**
+	 * Constructor with default history.
+	 *
+	 * @param resolver Resolves the archive name of a component.
+	 * @param stream The stream of events.
+	 */
+	public StreamingLogArchiver(ArchiveNameResolver resolver, LogEventStream stream) {
+		this(LogArchiver.MAX_HISTORY, resolver, stream);
+	}
+
+	/**
+	 * Constructor that accepts a history count.
+	 *
+	 * @param history The number of lines of history to keep.
+	 * @param resolver Resolves the archive name of a component.
+	 * @param stream The stream of events.
+	 */
+	public StreamingLogArchiver(int history,
+			ArchiveNameResolver resolver, LogEventStream stream) {
+		this.resolver = resolver;
+		this.stream = stream;
+		this.cache = new LazyArchiverCache(history, resolver);
+	}
+
+	@Override
+	public void addLogListener(LogListener l, Object component,
+			LogLevel level, long last, int max) {
+		String archive = resolver.resolveName(component);
+		logger.debug("Adding LogListener for [{}]", archive);
+		if (archive == null) {
+			l.logEvent(LogArchiver.NO_LOG_AVAILABLE);
+			return;
+		}
+		ArchiveStream archiveStream;
+		synchronized (streams) {
+			cache.addLogListener(l, component, level, last, max);
+			components.put(component, archive);
+			listenerCounts.merge(component, 1, Integer::sum);
+			archiveStream = streams.computeIfAbsent(archive, ArchiveStream::new);
+			if (!archiveStream.addComponent(component)) {
+				return;
+			}
+		}
+		archiveStream.update();
+	}
+
+	@Override
+	public void removeLogListener(LogListener l, Object component) {
+		ArchiveStream archiveStream;
+		synchronized (streams) {
+			String archive = components.get(component);
+			if (archive == null) {
+				return;
+			}
+			cache.removeLogListener(l, component);
+			int count = listenerCounts.merge(component, -1, Integer::sum);
+			if (count > 0) {
+				return;
+			}
+			listenerCounts.remove(component);
+			components.remove(component);
+			archiveStream = streams.get(archive);
+			if (!archiveStream.removeComponent(component)) {
+				return;
+			}
+		}
+		archiveStream.update();
+	}
+
+	/**
+	 * Renew subscriptions, and retrieve events for archives whose events
+	 * aren't being pushed.
+	 */
+	public void poll() {
+		List<ArchiveStream> all;
+		synchronized (streams) {
+			all = new ArrayList<>(streams.values());
+		}
+		for (ArchiveStream archiveStream : all) {
+			archiveStream.poll();
+		}
+	}
+
+	/**
+	 * Stop all subscriptions.
+	 */
+	public void onDestroy() {
+		List<ArchiveStream> all;
+		synchronized (streams) {
+			all = new ArrayList<>(streams.values());
+			for (ArchiveStream archiveStream : all) {
+				archiveStream.clear();
+			}
+			streams.clear();
+			components.clear();
+			listenerCounts.clear();
+		}
+		for (ArchiveStream archiveStream : all) {
+			archiveStream.update();
+		}
+		cache.destroy();
+	}
+
+	/**
+	 * The events for a single archive. This is the listener subscribed to
+	 * the stream.
+	 */
+	class ArchiveStream implements LogListener {
+
+		private final String archive;
+
+		/** Components sharing this archive, in the order they were added. */
+		private final Set<Object> sharing = new LinkedHashSet<>();
+
+		/** The component that should be subscribed to. Only changed
+		 * holding the lock on the archives. */
+		private volatile Object source;
+
+		/** The component that is subscribed to. Only changed holding
+		 * the subscription lock. */
+		private volatile Object subscribed;
+
+		/** Held while subscribing so that changes to the subscription
+		 * happen one at a time. */
+		private final Object subscriptionLock = new Object();
+
+		/** Are events being pushed. */
+		private volatile boolean pushed;
+
+		/** The number of the last event archived. */
+		private long last = -1;
+
+		/** Events pushed while retrieving missed events. */
+		private List<LogEvent> pending;
+
+		ArchiveStream(String archive) {
+			this.archive = archive;
+		}
+
+		/**
+		 * Add a component sharing this archive.
+		 *
+		 * @return true if the subscription needs to be updated.
+		 */
+		boolean addComponent(Object component) {
+			sharing.add(component);
+			if (source == null) {
+				source = component;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Remove a component sharing this archive. If it was the source
+		 * then another component becomes the source.
+		 *
+		 * @return true if the subscription needs to be updated.
+		 */
+		boolean removeComponent(Object component) {
+			sharing.remove(component);
+			if (component == source) {
+				source = sharing.isEmpty() ? null : sharing.iterator().next();
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Remove all components so that the subscription will stop.
+		 */
+		void clear() {
+			sharing.clear();
+			source = null;
+		}
+
+		/**
+		 * Bring the subscription in line with the source. As this may
+		 * happen out of order with the changes to the source it always
+		 * works from the latest source.
+		 */
+		void update() {
+			synchronized (subscriptionLock) {
+				Object component = source;
+				if (component == subscribed) {
+					return;
+				}
+				if (subscribed != null) {
+					stop(subscribed);
+				}
+				subscribed = component;
+				if (component != null) {
+					start(component);
+				}
+			}
+		}
+
+		/**
+		 * Renew the subscription, or if events aren't being pushed,
+		 * retrieve any new ones.
+		 */
+		void poll() {
+			synchronized (subscriptionLock) {
+				Object component = subscribed;
+				if (component == null) {
+					return;
+				}
+				if (pushed) {
+					pushed = subscribe(component);
+					if (pushed) {
+						return;
+					}
+					logger.debug("Can no longer subscribe to [{}], will poll.", archive);
+				}
+				catchUp();
+			}
+		}
+
+		private boolean subscribe(Object component) {
+			try {
+				return stream.subscribe(component, this);
+			}
+			catch (RuntimeException e) {
+				logger.debug("Failed to subscribe to [{}], will poll.", archive, e);
+				return false;
+			}
+		}
+
+		private void start(Object component) {
+			synchronized (this) {
+				pending = new ArrayList<>();
+			}
+			pushed = subscribe(component);
+			logger.debug("Started [{}] for [{}], pushed={}", archive, component, pushed);
+			catchUp();
+		}
+
+		private void stop(Object component) {
+			if (pushed) {
+				try {
+					stream.unsubscribe(component, this);
+				}
+				catch (RuntimeException e) {
+					logger.debug("Failed to unsubscribe from [{}].", archive, e);
+				}
+			}
+			pushed = false;
+			synchronized (this) {
+				pending = null;
+			}
+		}
+
+		/**
+		 * Retrieve events missed since the last event archived, and then
+		 * archive any events pushed in the meantime.
+		 */
+		void catchUp() {
+			Object component = subscribed;
+			LogEvent[] events = new LogEvent[0];
+			if (component != null) {
+				long from;
+				synchronized (this) {
+					from = last;
+					if (pending == null) {
+						pending = new ArrayList<>();
+					}
+				}
+				try {
+					// this could fail if the remote node has gone or the connection
+					// has dropped.
+					events = stream.retrieveEvents(component, from, cache.getMaxHistory());
+				}
+				catch (RuntimeException e) {
+					logger.debug("Failed to retrieve events for [{}]", component, e);
+				}
+			}
+			synchronized (this) {
+				archive(Arrays.asList(events));
+				if (pending != null) {
+					archive(pending);
+					pending = null;
+				}
+			}
+		}
+
+		@Override
+		public void logEvent(LogEvent logEvent) {
+			logEvents(Collections.singletonList(logEvent));
+		}
+
+		@Override
+		public void logEvents(List<LogEvent> logEvents) {
+			if (logEvents.isEmpty()) {
+				return;
+			}
+			synchronized (this) {
+				if (pending != null) {
+					pending.addAll(logEvents);
+					return;
+				}
+				if (logEvents.get(0).getNumber() <= last + 1) {
+					archive(logEvents);
+					return;
+				}
+				// A gap so hold these while we retrieve what's missing.
+				logger.debug("Missed events for [{}] after {}", archive, last);
+				pending = new ArrayList<>(logEvents);
+			}
+			catchUp();
+		}
+
+		/**
+		 * Add events not already archived to the cache. Consecutive events
+		 * at the same level are added together.
+		 *
+		 * @param events The events, in number order.
+		 */
+		private void archive(List<LogEvent> events) {
+			LogLevel level = null;
+			List<String> run = new ArrayList<>();
+			for (LogEvent event : events) {
+				if (event.getNumber() <= last) {
+					continue;
+				}
+				if (event.getLevel() != level) {
+					addRun(level, run);
+					level = event.getLevel();
+				}
+				run.add(event.getMessage());
+				last = event.getNumber();
+			}
+			addRun(level, run);
+		}
+
+		private void addRun(LogLevel level, List<String> run) {
+			if (run.isEmpty()) {
+				return;
+			}
+			if (run.size() == 1) {
+				cache.addEvent(archive, level, run.get(0));
+			}
+			else {
+				cache.addEvents(archive, level, run);
+			}
+			run.clear();
+		}
+	}
+}
@@ -64,6 +64,23 @@ public class StructuralArchiverCache extends AbstractArchiverCache {
 		addChild(root);
 	}
 
+	/**
+	 * Construct a LogArchiver archiving message from the given root object
+	 * and all it's children with the given amount of history and type
+	 * of archive.
+	 *
+	 * @param root The root object.
+	 * @param maxHistory The number of lines to store for each logger
+	 * @param resolver A reslover which resolves archive name, either locally
+	 * or using a remote url.
+	 * @param archiveFactory Creates the archive for each logger.
+	 */
+	public StructuralArchiverCache(Object root, int maxHistory, ArchiveNameResolver resolver,
+								   LogArchiveFactory archiveFactory) {
+		super(resolver, maxHistory, archiveFactory);
+		addChild(root);
+	}
+
 	/**
 	 * Add a child node to this Log Archiver.
 	 * 
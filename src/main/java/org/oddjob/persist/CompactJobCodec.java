@@ -0,0 +1,526 @@
+package org.oddjob.persist;
+
+import org.oddjob.framework.extend.SerializableJob;
+import org.oddjob.framework.extend.SerializableJobSnapshot;
+import org.oddjob.state.State;
+import org.oddjob.state.StateDetail;
+import org.oddjob.state.StateInstant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link PersistCodec} that writes {@link SerializableJob}s in a compact
+ * binary format instead of with Java Serialization.
+ * <p>
+ * The saved name, logger and state of the job are written first and then
+ * each of the job's serializable fields as a field name and a tagged value.
+ * Primitives, Strings and enums are written directly, anything else is
+ * written with Java Serialization. All the values written with Java
+ * Serialization share the one stream, written before the fields, so
+ * values that refer to the same object still do when read. On reading, the job is created with its
+ * no argument constructor and the fields are set by name, so a field that
+ * has since been removed is ignored and a field that has since been added
+ * keeps its initial value. Because the constructor is called, transient
+ * fields will have the value the constructor gives them, not their default.
+ * <p>
+ * Anything that isn't a {@link SerializableJob}, or a job that needs
+ * Java Serialization because it has its own {@code writeObject},
+ * {@code readObject}, {@code writeReplace} or {@code readResolve}, or
+ * has no no argument constructor, or has a value that refers back to the
+ * job, is written with Java Serialization.
+ * Java Serialization is also recognised when reading, so this codec will
+ * read what was written with {@link JavaSerializationCodec}.
+ */
+public class CompactJobCodec implements PersistCodec {
+	private static final Logger logger = LoggerFactory.getLogger(CompactJobCodec.class);
+
+	/** The first two bytes. Java Serialization starts 0xACED. */
+	private static final int MAGIC = 0x4F4A;
+
+	private static final byte VERSION = 2;
+
+	private static final byte NULL = 0;
+	private static final byte BOOLEAN = 1;
+	private static final byte BYTE = 2;
+	private static final byte CHAR = 3;
+	private static final byte SHORT = 4;
+	private static final byte INT = 5;
+	private static final byte LONG = 6;
+	private static final byte FLOAT = 7;
+	private static final byte DOUBLE = 8;
+	private static final byte STRING = 9;
+	private static final byte ENUM = 10;
+	private static final byte OBJECT = 11;
+
+	/** Methods that mean a class must use Java Serialization. */
+	private static final Set<String> SERIALIZATION_METHODS = new HashSet<>(
+			Arrays.asList("writeObject", "readObject", "readObjectNoData",
+					"writeReplace", "readResolve"));
+
+	private final Map<Class<?>, Schema> schemas = new ConcurrentHashMap<>();
+
+	@Override
+	public void encode(Object component, OutputStream out) throws IOException {
+
+		Schema schema = component instanceof SerializableJob ?
+				schemaFor(component.getClass()) : null;
+
+		if (schema == null) {
+			new JavaSerializationCodec().encode(component, out);
+			return;
+		}
+
+		List<Object> objects = new ArrayList<>();
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		DataOutputStream bodyData = new DataOutputStream(body);
+
+		SerializableJobSnapshot snapshot =
+				SerializableJobSnapshot.of((SerializableJob) component);
+
+		writeString(bodyData, snapshot.getName());
+		writeString(bodyData, snapshot.getLoggerName());
+
+		StateDetail stateDetail = snapshot.getStateDetail();
+		writeValue(bodyData, stateDetail.getState(), objects);
+		Instant instant = stateDetail.getStateInstant().getInstant();
+		bodyData.writeLong(instant.getEpochSecond());
+		bodyData.writeInt(instant.getNano());
+		writeValue(bodyData, stateDetail.getException(), objects);
+
+		bodyData.writeInt(schema.fields.size());
+		for (Map.Entry<String, Field> entry : schema.fields.entrySet()) {
+			writeString(bodyData, entry.getKey());
+			try {
+				writeValue(bodyData, entry.getValue().get(component), objects);
+			}
+			catch (IllegalAccessException e) {
+				throw new IOException(e);
+			}
+		}
+
+		byte[] objectBytes = writeObjects(component, objects);
+		if (objectBytes == null) {
+			logger.debug("{} will use Java Serialization, a value refers back to it.",
+					component.getClass().getName());
+			new JavaSerializationCodec().encode(component, out);
+			return;
+		}
+
+		DataOutputStream data = new DataOutputStream(out);
+
+		data.writeShort(MAGIC);
+		data.writeByte(VERSION);
+		writeString(data, component.getClass().getName());
+
+		data.writeInt(objects.size());
+		data.writeInt(objectBytes.length);
+		data.write(objectBytes);
+
+		body.writeTo(data);
+
+		data.flush();
+	}
+
+	/**
+	 * Write all the values that need Java Serialization with the one
+	 * stream.
+	 *
+	 * @return The bytes or null if a value refers back to the component.
+	 */
+	private static byte[] writeObjects(Object component, List<Object> objects)
+	throws IOException {
+
+		if (objects.isEmpty()) {
+			return new byte[0];
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		boolean[] referencesComponent = new boolean[1];
+
+		try (ObjectOutputStream oo = new ObjectOutputStream(bytes) {
+			{
+				enableReplaceObject(true);
+			}
+
+			@Override
+			protected Object replaceObject(Object obj) {
+				if (obj == component) {
+					referencesComponent[0] = true;
+					return null;
+				}
+				return obj;
+			}
+		}) {
+			for (Object object : objects) {
+				oo.writeObject(object);
+			}
+		}
+
+		return referencesComponent[0] ? null : bytes.toByteArray();
+	}
+
+	@Override
+	public Object decode(InputStream in, ClassLoader classLoader)
+	throws IOException, ClassNotFoundException {
+
+		if (!in.markSupported()) {
+			in = new BufferedInputStream(in);
+		}
+
+		in.mark(2);
+		int first = in.read();
+		int second = in.read();
+		in.reset();
+
+		if ((first << 8 | second) != MAGIC) {
+			return new JavaSerializationCodec().decode(in, classLoader);
+		}
+
+		DataInputStream data = new DataInputStream(in);
+
+		data.readShort();
+		byte version = data.readByte();
+		if (version != VERSION) {
+			throw new StreamCorruptedException("Unsupported version " + version);
+		}
+
+		String className = readString(data);
+		Class<?> cl = Class.forName(className, false, classLoader);
+
+		Schema schema = schemaFor(cl);
+		if (schema == null) {
+			throw new InvalidClassException(className,
+					"Can't be read in the compact format.");
+		}
+
+		Object[] objects = new Object[data.readInt()];
+		byte[] objectBytes = new byte[data.readInt()];
+		data.readFully(objectBytes);
+		if (objects.length > 0) {
+			ObjectInputStream oi = new OddjobObjectInputStream(
+					new ByteArrayInputStream(objectBytes), classLoader);
+			for (int i = 0; i < objects.length; ++i) {
+				objects[i] = oi.readObject();
+			}
+		}
+
+		String name = readString(data);
+		String loggerName = readString(data);
+
+		State state = (State) readValue(data, classLoader, objects);
+		StateInstant instant = StateInstant.parse(
+				Instant.ofEpochSecond(data.readLong(), data.readInt()).toString());
+		Throwable exception = (Throwable) readValue(data, classLoader, objects);
+
+		SerializableJob job;
+		try {
+			job = (SerializableJob) schema.constructor.newInstance();
+		}
+		catch (ReflectiveOperationException e) {
+			throw new InvalidClassException(className, e.toString());
+		}
+
+		int fieldCount = data.readInt();
+		for (int i = 0; i < fieldCount; ++i) {
+			String key = readString(data);
+			Object value = readValue(data, classLoader, objects);
+
+			Field field = schema.fields.get(key);
+			if (field == null) {
+				logger.debug("Ignoring field [{}] no longer in {}", key, className);
+				continue;
+			}
+			try {
+				field.set(job, value);
+			}
+			catch (IllegalArgumentException | IllegalAccessException e) {
+				logger.debug("Ignoring field [{}] of {} that can't be set to [{}]",
+						key, className, value);
+			}
+		}
+
+		new SerializableJobSnapshot(name, loggerName,
+				new SavedState(state, instant, exception)).restoreTo(job);
+
+		return job;
+	}
+
+	/**
+	 * Find the schema for a class.
+	 *
+	 * @return The schema or null if the class must use Java Serialization.
+	 */
+	private Schema schemaFor(Class<?> cl) {
+		Schema schema = schemas.computeIfAbsent(cl, Schema::of);
+		return schema.constructor == null ? null : schema;
+	}
+
+	/**
+	 * Write a value. A value that needs Java Serialization is added to the
+	 * objects and only its index is written.
+	 */
+	static void writeValue(DataOutputStream data, Object value,
+			List<Object> objects)
+	throws IOException {
+
+		if (value == null) {
+			data.writeByte(NULL);
+		}
+		else if (value instanceof String) {
+			data.writeByte(STRING);
+			writeString(data, (String) value);
+		}
+		else if (value instanceof Integer) {
+			data.writeByte(INT);
+			data.writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			data.writeByte(LONG);
+			data.writeLong((Long) value);
+		}
+		else if (value instanceof Boolean) {
+			data.writeByte(BOOLEAN);
+			data.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Double) {
+			data.writeByte(DOUBLE);
+			data.writeDouble((Double) value);
+		}
+		else if (value instanceof Float) {
+			data.writeByte(FLOAT);
+			data.writeFloat((Float) value);
+		}
+		else if (value instanceof Short) {
+			data.writeByte(SHORT);
+			data.writeShort((Short) value);
+		}
+		else if (value instanceof Byte) {
+			data.writeByte(BYTE);
+			data.writeByte((Byte) value);
+		}
+		else if (value instanceof Character) {
+			data.writeByte(CHAR);
+			data.writeChar((Character) value);
+		}
+		else if (value instanceof Enum) {
+			data.writeByte(ENUM);
+			writeString(data, ((Enum<?>) value).getDeclaringClass().getName());
+			writeString(data, ((Enum<?>) value).name());
+		}
+		else if (value instanceof Serializable) {
+			data.writeByte(OBJECT);
+			data.writeInt(objects.size());
+			objects.add(value);
+		}
+		else {
+			throw new NotSerializableException(value.getClass().getName());
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static Object readValue(DataInputStream data, ClassLoader classLoader,
+			Object[] objects)
+	throws IOException, ClassNotFoundException {
+
+		byte tag = data.readByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case BOOLEAN:
+			return data.readBoolean();
+		case BYTE:
+			return data.readByte();
+		case CHAR:
+			return data.readChar();
+		case SHORT:
+			return data.readShort();
+		case INT:
+			return data.readInt();
+		case LONG:
+			return data.readLong();
+		case FLOAT:
+			return data.readFloat();
+		case DOUBLE:
+			return data.readDouble();
+		case STRING:
+			return readString(data);
+		case ENUM:
+			Class<?> enumClass = Class.forName(readString(data), false, classLoader);
+			return Enum.valueOf((Class<Enum>) enumClass.asSubclass(Enum.class),
+					readString(data));
+		case OBJECT:
+			int index = data.readInt();
+			if (index < 0 || index >= objects.length) {
+				throw new StreamCorruptedException("No object " + index);
+			}
+			return objects[index];
+		default:
+			throw new StreamCorruptedException("Unknown value tag " + tag);
+		}
+	}
+
+	static void writeString(DataOutputStream data, String text)
+	throws IOException {
+		if (text == null) {
+			data.writeInt(-1);
+		}
+		else {
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			data.writeInt(bytes.length);
+			data.write(bytes);
+		}
+	}
+
+	static String readString(DataInputStream data)
+	throws IOException {
+		int length = data.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		data.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	/**
+	 * The fields of a class to be written, by name. A field that hides a
+	 * field of the same name in a subclass is named with its declaring
+	 * class.
+	 */
+	static class Schema {
+
+		/** Null if the class can't be written in the compact format. */
+		private final Constructor<?> constructor;
+
+		private final Map<String, Field> fields;
+
+		private Schema(Constructor<?> constructor, Map<String, Field> fields) {
+			this.constructor = constructor;
+			this.fields = fields;
+		}
+
+		static Schema of(Class<?> cl) {
+
+			if (!SerializableJob.class.isAssignableFrom(cl)
+					|| Externalizable.class.isAssignableFrom(cl)
+					|| Modifier.isAbstract(cl.getModifiers())) {
+				return unsupported(cl, "not a concrete SerializableJob");
+			}
+
+			Map<String, Field> fields = new HashMap<>();
+			List<Field> accessible = new ArrayList<>();
+
+			for (Class<?> c = cl; c != SerializableJob.class; c = c.getSuperclass()) {
+
+				for (Method method : c.getDeclaredMethods()) {
+					if (SERIALIZATION_METHODS.contains(method.getName())) {
+						return unsupported(cl, c.getName() + " has " + method.getName());
+					}
+				}
+
+				for (Field field : c.getDeclaredFields()) {
+					int modifiers = field.getModifiers();
+					if (field.getName().equals("serialPersistentFields")) {
+						return unsupported(cl, c.getName() + " has serialPersistentFields");
+					}
+					if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+						continue;
+					}
+					String key = fields.containsKey(field.getName()) ?
+							c.getName() + "." + field.getName() : field.getName();
+					fields.put(key, field);
+					accessible.add(field);
+				}
+			}
+
+			try {
+				Constructor<?> constructor = cl.getDeclaredConstructor();
+				constructor.setAccessible(true);
+				for (Field field : accessible) {
+					field.setAccessible(true);
+				}
+				return new Schema(constructor, fields);
+			}
+			catch (NoSuchMethodException e) {
+				return unsupported(cl, "no no argument constructor");
+			}
+			catch (RuntimeException e) {
+				return unsupported(cl, e.toString());
+			}
+		}
+
+		private static Schema unsupported(Class<?> cl, String reason) {
+			logger.debug("{} will use Java Serialization, {}.", cl.getName(), reason);
+			return new Schema(null, null);
+		}
+	}
+
+	/**
+	 * The State Detail as read.
+	 */
+	static class SavedState implements StateDetail {
+
+		private final State state;
+
+		private final StateInstant instant;
+
+		private final Throwable exception;
+
+		SavedState(State state, StateInstant instant, Throwable exception) {
+			this.state = state;
+			this.instant = instant;
+			this.exception = exception;
+		}
+
+		@Override
+		public State getState() {
+			return state;
+		}
+
+		@Override
+		public StateInstant getStateInstant() {
+			return instant;
+		}
+
+		@Override
+		public Throwable getException() {
+			return exception;
+		}
+	}
+}
@@ -18,6 +18,11 @@ import org.oddjob.arooa.registry.Path;
  * A new sub directory is created for each nested Oddjob with an id. The
  * job of the nested Oddjob are persisted to the sub directory. Thus the 
  * directory structure mirrors the structure of the Oddjobs.
+ * <p>
+ * Jobs are written with Java Serialization unless another codec is
+ * provided. A {@link CompactJobCodec} will write jobs in a smaller format
+ * that is quicker to restore, and can still read files written with 
+ * Java Serialization.
  * 
  * @oddjob.example 
  * 
@@ -40,6 +45,16 @@ public class FilePersister extends PersisterBase {
      */	
 	private File directory;
 
+    /**
+     * @oddjob.property
+     * @oddjob.description The codec used to write and read jobs. This
+     * must be something that implements 
+     * {@link org.oddjob.persist.PersistCodec}, such as a
+     * {@code <bean class="org.oddjob.persist.CompactJobCodec"/>}.
+     * @oddjob.required No, defaults to Java Serialization.
+     */	
+	private PersistCodec codec;
+	
 	/**
 	 * Set the directory to save files in.
 	 * 
@@ -59,10 +74,18 @@ public class FilePersister extends PersisterBase {
 		return this.directory;
 	}
 
+	public PersistCodec getCodec() {
+		return codec;
+	}
+
+	public void setCodec(PersistCodec codec) {
+		this.codec = codec;
+	}
+
 	protected void persist(Path path, String id, Object o) 
 	throws ComponentPersistException {
 
-		new SerializeWithFile().toFile(directoryFor(path),
+		new SerializeWithFile(codec).toFile(directoryFor(path),
 				id, o);
 	}
 	
@@ -73,7 +96,7 @@ public class FilePersister extends PersisterBase {
 
 	protected Object restore(Path path, String id, ClassLoader classLoader) 
 	throws ComponentPersistException {
-		return new SerializeWithFile().fromFile(
+		return new SerializeWithFile(codec).fromFile(
 				directoryFor(path), id, classLoader);
 	}
 	
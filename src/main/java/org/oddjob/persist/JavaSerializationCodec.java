@@ -0,0 +1,32 @@
+package org.oddjob.persist;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * A {@link PersistCodec} that uses Java Serialization. This is the default.
+ */
+public class JavaSerializationCodec implements PersistCodec {
+
+	@Override
+	public void encode(Object component, OutputStream out) throws IOException {
+		ObjectOutputStream oo = new ObjectOutputStream(out);
+		oo.writeObject(component);
+		oo.flush();
+	}
+
+	@Override
+	public Object decode(InputStream in, ClassLoader classLoader)
+	throws IOException, ClassNotFoundException {
+		ObjectInputStream oi = new OddjobObjectInputStream(in, classLoader);
+		return oi.readObject();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,748 @@
+package org.oddjob.persist;
+
+import org.oddjob.arooa.deploy.annotations.ArooaAttribute;
+import org.oddjob.arooa.life.ComponentPersistException;
+import org.oddjob.arooa.registry.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * @oddjob.description Persist jobs by appending them to a journal. Unlike
+ * the {@link FilePersister} which writes a file for every job in a
+ * directory for every nested Oddjob, all jobs are appended to a single
+ * journal file in the given directory. When the journal reaches the segment
+ * size a new segment file is started, and if most of what has been written
+ * has since been replaced the journal is compacted so that only the latest
+ * state of each job remains.
+ * <p>
+ * The journal is read once, sequentially, the first time it is used. Jobs
+ * are then restored from what was read rather than by reading files.
+ * <p>
+ * Each record in the journal has a checksum. If the process is killed while
+ * writing, the incomplete record will be ignored and the journal
+ * truncated to the last complete record the next time it is read.
+ * <p>
+ * Only one persister should use a directory at a time.
+ *
+ * @oddjob.example
+ *
+ * Using a journal persister with Oddjob.
+ *
+ * {@oddjob.xml.resource org/oddjob/persist/JournalPersisterExample.xml}
+ */
+public class JournalPersister extends PersisterBase {
+	private static final Logger logger = LoggerFactory.getLogger(JournalPersister.class);
+
+	private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d{8})\\.log");
+
+	/** Anything bigger than this is taken to be corruption. */
+	private static final int MAX_RECORD = 256 * 1024 * 1024;
+
+	private static final byte PUT = 1;
+
+	private static final byte REMOVE = 2;
+
+	private static final byte CLEAR = 3;
+
+	/** Follows the copies made by compaction. Anything in earlier segments is obsolete. */
+	private static final byte COMPACTED = 4;
+
+	/** The length and checksum before every record. */
+	private static final int HEADER = 8;
+
+	/**
+	 * @oddjob.property dir
+	 * @oddjob.description The directory in which the journal will be written.
+	 * @oddjob.required Yes.
+	 */
+	private File directory;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The size in bytes at which a new segment of the
+	 * journal is started.
+	 * @oddjob.required No, defaults to 16MB.
+	 */
+	private long segmentSize = 16 * 1024 * 1024;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description Force every write to the storage device. This is
+	 * slower but the latest state will survive the machine crashing
+	 * rather than just the process.
+	 * @oddjob.required No, defaults to false.
+	 */
+	private boolean sync;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The codec used to write and read jobs, such as a
+	 * {@link CompactJobCodec}.
+	 * @oddjob.required No, defaults to Java Serialization.
+	 */
+	private PersistCodec codec;
+
+	/** The latest record for each id, by path. Null until the journal is read. */
+	private Map<String, Map<String, Entry>> index;
+
+	/** The segment being appended to. */
+	private FileChannel active;
+
+	private int activeSegment;
+
+	/** The total bytes of all segments. */
+	private long totalBytes;
+
+	/** The bytes of records in the index. */
+	private long liveBytes;
+
+	/** The last segment read that starts with a compaction. */
+	private int compactedAt;
+
+	/**
+	 * Set the directory to write the journal in.
+	 *
+	 * @param dir The directory.
+	 */
+	@ArooaAttribute
+	public void setDir(File dir) {
+		this.directory = dir;
+	}
+
+	public File getDir() {
+		return this.directory;
+	}
+
+	public long getSegmentSize() {
+		return segmentSize;
+	}
+
+	public void setSegmentSize(long segmentSize) {
+		this.segmentSize = segmentSize;
+	}
+
+	public PersistCodec getCodec() {
+		return codec;
+	}
+
+	public void setCodec(PersistCodec codec) {
+		this.codec = codec;
+	}
+
+	public boolean isSync() {
+		return sync;
+	}
+
+	public void setSync(boolean sync) {
+		this.sync = sync;
+	}
+
+	@Override
+	protected synchronized void persist(Path path, String id, Object component)
+	throws ComponentPersistException {
+
+		byte[] object;
+		try {
+			object = new SerializeWithBytes(codec).toBytes(component);
+		}
+		catch (RuntimeException e) {
+			throw new ComponentPersistException("Failed writing object id ["
+					+ id + "], class [" + component.getClass().getName()
+					+ "], object [" + component + "].", e);
+		}
+
+		String pathName = path.toString();
+
+		open();
+
+		apply(PUT, pathName, id, append(PUT, pathName, id, object));
+
+		logger.debug("Saved [{}], id [{}] to journal.", component, id);
+
+		rollIfFull();
+	}
+
+	@Override
+	protected synchronized Object restore(Path path, String id, ClassLoader classLoader)
+	throws ComponentPersistException {
+
+		Map<String, Entry> entries = open().get(path.toString());
+		Entry entry = entries == null ? null : entries.get(id);
+		if (entry == null) {
+			return null;
+		}
+
+		byte[] object = entry.object;
+		if (object == null) {
+			object = read(entry);
+		}
+		else {
+			// Only needed once, so free the memory.
+			entry.object = null;
+		}
+
+		try {
+			return new SerializeWithBytes(codec).fromBytes(object, classLoader);
+		}
+		catch (RuntimeException e) {
+			throw new ComponentPersistException(
+					"Failed reading component [" + path + "/" + id + "] from journal.", e);
+		}
+	}
+
+	@Override
+	protected synchronized String[] list(Path path)
+	throws ComponentPersistException {
+		Map<String, Entry> entries = open().get(path.toString());
+		if (entries == null) {
+			return null;
+		}
+		return entries.keySet().toArray(new String[0]);
+	}
+
+	@Override
+	protected synchronized void remove(Path path, String id)
+	throws ComponentPersistException {
+
+		String pathName = path.toString();
+
+		Map<String, Entry> entries = open().get(pathName);
+		if (entries == null || !entries.containsKey(id)) {
+			return;
+		}
+
+		append(REMOVE, pathName, id, null);
+		apply(REMOVE, pathName, id, null);
+
+		logger.debug("Removed [{}/{}] from journal.", pathName, id);
+
+		rollIfFull();
+	}
+
+	@Override
+	protected synchronized void clear(Path path)
+	throws ComponentPersistException {
+
+		String pathName = path.toString();
+
+		open();
+
+		append(CLEAR, pathName, "", null);
+		apply(CLEAR, pathName, "", null);
+
+		logger.debug("Cleared [{}] from journal.", pathName);
+
+		rollIfFull();
+	}
+
+	/**
+	 * Close the journal. It will be read again if it's used again.
+	 */
+	public synchronized void close() {
+		if (active != null) {
+			try {
+				active.close();
+			}
+			catch (IOException e) {
+				logger.warn("Failed closing journal.", e);
+			}
+			active = null;
+		}
+		index = null;
+	}
+
+	/**
+	 * Read the journal if it hasn't been read.
+	 *
+	 * @return The index.
+	 */
+	private Map<String, Map<String, Entry>> open() throws ComponentPersistException {
+		if (index != null) {
+			return index;
+		}
+
+		if (directory == null) {
+			throw new NullPointerException("No directory.");
+		}
+		if (!directory.exists()) {
+			throw new ComponentPersistException("No directory: " + directory);
+		}
+
+		index = new TreeMap<>();
+		totalBytes = 0;
+		liveBytes = 0;
+		compactedAt = 0;
+
+		List<Integer> segments = segments();
+		long start = System.currentTimeMillis();
+
+		try {
+			for (Iterator<Integer> it = segments.iterator(); it.hasNext(); ) {
+				int segment = it.next();
+				totalBytes += load(segment, !it.hasNext());
+			}
+
+			// Segments a compaction didn't get to delete.
+			for (Iterator<Integer> it = segments.iterator(); it.hasNext(); ) {
+				int segment = it.next();
+				if (segment < compactedAt) {
+					File file = segmentFile(segment);
+					long length = file.length();
+					if (file.delete()) {
+						totalBytes -= length;
+						it.remove();
+					}
+					else {
+						logger.warn("Failed deleting " + file);
+					}
+				}
+			}
+
+			activeSegment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+			active = openForAppend(activeSegment);
+		}
+		catch (ComponentPersistException | RuntimeException e) {
+			index = null;
+			throw e;
+		}
+
+		logger.info("Read journal in [{}] of {} segments, {} bytes, {} live, in {}ms.",
+				directory, segments.size(), totalBytes, liveBytes,
+				System.currentTimeMillis() - start);
+
+		return index;
+	}
+
+	/**
+	 * Read a segment into the index.
+	 *
+	 * @param segment The segment number.
+	 * @param last Is this the last segment. If so an incomplete record
+	 *             at the end is removed.
+	 *
+	 * @return The size of the segment after reading.
+	 */
+	private long load(int segment, boolean last) throws ComponentPersistException {
+
+		File file = segmentFile(segment);
+		long offset = 0;
+
+		try (InputStream is = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+			DataInputStream in = new DataInputStream(is);
+			byte[] header = new byte[HEADER];
+			while (true) {
+				int read = readFully(in, header);
+				if (read == 0) {
+					break;
+				}
+				if (read < HEADER) {
+					logger.warn("Incomplete record header at {} in {}.", offset, file);
+					break;
+				}
+				ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+				int length = headerBuffer.getInt();
+				int checksum = headerBuffer.getInt();
+				if (length <= 0 || length > MAX_RECORD) {
+					logger.warn("Bad record length {} at {} in {}.", length, offset, file);
+					break;
+				}
+				byte[] record = new byte[length];
+				if (readFully(in, record) < length) {
+					logger.warn("Incomplete record at {} in {}.", offset, file);
+					break;
+				}
+				if (checksum(record) != checksum) {
+					logger.warn("Bad checksum for record at {} in {}.", offset, file);
+					break;
+				}
+
+				Record parsed = Record.parse(record);
+
+				if (parsed.kind == COMPACTED) {
+					discardBefore(segment);
+				}
+				else {
+					Entry entry = null;
+					if (parsed.kind == PUT) {
+						entry = new Entry(segment, offset, HEADER + length);
+						entry.object = parsed.object;
+					}
+					apply(parsed.kind, parsed.path, parsed.id, entry);
+				}
+
+				offset += HEADER + length;
+			}
+		}
+		catch (IOException e) {
+			throw new ComponentPersistException("Failed reading journal " + file, e);
+		}
+
+		if (offset < file.length()) {
+			if (last) {
+				logger.warn("Truncating {} from {} to {} bytes.", file, file.length(), offset);
+				try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+					channel.truncate(offset);
+				}
+				catch (IOException e) {
+					throw new ComponentPersistException("Failed truncating journal " + file, e);
+				}
+			}
+			else {
+				// Something has gone very wrong, but keep what can be kept.
+				logger.error("Ignoring the last {} bytes of {}.", file.length() - offset, file);
+				return file.length();
+			}
+		}
+
+		return offset;
+	}
+
+	private static int readFully(DataInputStream in, byte[] buffer) throws IOException {
+		int total = 0;
+		while (total < buffer.length) {
+			int read = in.read(buffer, total, buffer.length - total);
+			if (read < 0) {
+				break;
+			}
+			total += read;
+		}
+		return total;
+	}
+
+	/**
+	 * Remove everything from the index that came from segments before the
+	 * given one, because a compaction has copied what was current into it.
+	 */
+	private void discardBefore(int segment) {
+		compactedAt = segment;
+		index.values().forEach(entries -> entries.values().removeIf(entry -> {
+			if (entry.segment < segment) {
+				liveBytes -= entry.length;
+				return true;
+			}
+			return false;
+		}));
+		index.values().removeIf(Map::isEmpty);
+	}
+
+	/**
+	 * Apply a record to the index.
+	 */
+	private void apply(byte kind, String pathName, String id, Entry entry) {
+		switch (kind) {
+			case PUT:
+				Entry old = index.computeIfAbsent(pathName, k -> new TreeMap<>()).put(id, entry);
+				liveBytes += entry.length;
+				if (old != null) {
+					liveBytes -= old.length;
+				}
+				break;
+			case REMOVE:
+				Map<String, Entry> entries = index.get(pathName);
+				if (entries != null) {
+					Entry removed = entries.remove(id);
+					if (removed != null) {
+						liveBytes -= removed.length;
+					}
+					if (entries.isEmpty()) {
+						index.remove(pathName);
+					}
+				}
+				break;
+			case CLEAR:
+				// As with the directories of the FilePersister, child paths
+				// are cleared too.
+				String prefix = pathName.isEmpty() ? "" : pathName + "/";
+				index.entrySet().removeIf(e -> {
+					if (e.getKey().equals(pathName) || e.getKey().startsWith(prefix)) {
+						e.getValue().values().forEach(removed -> liveBytes -= removed.length);
+						return true;
+					}
+					return false;
+				});
+				break;
+			default:
+				throw new IllegalStateException("Unknown record kind " + kind);
+		}
+	}
+
+	/**
+	 * Append a record to the active segment.
+	 *
+	 * @return The entry for the record.
+	 */
+	private Entry append(byte kind, String pathName, String id, byte[] object)
+	throws ComponentPersistException {
+
+		byte[] record = Record.format(kind, pathName, id, object);
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER + record.length);
+		buffer.putInt(record.length);
+		buffer.putInt(checksum(record));
+		buffer.put(record);
+		buffer.flip();
+
+		try {
+			long offset = active.size();
+			while (buffer.hasRemaining()) {
+				active.write(buffer);
+			}
+			if (sync) {
+				active.force(false);
+			}
+			totalBytes += HEADER + record.length;
+			return new Entry(activeSegment, offset, HEADER + record.length);
+		}
+		catch (IOException e) {
+			throw new ComponentPersistException("Failed writing [" + pathName + "/" + id +
+					"] to journal " + segmentFile(activeSegment), e);
+		}
+	}
+
+	/**
+	 * Start a new segment if the active one is full. If more than half of
+	 * what has been written has since been replaced the new segment starts with
+	 * a copy of everything still current and all previous segments are deleted.
+	 */
+	private void rollIfFull() throws ComponentPersistException {
+		long size;
+		try {
+			size = active.size();
+		}
+		catch (IOException e) {
+			throw new ComponentPersistException("Failed reading size of journal.", e);
+		}
+
+		if (size < segmentSize) {
+			return;
+		}
+
+		List<Integer> previous = segments();
+
+		activeSegment = activeSegment + 1;
+		FileChannel full = active;
+		active = openForAppend(activeSegment);
+		try {
+			full.close();
+		}
+		catch (IOException e) {
+			logger.warn("Failed closing journal segment.", e);
+		}
+
+		if (totalBytes - liveBytes > liveBytes) {
+			compact(previous);
+		}
+	}
+
+	/**
+	 * Copy all current entries to the active segment, mark the copy as
+	 * complete, and delete the given segments. If the process dies before
+	 * the segments are all deleted, those left are ignored and deleted when
+	 * the journal is next read, so nothing that had been removed can come back.
+	 * If it dies before the mark they are read as normal.
+	 */
+	private void compact(List<Integer> previous) throws ComponentPersistException {
+
+		long start = System.currentTimeMillis();
+		long before = totalBytes;
+
+		totalBytes = 0;
+		for (Map.Entry<String, Map<String, Entry>> pathEntries : index.entrySet()) {
+			for (Map.Entry<String, Entry> idEntry : pathEntries.getValue().entrySet()) {
+				Entry entry = idEntry.getValue();
+				byte[] object = entry.object == null ? read(entry) : entry.object;
+				Entry copy = append(PUT, pathEntries.getKey(), idEntry.getKey(), object);
+				copy.object = entry.object;
+				idEntry.setValue(copy);
+			}
+		}
+		append(COMPACTED, "", "", null);
+
+		try {
+			active.force(true);
+		}
+		catch (IOException e) {
+			throw new ComponentPersistException("Failed writing journal compaction.", e);
+		}
+
+		for (int segment : previous) {
+			File file = segmentFile(segment);
+			if (!file.delete()) {
+				logger.warn("Failed deleting " + file);
+			}
+		}
+
+		liveBytes = totalBytes;
+
+		logger.info("Compacted journal in [{}] from {} to {} bytes in {}ms.",
+				directory, before, totalBytes, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Read the object of an entry from its segment.
+	 */
+	private byte[] read(Entry entry) throws ComponentPersistException {
+		File file = segmentFile(entry.segment);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+					throw new EOFException("Journal " + file + " is shorter than expected.");
+				}
+			}
+			buffer.flip();
+			buffer.getInt();
+			int checksum = buffer.getInt();
+			byte[] record = new byte[entry.length - HEADER];
+			buffer.get(record);
+			if (checksum(record) != checksum) {
+				throw new ComponentPersistException("Bad checksum at " + entry.offset + " in " + file);
+			}
+			return Record.parse(record).object;
+		}
+		catch (IOException e) {
+			throw new ComponentPersistException("Failed reading journal " + file, e);
+		}
+	}
+
+	private FileChannel openForAppend(int segment) throws ComponentPersistException {
+		File file = segmentFile(segment);
+		try {
+			return FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		}
+		catch (IOException e) {
+			throw new ComponentPersistException("Failed opening journal " + file, e);
+		}
+	}
+
+	/**
+	 * The numbers of the existing segments, in order.
+	 */
+	private List<Integer> segments() {
+		List<Integer> segments = new ArrayList<>();
+		String[] names = directory.list();
+		if (names != null) {
+			for (String name : names) {
+				Matcher matcher = SEGMENT_NAME.matcher(name);
+				if (matcher.matches()) {
+					segments.add(Integer.parseInt(matcher.group(1)));
+				}
+			}
+		}
+		segments.sort(null);
+		return segments;
+	}
+
+	private File segmentFile(int segment) {
+		return new File(directory, String.format("journal-%08d.log", segment));
+	}
+
+	private static int checksum(byte[] record) {
+		CRC32 crc = new CRC32();
+		crc.update(record, 0, record.length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Where the latest record for an id is.
+	 */
+	static class Entry {
+
+		private final int segment;
+
+		private final long offset;
+
+		/** The length including the header. */
+		private final int length;
+
+		/** The object as read at startup until it's restored. */
+		private byte[] object;
+
+		Entry(int segment, long offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * The content of a record.
+	 */
+	static class Record {
+
+		private final byte kind;
+
+		private final String path;
+
+		private final String id;
+
+		private final byte[] object;
+
+		Record(byte kind, String path, String id, byte[] object) {
+			this.kind = kind;
+			this.path = path;
+			this.id = id;
+			this.object = object;
+		}
+
+		static byte[] format(byte kind, String path, String id, byte[] object) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+					64 + (object == null ? 0 : object.length));
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeByte(kind);
+				out.writeUTF(path);
+				out.writeUTF(id);
+				if (object != null) {
+					out.write(object);
+				}
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return bytes.toByteArray();
+		}
+
+		static Record parse(byte[] record) throws IOException {
+			DataInputStream in = new DataInputStream(
+					new ByteArrayInputStream(record));
+			byte kind = in.readByte();
+			String path = in.readUTF();
+			String id = in.readUTF();
+			byte[] object = null;
+			if (kind == PUT) {
+				object = new byte[in.available()];
+				in.readFully(object);
+			}
+			return new Record(kind, path, id, object);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() +
+			(directory == null ? "" : ". dir=" + directory.getAbsolutePath());
+	}
+}
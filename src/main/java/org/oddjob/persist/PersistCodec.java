@@ -0,0 +1,41 @@
+package org.oddjob.persist;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Something that can write a component to, and read it back from, the
+ * bytes that a persister saves.
+ * <p>
+ * A codec doesn't close the streams it's given, the caller does that.
+ *
+ * @see JavaSerializationCodec
+ * @see CompactJobCodec
+ */
+public interface PersistCodec {
+
+	/**
+	 * Write the component.
+	 *
+	 * @param component The component. Never null.
+	 * @param out The stream to write to.
+	 *
+	 * @throws IOException If the component can't be written.
+	 */
+	void encode(Object component, OutputStream out) throws IOException;
+
+	/**
+	 * Read a component.
+	 *
+	 * @param in The stream to read from.
+	 * @param classLoader The class loader to load the component's classes with.
+	 *
+	 * @return The component.
+	 *
+	 * @throws IOException If the component can't be read.
+	 * @throws ClassNotFoundException If a class isn't found.
+	 */
+	Object decode(InputStream in, ClassLoader classLoader)
+	throws IOException, ClassNotFoundException;
+}
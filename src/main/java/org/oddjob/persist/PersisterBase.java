@@ -3,6 +3,15 @@ package org.oddjob.persist;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,10 +21,18 @@ import org.oddjob.arooa.life.ComponentPersister;
 import org.oddjob.arooa.registry.Path;
 import org.oddjob.framework.OptionallyTransient;
 import org.oddjob.framework.Transient;
+import org.oddjob.scheduling.OddjobThreadFactory;
 
 /**
  * @oddjob.description This provides common implementation for 
  * persisting job state.
+ * <p>
+ * If prefetch threads are given then when Oddjob creates the session for
+ * its configuration, everything that has been persisted for that Oddjob
+ * is restored in parallel, so that the components have already been 
+ * restored, or are being restored, by the time the configuration needs
+ * them. A persister must support restoring from several threads at once
+ * for this to be used.
  * 
  * @author Rob Gordon
  */
@@ -40,6 +57,30 @@ implements OddjobPersister {
 	 */
 	private Path ourPath;
 	
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of threads with which to restore
+	 * everything that was persisted in advance of it being needed. 
+	 * @oddjob.required No, defaults to 0 which means no prefetching.
+	 */
+	private volatile int prefetchThreads;
+	
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The time each component took to restore, in
+	 * microseconds, by path and id.
+	 * @oddjob.required R/O.
+	 */
+	private final Map<String, Long> restoreTimes = new ConcurrentHashMap<>();
+	
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of components restored from what 
+	 * was prefetched.
+	 * @oddjob.required R/O.
+	 */
+	private final AtomicLong prefetchHits = new AtomicLong();
+	
 	/**
 	 * Constructor.
 	 */
@@ -59,6 +100,34 @@ implements OddjobPersister {
 		ourPath = new Path(path); 
 	}
 	
+	public int getPrefetchThreads() {
+		return prefetchThreads;
+	}
+
+	public void setPrefetchThreads(int prefetchThreads) {
+		this.prefetchThreads = prefetchThreads;
+	}
+
+	public Map<String, Long> getRestoreTimes() {
+		return new TreeMap<>(restoreTimes);
+	}
+
+	public long getPrefetchHits() {
+		return prefetchHits.get();
+	}
+	
+	/**
+	 * Restore a component, recording how long it took.
+	 */
+	Object timedRestore(Path path, String id, ClassLoader classLoader) 
+	throws ComponentPersistException {
+		long startNanos = System.nanoTime();
+		Object component = restore(path, id, classLoader);
+		restoreTimes.put(path + "/" + id, 
+				(System.nanoTime() - startNanos) / 1000);
+		return component;
+	}
+	
 	public ComponentPersister persisterFor(String id) {
 		Path path;
 		if (ourPath == null) {
@@ -73,7 +142,7 @@ implements OddjobPersister {
 	}
 		
 	private class InnerPersister 
-	implements OddjobPersister, ComponentPersister {
+	implements OddjobPersister, ComponentPersister, PrefetchingPersister {
 		
 		private final Path path;
 		
@@ -82,10 +151,101 @@ implements OddjobPersister {
 		private List<InnerPersister> children = 
 			new ArrayList<InnerPersister>();
 		
+		/** Components being, or that have been, restored in advance by id. */
+		private final Map<String, Future<Object>> prefetched =
+				new ConcurrentHashMap<>();
+		
 		public InnerPersister(Path path) {
 			this.path = path;
 		}
 		
+		@Override
+		public void prefetch(ClassLoader classLoader) {
+			int threads = prefetchThreads;
+			if (threads < 1 || closed) {
+				return;
+			}
+			
+			String[] ids;
+			try {
+				ids = PersisterBase.this.list(path);
+			}
+			catch (ComponentPersistException e) {
+				logger.warn("Failed listing [" + path + "] to prefetch.", e);
+				return;
+			}
+			if (ids == null || ids.length == 0) {
+				return;
+			}
+			
+			ThreadFactory threadFactory = new OddjobThreadFactory("Prefetch");
+			ExecutorService executor = Executors.newFixedThreadPool(
+					Math.min(threads, ids.length), r -> {
+						Thread t = threadFactory.newThread(r);
+						t.setDaemon(true);
+						return t;
+					});
+			
+			for (String id : ids) {
+				prefetched.put(id, executor.submit(
+						() -> timedRestore(path, id, classLoader)));
+			}
+			
+			// Threads will finish when the restores are done.
+			executor.shutdown();
+			
+			logger.debug("Prefetching [" + ids.length + 
+					"] components for path [" + path + "]");
+		}
+		
+		/**
+		 * Use a prefetched component if it was restored with classes
+		 * the class loader would use.
+		 * 
+		 * @return The component or null if it can't be used.
+		 */
+		private Object fromPrefetched(String id, Future<Object> future,
+				ClassLoader classLoader) {
+			try {
+				Object component = future.get();
+				if (component == null) {
+					return null;
+				}
+				Class<?> cl = component.getClass();
+				if (Class.forName(cl.getName(), false, classLoader) == cl) {
+					prefetchHits.incrementAndGet();
+					return component;
+				}
+				logger.debug("Prefetched [" + path + "/" + id + 
+						"] was restored with a different class loader.");
+			}
+			catch (ExecutionException e) {
+				logger.debug("Prefetch of [" + path + "/" + id + 
+						"] failed, will restore again.", e.getCause());
+			}
+			catch (ClassNotFoundException e) {
+				logger.debug("Prefetched [" + path + "/" + id + 
+						"] class not found by class loader.");
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		}
+		
+		private void dropPrefetched(String id) {
+			Future<Object> future = prefetched.remove(id);
+			if (future != null) {
+				future.cancel(false);
+			}
+		}
+		
+		private void dropPrefetched() {
+			for (String id : new ArrayList<>(prefetched.keySet())) {
+				dropPrefetched(id);
+			}
+		}
+		
 		@Override
 		public ComponentPersister persisterFor(String id) {
 			if (id == null) {
@@ -133,6 +293,8 @@ implements OddjobPersister {
 				return;
 			}
 
+			dropPrefetched(id);
+			
 			PersisterBase.this.persist(path, id, proxy);
 		}
 		
@@ -144,7 +306,15 @@ implements OddjobPersister {
 				return null;
 			}
 			
-			return PersisterBase.this.restore(path, id, classLoader);
+			Future<Object> future = prefetched.remove(id);
+			if (future != null) {
+				Object component = fromPrefetched(id, future, classLoader);
+				if (component != null) {
+					return component;
+				}
+			}
+			
+			return timedRestore(path, id, classLoader);
 		}
 		
 		@Override
@@ -154,6 +324,8 @@ implements OddjobPersister {
 				return;
 			}
 			
+			dropPrefetched(id);
+			
 			PersisterBase.this.remove(path, id);
 		}
 	
@@ -175,6 +347,8 @@ implements OddjobPersister {
 				child.clear();
 			}
 			
+			dropPrefetched();
+			
 			logger.debug("Clearing persister for path [" + path + "]");
 			PersisterBase.this.clear(path);
 		}
@@ -182,6 +356,7 @@ implements OddjobPersister {
 		@Override
 		public void close() {
 			closed = true;
+			dropPrefetched();
 		}
 		
 		@Override
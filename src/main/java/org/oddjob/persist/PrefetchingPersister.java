@@ -0,0 +1,19 @@
+package org.oddjob.persist;
+
+/**
+ * A persister that can restore everything that has been persisted for it
+ * in advance, so that later restores are quicker. Oddjob will ask for this
+ * as it creates the session for its configuration.
+ *
+ * @see PersisterBase#setPrefetchThreads(int)
+ */
+public interface PrefetchingPersister {
+
+	/**
+	 * Start restoring everything that has been persisted. This should not
+	 * wait for the restores to complete.
+	 *
+	 * @param classLoader The class loader to restore with.
+	 */
+	void prefetch(ClassLoader classLoader);
+}
@@ -3,18 +3,28 @@ package org.oddjob.persist;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 
 public class SerializeWithBytes {
 
+	private final PersistCodec codec;
+	
+	public SerializeWithBytes() {
+		this(null);
+	}
+	
+	/**
+	 * Create an instance with the given codec.
+	 * 
+	 * @param codec The codec. If null Java Serialization is used.
+	 */
+	public SerializeWithBytes(PersistCodec codec) {
+		this.codec = codec == null ? new JavaSerializationCodec() : codec;
+	}
+	
 	public byte[] toBytes(Object object) {
 		ByteArrayOutputStream os = new ByteArrayOutputStream();
 		try {
-			ObjectOutput oo = new ObjectOutputStream(os);
-			oo.writeObject(object);
-			oo.close();
+			codec.encode(object, os);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -24,11 +34,7 @@ public class SerializeWithBytes {
 	public Object fromBytes(byte[] bytes, ClassLoader classLoader) {
 		ByteArrayInputStream is = new ByteArrayInputStream(bytes);
 		try {
-			ObjectInput oi = new OddjobObjectInputStream(is, classLoader);
-			Object o = oi.readObject();
-			oi.close();
-			
-			return o;
+			return codec.decode(is, classLoader);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}		
@@ -3,6 +3,8 @@
  */
 package org.oddjob.persist;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
@@ -10,9 +12,6 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInput;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 
 import org.apache.commons.io.FileUtils;
@@ -27,6 +26,9 @@ import org.oddjob.arooa.life.ComponentPersistException;
  * When writing a temporary name is used in case the process is kill mid writing
  * so there is less chance of a corrupted file. The temporary name includes an
  * underscore in the name.
+ * <p>
+ * How the object is written is decided by a {@link PersistCodec}, the 
+ * default being Java Serialization.
  * 
  * @author Rob Gordon.
  */
@@ -35,6 +37,21 @@ public class SerializeWithFile {
 
 	private final static String EXTENSION = ".ser";
 
+	private final PersistCodec codec;
+	
+	public SerializeWithFile() {
+		this(null);
+	}
+	
+	/**
+	 * Create an instance with the given codec.
+	 * 
+	 * @param codec The codec. If null Java Serialization is used.
+	 */
+	public SerializeWithFile(PersistCodec codec) {
+		this.codec = codec == null ? new JavaSerializationCodec() : codec;
+	}
+	
 	public void toFile(File dir, String name, Object o) 
 	throws ComponentPersistException {
 		
@@ -42,21 +59,17 @@ public class SerializeWithFile {
 		File old = new File(dir, "_" + name + EXTENSION);
 		File finished = new File(dir, name + EXTENSION);
 		
-		ObjectOutput oo = null;
+		OutputStream os = null;
 		try {
-			OutputStream os = new FileOutputStream(inProgress);
-			oo = new ObjectOutputStream(os);
+			os = new BufferedOutputStream(new FileOutputStream(inProgress));
 		}
 		catch (FileNotFoundException e) {
 			throw new ComponentPersistException("Check directory exists!", e);
 		}
-		catch (IOException e) {
-			throw new ComponentPersistException("Failed opening file [" +
-					inProgress + "]", e);
-		}
 		
 		try {
-			oo.writeObject(o);			
+			codec.encode(o, os);
+			os.flush();
 		}
 		catch (IOException e) {
 			throw new ComponentPersistException("Failed writing object id ["
@@ -66,7 +79,7 @@ public class SerializeWithFile {
 		}
 		finally {
 			try {
-				oo.close();
+				os.close();
 			}
 			catch (IOException e) {
 				// ignore
@@ -120,10 +133,9 @@ public class SerializeWithFile {
 			return null;
 		}
 		
-		ObjectInput oi = null;
+		InputStream is = null;
 		try {
-			InputStream is = new FileInputStream(f);
-			oi = new OddjobObjectInputStream(is, classLoader);
+			is = new BufferedInputStream(new FileInputStream(f));
 		}
 		catch (IOException e) {
 			throw new ComponentPersistException(
@@ -131,7 +143,7 @@ public class SerializeWithFile {
 		}
 		
 		try {
-			Object o = oi.readObject();
+			Object o = codec.decode(is, classLoader);
 
 			logger.debug("Loaded [" + o + "] from [" + f + "].");
 
@@ -143,7 +155,7 @@ public class SerializeWithFile {
 		}
 		finally {
 			try {
-				oi.close();
+				is.close();
 			} catch (IOException e) {
 				// ignore
 			}
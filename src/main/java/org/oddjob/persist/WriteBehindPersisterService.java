@@ -0,0 +1,452 @@
+package org.oddjob.persist;
+
+import org.oddjob.arooa.life.ComponentPersistException;
+import org.oddjob.arooa.registry.Path;
+import org.oddjob.scheduling.OddjobThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * @oddjob.description Persists job state in the background with another
+ * persister. Saving a job's state normally happens on the job's own thread
+ * with every state change, which for a busy job can mean a lot of time spent
+ * serializing and writing files. This service instead serializes the job
+ * to memory, queues it, and writes it at regular intervals. A job that is
+ * saved many times before the next write is only written once with its
+ * latest state.
+ * <p>
+ * Everything queued is written when the service is stopped. Restoring,
+ * listing, removing or clearing jobs first deals with anything queued for
+ * them so they are always consistent with what has been saved.
+ * <p>
+ * Because state is written after it has changed, if the process is killed
+ * the state of jobs that changed since the last write will be lost.
+ *
+ * @oddjob.example
+ *
+ * Writing behind to a File Persister.
+ *
+ * {@oddjob.xml.resource org/oddjob/persist/WriteBehindPersisterExample.xml}
+ *
+ * Note that as with the {@link org.oddjob.sql.SQLPersisterService} this is a
+ * service that must be stopped once the inner Oddjob has completed its work.
+ */
+public class WriteBehindPersisterService {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindPersisterService.class);
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The name.
+     * @oddjob.required No.
+     */
+    private String name;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The persister to write to.
+     * @oddjob.required Yes.
+     */
+    private volatile PersisterBase writeTo;
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The interval in milliseconds between writes.
+     * @oddjob.required No, defaults to 1000.
+     */
+    private volatile long interval = 1000;
+
+    /** Saves waiting to be written, the latest for each path and id. */
+    private final Map<Key, Saved> pending = new LinkedHashMap<>();
+
+    /** Takes a copy of a component when it is saved. */
+    private final SerializeWithBytes serializer = new SerializeWithBytes();
+
+    /** Held while writing so that only one write is ever in progress. */
+    private final Object writeLock = new Object();
+
+    private volatile ScheduledExecutorService scheduler;
+
+    private final AtomicLong saves = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private final AtomicLong flushes = new AtomicLong();
+
+    private volatile long lastFlushLatency;
+
+    private volatile long maxFlushLatency;
+
+    public void start() {
+        PersisterBase writeTo = this.writeTo;
+        if (writeTo == null) {
+            throw new IllegalStateException("No persister to write to.");
+        }
+        if (interval <= 0) {
+            throw new IllegalStateException("Interval must be greater than 0.");
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                new OddjobThreadFactory(getClass().getSimpleName()));
+        scheduler.scheduleWithFixedDelay(this::flushInBackground,
+                interval, interval, TimeUnit.MILLISECONDS);
+        this.scheduler = scheduler;
+
+        logger.debug("Started writing to [{}] every {}ms.", writeTo, interval);
+    }
+
+    public void stop() throws ComponentPersistException, InterruptedException {
+        ScheduledExecutorService scheduler = this.scheduler;
+        if (scheduler == null) {
+            return;
+        }
+        this.scheduler = null;
+
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(interval + 60_000, TimeUnit.MILLISECONDS)) {
+            logger.warn("Background write did not finish.");
+        }
+
+        flush();
+
+        logger.debug("Stopped. {} saves written with {} flushes.", saves.get() - coalesced.get(),
+                flushes.get());
+    }
+
+    /**
+     * Write everything waiting to be written now.
+     *
+     * @throws ComponentPersistException If writing fails.
+     */
+    public void flush() throws ComponentPersistException {
+        writePending(key -> true);
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        }
+        catch (ComponentPersistException | RuntimeException e) {
+            logger.error("Failed writing saved state to [" + writeTo + "]. Will retry.", e);
+        }
+    }
+
+    /**
+     * Write pending saves that match the predicate. Anything that fails to be written
+     * is queued again unless it has been saved again since.
+     *
+     * @param which Which keys to write.
+     *
+     * @throws ComponentPersistException From the first failure.
+     */
+    private void writePending(Predicate<Key> which) throws ComponentPersistException {
+
+        synchronized (writeLock) {
+
+            List<Map.Entry<Key, Saved>> toWrite = new ArrayList<>();
+            synchronized (pending) {
+                for (Iterator<Map.Entry<Key, Saved>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<Key, Saved> entry = it.next();
+                    if (which.test(entry.getKey())) {
+                        toWrite.add(entry);
+                        it.remove();
+                    }
+                }
+            }
+
+            if (toWrite.isEmpty()) {
+                return;
+            }
+
+            long startNanos = System.nanoTime();
+
+            ComponentPersistException failure = null;
+            for (Map.Entry<Key, Saved> entry : toWrite) {
+                Key key = entry.getKey();
+                try {
+                    writeTo.persist(key.path, key.id, entry.getValue().component());
+                }
+                catch (ComponentPersistException | RuntimeException e) {
+                    synchronized (pending) {
+                        pending.putIfAbsent(key, entry.getValue());
+                    }
+                    if (failure == null) {
+                        failure = e instanceof ComponentPersistException ?
+                                (ComponentPersistException) e :
+                                new ComponentPersistException("Failed writing [" + key + "]", e);
+                    }
+                }
+            }
+
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            lastFlushLatency = latency;
+            if (latency > maxFlushLatency) {
+                maxFlushLatency = latency;
+            }
+            flushes.incrementAndGet();
+
+            logger.trace("Wrote {} saves in {}ms.", toWrite.size(), latency);
+
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * @oddjob.property persister
+     * @oddjob.description The persister to give to an Oddjob.
+     * @oddjob.required R/O.
+     */
+    public OddjobPersister getPersister(String path) {
+        return new WriteBehindPersister(path);
+    }
+
+    class WriteBehindPersister extends PersisterBase {
+
+        WriteBehindPersister(String path) {
+            super(path == null ? null : new Path(path));
+        }
+
+        @Override
+        protected void persist(Path path, String id, Object component)
+                throws ComponentPersistException {
+            if (scheduler == null) {
+                throw new IllegalStateException("Persister Service Not Started.");
+            }
+
+            // Serialize now, on the job's thread, so what is written is the
+            // state at the time of the save and not whatever it is later.
+            Saved saved;
+            try {
+                saved = new Saved(serializer.toBytes(component),
+                        classLoaderFor(component));
+            }
+            catch (RuntimeException e) {
+                throw new ComponentPersistException("Failed serializing ["
+                        + component + "], id [" + id + "]", e);
+            }
+
+            saves.incrementAndGet();
+            synchronized (pending) {
+                if (pending.put(new Key(path, id), saved) != null) {
+                    coalesced.incrementAndGet();
+                }
+            }
+        }
+
+        @Override
+        protected Object restore(Path path, String id, ClassLoader classLoader)
+                throws ComponentPersistException {
+            Key key = new Key(path, id);
+            synchronized (writeLock) {
+                writePending(key::equals);
+                return writeTo.restore(path, id, classLoader);
+            }
+        }
+
+        @Override
+        protected String[] list(Path path) throws ComponentPersistException {
+            synchronized (writeLock) {
+                writePending(key -> key.path.equals(path));
+                return writeTo.list(path);
+            }
+        }
+
+        @Override
+        protected void remove(Path path, String id) throws ComponentPersistException {
+            Key key = new Key(path, id);
+            synchronized (writeLock) {
+                synchronized (pending) {
+                    pending.remove(key);
+                }
+                writeTo.remove(path, id);
+            }
+        }
+
+        @Override
+        protected void clear(Path path) throws ComponentPersistException {
+            synchronized (writeLock) {
+                synchronized (pending) {
+                    pending.keySet().removeIf(key -> key.path.equals(path));
+                }
+                writeTo.clear(path);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return WriteBehindPersisterService.this.toString();
+        }
+    }
+
+    /**
+     * The class loader to recreate a saved component with.
+     */
+    static ClassLoader classLoaderFor(Object component) {
+        ClassLoader classLoader = component.getClass().getClassLoader();
+        if (classLoader == null) {
+            classLoader = WriteBehindPersisterService.class.getClassLoader();
+        }
+        return classLoader;
+    }
+
+    /**
+     * A component serialized when it was saved.
+     */
+    class Saved {
+
+        private final byte[] bytes;
+
+        private final ClassLoader classLoader;
+
+        Saved(byte[] bytes, ClassLoader classLoader) {
+            this.bytes = bytes;
+            this.classLoader = classLoader;
+        }
+
+        /**
+         * Recreate the component for the persister being written to.
+         *
+         * @return A copy of the component as it was when it was saved.
+         */
+        Object component() {
+            return serializer.fromBytes(bytes, classLoader);
+        }
+    }
+
+    /**
+     * The path and id of a save.
+     */
+    static class Key {
+
+        private final Path path;
+
+        private final String id;
+
+        Key(Path path, String id) {
+            this.path = Objects.requireNonNull(path);
+            this.id = Objects.requireNonNull(id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return path.equals(key.path) && id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, id);
+        }
+
+        @Override
+        public String toString() {
+            return path + "/" + id;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public PersisterBase getWriteTo() {
+        return writeTo;
+    }
+
+    public void setWriteTo(PersisterBase writeTo) {
+        this.writeTo = writeTo;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The number of saves waiting to be written.
+     * @oddjob.required R/O.
+     */
+    public int getQueueDepth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The number of saves requested.
+     * @oddjob.required R/O.
+     */
+    public long getSaves() {
+        return saves.get();
+    }
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The number of saves that replaced a save not yet
+     * written, and so were never written themselves.
+     * @oddjob.required R/O.
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The number of times saves have been written.
+     * @oddjob.required R/O.
+     */
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    /**
+     * @oddjob.property
+     * @oddjob.description How long in milliseconds the last write took.
+     * @oddjob.required R/O.
+     */
+    public long getLastFlushLatency() {
+        return lastFlushLatency;
+    }
+
+    /**
+     * @oddjob.property
+     * @oddjob.description The longest time in milliseconds a write has taken.
+     * @oddjob.required R/O.
+     */
+    public long getMaxFlushLatency() {
+        return maxFlushLatency;
+    }
+
+    @Override
+    public String toString() {
+        if (name == null) {
+            return getClass().getSimpleName();
+        }
+        else {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.oddjob.remote;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The data of a compound notification. Several notifications of the same
+ * type from the same remote id are sent as a single notification of that
+ * type with this as its data, and a sequence number of the last
+ * notification in the batch.
+ * <p>
+ * The notifications are held in sequence order.
+ *
+ * @see #unpack(Notification)
+ */
+public class NotificationBatch implements Serializable {
+
+    private static final long serialVersionUID = 2026101800L;
+
+    private final List<Notification<?>> notifications;
+
+    public NotificationBatch(List<? extends Notification<?>> notifications) {
+        this.notifications = new ArrayList<>(Objects.requireNonNull(notifications));
+    }
+
+    public List<Notification<?>> getNotifications() {
+        return Collections.unmodifiableList(notifications);
+    }
+
+    public int size() {
+        return notifications.size();
+    }
+
+    /**
+     * Unpack a notification that may be a compound notification. A compound
+     * notification arrives with the type of the notifications it contains
+     * so the check is on the data not the type.
+     *
+     * @param notification The notification received.
+     * @param <T> The type of the notification.
+     *
+     * @return The notifications contained, or a list of just the notification
+     * if it isn't a compound one.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<Notification<T>> unpack(Notification<T> notification) {
+        Object data = notification.getData();
+        if (data instanceof NotificationBatch) {
+            List<Notification<T>> unpacked = new ArrayList<>();
+            for (Notification<?> contained : ((NotificationBatch) data).notifications) {
+                unpacked.add((Notification<T>) contained);
+            }
+            return unpacked;
+        }
+        else {
+            return Collections.singletonList(notification);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NotificationBatch{" +
+                "size=" + notifications.size() +
+                '}';
+    }
+}
@@ -7,5 +7,9 @@ import org.oddjob.remote.NotificationDispatcher;
  */
 public interface NotificationControl extends NotificationDispatcher, NotificationNotifier {
 
-
+    /**
+     * Send any notifications that are being held back. By default none are.
+     */
+    default void flush() {
+    }
 }
@@ -35,4 +35,13 @@ abstract public class AbstractSchedule
 		return childSchedule;
 	}
 
+	/**
+	 * Subclasses are stateless as long as their refinement is. A subclass
+	 * that keeps state in the context data must override this.
+	 */
+	@Override
+	public boolean isStateless() {
+		return childSchedule == null || childSchedule.isStateless();
+	}
+
 }
@@ -23,4 +23,19 @@ public interface Schedule {
 	 */
 	public ScheduleResult nextDue(ScheduleContext context);
 
+	/**
+	 * Does this schedule always provide the same result for the same
+	 * context. A schedule that keeps state in the context data, such as a
+	 * count, doesn't. A schedule made of other schedules is only stateless
+	 * if they all are.
+	 * <p>
+	 * This is used to decide if results can be remembered.
+	 *
+	 * @return true if the schedule is stateless. This default returns false
+	 * as it can't be known.
+	 */
+	default boolean isStateless() {
+		return false;
+	}
+
 }
@@ -132,6 +132,20 @@ public class ScheduleCalculator {
 	public Schedule getRetry() {
 	    return this.retrySchedule;
 	}
+	
+	/**
+	 * Get the occurrences of the normal schedule from the given date, 
+	 * calculated lazily. This is for forecasting and doesn't change the 
+	 * state of this calculator.
+	 * 
+	 * @param date The date to start from.
+	 * 
+	 * @return The occurrences. Never null.
+	 */
+	public ScheduleOccurrences occurrencesFrom(Date date) {
+		return new ScheduleOccurrences(normalSchedule, 
+				new ScheduleContext(date, timeZone));
+	}
 
 	public void initialise() {
 		initialise(null, new HashMap<Object, Object>());
@@ -183,6 +183,35 @@ public class ScheduleContext {
 		return newContext;
 	}
 	
+	/**
+	 * Create a new context the same as this one but with a copy of
+	 * the data map, so that evaluating a schedule with it won't change
+	 * the state kept in this context.
+	 * 
+	 * @return A new context. Never null.
+	 */
+	public ScheduleContext copy() {
+		return new ScheduleContext(this.date, this.timeZone, 
+				copyData(this.data), this.parentInterval);
+	}
+	
+	/**
+	 * Copy context data. Values that are {@link ScheduleState} are copied
+	 * too, so that evaluating a schedule with the copy won't change the
+	 * original.
+	 * 
+	 * @param data The data. Must not be null.
+	 * 
+	 * @return A new map. Never null.
+	 */
+	public static Map<Object, Object> copyData(Map<Object, Object> data) {
+		Map<Object, Object> copy = new HashMap<Object, Object>();
+		for (Map.Entry<Object, Object> entry : data.entrySet()) {
+			copy.put(entry.getKey(), ScheduleState.copyOf(entry.getValue()));
+		}
+		return copy;
+	}
+	
 	public String toString() {
 		return "Context Date: " + date + 
 				( parentInterval == null ? 
@@ -67,6 +67,11 @@ final public class ScheduleList implements Serializable, Schedule {
 		return schedules.size();	
 	}
 		
+	@Override
+	public boolean isStateless() {
+		return schedules.stream().allMatch(Schedule::isStateless);
+	}
+
 	/*
 	 *  (non-Javadoc)
 	 * @see org.treesched.Schedule#nextDue(java.util.Date)
@@ -0,0 +1,174 @@
+package org.oddjob.schedules;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The successive results of a schedule, as a timer would use them, calculated
+ * lazily as they are iterated over. Each result is found by evaluating the
+ * schedule again from the use next date of the one before, so only as many
+ * results as are needed are ever calculated.
+ * <p>
+ * The occurrences can be limited to a number of results, or to those that
+ * start before a date, or both. Without a limit a recurring schedule will
+ * provide results forever.
+ * <p>
+ * Instances are immutable and may be iterated over any number of times,
+ * but each iteration evaluates the schedule again. A schedule that keeps
+ * state in the context data, such as a count schedule, is given a fresh copy
+ * of the original context data for each iteration.
+ *
+ * @author Rob Gordon
+ */
+public class ScheduleOccurrences implements Iterable<ScheduleResult> {
+
+	private final Schedule schedule;
+
+	private final ScheduleContext context;
+
+	private final long limit;
+
+	private final Date until;
+
+	/**
+	 * Create the occurrences of a schedule from the date of the given context.
+	 *
+	 * @param schedule The schedule. Must not be null.
+	 * @param context The context for the first evaluation. Must not be null.
+	 */
+	public ScheduleOccurrences(Schedule schedule, ScheduleContext context) {
+		this(schedule, context, Long.MAX_VALUE, null);
+	}
+
+	private ScheduleOccurrences(Schedule schedule, ScheduleContext context,
+			long limit, Date until) {
+		this.schedule = Objects.requireNonNull(schedule, "No schedule.");
+		this.context = Objects.requireNonNull(context, "No context.");
+		this.limit = limit;
+		this.until = until;
+	}
+
+	/**
+	 * Limit the occurrences to a number of results.
+	 *
+	 * @param limit The maximum number of results.
+	 * @return New occurrences with the limit.
+	 */
+	public ScheduleOccurrences limit(long limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("Limit must not be negative.");
+		}
+		return new ScheduleOccurrences(schedule, context,
+				Math.min(limit, this.limit), until);
+	}
+
+	/**
+	 * Limit the occurrences to those that start before a date.
+	 *
+	 * @param until The date, exclusive. Must not be null.
+	 * @return New occurrences with the limit.
+	 */
+	public ScheduleOccurrences until(Date until) {
+		Objects.requireNonNull(until, "No until date.");
+		if (this.until != null && this.until.before(until)) {
+			until = this.until;
+		}
+		return new ScheduleOccurrences(schedule, context, limit, until);
+	}
+
+	@Override
+	public Iterator<ScheduleResult> iterator() {
+		return new Occurrences();
+	}
+
+	/**
+	 * Provide the occurrences as a sequential stream.
+	 *
+	 * @return A stream of results.
+	 */
+	public Stream<ScheduleResult> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+				iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Count the occurrences. This will never finish for a recurring schedule
+	 * without a limit.
+	 *
+	 * @return The number of results.
+	 */
+	public long count() {
+		long count = 0;
+		for (Iterator<ScheduleResult> it = iterator(); it.hasNext(); it.next()) {
+			++count;
+		}
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return "Occurrences of " + schedule + " from " + context.getDate() +
+				(limit == Long.MAX_VALUE ? "" : ", limit " + limit) +
+				(until == null ? "" : ", until " + until);
+	}
+
+	/**
+	 * The iterator.
+	 */
+	class Occurrences implements Iterator<ScheduleResult> {
+
+		/** The context for the next evaluation, null when finished. */
+		private ScheduleContext next = context.copy();
+
+		private ScheduleResult result;
+
+		private long count;
+
+		@Override
+		public boolean hasNext() {
+			if (result != null) {
+				return true;
+			}
+			if (next == null || count >= limit) {
+				return false;
+			}
+
+			ScheduleResult result = schedule.nextDue(next);
+
+			if (result == null ||
+					until != null && !result.getFromDate().before(until)) {
+				next = null;
+				return false;
+			}
+
+			Date useNext = result.getUseNext();
+			if (useNext == null || !useNext.after(next.getDate())) {
+				// Once only, or evaluating again would give the same result.
+				next = null;
+			}
+			else {
+				next = next.move(useNext);
+			}
+
+			++count;
+			this.result = result;
+			return true;
+		}
+
+		@Override
+		public ScheduleResult next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			ScheduleResult next = result;
+			result = null;
+			return next;
+		}
+	}
+}
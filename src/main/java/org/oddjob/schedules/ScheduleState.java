@@ -0,0 +1,34 @@
+package org.oddjob.schedules;
+
+/**
+ * State that a schedule keeps in the data of a {@link ScheduleContext} and
+ * changes in place, such as the counts of a
+ * {@link org.oddjob.schedules.schedules.CountSchedule}. Implementing this
+ * allows the data to be copied so that evaluating a schedule with the copy
+ * leaves the original unchanged.
+ */
+public interface ScheduleState {
+
+	/**
+	 * Provide a copy of this state that can be changed without changing
+	 * this.
+	 *
+	 * @return A copy. Never null.
+	 */
+	ScheduleState copy();
+
+	/**
+	 * Copy a value from the data of a context.
+	 *
+	 * @param value The value. May be null.
+	 *
+	 * @return A copy if the value is a {@link ScheduleState}, otherwise the
+	 * value itself as it is taken not to be changed in place.
+	 */
+	static Object copyOf(Object value) {
+		if (value instanceof ScheduleState) {
+			return ((ScheduleState) value).copy();
+		}
+		return value;
+	}
+}
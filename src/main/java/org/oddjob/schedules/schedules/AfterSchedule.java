@@ -60,6 +60,12 @@ final public class AfterSchedule extends AbstractSchedule implements Serializabl
 	 */
     private Schedule schedule;
     
+	@Override
+	public boolean isStateless() {
+		return super.isStateless() &&
+				(schedule == null || schedule.isStateless());
+	}
+
 	public ScheduleResult nextDue(ScheduleContext context) {
 				
 		if (schedule == null) {
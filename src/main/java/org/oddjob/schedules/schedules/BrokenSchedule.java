@@ -142,6 +142,13 @@ public class BrokenSchedule implements Serializable, Schedule{
 		this.alternative = alternative;
 	}
 
+	@Override
+	public boolean isStateless() {
+		return (schedule == null || schedule.isStateless()) &&
+				(breaks == null || breaks.isStateless()) &&
+				(alternative == null || alternative.isStateless());
+	}
+
 	/**
 	 * Implement the schedule.
 	 */
@@ -0,0 +1,300 @@
+package org.oddjob.schedules.schedules;
+
+import org.oddjob.schedules.Interval;
+import org.oddjob.schedules.Schedule;
+import org.oddjob.schedules.ScheduleContext;
+import org.oddjob.schedules.ScheduleResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @oddjob.description Remember the results of another schedule so that
+ * evaluating it again for the same date is quick. This is useful for
+ * complicated schedules such as a <code>broken</code> schedule with a long
+ * list of holidays, particularly when the same schedule is shared by
+ * many timers.
+ * <p>
+ * Results are remembered by the date, time zone and parent interval they
+ * were evaluated for. When a schedule is evaluated for a date that hasn't
+ * been seen before, the following occurrences can also be calculated in
+ * advance, as a timer will ask for them next.
+ * <p>
+ * Only schedules that always give the same result for the same date can be
+ * cached. A schedule that contains a <code>count</code>, which keeps state,
+ * or a schedule that isn't known to be stateless, is never cached.
+ * <p>
+ * Remembered results are forgotten when any property of this schedule is
+ * set, and when the schedule being cached changes. Changes are found by
+ * comparing the serialized form of the schedule before each evaluation, so
+ * a schedule that can't be serialized isn't cached either. This costs less
+ * than evaluating a complicated schedule, but more than evaluating a
+ * simple one.
+ *
+ * @oddjob.example
+ *
+ * A timer using a cached schedule that breaks for holidays.
+ *
+ * {@oddjob.xml.resource org/oddjob/schedules/schedules/CachingScheduleExample.xml}
+ */
+public class CachingSchedule implements Schedule, Serializable {
+	private static final long serialVersionUID = 2026101800L;
+
+	private static final Logger logger = LoggerFactory.getLogger(CachingSchedule.class);
+
+	/** Cached in place of a null result. */
+	private static final Object NEVER_DUE = new Object();
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The schedule to cache.
+	 * @oddjob.required Yes.
+	 */
+	private Schedule schedule;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The maximum number of results to remember. The
+	 * least recently used are forgotten first.
+	 * @oddjob.required No, defaults to 1024.
+	 */
+	private int size = 1024;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of following occurrences to calculate
+	 * in advance when a date is evaluated for the first time.
+	 * @oddjob.required No, defaults to 0.
+	 */
+	private int ahead;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of evaluations that used a remembered
+	 * result.
+	 * @oddjob.required R/O.
+	 */
+	private transient AtomicLong hits;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of evaluations of the cached schedule.
+	 * @oddjob.required R/O.
+	 */
+	private transient AtomicLong misses;
+
+	/** Null until first used. */
+	private transient Map<Key, Object> cache;
+
+	/** The serialized form of the schedule the results are from. */
+	private transient byte[] fingerprint;
+
+	public Schedule getSchedule() {
+		return schedule;
+	}
+
+	public void setSchedule(Schedule schedule) {
+		this.schedule = schedule;
+		invalidate();
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+		invalidate();
+	}
+
+	public int getAhead() {
+		return ahead;
+	}
+
+	public void setAhead(int ahead) {
+		this.ahead = ahead;
+		invalidate();
+	}
+
+	public long getHits() {
+		return hits == null ? 0 : hits.get();
+	}
+
+	public long getMisses() {
+		return misses == null ? 0 : misses.get();
+	}
+
+	/**
+	 * Forget all remembered results.
+	 */
+	public synchronized void invalidate() {
+		cache = null;
+		fingerprint = null;
+	}
+
+	@Override
+	public ScheduleResult nextDue(ScheduleContext context) {
+
+		Schedule schedule = Objects.requireNonNull(this.schedule, "No schedule.");
+
+		Key key = new Key(context);
+
+		byte[] fingerprint = fingerprintOf(schedule);
+
+		synchronized (this) {
+			if (hits == null) {
+				hits = new AtomicLong();
+				misses = new AtomicLong();
+			}
+			if (fingerprint != null && !Arrays.equals(fingerprint, this.fingerprint)) {
+				if (this.fingerprint != null) {
+					logger.debug("Schedule {} has changed, forgetting results.", schedule);
+				}
+				cache = null;
+				this.fingerprint = fingerprint;
+			}
+		}
+
+		if (fingerprint == null) {
+			misses.incrementAndGet();
+			return schedule.nextDue(context);
+		}
+
+		synchronized (this) {
+			Object result = cache().get(key);
+			if (result != null) {
+				hits.incrementAndGet();
+				return result == NEVER_DUE ? null : (ScheduleResult) result;
+			}
+		}
+
+		misses.incrementAndGet();
+		ScheduleResult result = schedule.nextDue(context);
+
+		Map<Key, Object> ahead = new HashMap<>();
+		ahead.put(key, result == null ? NEVER_DUE : result);
+
+		ScheduleResult next = result;
+		for (int i = 0; i < this.ahead && next != null && next.getUseNext() != null; ++i) {
+			ScheduleContext nextContext = context.move(next.getUseNext());
+			next = schedule.nextDue(nextContext);
+			misses.incrementAndGet();
+			ahead.put(new Key(nextContext), next == null ? NEVER_DUE : next);
+		}
+
+		synchronized (this) {
+			if (this.schedule == schedule && cache != null &&
+					Arrays.equals(fingerprint, this.fingerprint)) {
+				cache.putAll(ahead);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Provide something that changes when the schedule changes.
+	 *
+	 * @return The serialized form of the schedule or null if it can't be
+	 * cached.
+	 */
+	static byte[] fingerprintOf(Schedule schedule) {
+
+		if (!schedule.isStateless()) {
+			logger.trace("Schedule {} isn't stateless so will not be cached.", schedule);
+			return null;
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(schedule);
+		}
+		catch (IOException e) {
+			logger.trace("Schedule {} can't be serialized so will not be cached.", schedule, e);
+			return null;
+		}
+		return bytes.toByteArray();
+	}
+
+	private Map<Key, Object> cache() {
+		if (cache == null) {
+			int maxSize = size;
+			cache = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+				private static final long serialVersionUID = 2026101800L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+					return size() > maxSize;
+				}
+			};
+		}
+		return cache;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return schedule != null && schedule.isStateless();
+	}
+
+	@Override
+	public String toString() {
+		return "Caching " + schedule;
+	}
+
+	/**
+	 * What a result depends on.
+	 */
+	static class Key {
+
+		private final long date;
+
+		private final String timeZone;
+
+		private final long parentFrom;
+
+		private final long parentTo;
+
+		private final boolean hasParent;
+
+		Key(ScheduleContext context) {
+			this.date = context.getDate().getTime();
+			this.timeZone = context.getTimeZone().getID();
+			Interval parent = context.getParentInterval();
+			this.hasParent = parent != null;
+			this.parentFrom = hasParent ? time(parent.getFromDate()) : 0;
+			this.parentTo = hasParent ? time(parent.getToDate()) : 0;
+		}
+
+		private static long time(Date date) {
+			return date == null ? Long.MIN_VALUE : date.getTime();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Key key = (Key) o;
+			return date == key.date &&
+					parentFrom == key.parentFrom &&
+					parentTo == key.parentTo &&
+					hasParent == key.hasParent &&
+					timeZone.equals(key.timeZone);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(date, timeZone, parentFrom, parentTo, hasParent);
+		}
+	}
+}
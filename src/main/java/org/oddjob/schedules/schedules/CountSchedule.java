@@ -11,6 +11,7 @@ import org.oddjob.schedules.Interval;
 import org.oddjob.schedules.Schedule;
 import org.oddjob.schedules.ScheduleContext;
 import org.oddjob.schedules.ScheduleResult;
+import org.oddjob.schedules.ScheduleState;
 import org.oddjob.schedules.SimpleInterval;
 
 /**
@@ -122,6 +123,14 @@ implements Serializable {
 		this.identifier = key;
 	}
 
+	/**
+	 * A count keeps the count in the context data.
+	 */
+	@Override
+	public boolean isStateless() {
+		return false;
+	}
+
 	/*
 	 *  (non-Javadoc)
 	 * @see org.treesched.Schedule#nextDue(java.util.Date)
@@ -174,7 +183,7 @@ implements Serializable {
 		return "Count Schedule, count to " + countTo;
 	}
 	
-	private static class IntervalCounts implements Serializable {
+	private static class IntervalCounts implements Serializable, ScheduleState {
 
 		private static final long serialVersionUID = 2011092600L;
 		
@@ -216,5 +225,11 @@ implements Serializable {
 			}
 		}
 		
+		@Override
+		public IntervalCounts copy() {
+			IntervalCounts copy = new IntervalCounts();
+			copy.counts.putAll(counts);
+			return copy;
+		}
 	}
 }
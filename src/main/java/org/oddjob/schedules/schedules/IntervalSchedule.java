@@ -84,6 +84,11 @@ public class IntervalSchedule implements Schedule, Serializable {
 		intervalMillis = DateHelper.parseTime(interval);
 	}
 
+	@Override
+	public boolean isStateless() {
+		return true;
+	}
+
     /*
      *  (non-Javadoc)
      * @see org.treesched.Schedule#nextDue(java.util.Date)
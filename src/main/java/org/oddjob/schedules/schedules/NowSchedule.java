@@ -24,6 +24,11 @@ import org.oddjob.schedules.SimpleScheduleResult;
  */
 public class NowSchedule implements Schedule {
 	
+    @Override
+    public boolean isStateless() {
+        return true;
+    }
+
     /* 
      * Due immediately.
      */
@@ -23,6 +23,12 @@ public class ParentChildSchedule implements Schedule {
 		this.child = child;
 	}
 	
+	@Override
+	public boolean isStateless() {
+		return parent.isStateless() &&
+				(child == null || child.isStateless());
+	}
+
 	/**
 	 * Provides the next due interval for the parent and child.
 	 */
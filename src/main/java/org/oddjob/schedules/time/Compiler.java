@@ -0,0 +1,150 @@
+package org.oddjob.schedules.time;
+
+import org.oddjob.schedules.Schedule;
+import org.oddjob.schedules.ScheduleList;
+import org.oddjob.schedules.schedules.DailySchedule;
+import org.oddjob.schedules.schedules.MonthlySchedule;
+import org.oddjob.schedules.schedules.TimeSchedule;
+import org.oddjob.schedules.schedules.WeeklySchedule;
+import org.oddjob.schedules.schedules.YearlySchedule;
+import org.oddjob.schedules.units.DayOfWeek;
+
+/**
+ * Compiles a tree of schedules into {@link Node}s. Schedules that can't be
+ * compiled, either because they are of a type that isn't supported or
+ * because they have a property that can't be compiled, are kept as they
+ * are.
+ */
+final class Compiler {
+
+	private Compiler() {
+	}
+
+	/**
+	 * Compile a schedule.
+	 *
+	 * @param schedule The schedule. May be null.
+	 *
+	 * @return The compiled schedule. Null if the schedule is null.
+	 */
+	static Node compile(Schedule schedule) {
+
+		if (schedule == null) {
+			return null;
+		}
+
+		Node node = null;
+
+		if (schedule instanceof DailySchedule) {
+			node = daily((DailySchedule) schedule);
+		}
+		else if (schedule instanceof WeeklySchedule) {
+			node = weekly((WeeklySchedule) schedule);
+		}
+		else if (schedule instanceof MonthlySchedule) {
+			node = monthly((MonthlySchedule) schedule);
+		}
+		else if (schedule instanceof YearlySchedule) {
+			node = yearly((YearlySchedule) schedule);
+		}
+		else if (schedule instanceof TimeSchedule) {
+			node = time((TimeSchedule) schedule);
+		}
+		else if (schedule instanceof ScheduleList) {
+			node = list((ScheduleList) schedule);
+		}
+
+		return node == null ? new LegacyNode(schedule) : node;
+	}
+
+	private static Node daily(DailySchedule schedule) {
+
+		TimeOfDay from = TimeOfDay.parse(schedule.getFrom());
+		TimeOfDay to = TimeOfDay.parse(schedule.getTo());
+
+		if (from == null && schedule.getFrom() != null ||
+				to == null && schedule.getTo() != null) {
+			return null;
+		}
+
+		return new DailyNode(from, to, compile(schedule.getRefinement()));
+	}
+
+	private static Node weekly(WeeklySchedule schedule) {
+
+		return new WeeklyNode(schedule.getFrom(), schedule.getTo(),
+				compile(schedule.getRefinement()));
+	}
+
+	private static Node monthly(MonthlySchedule schedule) {
+
+		if (!isValid(schedule.getFromDayOfWeek()) ||
+				!isValid(schedule.getToDayOfWeek())) {
+			return null;
+		}
+
+		return new MonthlyNode(
+				schedule.getFromDay(), schedule.getToDay(),
+				schedule.getFromDayOfWeek(), schedule.getToDayOfWeek(),
+				schedule.getFromWeek(), schedule.getToWeek(),
+				compile(schedule.getRefinement()));
+	}
+
+	private static Node yearly(YearlySchedule schedule) {
+
+		int[] fromDate = null;
+		int[] toDate = null;
+
+		if (schedule.getFromDate() != null) {
+			fromDate = YearlyNode.parseDay(schedule.getFromDate());
+			if (fromDate == null) {
+				return null;
+			}
+		}
+		if (schedule.getToDate() != null) {
+			toDate = YearlyNode.parseDay(schedule.getToDate());
+			if (toDate == null) {
+				return null;
+			}
+		}
+
+		return new YearlyNode(fromDate, toDate,
+				schedule.getFromMonth(), schedule.getToMonth(),
+				compile(schedule.getRefinement()));
+	}
+
+	private static Node time(TimeSchedule schedule) {
+
+		// The to last time is only used to fail when there is no to time.
+		if (schedule.getToLast() != null && schedule.getTo() == null) {
+			return null;
+		}
+
+		TimeOfDay from = TimeOfDay.parse(schedule.getFrom());
+		TimeOfDay to = TimeOfDay.parse(schedule.getTo());
+
+		if (from == null && schedule.getFrom() != null ||
+				to == null && schedule.getTo() != null) {
+			return null;
+		}
+
+		return new TimeNode(from, to, compile(schedule.getRefinement()));
+	}
+
+	private static Node list(ScheduleList schedule) {
+
+		Schedule[] schedules = schedule.getSchedules();
+		Node[] nodes = new Node[schedules.length];
+
+		for (int i = 0; i < schedules.length; ++i) {
+			nodes[i] = compile(schedules[i]);
+		}
+
+		return new ListNode(nodes);
+	}
+
+	private static boolean isValid(DayOfWeek dayOfWeek) {
+		return dayOfWeek == null ||
+				dayOfWeek.getDayNumber() >= 1 && dayOfWeek.getDayNumber() <= 7;
+	}
+}
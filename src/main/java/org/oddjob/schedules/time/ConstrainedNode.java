@@ -0,0 +1,121 @@
+package org.oddjob.schedules.time;
+
+/**
+ * The equivalent of {@link org.oddjob.schedules.ConstrainedSchedule} for
+ * compiled schedules. Sub classes provide the from and to times as the
+ * Calendars of the schedule they are compiled from would.
+ */
+abstract class ConstrainedNode implements Node {
+
+	private final Node refinement;
+
+	ConstrainedNode(Node refinement) {
+		this.refinement = refinement;
+	}
+
+	/**
+	 * The start of the constraint.
+	 *
+	 * @param zone The zone.
+	 * @param reference The time now.
+	 */
+	abstract long from(ZonedMillis zone, long reference);
+
+	/**
+	 * The end of the constraint.
+	 *
+	 * @param zone The zone.
+	 * @param reference The time now.
+	 */
+	abstract long to(ZonedMillis zone, long reference);
+
+	/**
+	 * Move a time on by a number of the units between intervals.
+	 */
+	abstract long shift(ZonedMillis zone, long time, int intervals);
+
+	long shiftFrom(ZonedMillis zone, long from, int intervals) {
+		return from(zone, shift(zone, from, intervals));
+	}
+
+	long shiftTo(ZonedMillis zone, long to, int intervals) {
+		return to(zone, shift(zone, to, intervals) - 1);
+	}
+
+	final Span nextInterval(ZonedMillis zone, long now) {
+
+		long from = from(zone, now);
+		long to = to(zone, now);
+
+		if (to < from) {
+			if (now < to) {
+				from = shiftFrom(zone, from, -1);
+			}
+		}
+		else {
+			if (now >= to) {
+				from = shiftFrom(zone, from, 1);
+			}
+		}
+
+		if (now >= to) {
+			to = shiftTo(zone, to, 1);
+		}
+
+		return new Span(from, to);
+	}
+
+	final Span lastInterval(ZonedMillis zone, long now) {
+
+		long from = from(zone, now);
+		long to = to(zone, now);
+
+		if (to < from) {
+			if (now < to) {
+				from = shiftFrom(zone, from, -2);
+			}
+			else {
+				from = shiftFrom(zone, from, -1);
+			}
+		}
+		else {
+			if (now < to) {
+				from = shiftFrom(zone, from, -1);
+			}
+		}
+
+		if (now < to) {
+			to = shiftTo(zone, to, -1);
+		}
+
+		return new Span(from, to);
+	}
+
+	@Override
+	public Span nextDue(Evaluation evaluation, long now, Span parent) {
+
+		ZonedMillis zone = evaluation.zone;
+
+		Span nextResult = ParentChild.nextDue(evaluation, now, parent,
+				time -> nextInterval(zone, time), refinement);
+
+		if (nextResult == null) {
+			return null;
+		}
+
+		// If we are before the next interval we need to check we
+		// aren't still in the last (because a child interval
+		// could extend beyond the limit of it's parent).
+		if (now < nextResult.from) {
+
+			Span previous = ParentChild.nextDue(evaluation, now, parent,
+					time -> lastInterval(zone, time), refinement);
+
+			if (previous != null && now < previous.to) {
+				nextResult = previous;
+			}
+		}
+
+		return nextResult;
+	}
+}
@@ -0,0 +1,50 @@
+package org.oddjob.schedules.time;
+
+/**
+ * A compiled {@link org.oddjob.schedules.schedules.DailySchedule}.
+ */
+final class DailyNode extends ConstrainedNode {
+
+	/** Null for the start of the day. */
+	private final TimeOfDay from;
+
+	/** Null for the end of the day. */
+	private final TimeOfDay to;
+
+	DailyNode(TimeOfDay from, TimeOfDay to, Node refinement) {
+		super(refinement);
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	long from(ZonedMillis zone, long reference) {
+		if (from == null) {
+			return zone.startOfDay(zone.epochDay(reference));
+		}
+		else {
+			return from.on(zone, reference);
+		}
+	}
+
+	@Override
+	long to(ZonedMillis zone, long reference) {
+		long time;
+		if (to == null) {
+			time = zone.startOfDay(zone.epochDay(reference) + 1);
+		}
+		else {
+			time = to.on(zone, reference);
+		}
+		if (time == from(zone, reference)) {
+			// For 'at' times.
+			++time;
+		}
+		return time;
+	}
+
+	@Override
+	long shift(ZonedMillis zone, long time, int intervals) {
+		return zone.addDays(time, intervals);
+	}
+}
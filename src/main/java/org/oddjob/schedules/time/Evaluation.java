@@ -0,0 +1,77 @@
+package org.oddjob.schedules.time;
+
+import org.oddjob.schedules.ScheduleContext;
+import org.oddjob.schedules.ScheduleState;
+
+import java.util.Date;
+import java.util.HashMap;
+
+/**
+ * The state of evaluating a compiled schedule for a single
+ * {@link ScheduleContext}.
+ */
+final class Evaluation {
+
+	final ZonedMillis zone;
+
+	/** For schedules that aren't compiled. */
+	private final ScheduleContext context;
+
+	/** Null until a schedule that isn't compiled is evaluated. */
+	private Data data;
+
+	Evaluation(ZonedMillis zone, ScheduleContext context) {
+		this.zone = zone;
+		this.context = context;
+	}
+
+	/**
+	 * Provide a context equivalent to the one a schedule would have been
+	 * given had the schedule tree been evaluated with Calendars. The time
+	 * zone of the original context is kept, but the data is only seen
+	 * through a {@link Data} until the evaluation is committed.
+	 */
+	ScheduleContext contextFor(long now, Span parent) {
+		if (data == null) {
+			data = new Data(context);
+		}
+		return new ScheduleContext(new Date(now), context.getTimeZone(), data,
+				parent == null ? context.getParentInterval() : parent.toInterval());
+	}
+
+	/**
+	 * Put what schedules that aren't compiled changed into the data of the
+	 * original context. Only called once the evaluation has succeeded.
+	 */
+	void commit() {
+		if (data != null) {
+			data.forEach(context::putData);
+		}
+	}
+
+	/**
+	 * The data of the original context as schedules that aren't compiled
+	 * see it. Schedules such as count keep state in the data, so that an
+	 * evaluation that turns out to be out of range can be repeated with
+	 * Calendars without anything being counted twice, values are copied
+	 * when first read and changes are kept here until committed. Only a
+	 * {@link ScheduleState} is copied, other values are shared.
+	 */
+	static class Data extends HashMap<Object, Object> {
+		private static final long serialVersionUID = 2026101800L;
+
+		private final transient ScheduleContext context;
+
+		Data(ScheduleContext context) {
+			this.context = context;
+		}
+
+		@Override
+		public Object get(Object key) {
+			if (!containsKey(key)) {
+				put(key, ScheduleState.copyOf(context.getData(key)));
+			}
+			return super.get(key);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package org.oddjob.schedules.time;
+
+import org.oddjob.schedules.Schedule;
+import org.oddjob.schedules.ScheduleContext;
+import org.oddjob.schedules.ScheduleResult;
+
+import java.io.Serializable;
+import java.time.DateTimeException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @oddjob.description Evaluate another schedule on epoch milliseconds
+ * using <code>java.time</code> time zone rules instead of Calendars. The
+ * intervals are the same as the schedule would provide itself, including
+ * how the start of a day or a time that falls in a daylight saving change
+ * is resolved, but far fewer objects are created in finding them.
+ * <p>
+ * The <code>daily</code>, <code>weekly</code>, <code>monthly</code>,
+ * <code>yearly</code>, <code>time</code> and <code>list</code> schedules
+ * are evaluated this way. Any other schedule in the tree, and a
+ * schedule with a property that can't be understood in advance, is
+ * evaluated as it always is. So is any evaluation for a date outside the
+ * years 1902 to 2035, or in a custom time zone, where the Calendar and
+ * <code>java.time</code> time zone rules might not agree. Any state the
+ * other schedules keep in the context, such as a count, is only changed
+ * once, however the schedule ends up being evaluated.
+ * <p>
+ * The schedule is examined when it is first evaluated. If it is changed
+ * after that, the schedule must be set again.
+ *
+ * @author Rob Gordon
+ */
+public class JavaTimeSchedule implements Schedule, Serializable {
+	private static final long serialVersionUID = 2026101800L;
+
+	private static final Map<String, Zone> zones = new ConcurrentHashMap<>();
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The schedule to evaluate.
+	 * @oddjob.required Yes.
+	 */
+	private Schedule schedule;
+
+	/** Null until first evaluated. */
+	private transient volatile Node node;
+
+	public JavaTimeSchedule() {
+	}
+
+	public JavaTimeSchedule(Schedule schedule) {
+		this.schedule = schedule;
+	}
+
+	public Schedule getSchedule() {
+		return schedule;
+	}
+
+	public void setSchedule(Schedule schedule) {
+		this.schedule = schedule;
+		this.node = null;
+	}
+
+	@Override
+	public boolean isStateless() {
+		return schedule != null && schedule.isStateless();
+	}
+
+	@Override
+	public ScheduleResult nextDue(ScheduleContext context) {
+
+		Schedule schedule = Objects.requireNonNull(this.schedule, "No schedule.");
+
+		Node node = this.node;
+		if (node == null) {
+			node = Compiler.compile(schedule);
+			this.node = node;
+		}
+
+		if (node instanceof LegacyNode) {
+			return schedule.nextDue(context);
+		}
+
+		ZonedMillis zone = zoneFor(context.getTimeZone());
+		if (zone == null) {
+			return schedule.nextDue(context);
+		}
+
+		Span parent = context.getParentInterval() == null ?
+				null : Span.of(context.getParentInterval());
+
+		Evaluation evaluation = new Evaluation(zone, context);
+
+		Span result;
+		try {
+			result = node.nextDue(evaluation, context.getDate().getTime(), parent);
+		}
+		catch (ZonedMillis.OutOfRange e) {
+			// Nothing has been changed in the context yet.
+			return schedule.nextDue(context);
+		}
+
+		evaluation.commit();
+
+		return result == null ? null : result.toScheduleResult();
+	}
+
+	/**
+	 * Find the rules for a time zone, as long as they are the rules a
+	 * Calendar would use.
+	 *
+	 * @return The zone or null if there are no such rules.
+	 */
+	static ZonedMillis zoneFor(TimeZone timeZone) {
+
+		Zone zone = zones.computeIfAbsent(timeZone.getID(), Zone::new);
+
+		if (zone.millis == null || !zone.timeZone.hasSameRules(timeZone)) {
+			return null;
+		}
+		return zone.millis;
+	}
+
+	@Override
+	public String toString() {
+		return "Java Time " + schedule;
+	}
+
+	private static class Zone {
+
+		private final TimeZone timeZone;
+
+		private final ZonedMillis millis;
+
+		Zone(String id) {
+			this.timeZone = TimeZone.getTimeZone(id);
+			ZonedMillis millis;
+			try {
+				millis = new ZonedMillis(timeZone.toZoneId().getRules());
+			}
+			catch (DateTimeException e) {
+				millis = null;
+			}
+			this.millis = millis;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package org.oddjob.schedules.time;
+
+import org.oddjob.schedules.Schedule;
+import org.oddjob.schedules.ScheduleResult;
+
+/**
+ * A schedule that isn't compiled. It is evaluated as it always was, with a
+ * context built from the compiled evaluation.
+ */
+final class LegacyNode implements Node {
+
+	private final Schedule schedule;
+
+	LegacyNode(Schedule schedule) {
+		this.schedule = schedule;
+	}
+
+	@Override
+	public Span nextDue(Evaluation evaluation, long now, Span parent) {
+		ScheduleResult result = schedule.nextDue(
+				evaluation.contextFor(now, parent));
+		return result == null ? null : Span.of(result);
+	}
+
+	@Override
+	public String toString() {
+		return schedule.toString();
+	}
+}
@@ -0,0 +1,32 @@
+package org.oddjob.schedules.time;
+
+/**
+ * A compiled {@link org.oddjob.schedules.ScheduleList}.
+ */
+final class ListNode implements Node {
+
+	private final Node[] schedules;
+
+	ListNode(Node[] schedules) {
+		this.schedules = schedules;
+	}
+
+	@Override
+	public Span nextDue(Evaluation evaluation, long now, Span parent) {
+
+		Span candidate = null;
+
+		for (Node schedule : schedules) {
+
+			Span nextDue = schedule.nextDue(evaluation, now, parent);
+
+			if (nextDue != null) {
+				if (candidate == null || nextDue.from < candidate.from) {
+					candidate = nextDue;
+				}
+			}
+		}
+
+		return candidate;
+	}
+}
@@ -0,0 +1,169 @@
+package org.oddjob.schedules.time;
+
+import org.oddjob.schedules.units.DayOfMonth;
+import org.oddjob.schedules.units.DayOfWeek;
+import org.oddjob.schedules.units.WeekOfMonth;
+
+import java.time.LocalDate;
+
+/**
+ * A compiled {@link org.oddjob.schedules.schedules.MonthlySchedule}.
+ */
+final class MonthlyNode extends ConstrainedNode {
+
+	private final DayOfMonth fromDay;
+
+	private final DayOfMonth toDay;
+
+	private final DayOfWeek fromDayOfWeek;
+
+	private final DayOfWeek toDayOfWeek;
+
+	private final WeekOfMonth fromWeek;
+
+	private final WeekOfMonth toWeek;
+
+	MonthlyNode(DayOfMonth fromDay, DayOfMonth toDay,
+			DayOfWeek fromDayOfWeek, DayOfWeek toDayOfWeek,
+			WeekOfMonth fromWeek, WeekOfMonth toWeek,
+			Node refinement) {
+		super(refinement);
+		this.fromDay = fromDay;
+		this.toDay = toDay;
+		this.fromDayOfWeek = fromDayOfWeek;
+		this.toDayOfWeek = toDayOfWeek;
+		this.fromWeek = fromWeek;
+		this.toWeek = toWeek;
+	}
+
+	@Override
+	long from(ZonedMillis zone, long reference) {
+		LocalDate date = zone.date(reference);
+		if (fromDay != null) {
+			return dayOfMonth(zone, date, fromDay);
+		}
+		else if (fromWeek != null) {
+			return fromWeek(zone, date);
+		}
+		else {
+			return zone.startOfDay(date.getYear(), date.getMonthValue() - 1, 1);
+		}
+	}
+
+	@Override
+	long to(ZonedMillis zone, long reference) {
+		LocalDate date = zone.date(reference);
+		if (toDay != null) {
+			return zone.endOfDay(dayOfMonth(zone, date, toDay));
+		}
+		else if (toWeek != null) {
+			return toWeek(zone, date);
+		}
+		else {
+			return zone.startOfDay(date.getYear(), date.getMonthValue(), 1);
+		}
+	}
+
+	@Override
+	long shift(ZonedMillis zone, long time, int intervals) {
+		return zone.addMonths(time, intervals);
+	}
+
+	@Override
+	long shiftFrom(ZonedMillis zone, long from, int intervals) {
+		long time = super.shiftFrom(zone, from, intervals);
+		if (fromWeek == null) {
+			return time;
+		}
+		else {
+			return fromWeek(zone, zone.date(time));
+		}
+	}
+
+	@Override
+	long shiftTo(ZonedMillis zone, long to, int intervals) {
+		long time = super.shiftTo(zone, to, intervals);
+		if (toWeek == null) {
+			return time;
+		}
+		else {
+			return toWeek(zone, zone.date(time));
+		}
+	}
+
+	private long fromWeek(ZonedMillis zone, LocalDate date) {
+		if (fromDayOfWeek == null) {
+			return startOfWeekOfMonth(zone, date, fromWeek);
+		}
+		else {
+			return dayOfWeekInMonth(zone, date, fromDayOfWeek, fromWeek);
+		}
+	}
+
+	private long toWeek(ZonedMillis zone, LocalDate date) {
+		if (toDayOfWeek == null) {
+			return startOfWeekOfMonth(zone, date, toWeek);
+		}
+		else {
+			return zone.endOfDay(dayOfWeekInMonth(zone, date, toDayOfWeek, toWeek));
+		}
+	}
+
+	private static long dayOfMonth(ZonedMillis zone, LocalDate date,
+			DayOfMonth dayOfMonth) {
+
+		int day = dayOfMonth.getDayNumber();
+
+		int month = day > 0 ?
+				date.getMonthValue() - 1 :
+				date.getMonthValue();
+
+		return zone.startOfDay(date.getYear(), month, day);
+	}
+
+	/**
+	 * As a Calendar with weeks starting on Monday and a minimum of 7 days
+	 * in the first week resolves a week of the month.
+	 */
+	private static long startOfWeekOfMonth(ZonedMillis zone, LocalDate date,
+			WeekOfMonth week) {
+
+		int weekNumber = week.getWeekNumber();
+
+		int month = weekNumber < 0 ?
+				date.getMonthValue() :
+				date.getMonthValue() - 1;
+
+		long firstOfMonth = ZonedMillis.lenientDate(
+				date.getYear(), month, 1).toEpochDay();
+
+		long firstMonday = ZonedMillis.dayOfWeekOnOrBefore(firstOfMonth + 6, 1);
+
+		return zone.startOfDay(firstMonday + 7L * (weekNumber - 1));
+	}
+
+	/**
+	 * As a Calendar resolves a day of week in the month.
+	 */
+	private static long dayOfWeekInMonth(ZonedMillis zone, LocalDate date,
+			DayOfWeek dayOfWeek, WeekOfMonth week) {
+
+		int weekNumber = week.getWeekNumber();
+		int isoDay = dayOfWeek.getDayNumber();
+
+		LocalDate firstOfMonth = date.withDayOfMonth(1);
+		long first = firstOfMonth.toEpochDay();
+
+		long day;
+		if (weekNumber >= 0) {
+			day = ZonedMillis.dayOfWeekOnOrBefore(
+					first + 7L * weekNumber - 1, isoDay);
+		}
+		else {
+			int lastDate = firstOfMonth.lengthOfMonth() + 7 * (weekNumber + 1);
+			day = ZonedMillis.dayOfWeekOnOrBefore(first + lastDate - 1, isoDay);
+		}
+
+		return zone.startOfDay(day);
+	}
+}
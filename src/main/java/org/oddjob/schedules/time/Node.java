@@ -0,0 +1,18 @@
+package org.oddjob.schedules.time;
+
+/**
+ * A schedule compiled for evaluation on epoch milliseconds.
+ */
+interface Node {
+
+	/**
+	 * Provide the next due interval.
+	 *
+	 * @param evaluation The evaluation this is part of.
+	 * @param now The time to evaluate from.
+	 * @param parent The parent interval. May be null.
+	 *
+	 * @return The next due interval or null if never due again.
+	 */
+	Span nextDue(Evaluation evaluation, long now, Span parent);
+}
@@ -0,0 +1,111 @@
+package org.oddjob.schedules.time;
+
+/**
+ * The equivalent of {@link org.oddjob.schedules.schedules.ParentChildSchedule}
+ * for compiled schedules.
+ */
+final class ParentChild {
+
+	/**
+	 * Provides the intervals of the parent.
+	 */
+	interface Intervals {
+
+		/**
+		 * @return The interval for the time or null.
+		 */
+		Span intervalFor(long now);
+	}
+
+	private ParentChild() {
+	}
+
+	/**
+	 * Provides the next due interval for the parent and child.
+	 *
+	 * @param evaluation The evaluation.
+	 * @param now The time being evaluated.
+	 * @param contextParent The parent interval of the context. May be null.
+	 * @param parent The parent intervals.
+	 * @param child The child. May be null.
+	 *
+	 * @return The next due interval or null.
+	 */
+	static Span nextDue(Evaluation evaluation, long now, Span contextParent,
+			Intervals parent, Node child) {
+
+		Span parentResult = limitedParentResult(now, contextParent, parent);
+
+		if (parentResult == null) {
+			return null;
+		}
+
+		if (child == null) {
+			return parentResult;
+		}
+
+		Span childResult = childResult(evaluation, now, parentResult, child);
+
+		if (childResult != null) {
+			if (childResult.useNext == Span.NEVER) {
+				return childResult.useNext(childResult.to);
+			}
+			else {
+				return childResult;
+			}
+		}
+
+		parentResult = limitedParentResult(parentResult.to, contextParent, parent);
+
+		if (parentResult == null) {
+			return null;
+		}
+
+		childResult = childResult(evaluation, now, parentResult, child);
+
+		if (childResult != null && childResult.useNext == Span.NEVER) {
+			return childResult.useNext(childResult.to);
+		}
+		else {
+			return childResult;
+		}
+	}
+
+	private static Span limitedParentResult(long now, Span contextParent,
+			Intervals parent) {
+
+		Span parentInterval = parent.intervalFor(now);
+
+		if (parentInterval == null) {
+			return null;
+		}
+
+		if (contextParent != null &&
+				!contextParent.containsStartOf(parentInterval)) {
+
+			// One more try. Maybe the child interval was an eager refinement.
+			parentInterval = parent.intervalFor(parentInterval.to);
+
+			if (parentInterval == null) {
+				return null;
+			}
+
+			if (!contextParent.containsStartOf(parentInterval)) {
+				return null;
+			}
+		}
+
+		return parentInterval;
+	}
+
+	private static Span childResult(Evaluation evaluation, long now,
+			Span parentInterval, Node child) {
+
+		if (now < parentInterval.from) {
+			return child.nextDue(evaluation, parentInterval.from, parentInterval);
+		}
+		else {
+			return child.nextDue(evaluation, now, parentInterval);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package org.oddjob.schedules.time;
+
+import org.oddjob.schedules.Interval;
+import org.oddjob.schedules.ScheduleResult;
+import org.oddjob.schedules.SimpleInterval;
+import org.oddjob.schedules.SimpleScheduleResult;
+
+import java.util.Date;
+
+/**
+ * An interval, or a schedule result, in epoch milliseconds.
+ */
+final class Span {
+
+	/** The use next value of a result that is never due again. */
+	static final long NEVER = Long.MIN_VALUE;
+
+	final long from;
+
+	final long to;
+
+	final long useNext;
+
+	/**
+	 * An interval, which as a result would be used next from its end. The
+	 * interval is checked as a {@link SimpleInterval} would be.
+	 */
+	Span(long from, long to) {
+		this(from, to, to);
+		if (to <= from) {
+			throw new IllegalStateException("Interval " + new Date(from) +
+					" to " + new Date(to) + " must have a from date before the to date");
+		}
+	}
+
+	/**
+	 * A result.
+	 */
+	Span(long from, long to, long useNext) {
+		this.from = from;
+		this.to = to;
+		this.useNext = useNext;
+	}
+
+	/**
+	 * This result used next from a different time.
+	 */
+	Span useNext(long useNext) {
+		return new Span(from, to, useNext);
+	}
+
+	/**
+	 * Does this interval contain the start of the other, as an
+	 * {@link org.oddjob.schedules.IntervalHelper} limit would require.
+	 */
+	boolean containsStartOf(Span other) {
+		return other.from >= from && other.from < to;
+	}
+
+	static Span of(Interval interval) {
+		long to = interval.getToDate().getTime();
+		return new Span(interval.getFromDate().getTime(), to, to);
+	}
+
+	static Span of(ScheduleResult result) {
+		Date useNext = result.getUseNext();
+		return new Span(result.getFromDate().getTime(),
+				result.getToDate().getTime(),
+				useNext == null ? NEVER : useNext.getTime());
+	}
+
+	Interval toInterval() {
+		return new SimpleInterval(from, to);
+	}
+
+	ScheduleResult toScheduleResult() {
+		return new SimpleScheduleResult(toInterval(),
+				useNext == NEVER ? null : new Date(useNext));
+	}
+}
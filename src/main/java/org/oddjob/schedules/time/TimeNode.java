@@ -0,0 +1,154 @@
+package org.oddjob.schedules.time;
+
+import org.oddjob.schedules.Interval;
+
+/**
+ * A compiled {@link org.oddjob.schedules.schedules.TimeSchedule}.
+ */
+final class TimeNode implements Node {
+
+	private static final long START_OF_TIME = Interval.START_OF_TIME.getTime();
+
+	private static final long END_OF_TIME = Interval.END_OF_TIME.getTime();
+
+	/** Null for the start of the parent interval. */
+	private final TimeOfDay from;
+
+	/** Null for the end of the parent interval. */
+	private final TimeOfDay to;
+
+	private final Node refinement;
+
+	TimeNode(TimeOfDay from, TimeOfDay to, Node refinement) {
+		this.from = from;
+		this.to = to;
+		this.refinement = refinement;
+	}
+
+	private long from(ZonedMillis zone, long now, Span parent) {
+		if (from == null) {
+			if (parent == null) {
+				return START_OF_TIME;
+			}
+			else {
+				return zone.startOfDay(zone.epochDay(parent.from));
+			}
+		}
+		else {
+			return from.on(zone, parent == null ? now : parent.from);
+		}
+	}
+
+	private long to(ZonedMillis zone, long now, Span parent) {
+		if (to == null) {
+			if (parent == null) {
+				return END_OF_TIME;
+			}
+			else {
+				return zone.startOfDay(zone.epochDay(parent.to - 1) + 1);
+			}
+		}
+		else {
+			return to.on(zone, parent == null ? now : parent.from);
+		}
+	}
+
+	private static long now(long now, Span parent) {
+		if (parent != null) {
+			if (parent.to <= now) {
+				return parent.to - 1;
+			}
+			else if (parent.from > now) {
+				return parent.from;
+			}
+		}
+		return now;
+	}
+
+	private Span nextInterval(ZonedMillis zone, long now, Span parent) {
+
+		long from = from(zone, now, parent);
+		long to = to(zone, now, parent);
+
+		if (from == to) {
+			++to;
+		}
+
+		if (from > to && to != START_OF_TIME) {
+			to = zone.addDays(to, 1);
+		}
+
+		if (now(now, parent) >= to) {
+			return null;
+		}
+
+		return new Span(from, to);
+	}
+
+	private Span lastInterval(ZonedMillis zone, long now, Span parent) {
+
+		long from = from(zone, now, parent);
+		long to = to(zone, now, parent);
+
+		if (from == to) {
+			++to;
+		}
+
+		if (from > to && from != START_OF_TIME) {
+			from = zone.addDays(from, -1);
+		}
+
+		if (now(now, parent) < to) {
+			return null;
+		}
+
+		return new Span(from, to);
+	}
+
+	@Override
+	public Span nextDue(Evaluation evaluation, long now, Span parent) {
+
+		ZonedMillis zone = evaluation.zone;
+
+		Span thisNextInterval = nextInterval(zone, now, parent);
+
+		Span thisInterval = thisNextInterval;
+		Span nextResult = null;
+
+		if (thisNextInterval != null) {
+			nextResult = ParentChild.nextDue(evaluation, now, parent,
+					time -> thisNextInterval, refinement);
+		}
+
+		// Maybe we are beyond the interval but still in the interval of
+		// a child (because a child interval could extend beyond the limit
+		// of it's parent).
+		if ((nextResult == null || now < nextResult.from) &&
+				(to != null && refinement != null)) {
+
+			Span thisPreviousInterval = lastInterval(zone, now, parent);
+
+			if (thisPreviousInterval != null) {
+
+				Span previous = ParentChild.nextDue(evaluation, now, parent,
+						time -> thisPreviousInterval, refinement);
+
+				if (previous != null && now < previous.to) {
+					nextResult = previous;
+					thisInterval = thisPreviousInterval;
+				}
+			}
+		}
+
+		if (nextResult == null) {
+			return null;
+		}
+
+		if (thisInterval.to <= nextResult.to) {
+			// time is a once only schedule.
+			nextResult = nextResult.useNext(Span.NEVER);
+		}
+
+		return nextResult;
+	}
+}
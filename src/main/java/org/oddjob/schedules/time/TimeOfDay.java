@@ -0,0 +1,69 @@
+package org.oddjob.schedules.time;
+
+import org.oddjob.arooa.utils.SpringSafeCalendar;
+import org.oddjob.arooa.utils.TimeParser;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * A time property of a schedule, such as <code>10:00</code>, as an offset
+ * from the start of the day. The text is parsed once with the same parser
+ * the schedules use.
+ */
+final class TimeOfDay {
+
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	/** A reference with a time of day so that any part of it that the
+	 * parser keeps is noticed. */
+	private static final long REFERENCE_DAY = 10;
+
+	private static final long REFERENCE_TIME = 13 * 3_600_000L + 27 * 60_000L + 45_123L;
+
+	private final long offset;
+
+	private TimeOfDay(long offset) {
+		this.offset = offset;
+	}
+
+	/**
+	 * Parse the text.
+	 *
+	 * @param text The text.
+	 *
+	 * @return The time of day, or null if the text isn't one that can be
+	 * compiled, in which case the schedule must be evaluated as it always
+	 * was, so that any failure happens as it always would.
+	 */
+	static TimeOfDay parse(String text) {
+		if (text == null) {
+			return null;
+		}
+		try {
+			long first = parse(text, 0L);
+			long reference = REFERENCE_DAY * ZonedMillis.DAY + REFERENCE_TIME;
+			long second = parse(text, reference) - REFERENCE_DAY * ZonedMillis.DAY;
+			if (first != second) {
+				return null;
+			}
+			return new TimeOfDay(first);
+		}
+		catch (ParseException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static long parse(String text, long reference) throws ParseException {
+		return new TimeParser(new SpringSafeCalendar(new Date(reference), UTC))
+				.parse(text).getTime();
+	}
+
+	/**
+	 * The time on the day of the reference time.
+	 */
+	long on(ZonedMillis zone, long reference) {
+		return zone.resolve(zone.epochDay(reference) * ZonedMillis.DAY + offset);
+	}
+}
@@ -0,0 +1,53 @@
+package org.oddjob.schedules.time;
+
+import org.oddjob.schedules.units.DayOfWeek;
+
+/**
+ * A compiled {@link org.oddjob.schedules.schedules.WeeklySchedule}.
+ */
+final class WeeklyNode extends ConstrainedNode {
+
+	/** Null for the start of the week. */
+	private final DayOfWeek from;
+
+	/** Null for the end of the week. */
+	private final DayOfWeek to;
+
+	WeeklyNode(DayOfWeek from, DayOfWeek to, Node refinement) {
+		super(refinement);
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	long from(ZonedMillis zone, long reference) {
+		long day = zone.epochDay(reference);
+		if (from == null) {
+			return zone.startOfDay(day - ZonedMillis.isoDayOfWeek(day) + 1);
+		}
+		else {
+			return dayOfWeek(zone, day, from);
+		}
+	}
+
+	@Override
+	long to(ZonedMillis zone, long reference) {
+		long day = zone.epochDay(reference);
+		if (to == null) {
+			return zone.startOfDay(day + 8 - ZonedMillis.isoDayOfWeek(day));
+		}
+		else {
+			return zone.endOfDay(dayOfWeek(zone, day, to));
+		}
+	}
+
+	@Override
+	long shift(ZonedMillis zone, long time, int intervals) {
+		return zone.addDays(time, 7 * intervals);
+	}
+
+	private static long dayOfWeek(ZonedMillis zone, long day, DayOfWeek dayOfWeek) {
+		return zone.addDays(zone.startOfDay(day),
+				dayOfWeek.getDayNumber() - ZonedMillis.isoDayOfWeek(day));
+	}
+}
@@ -0,0 +1,84 @@
+package org.oddjob.schedules.time;
+
+import org.oddjob.schedules.schedules.YearlySchedule;
+import org.oddjob.schedules.units.Month;
+
+import java.time.LocalDate;
+import java.util.regex.Matcher;
+
+/**
+ * A compiled {@link YearlySchedule}.
+ */
+final class YearlyNode extends ConstrainedNode {
+
+	/** Month and day or null. */
+	private final int[] fromDate;
+
+	/** Month and day or null. */
+	private final int[] toDate;
+
+	private final Month fromMonth;
+
+	private final Month toMonth;
+
+	YearlyNode(int[] fromDate, int[] toDate, Month fromMonth, Month toMonth,
+			Node refinement) {
+		super(refinement);
+		this.fromDate = fromDate;
+		this.toDate = toDate;
+		this.fromMonth = fromMonth;
+		this.toMonth = toMonth;
+	}
+
+	/**
+	 * Parse a day of the year as the schedule does.
+	 *
+	 * @return The month and day, or null if the text isn't valid, in
+	 * which case the schedule must be evaluated as it always was.
+	 */
+	static int[] parseDay(String text) {
+		Matcher matcher = YearlySchedule.DAY_FORMAT.matcher(text);
+		if (!matcher.matches()) {
+			return null;
+		}
+		return new int[] {
+				Integer.parseInt(matcher.group(1)),
+				Integer.parseInt(matcher.group(2)) };
+	}
+
+	@Override
+	long from(ZonedMillis zone, long reference) {
+		int year = zone.date(reference).getYear();
+		if (fromDate != null) {
+			return zone.startOfDay(year, fromDate[0] - 1, fromDate[1]);
+		}
+		else if (fromMonth != null) {
+			return zone.startOfDay(year, fromMonth.getMonthNumber() - 1, 1);
+		}
+		else {
+			return zone.startOfDay(year, 0, 1);
+		}
+	}
+
+	@Override
+	long to(ZonedMillis zone, long reference) {
+		int year = zone.date(reference).getYear();
+		if (toDate != null) {
+			return zone.endOfDay(
+					zone.startOfDay(year, toDate[0] - 1, toDate[1]));
+		}
+		else if (toMonth != null) {
+			LocalDate month = zone.date(zone.startOfDay(
+					year, toMonth.getMonthNumber() - 1, 1));
+			return zone.startOfDay(month.getYear(), month.getMonthValue(), 1);
+		}
+		else {
+			return zone.startOfDay(year + 1, 0, 1);
+		}
+	}
+
+	@Override
+	long shift(ZonedMillis zone, long time, int intervals) {
+		return zone.addMonths(time, 12 * intervals);
+	}
+}
@@ -0,0 +1,195 @@
+package org.oddjob.schedules.time;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Calendar arithmetic on epoch milliseconds for a time zone. Each method
+ * gives exactly the same result as the equivalent {@link java.util.Calendar}
+ * operation used by the schedules, including the way
+ * {@link java.util.GregorianCalendar} resolves a local time that falls in a
+ * daylight saving gap or overlap, but without creating any calendars.
+ * <p>
+ * Local times are held as 'wall' milliseconds, the epoch milliseconds the
+ * local date and time would have in UTC.
+ */
+final class ZonedMillis {
+
+	static final long DAY = 86_400_000L;
+
+	/**
+	 * Calendars use the Julian calendar and local mean time long ago, and
+	 * time zone rules may be extended differently into the future, so
+	 * only instants in these years are supported.
+	 */
+	static final long EARLIEST = LocalDate.of(1902, 1, 1).toEpochDay() * DAY;
+
+	static final long LATEST = LocalDate.of(2036, 1, 1).toEpochDay() * DAY;
+
+	private final ZoneRules rules;
+
+	private final boolean fixed;
+
+	/** The offset in milliseconds if the zone has a fixed offset. */
+	private final int fixedOffset;
+
+	ZonedMillis(ZoneRules rules) {
+		this.rules = rules;
+		this.fixed = rules.isFixedOffset();
+		this.fixedOffset = rules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000;
+	}
+
+	/**
+	 * The offset from UTC at an instant.
+	 */
+	int offset(long millis) {
+		if (millis < EARLIEST || millis >= LATEST) {
+			throw OutOfRange.INSTANCE;
+		}
+		if (fixed) {
+			return fixedOffset;
+		}
+		return rules.getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000;
+	}
+
+	/**
+	 * The wall time of an instant.
+	 */
+	long wall(long millis) {
+		return millis + offset(millis);
+	}
+
+	/**
+	 * The local epoch day of an instant.
+	 */
+	long epochDay(long millis) {
+		return Math.floorDiv(wall(millis), DAY);
+	}
+
+	/**
+	 * The local date of an instant.
+	 */
+	LocalDate date(long millis) {
+		return LocalDate.ofEpochDay(epochDay(millis));
+	}
+
+	/**
+	 * The instant of a wall time. A time in a gap is moved forward by the
+	 * length of the gap and a time in an overlap is taken as the later
+	 * instant, as a lenient Calendar does.
+	 */
+	long resolve(long wall) {
+		if (wall < EARLIEST || wall >= LATEST) {
+			throw OutOfRange.INSTANCE;
+		}
+		if (fixed) {
+			return wall - fixedOffset;
+		}
+		LocalDateTime local = LocalDateTime.ofEpochSecond(
+				Math.floorDiv(wall, 1000L),
+				(int) Math.floorMod(wall, 1000L) * 1_000_000,
+				ZoneOffset.UTC);
+		ZoneOffsetTransition transition = rules.getTransition(local);
+		ZoneOffset offset;
+		if (transition == null) {
+			offset = rules.getOffset(local);
+		}
+		else if (transition.isGap()) {
+			offset = transition.getOffsetBefore();
+		}
+		else {
+			offset = transition.getOffsetAfter();
+		}
+		return wall - offset.getTotalSeconds() * 1000L;
+	}
+
+	/**
+	 * The start of a local day.
+	 */
+	long startOfDay(long epochDay) {
+		return resolve(epochDay * DAY);
+	}
+
+	/**
+	 * The start of a day given leniently as a Calendar would accept it, so
+	 * months beyond December and days beyond or before the month roll into
+	 * the neighbouring month.
+	 *
+	 * @param year The year.
+	 * @param month The zero based month.
+	 * @param day The day of the month.
+	 */
+	long startOfDay(int year, int month, int day) {
+		return startOfDay(lenientDate(year, month, day).toEpochDay());
+	}
+
+	/**
+	 * Add days keeping the wall time, as {@code Calendar.add(DATE, days)}.
+	 */
+	long addDays(long millis, int days) {
+		int offset = offset(millis);
+		long wall = millis + offset;
+		long day = Math.floorDiv(wall, DAY) + days;
+		long time = day * DAY + Math.floorMod(wall, DAY) - offset;
+		int change = offset - offset(time);
+		if (change != 0 && epochDay(time + change) == day) {
+			time += change;
+		}
+		return time;
+	}
+
+	/**
+	 * Add months keeping the wall time, pinning the day to the end of
+	 * shorter months, as {@code Calendar.add(MONTH, months)}.
+	 */
+	long addMonths(long millis, int months) {
+		long wall = wall(millis);
+		LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(wall, DAY))
+				.plusMonths(months);
+		return resolve(date.toEpochDay() * DAY + Math.floorMod(wall, DAY));
+	}
+
+	/**
+	 * The start of the day after the day of an instant, as
+	 * {@code CalendarUtils.setEndOfDay}.
+	 */
+	long endOfDay(long millis) {
+		return startOfDay(epochDay(addDays(millis, 1)));
+	}
+
+	static LocalDate lenientDate(int year, int month, int day) {
+		return LocalDate.of(year, 1, 1).plusMonths(month).plusDays(day - 1L);
+	}
+
+	/**
+	 * The ISO day of week, Monday is 1.
+	 */
+	static int isoDayOfWeek(long epochDay) {
+		return (int) Math.floorMod(epochDay + 3, 7L) + 1;
+	}
+
+	/**
+	 * The epoch day of the day of the week on or before an epoch day.
+	 */
+	static long dayOfWeekOnOrBefore(long epochDay, int isoDayOfWeek) {
+		return epochDay - Math.floorMod(isoDayOfWeek(epochDay) - isoDayOfWeek, 7);
+	}
+
+	/**
+	 * Thrown when a calculation needs an instant that isn't supported, so
+	 * that a Calendar can be used instead.
+	 */
+	static final class OutOfRange extends RuntimeException {
+		private static final long serialVersionUID = 2026101800L;
+
+		static final OutOfRange INSTANCE = new OutOfRange();
+
+		private OutOfRange() {
+			super("Out of the supported range of years.", null, false, false);
+		}
+	}
+}
@@ -19,11 +19,21 @@ public class DefaultExecutors implements OddjobExecutors, Stoppable {
 	
 	public static final String POOL_SIZE_PROPERTY = "oddjob.executors.default.poolsize";
 	
+	public static final String TIMING_WHEEL_PROPERTY = "oddjob.executors.default.timingwheel";
+	
+	public static final String VIRTUAL_THREADS_PROPERTY = "oddjob.executors.default.virtualthreads";
+	
 	private volatile ThreadFactory threadFactory;
 	
 	/** The pool size for the {@link ScheduledExecutorService}. */
 	private volatile int poolSize;
 	
+	/** Use a {@link HashedWheelScheduledExecutor} for the scheduler. */
+	private volatile boolean timingWheel;
+	
+	/** Use a virtual thread per task for the pool executor. */
+	private volatile boolean virtualThreads;
+	
 	/** share Executor and Scheduled services. */
 	private volatile boolean shareServices;
 
@@ -40,7 +50,10 @@ public class DefaultExecutors implements OddjobExecutors, Stoppable {
 	 * Create a new instance. The scheduler is initialised with a 
 	 * fixed pool size that is either from the system property
 	 * or based on the number of available processors discovered at
-	 * runtime. The pool size can also be set by the property.
+	 * runtime. The pool size can also be set by the property. A timing
+	 * wheel scheduler will be used if the timing wheel system property
+	 * is true, and virtual threads for the pool executor if the virtual
+	 * threads system property is true.
 	 */
 	public DefaultExecutors() {
 		String poolSizeString = System.getProperty(POOL_SIZE_PROPERTY);
@@ -50,6 +63,8 @@ public class DefaultExecutors implements OddjobExecutors, Stoppable {
 		else {
 			poolSize = Integer.parseInt(poolSizeString);
 		}		
+		timingWheel = Boolean.getBoolean(TIMING_WHEEL_PROPERTY);
+		virtualThreads = Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY);
 	}
 		
 	/**
@@ -119,10 +134,19 @@ public class DefaultExecutors implements OddjobExecutors, Stoppable {
 		
 		if (scheduledExecutorService == null) {
 			
-			logger.info("Starting Scheduled Executor with " + poolSize + " threads.");
-			
-			scheduledExecutorService = new OddjobScheduledExecutorService(
-					new ScheduledThreadPoolExecutor(poolSize, getThreadFactory()));
+			if (timingWheel) {
+				logger.info("Starting Timing Wheel Scheduled Executor with " + 
+						poolSize + " threads.");
+				
+				scheduledExecutorService = new HashedWheelScheduledExecutor(
+						poolSize, getThreadFactory());
+			}
+			else {
+				logger.info("Starting Scheduled Executor with " + poolSize + " threads.");
+				
+				scheduledExecutorService = new OddjobScheduledExecutorService(
+						new ScheduledThreadPoolExecutor(poolSize, getThreadFactory()));
+			}
 		}
 		
 		return scheduledExecutorService;		
@@ -135,6 +159,20 @@ public class DefaultExecutors implements OddjobExecutors, Stoppable {
 	 */
 	private synchronized ExecutorService startPoolExecutorOnFirstRequest() {
 
+		if (poolExecutorService == null && virtualThreads) {
+			
+			if (VirtualThreads.isSupported()) {
+				logger.info("Starting Virtual Thread Pool Executor.");
+				
+				poolExecutorService = VirtualThreads.newThreadPerTaskExecutor(
+						new OddjobThreadFactory(poolBaseName, true));
+			}
+			else {
+				logger.warn("Virtual threads aren't supported by this version of Java, " +
+						"Pool Executor will use platform threads.");
+			}
+		}
+		
 		if (poolExecutorService == null) {
 
 			logger.info("Starting Pool Executor.");
@@ -168,6 +206,41 @@ public class DefaultExecutors implements OddjobExecutors, Stoppable {
 		this.poolSize = poolSize;
 	}
 
+	public boolean isTimingWheel() {
+		return timingWheel;
+	}
+
+	/**
+	 * Use a hashed timing wheel for the scheduled executor instead of a 
+	 * {@link ScheduledThreadPoolExecutor}. This is quicker to schedule and
+	 * cancel when there are very many timers, but timers may be up to 
+	 * a tick late. Must be set before the scheduled executor is first 
+	 * requested.
+	 * 
+	 * @param timingWheel true to use a timing wheel.
+	 */
+	public void setTimingWheel(boolean timingWheel) {
+		this.timingWheel = timingWheel;
+	}
+
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Run each task given to the pool executor in a new virtual thread
+	 * instead of in a thread from a pool of platform threads. This allows
+	 * very many blocking jobs to run in parallel. Virtual threads need 
+	 * Java 21 or later, platform threads will be used on earlier versions.
+	 * This has no effect if services are shared. Must be set before the
+	 * pool executor is first requested.
+	 * 
+	 * @param virtualThreads true to use virtual threads.
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
 	public boolean isShareServices() {
 		return shareServices;
 	}
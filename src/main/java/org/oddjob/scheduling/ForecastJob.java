@@ -0,0 +1,301 @@
+package org.oddjob.scheduling;
+
+import org.oddjob.Structural;
+import org.oddjob.arooa.deploy.annotations.ArooaAttribute;
+import org.oddjob.arooa.utils.DateHelper;
+import org.oddjob.framework.extend.SimpleJob;
+import org.oddjob.schedules.ScheduleResult;
+import org.oddjob.structural.ChildHelper;
+import org.oddjob.util.Clock;
+import org.oddjob.util.DefaultClock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * @oddjob.description Forecast how many times the timers in a tree of jobs
+ * will fire over a period. The period is divided into equal intervals and
+ * the number of timer executions due in each is counted, giving a
+ * histogram of the load to expect.
+ * <p>
+ * Every {@link Timer} found in the tree is included, including timers in
+ * nested Oddjobs that are loaded. Each timer's schedule is evaluated from
+ * the start of the period as the timer would evaluate it, but without
+ * changing the timer. An execution that is due before the start of the
+ * period but whose interval hasn't ended is counted in the first
+ * interval, as a timer would run it immediately.
+ * <p>
+ * The schedules of all the timers are evaluated in parallel.
+ *
+ * @oddjob.example
+ *
+ * Forecast the executions of the timers in this Oddjob for the next day.
+ *
+ * {@oddjob.xml.resource org/oddjob/scheduling/ForecastExample.xml}
+ *
+ * @author Rob Gordon
+ */
+public class ForecastJob extends SimpleJob {
+
+	private static final long DEFAULT_INTERVAL = 60 * 1000L;
+
+	private static final long DEFAULT_PERIOD = 24 * 60 * 60 * 1000L;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The job, or the root of the tree of jobs, to find
+	 * timers in.
+	 * @oddjob.required Yes.
+	 */
+	private volatile Object root;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The start of the period to forecast.
+	 * @oddjob.required No, defaults to the time now.
+	 */
+	private volatile Date from;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The end of the period to forecast, exclusive.
+	 * @oddjob.required No, defaults to one day after the start.
+	 */
+	private volatile Date to;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The length of each interval of the histogram, in
+	 * the format HH:mm:ss.
+	 * @oddjob.required No, defaults to one minute.
+	 */
+	private volatile String interval;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The clock to use. Tells the current time.
+	 * @oddjob.required Set automatically.
+	 */
+	private volatile Clock clock;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of executions in each interval that
+	 * has any, keyed by the start of the interval.
+	 * @oddjob.required Read only.
+	 */
+	private volatile SortedMap<Date, Integer> histogram;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of timers found.
+	 * @oddjob.required Read only.
+	 */
+	private volatile int timers;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The total number of executions forecast.
+	 * @oddjob.required Read only.
+	 */
+	private volatile long executions;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The start of the interval with the most
+	 * executions. Null if there are none.
+	 * @oddjob.required Read only.
+	 */
+	private volatile Date peak;
+
+	/**
+	 * @oddjob.property
+	 * @oddjob.description The number of executions in the peak interval.
+	 * @oddjob.required Read only.
+	 */
+	private volatile int peakExecutions;
+
+	@Override
+	protected int execute() throws Exception {
+
+		Object root = Objects.requireNonNull(this.root, "No root.");
+
+		long from = Objects.requireNonNullElseGet(this.from,
+				() -> getClock().getDate()).getTime();
+		long to = this.to == null ? from + DEFAULT_PERIOD : this.to.getTime();
+		long interval = this.interval == null ?
+				DEFAULT_INTERVAL : DateHelper.parseTime(this.interval);
+
+		if (to <= from) {
+			throw new IllegalArgumentException("To [" + new Date(to) +
+					"] must be after from [" + new Date(from) + "]");
+		}
+		if (interval <= 0) {
+			throw new IllegalArgumentException("Interval must be positive.");
+		}
+
+		long buckets = (to - from + interval - 1) / interval;
+		if (buckets > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many intervals: " + buckets);
+		}
+
+		List<TimerBase> timers = new ArrayList<>();
+		findTimers(root, timers, Collections.newSetFromMap(new IdentityHashMap<>()));
+
+		logger().info("Forecasting {} timers from {} to {}.",
+				timers.size(), new Date(from), new Date(to));
+
+		int[] counts = timers.parallelStream()
+				.collect(() -> new int[(int) buckets],
+						(c, timer) -> forecast(timer, from, to, interval, c),
+						(c1, c2) -> {
+							for (int i = 0; i < c1.length; ++i) {
+								c1[i] += c2[i];
+							}
+						});
+
+		SortedMap<Date, Integer> histogram = new TreeMap<>();
+		long executions = 0;
+		Date peak = null;
+		int peakExecutions = 0;
+
+		for (int i = 0; i < counts.length; ++i) {
+			if (counts[i] == 0) {
+				continue;
+			}
+			Date start = new Date(from + i * interval);
+			histogram.put(start, counts[i]);
+			executions += counts[i];
+			if (counts[i] > peakExecutions) {
+				peak = start;
+				peakExecutions = counts[i];
+			}
+		}
+
+		this.histogram = Collections.unmodifiableSortedMap(histogram);
+		this.timers = timers.size();
+		this.executions = executions;
+		this.peak = peak;
+		this.peakExecutions = peakExecutions;
+
+		logger().info("Forecast {} executions, peak of {} at {}.",
+				executions, peakExecutions, peak);
+
+		return 0;
+	}
+
+	@Override
+	protected void onReset() {
+		histogram = null;
+		timers = 0;
+		executions = 0;
+		peak = null;
+		peakExecutions = 0;
+	}
+
+	/**
+	 * Find the timers in a tree.
+	 */
+	static void findTimers(Object component, List<TimerBase> timers,
+			Set<Object> seen) {
+		if (!seen.add(component)) {
+			return;
+		}
+		if (component instanceof Timer &&
+				((Timer) component).getSchedule() != null) {
+			timers.add((Timer) component);
+		}
+		if (component instanceof Structural) {
+			for (Object child : ChildHelper.getChildren((Structural) component)) {
+				findTimers(child, timers, seen);
+			}
+		}
+	}
+
+	/**
+	 * Add the executions of one timer to the counts.
+	 */
+	static void forecast(TimerBase timer, long from, long to, long interval,
+			int[] counts) {
+
+		for (ScheduleResult result : timer.occurrencesFrom(new Date(from))
+				.until(new Date(to))) {
+
+			long due = Math.max(result.getFromDate().getTime(), from);
+
+			++counts[(int) ((due - from) / interval)];
+		}
+	}
+
+	public Object getRoot() {
+		return root;
+	}
+
+	@ArooaAttribute
+	public void setRoot(Object root) {
+		this.root = root;
+	}
+
+	public Date getFrom() {
+		return from;
+	}
+
+	public void setFrom(Date from) {
+		this.from = from;
+	}
+
+	public Date getTo() {
+		return to;
+	}
+
+	public void setTo(Date to) {
+		this.to = to;
+	}
+
+	public String getInterval() {
+		return interval;
+	}
+
+	public void setInterval(String interval) {
+		this.interval = interval;
+	}
+
+	public Clock getClock() {
+		if (clock == null) {
+			clock = new DefaultClock();
+		}
+		return clock;
+	}
+
+	public void setClock(Clock clock) {
+		this.clock = clock;
+	}
+
+	public Map<Date, Integer> getHistogram() {
+		return histogram;
+	}
+
+	public int getTimers() {
+		return timers;
+	}
+
+	public long getExecutions() {
+		return executions;
+	}
+
+	public Date getPeak() {
+		return peak;
+	}
+
+	public int getPeakExecutions() {
+		return peakExecutions;
+	}
+}
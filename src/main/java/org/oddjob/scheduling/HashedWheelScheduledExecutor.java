@@ -0,0 +1,492 @@
+package org.oddjob.scheduling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ScheduledExecutorService} that keeps scheduled tasks in a hashed
+ * timing wheel instead of the binary heap of a
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor}.
+ * <p>
+ * Scheduling and cancelling only add the task to a lock free queue, so they
+ * don't contend on a lock or depend on how many tasks are scheduled. A
+ * single wheel thread moves new tasks into the bucket for their deadline,
+ * removes cancelled tasks, and on every tick hands the tasks that are due
+ * to a fixed pool of threads to run.
+ * <p>
+ * A task will run up to one tick after its deadline, so this is suited to
+ * many timers with delays much longer than the tick, as Oddjob's timers
+ * are. Tasks still waiting when the executor is shut down are cancelled.
+ */
+public class HashedWheelScheduledExecutor extends AbstractExecutorService
+implements ScheduledExecutorService {
+	private static final Logger logger = LoggerFactory.getLogger(HashedWheelScheduledExecutor.class);
+
+	public static final long DEFAULT_TICK_MILLIS = 10;
+
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	/** Runs the tasks that are due. */
+	private final ThreadPoolExecutor workers;
+
+	private final long tickNanos;
+
+	private final Bucket[] wheel;
+
+	private final int mask;
+
+	/** Tasks waiting to be put in the wheel. */
+	private final Queue<WheelTask<?>> newTasks = new ConcurrentLinkedQueue<>();
+
+	/** Tasks waiting to be taken out of the wheel. */
+	private final Queue<WheelTask<?>> cancelledTasks = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger scheduled = new AtomicInteger();
+
+	private final Thread wheelThread;
+
+	private volatile boolean shutdown;
+
+	/** The nano time of tick 0. */
+	private final long startNanos;
+
+	/** Only used by the wheel thread. */
+	private long tick;
+
+	/**
+	 * Create a new instance with the default tick and wheel size.
+	 *
+	 * @param poolSize The number of threads to run tasks with.
+	 * @param threadFactory The factory for the wheel and pool threads.
+	 */
+	public HashedWheelScheduledExecutor(int poolSize, ThreadFactory threadFactory) {
+		this(poolSize, threadFactory, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS,
+				DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param poolSize The number of threads to run tasks with.
+	 * @param threadFactory The factory for the wheel and pool threads.
+	 * @param tickDuration The time between ticks.
+	 * @param unit The unit of the tick duration.
+	 * @param wheelSize The number of buckets, rounded up to a power of 2.
+	 */
+	public HashedWheelScheduledExecutor(int poolSize, ThreadFactory threadFactory,
+			long tickDuration, TimeUnit unit, int wheelSize) {
+		if (poolSize < 1) {
+			throw new IllegalArgumentException("Pool size must be at least 1.");
+		}
+		if (tickDuration < 1) {
+			throw new IllegalArgumentException("Tick duration must be positive.");
+		}
+		if (wheelSize < 1 || wheelSize > 1 << 30) {
+			throw new IllegalArgumentException("Wheel size out of range.");
+		}
+		if (threadFactory == null) {
+			threadFactory = Executors.defaultThreadFactory();
+		}
+
+		int size = Integer.highestOneBit(wheelSize);
+		if (size < wheelSize) {
+			size <<= 1;
+		}
+		this.wheel = new Bucket[size];
+		for (int i = 0; i < size; ++i) {
+			wheel[i] = new Bucket();
+		}
+		this.mask = size - 1;
+		this.tickNanos = unit.toNanos(tickDuration);
+
+		this.workers = new ThreadPoolExecutor(poolSize, poolSize,
+				0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+				threadFactory);
+
+		this.startNanos = System.nanoTime();
+		this.wheelThread = threadFactory.newThread(this::turn);
+		this.wheelThread.start();
+	}
+
+	/**
+	 * The loop of the wheel thread.
+	 */
+	private void turn() {
+		while (!shutdown) {
+
+			long tickDeadline = startNanos + tickNanos * (tick + 1);
+
+			for (long wait = tickDeadline - System.nanoTime(); wait > 0 && !shutdown;
+					wait = tickDeadline - System.nanoTime()) {
+				LockSupport.parkNanos(this, wait);
+			}
+			if (shutdown) {
+				break;
+			}
+
+			removeCancelled();
+			placeNew();
+			expire(wheel[(int) (tick & mask)], tickDeadline);
+
+			++tick;
+		}
+		logger.debug("Wheel thread stopped after {} ticks.", tick);
+	}
+
+	private void removeCancelled() {
+		for (WheelTask<?> task = cancelledTasks.poll(); task != null;
+				task = cancelledTasks.poll()) {
+			if (task.bucket != null) {
+				task.bucket.remove(task);
+				scheduled.decrementAndGet();
+			}
+		}
+	}
+
+	private void placeNew() {
+		for (WheelTask<?> task = newTasks.poll(); task != null;
+				task = newTasks.poll()) {
+			if (task.isCancelled()) {
+				scheduled.decrementAndGet();
+				continue;
+			}
+			long ticksFromStart = (task.deadline - startNanos) / tickNanos;
+			task.remainingRounds = (ticksFromStart - tick) / wheel.length;
+			// Anything already due goes in this tick's bucket.
+			long ticks = Math.max(ticksFromStart, tick);
+			wheel[(int) (ticks & mask)].add(task);
+		}
+	}
+
+	private void expire(Bucket bucket, long tickDeadline) {
+		WheelTask<?> task = bucket.head;
+		while (task != null) {
+			WheelTask<?> next = task.next;
+			if (task.remainingRounds <= 0 && task.deadline <= tickDeadline) {
+				bucket.remove(task);
+				scheduled.decrementAndGet();
+				try {
+					workers.execute(task);
+				}
+				catch (RejectedExecutionException e) {
+					task.cancel(false);
+				}
+			}
+			else {
+				--task.remainingRounds;
+			}
+			task = next;
+		}
+	}
+
+	private <V> WheelTask<V> enqueue(WheelTask<V> task, long delayNanos) {
+		if (shutdown) {
+			throw new RejectedExecutionException("Executor is shut down.");
+		}
+		if (delayNanos <= 0) {
+			workers.execute(task);
+		}
+		else if (!offerNew(task)) {
+			throw new RejectedExecutionException("Executor is shut down.");
+		}
+		return task;
+	}
+
+	private void reschedule(WheelTask<?> task) {
+		if (shutdown) {
+			task.cancel(false);
+		}
+		else {
+			offerNew(task);
+		}
+	}
+
+	/**
+	 * Add a task for the wheel thread to place. A shutdown may drain the
+	 * wheel between checking for shutdown and the offer, so the check is
+	 * made again after. If the task is still there it was missed by the
+	 * drain and it is cancelled here instead.
+	 *
+	 * @return false if the task was cancelled because of a shutdown.
+	 */
+	private boolean offerNew(WheelTask<?> task) {
+		scheduled.incrementAndGet();
+		newTasks.offer(task);
+		if (shutdown && newTasks.remove(task)) {
+			scheduled.decrementAndGet();
+			task.cancel(false);
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		long delayNanos = unit.toNanos(delay);
+		return enqueue(new WheelTask<Void>(command, null,
+				System.nanoTime() + delayNanos, 0), delayNanos);
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+		long delayNanos = unit.toNanos(delay);
+		return enqueue(new WheelTask<>(callable,
+				System.nanoTime() + delayNanos), delayNanos);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+			long initialDelay, long period, TimeUnit unit) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("Period must be positive.");
+		}
+		long delayNanos = unit.toNanos(initialDelay);
+		return enqueue(new WheelTask<Void>(command, null,
+				System.nanoTime() + delayNanos, unit.toNanos(period)), delayNanos);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+			long initialDelay, long delay, TimeUnit unit) {
+		if (delay <= 0) {
+			throw new IllegalArgumentException("Delay must be positive.");
+		}
+		long delayNanos = unit.toNanos(initialDelay);
+		return enqueue(new WheelTask<Void>(command, null,
+				System.nanoTime() + delayNanos, -unit.toNanos(delay)), delayNanos);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		schedule(command, 0, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void shutdown() {
+		stopWheel();
+		for (Runnable task : drainWheel()) {
+			((WheelTask<?>) task).cancel(false);
+		}
+		workers.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		stopWheel();
+		List<Runnable> notRun = drainWheel();
+		for (Runnable task : notRun) {
+			((WheelTask<?>) task).cancel(false);
+		}
+		notRun.addAll(workers.shutdownNow());
+		return notRun;
+	}
+
+	private void stopWheel() {
+		shutdown = true;
+		LockSupport.unpark(wheelThread);
+		if (Thread.currentThread() != wheelThread) {
+			try {
+				wheelThread.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Remove everything that hasn't been handed to the workers. Only called
+	 * once the wheel thread has stopped.
+	 */
+	private synchronized List<Runnable> drainWheel() {
+		List<Runnable> tasks = new ArrayList<>();
+		int drained = 0;
+		for (Bucket bucket : wheel) {
+			for (WheelTask<?> task = bucket.head; task != null; task = bucket.head) {
+				bucket.remove(task);
+				tasks.add(task);
+				++drained;
+			}
+		}
+		for (WheelTask<?> task = newTasks.poll(); task != null; task = newTasks.poll()) {
+			if (!task.isCancelled()) {
+				tasks.add(task);
+			}
+			++drained;
+		}
+		cancelledTasks.clear();
+		scheduled.addAndGet(-drained);
+		return tasks;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown && !wheelThread.isAlive() && workers.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+	throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		TimeUnit.NANOSECONDS.timedJoin(wheelThread,
+				Math.max(1, deadline - System.nanoTime()));
+		return workers.awaitTermination(deadline - System.nanoTime(),
+				TimeUnit.NANOSECONDS) && !wheelThread.isAlive();
+	}
+
+	/**
+	 * The number of tasks waiting for their deadline.
+	 *
+	 * @return The number of tasks.
+	 */
+	public int getScheduledCount() {
+		return scheduled.get();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": active=" +
+				workers.getActiveCount() + ", scheduled=" + scheduled.get();
+	}
+
+	/**
+	 * A list of the tasks in one slot of the wheel. Only used by the
+	 * wheel thread.
+	 */
+	static class Bucket {
+
+		private WheelTask<?> head;
+
+		private WheelTask<?> tail;
+
+		void add(WheelTask<?> task) {
+			task.bucket = this;
+			if (head == null) {
+				head = tail = task;
+			}
+			else {
+				tail.next = task;
+				task.prev = tail;
+				tail = task;
+			}
+		}
+
+		void remove(WheelTask<?> task) {
+			WheelTask<?> next = task.next;
+			if (task.prev != null) {
+				task.prev.next = next;
+			}
+			if (next != null) {
+				next.prev = task.prev;
+			}
+			if (task == head) {
+				head = next;
+			}
+			if (task == tail) {
+				tail = task.prev;
+			}
+			task.prev = null;
+			task.next = null;
+			task.bucket = null;
+		}
+	}
+
+	/**
+	 * A scheduled task.
+	 */
+	class WheelTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+		/** The nano time the task is due. */
+		private volatile long deadline;
+
+		/** 0 for one shot, positive for a fixed rate, negative for a fixed delay. */
+		private final long period;
+
+		// Only used by the wheel thread.
+		private long remainingRounds;
+		private WheelTask<?> prev;
+		private WheelTask<?> next;
+		private Bucket bucket;
+
+		WheelTask(Runnable runnable, V result, long deadline, long period) {
+			super(runnable, result);
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		WheelTask(Callable<V> callable, long deadline) {
+			super(callable);
+			this.deadline = deadline;
+			this.period = 0;
+		}
+
+		@Override
+		public boolean isPeriodic() {
+			return period != 0;
+		}
+
+		@Override
+		public void run() {
+			if (!isPeriodic()) {
+				super.run();
+			}
+			else if (super.runAndReset()) {
+				if (period > 0) {
+					deadline += period;
+				}
+				else {
+					deadline = System.nanoTime() - period;
+				}
+				reschedule(this);
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				cancelledTasks.offer(this);
+			}
+			return cancelled;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (other == this) {
+				return 0;
+			}
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS),
+					other.getDelay(TimeUnit.NANOSECONDS));
+		}
+	}
+}
@@ -9,6 +9,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.oddjob.logging.OddjobNDC;
 import org.oddjob.util.Restore;
 
+/**
+ * Creates threads named after a pool that carry Oddjob's logging context.
+ * Threads can be virtual threads when running on a Java version that has them.
+ */
 public class OddjobThreadFactory implements ThreadFactory {
 
 	private static final ConcurrentMap<String, AtomicInteger> poolNames = new ConcurrentHashMap<>();
@@ -17,17 +21,55 @@ public class OddjobThreadFactory implements ThreadFactory {
 	
 	private final String poolName;
 
+	/** Creates virtual threads. Null for platform threads. */
+	private final ThreadFactory virtualThreads;
+	
 	public OddjobThreadFactory(String baseName) {
+		this(baseName, false);
+	}
+	
+	/**
+	 * Create a new instance.
+	 * 
+	 * @param baseName The base name of the threads. May be null.
+	 * @param virtual Create virtual threads.
+	 * 
+	 * @throws UnsupportedOperationException If virtual threads are requested
+	 * but this version of Java doesn't support them.
+	 */
+	public OddjobThreadFactory(String baseName, boolean virtual) {
 		baseName = Optional.ofNullable(baseName).orElse("Oddjob");
 		AtomicInteger count = poolNames.computeIfAbsent(baseName, s -> new AtomicInteger());
 		this.poolName = baseName + "-" + count.getAndIncrement();
+		this.virtualThreads = virtual ? VirtualThreads.factory() : null;
+	}
+	
+	/**
+	 * Can virtual threads be created.
+	 * 
+	 * @return true if they can.
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return VirtualThreads.isSupported();
+	}
+	
+	public boolean isVirtual() {
+		return virtualThreads != null;
 	}
 	
 	@Override
 	public Thread newThread(Runnable r) {
 		
-		return new Thread(new ThreadWrapper(r), 
-				poolName + "-" + nextThreadNum.getAndIncrement());
+		String name = poolName + "-" + nextThreadNum.getAndIncrement();
+		
+		if (virtualThreads == null) {
+			return new Thread(new ThreadWrapper(r), name);
+		}
+		else {
+			Thread thread = virtualThreads.newThread(new ThreadWrapper(r));
+			thread.setName(name);
+			return thread;
+		}
 	}
 	
 	static class ThreadWrapper implements Runnable {
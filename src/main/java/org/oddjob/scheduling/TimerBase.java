@@ -13,6 +13,7 @@ import org.oddjob.jobs.job.ResetAction;
 import org.oddjob.schedules.Interval;
 import org.oddjob.schedules.Schedule;
 import org.oddjob.schedules.ScheduleContext;
+import org.oddjob.schedules.ScheduleOccurrences;
 import org.oddjob.schedules.ScheduleResult;
 import org.oddjob.scheduling.state.TimerState;
 import org.oddjob.state.*;
@@ -279,6 +280,25 @@ abstract public class TimerBase extends ScheduleBase {
 	    }
 	}
 
+	/**
+	 * Provide the occurrences of the schedule from a date, as this timer
+	 * would use them. This is for forecasting and doesn't change the state
+	 * of the timer.
+	 * 
+	 * @param date The date to start from.
+	 * 
+	 * @return The occurrences, calculated lazily.
+	 */
+	public ScheduleOccurrences occurrencesFrom(Date date) {
+		Schedule schedule = Objects.requireNonNull(this.schedule, "No Schedule.");
+		Map<Object, Object> data;
+		synchronized (contextData) {
+			data = ScheduleContext.copyData(contextData);
+		}
+		return new ScheduleOccurrences(schedule, 
+				new ScheduleContext(date, timeZone, data, getLimits()));
+	}
+
 	/**
 	 * Get the current clock.
 	 * 
@@ -0,0 +1,108 @@
+package org.oddjob.scheduling;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads when Oddjob is running on a Java version that
+ * has them. This is done with reflection so Oddjob can still be built for and
+ * run on earlier versions.
+ */
+final class VirtualThreads {
+
+	/** Thread.ofVirtual(), or null if not available or can't be used. */
+	private static final Method OF_VIRTUAL;
+
+	/** Thread.Builder.factory(). */
+	private static final Method FACTORY;
+
+	/** Executors.newThreadPerTaskExecutor(ThreadFactory). */
+	private static final Method THREAD_PER_TASK;
+
+	static {
+		Method ofVirtual = null;
+		Method factory = null;
+		Method threadPerTask = null;
+		try {
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+			threadPerTask = Executors.class.getMethod(
+					"newThreadPerTaskExecutor", ThreadFactory.class);
+			// On Java 19 and 20 the methods are there but throw
+			// UnsupportedOperationException unless preview features are on.
+			factory.invoke(ofVirtual.invoke(null));
+		}
+		catch (NoSuchMethodException | ClassNotFoundException
+				| IllegalAccessException e) {
+			ofVirtual = null;
+		}
+		catch (InvocationTargetException e) {
+			if (!(e.getCause() instanceof UnsupportedOperationException)) {
+				throw new ExceptionInInitializerError(e.getCause());
+			}
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		FACTORY = factory;
+		THREAD_PER_TASK = threadPerTask;
+	}
+
+	private VirtualThreads() {}
+
+	/**
+	 * Are virtual threads available.
+	 *
+	 * @return true if they are.
+	 */
+	static boolean isSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Provide a factory for unnamed virtual threads.
+	 *
+	 * @return A factory.
+	 * @throws UnsupportedOperationException If virtual threads aren't available.
+	 */
+	static ThreadFactory factory() {
+		if (!isSupported()) {
+			throw new UnsupportedOperationException(
+					"Virtual threads require Java 21 or later.");
+		}
+		return (ThreadFactory) invoke(FACTORY, invoke(OF_VIRTUAL, null));
+	}
+
+	/**
+	 * Provide an executor that starts a new thread for each task.
+	 *
+	 * @param threadFactory The factory, normally of virtual threads.
+	 * @return An executor.
+	 * @throws UnsupportedOperationException If virtual threads aren't available.
+	 */
+	static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+		if (!isSupported()) {
+			throw new UnsupportedOperationException(
+					"Virtual threads require Java 21 or later.");
+		}
+		return (ExecutorService) invoke(THREAD_PER_TASK, null, threadFactory);
+	}
+
+	private static Object invoke(Method method, Object target, Object... args) {
+		try {
+			return method.invoke(target, args);
+		}
+		catch (IllegalAccessException e) {
+			throw new UnsupportedOperationException(e);
+		}
+		catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new UnsupportedOperationException(cause);
+		}
+	}
+}
@@ -0,0 +1,498 @@
+package org.oddjob.sql;
+
+import org.oddjob.arooa.registry.Path;
+import org.oddjob.persist.SerializeWithBytes;
+import org.oddjob.scheduling.OddjobThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An implementation of {@link SQLSerializationFactory} that saves in
+ * batches. Saves are queued and written together in one JDBC batch and one
+ * commit when the batch is full, at regular intervals, or before anything
+ * else is done with the database. Repeated saves of the same job before they
+ * are written are only written once.
+ * <p>
+ * If the {@link DatabaseDialect} provides an upsert statement, such as the
+ * <code>MERGE</code> of {@link MergeDialect}, each save is one statement in
+ * the batch. Otherwise updates are batched and then rows that weren't there
+ * to update are inserted in a second batch.
+ * <p>
+ * All the jobs of a path are restored from the one select the first time
+ * any job of the path is restored or listed.
+ * <p>
+ * The table is the same as for the {@link HSQLSerializationFactory}.
+ */
+public class BatchedSQLSerializationFactory implements SQLSerializationFactory {
+
+	private String table;
+
+	private DatabaseDialect dialect;
+
+	private int batchSize = 100;
+
+	private long interval = 1000;
+
+	@Override
+	public SQLSerialization createSerialization(Connection connection)
+	throws SQLException {
+		return new BatchedSQLSerialization(connection,
+				table == null ? "ODDJOB" : table,
+				dialect == null ? new BasicGenericDialect() : dialect,
+				batchSize, interval);
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	public void setTable(String table) {
+		this.table = table;
+	}
+
+	public DatabaseDialect getDialect() {
+		return dialect;
+	}
+
+	public void setDialect(DatabaseDialect dialect) {
+		this.dialect = dialect;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Set the number of saves that are written as soon as they are queued.
+	 *
+	 * @param batchSize The batch size.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Set the interval at which anything queued is written.
+	 *
+	 * @param interval The interval in milliseconds.
+	 */
+	public void setInterval(long interval) {
+		this.interval = interval;
+	}
+}
+
+class BatchedSQLSerialization implements SQLSerialization {
+	private static final Logger logger = LoggerFactory.getLogger(BatchedSQLSerialization.class);
+
+	private final Connection connection;
+
+	private final int batchSize;
+
+	/** Either an upsert statement, or update and insert statements. */
+	private final PreparedStatement upsertStmt;
+	private final PreparedStatement updateStmt;
+	private final PreparedStatement insertStmt;
+
+	private final PreparedStatement selectStmt;
+	private final PreparedStatement selectPathStmt;
+	private final PreparedStatement deleteStmt;
+	private final PreparedStatement clearStmt;
+
+	private final ScheduledExecutorService scheduler;
+
+	/** Saves waiting to be written. */
+	private final Map<Key, byte[]> pending = new LinkedHashMap<>();
+
+	/**
+	 * Jobs by id for paths that have been selected. A null value means the job
+	 * has been restored once and will need selecting again if restored again.
+	 */
+	private final Map<String, Map<String, byte[]>> selected = new HashMap<>();
+
+	private final List<PreparedStatement> statements = new ArrayList<>();
+
+	BatchedSQLSerialization(Connection connection, String table,
+			DatabaseDialect dialect, int batchSize, long interval)
+	throws SQLException {
+		this.connection = connection;
+		this.batchSize = batchSize;
+
+		try {
+			String upsertSQL = dialect.upsertSQL(table,
+					new String[] { "path", "id" }, new String[] { "job" });
+			if (upsertSQL == null) {
+				this.upsertStmt = null;
+				this.updateStmt = prepare("update " + table +
+						" set job = ? where path = ? and id = ?");
+				this.insertStmt = prepare("insert into " + table +
+						" (path, id, job) values (?, ?, ?)");
+			}
+			else {
+				this.upsertStmt = prepare(upsertSQL);
+				this.updateStmt = null;
+				this.insertStmt = null;
+			}
+
+			this.selectStmt = prepare("select job from " + table +
+					" where path = ? and id = ?");
+			this.selectPathStmt = prepare("select id, job from " + table +
+					" where path = ?");
+			this.deleteStmt = prepare("delete from " + table +
+					" where path = ? and id = ?");
+			this.clearStmt = prepare("delete from " + table + " where path = ?");
+		}
+		catch (SQLException e) {
+			try {
+				closeStatements();
+			}
+			catch (SQLException e2) {
+				// ignore
+			}
+			throw e;
+		}
+
+		OddjobThreadFactory threadFactory = new OddjobThreadFactory(getClass().getSimpleName());
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = threadFactory.newThread(r);
+			t.setDaemon(true);
+			return t;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::flushQuietly,
+				interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	private PreparedStatement prepare(String sql) throws SQLException {
+		logger.debug("Preparing: " + sql);
+		PreparedStatement statement = connection.prepareStatement(sql);
+		statements.add(statement);
+		return statement;
+	}
+
+	@Override
+	public synchronized void persist(Path path, String id, Object o)
+	throws SQLException {
+
+		byte[] bytes = new SerializeWithBytes().toBytes(o);
+
+		logger.debug("Queuing: " + path + ", " + id + ", " +
+				bytes.length + " bytes.");
+
+		String pathName = path.toString();
+
+		pending.put(new Key(pathName, id), bytes);
+
+		Map<String, byte[]> jobs = selected.get(pathName);
+		if (jobs != null) {
+			// Make sure it's listed but restore it from what's pending.
+			jobs.put(id, null);
+		}
+
+		if (pending.size() >= batchSize) {
+			flush();
+		}
+	}
+
+	@Override
+	public synchronized Object restore(Path path, String id,
+			ClassLoader classLoader) throws SQLException {
+
+		String pathName = path.toString();
+
+		byte[] bytes = pending.get(new Key(pathName, id));
+
+		if (bytes == null) {
+			Map<String, byte[]> jobs = selectPath(pathName);
+			if (!jobs.containsKey(id)) {
+				return null;
+			}
+			bytes = jobs.get(id);
+			if (bytes == null) {
+				bytes = selectOne(pathName, id);
+				if (bytes == null) {
+					return null;
+				}
+			}
+			else {
+				// Only needed once, so free the memory.
+				jobs.put(id, null);
+			}
+		}
+
+		logger.debug("Retrieved: " + path + ", " + id + ".");
+
+		return new SerializeWithBytes().fromBytes(bytes, classLoader);
+	}
+
+	@Override
+	public synchronized void remove(Path path, String id) throws SQLException {
+
+		String pathName = path.toString();
+
+		pending.remove(new Key(pathName, id));
+
+		Map<String, byte[]> jobs = selected.get(pathName);
+		if (jobs != null) {
+			jobs.remove(id);
+		}
+
+		deleteStmt.setString(1, pathName);
+		deleteStmt.setString(2, id);
+		deleteStmt.executeUpdate();
+	}
+
+	@Override
+	public synchronized void clear(Path path) throws SQLException {
+
+		String pathName = path.toString();
+
+		pending.keySet().removeIf(key -> key.path.equals(pathName));
+		selected.remove(pathName);
+
+		clearStmt.setString(1, pathName);
+		clearStmt.executeUpdate();
+	}
+
+	@Override
+	public synchronized String[] children(Path path) throws SQLException {
+
+		String pathName = path.toString();
+
+		Set<String> ids = new LinkedHashSet<>(selectPath(pathName).keySet());
+		for (Key key : pending.keySet()) {
+			if (key.path.equals(pathName)) {
+				ids.add(key.id);
+			}
+		}
+
+		return ids.toArray(new String[0]);
+	}
+
+	/**
+	 * Select all the jobs of a path if they haven't been.
+	 */
+	private Map<String, byte[]> selectPath(String pathName) throws SQLException {
+
+		Map<String, byte[]> jobs = selected.get(pathName);
+		if (jobs != null) {
+			return jobs;
+		}
+
+		jobs = new HashMap<>();
+
+		selectPathStmt.setString(1, pathName);
+		try (ResultSet rs = selectPathStmt.executeQuery()) {
+			while (rs.next()) {
+				jobs.put(rs.getString(1), bytesOf(rs.getBlob(2)));
+			}
+		}
+
+		logger.debug("Selected " + jobs.size() + " jobs for path " + pathName);
+
+		selected.put(pathName, jobs);
+		return jobs;
+	}
+
+	private byte[] selectOne(String pathName, String id) throws SQLException {
+		selectStmt.setString(1, pathName);
+		selectStmt.setString(2, id);
+		try (ResultSet rs = selectStmt.executeQuery()) {
+			if (!rs.next()) {
+				return null;
+			}
+			return bytesOf(rs.getBlob(1));
+		}
+	}
+
+	private static byte[] bytesOf(Blob blob) throws SQLException {
+		if (blob == null) {
+			return null;
+		}
+		return blob.getBytes(1, (int) blob.length());
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		}
+		catch (SQLException | RuntimeException e) {
+			logger.error("Failed writing saved jobs. Will retry.", e);
+		}
+	}
+
+	/**
+	 * Write everything queued in one transaction.
+	 */
+	synchronized void flush() throws SQLException {
+
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		List<Map.Entry<Key, byte[]>> toWrite = new ArrayList<>(pending.entrySet());
+
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			if (upsertStmt == null) {
+				updateThenInsert(toWrite);
+			}
+			else {
+				for (Map.Entry<Key, byte[]> entry : toWrite) {
+					upsertStmt.setString(1, entry.getKey().path);
+					upsertStmt.setString(2, entry.getKey().id);
+					upsertStmt.setBytes(3, entry.getValue());
+					upsertStmt.addBatch();
+				}
+				upsertStmt.executeBatch();
+			}
+			connection.commit();
+		}
+		catch (SQLException | RuntimeException e) {
+			try {
+				connection.rollback();
+			}
+			catch (SQLException e2) {
+				logger.warn("Failed rolling back.", e2);
+			}
+			throw e;
+		}
+		finally {
+			connection.setAutoCommit(autoCommit);
+		}
+
+		pending.clear();
+
+		logger.debug("Saved " + toWrite.size() + " jobs.");
+	}
+
+	private void updateThenInsert(List<Map.Entry<Key, byte[]>> toWrite)
+	throws SQLException {
+
+		for (Map.Entry<Key, byte[]> entry : toWrite) {
+			updateStmt.setBytes(1, entry.getValue());
+			updateStmt.setString(2, entry.getKey().path);
+			updateStmt.setString(3, entry.getKey().id);
+			updateStmt.addBatch();
+		}
+		int[] counts = updateStmt.executeBatch();
+
+		boolean inserts = false;
+		for (int i = 0; i < counts.length; ++i) {
+			Map.Entry<Key, byte[]> entry = toWrite.get(i);
+			int count = counts[i];
+			if (count == Statement.SUCCESS_NO_INFO) {
+				// The driver doesn't say, so find out the slow way.
+				updateStmt.setBytes(1, entry.getValue());
+				updateStmt.setString(2, entry.getKey().path);
+				updateStmt.setString(3, entry.getKey().id);
+				count = updateStmt.executeUpdate();
+			}
+			if (count == 0) {
+				insertStmt.setString(1, entry.getKey().path);
+				insertStmt.setString(2, entry.getKey().id);
+				insertStmt.setBytes(3, entry.getValue());
+				insertStmt.addBatch();
+				inserts = true;
+			}
+		}
+		if (inserts) {
+			insertStmt.executeBatch();
+		}
+	}
+
+	@Override
+	public void close() throws SQLException {
+
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (this) {
+			try {
+				flush();
+			}
+			finally {
+				closeStatements();
+			}
+		}
+	}
+
+	private void closeStatements() throws SQLException {
+
+		SQLException ex = null;
+
+		for (PreparedStatement statement : statements) {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				ex = e;
+			}
+		}
+
+		if (connection != null) {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				ex = e;
+			}
+		}
+
+		if (ex != null) {
+			throw ex;
+		}
+	}
+
+	/**
+	 * The path and id of a save.
+	 */
+	static class Key {
+
+		private final String path;
+
+		private final String id;
+
+		Key(String path, String id) {
+			this.path = path;
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Key key = (Key) o;
+			return path.equals(key.path) && id.equals(key.id);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, id);
+		}
+	}
+}
@@ -18,12 +18,15 @@ implements SQLResultHandler, AutoCloseable, Runnable, Flushable {
 
 	private final PropertyAccessor accessor;
 	
+	private final QueryBeanClasses classes;
+	
 	private volatile boolean stop;
 	
 	public BeanFactoryResultHandler(ArooaSession session) {
 		this.accessor = session.getTools(
 				).getPropertyAccessor().accessorWithConversions(
 						session.getTools().getArooaConverter());
+		this.classes = QueryBeanClasses.forSession(session);
 	}
 		
 	@Override
@@ -38,7 +41,8 @@ implements SQLResultHandler, AutoCloseable, Runnable, Flushable {
 		ResultSetBeanFactory beanFactory = new ResultSetBeanFactory(
 				resultSet, accessor, 
 				dialect == null ? 
-						new BasicGenericDialect() : dialect);
+						new BasicGenericDialect() : dialect,
+				classes);
 
 		for (Object next = beanFactory.next(); !stop && next != null; 
 				next = beanFactory.next()) {
@@ -22,4 +22,20 @@ public interface DatabaseDialect {
 	 */
 	ResultSetExtractor resultSetExtractorFor(ResultSet resultSet)
 	throws SQLException;
+
+	/**
+	 * Provide SQL that will update a row if it exists or insert it if it
+	 * doesn't. The parameters are the key columns followed by the
+	 * value columns.
+	 * 
+	 * @param table The table.
+	 * @param keyColumns The columns that identify a row.
+	 * @param valueColumns The columns to update or insert.
+	 * 
+	 * @return The SQL, or null if this dialect doesn't know how to do this
+	 * in one statement.
+	 */
+	default String upsertSQL(String table, String[] keyColumns, String[] valueColumns) {
+		return null;
+	}
 }
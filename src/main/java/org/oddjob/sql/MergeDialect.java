@@ -0,0 +1,130 @@
+package org.oddjob.sql;
+
+/**
+ * A {@link BasicGenericDialect} that updates or inserts rows with the SQL
+ * standard <code>MERGE</code> statement. By default the parameters are
+ * given to the <code>MERGE</code> as a <code>VALUES</code> list, which works
+ * with databases such as DB2 that can work out the types of the parameters
+ * in the list.
+ * <p>
+ * Databases such as HSQLDB can't, so for these the types to cast the
+ * parameters to must be provided. Oracle has no <code>VALUES</code> list
+ * so for Oracle the parameters must be selected from <code>DUAL</code>
+ * instead.
+ *
+ * @see DatabaseDialect#upsertSQL(String, String[], String[])
+ */
+public class MergeDialect extends BasicGenericDialect {
+
+	/** The SQL types of the key columns followed by the value columns. */
+	private String[] parameterTypes;
+
+	/** Select the parameters from Oracle's DUAL table. */
+	private boolean fromDual;
+
+	@Override
+	public String upsertSQL(String table, String[] keyColumns, String[] valueColumns) {
+
+		if (parameterTypes != null &&
+				parameterTypes.length != keyColumns.length + valueColumns.length) {
+			throw new IllegalStateException("Expected " +
+				(keyColumns.length + valueColumns.length) + " parameter types, not " +
+				parameterTypes.length);
+		}
+
+		StringBuilder sql = new StringBuilder("merge into ");
+		sql.append(table);
+		if (fromDual) {
+			sql.append(" using (select ");
+			int i = 0;
+			for (String[] columns : new String[][] { keyColumns, valueColumns }) {
+				for (String column : columns) {
+					sql.append(i == 0 ? "" : ", ").append(parameter(i++));
+					sql.append(' ').append(column);
+				}
+			}
+			sql.append(" from dual) vals");
+		}
+		else {
+			sql.append(" using (values (");
+			for (int i = 0; i < keyColumns.length + valueColumns.length; ++i) {
+				sql.append(i == 0 ? "" : ", ").append(parameter(i));
+			}
+			sql.append(")) as vals (");
+			appendList(sql, "", keyColumns, valueColumns);
+			sql.append(")");
+		}
+		sql.append(" on (");
+		for (int i = 0; i < keyColumns.length; ++i) {
+			if (i > 0) {
+				sql.append(" and ");
+			}
+			sql.append(table).append('.').append(keyColumns[i]);
+			sql.append(" = vals.").append(keyColumns[i]);
+		}
+		sql.append(") when matched then update set ");
+		for (int i = 0; i < valueColumns.length; ++i) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(valueColumns[i]).append(" = vals.").append(valueColumns[i]);
+		}
+		sql.append(" when not matched then insert (");
+		appendList(sql, "", keyColumns, valueColumns);
+		sql.append(") values (");
+		appendList(sql, "vals.", keyColumns, valueColumns);
+		sql.append(")");
+
+		return sql.toString();
+	}
+
+	private String parameter(int index) {
+		if (parameterTypes == null) {
+			return "?";
+		}
+		return "cast(? as " + parameterTypes[index] + ")";
+	}
+
+	private static void appendList(StringBuilder sql, String prefix,
+			String[] keyColumns, String[] valueColumns) {
+		boolean first = true;
+		for (String[] columns : new String[][] { keyColumns, valueColumns }) {
+			for (String column : columns) {
+				if (!first) {
+					sql.append(", ");
+				}
+				sql.append(prefix).append(column);
+				first = false;
+			}
+		}
+	}
+
+	public String[] getParameterTypes() {
+		return parameterTypes;
+	}
+
+	/**
+	 * Set the SQL types to cast the parameters to, the key columns followed
+	 * by the value columns.
+	 *
+	 * @param parameterTypes The types, such as <code>VARCHAR(32)</code>.
+	 * May be null for no casts.
+	 */
+	public void setParameterTypes(String[] parameterTypes) {
+		this.parameterTypes = parameterTypes;
+	}
+
+	public boolean isFromDual() {
+		return fromDual;
+	}
+
+	/**
+	 * Select the parameters from <code>DUAL</code>, as Oracle needs, rather
+	 * than give them as a <code>VALUES</code> list.
+	 *
+	 * @param fromDual True for Oracle.
+	 */
+	public void setFromDual(boolean fromDual) {
+		this.fromDual = fromDual;
+	}
+}
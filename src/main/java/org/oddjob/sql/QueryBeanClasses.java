@@ -0,0 +1,155 @@
+package org.oddjob.sql;
+
+import org.oddjob.arooa.ArooaSession;
+import org.oddjob.arooa.beanutils.MagicBeanClassCreator;
+import org.oddjob.arooa.reflect.ArooaClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A cache of the bean classes created for the rows of query results, so
+ * that running the same query again uses the same class instead of
+ * creating a new one each time. Classes are keyed by the names and types
+ * of the columns.
+ * <p>
+ * There is one cache for each {@link ArooaSession} so it is shared by all
+ * the SQL jobs in an Oddjob, and goes when the session does. The least
+ * recently used class is dropped if the cache grows beyond its maximum
+ * size.
+ *
+ * @author rob
+ *
+ */
+public class QueryBeanClasses {
+
+	private static final Logger logger = LoggerFactory.getLogger(QueryBeanClasses.class);
+
+	public static final int DEFAULT_MAX_SIZE = 100;
+
+	private static final AtomicInteger instance = new AtomicInteger();
+
+	private static final Map<ArooaSession, QueryBeanClasses> sessions =
+			new WeakHashMap<>();
+
+	private final Map<List<Object>, ArooaClass> classes;
+
+	/**
+	 * Create a cache with the default maximum size.
+	 */
+	public QueryBeanClasses() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param maxSize The maximum number of classes to keep.
+	 */
+	public QueryBeanClasses(int maxSize) {
+		this.classes = Collections.synchronizedMap(
+				new LinkedHashMap<List<Object>, ArooaClass>(16, 0.75f, true) {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected boolean removeEldestEntry(
+							Map.Entry<List<Object>, ArooaClass> eldest) {
+						return size() > maxSize;
+					}
+				});
+	}
+
+	/**
+	 * Provide the cache for a session.
+	 *
+	 * @param session The session. Must not be null.
+	 * @return The cache. Never null.
+	 */
+	public static QueryBeanClasses forSession(ArooaSession session) {
+		synchronized (sessions) {
+			return sessions.computeIfAbsent(session, s -> new QueryBeanClasses());
+		}
+	}
+
+	/**
+	 * Provide the bean class for the rows of a result set, creating it
+	 * if this is the first time the columns have been seen.
+	 *
+	 * @param resultSetExtractor Extracts the result set.
+	 * @return The class. Never null.
+	 *
+	 * @throws SQLException From the result set.
+	 */
+	public ArooaClass classFor(ResultSetExtractor resultSetExtractor)
+	throws SQLException {
+
+		int columnCount = resultSetExtractor.getColumnCount();
+
+		List<Object> key = new ArrayList<>(columnCount * 2);
+		for (int i = 1; i <= columnCount; ++i) {
+			key.add(resultSetExtractor.getColumnName(i));
+			key.add(resultSetExtractor.getColumnType(i));
+		}
+
+		synchronized (classes) {
+			ArooaClass arooaClass = classes.get(key);
+			if (arooaClass == null) {
+				arooaClass = create(resultSetExtractor);
+				classes.put(key, arooaClass);
+			}
+			return arooaClass;
+		}
+	}
+
+	/**
+	 * Create a new bean class for the rows of a result set.
+	 *
+	 * @param resultSetExtractor Extracts the result set.
+	 * @return The class. Never null.
+	 *
+	 * @throws SQLException From the result set.
+	 */
+	public static ArooaClass create(ResultSetExtractor resultSetExtractor)
+	throws SQLException {
+
+		String className = "QueryBean-" + instance.getAndIncrement();
+
+		logger.debug("Creating Magic Bean Class [" + className + "]");
+
+		MagicBeanClassCreator magicDef = new MagicBeanClassCreator(
+				className);
+
+		for (int i = 1; i <= resultSetExtractor.getColumnCount(); ++i) {
+
+			magicDef.addProperty(
+					resultSetExtractor.getColumnName(i),
+					resultSetExtractor.getColumnType(i));
+		}
+
+		return magicDef.create();
+	}
+
+	/**
+	 * The number of classes in the cache.
+	 *
+	 * @return The number.
+	 */
+	public int getSize() {
+		return classes.size();
+	}
+
+	/**
+	 * Remove all the classes from the cache.
+	 */
+	public void clear() {
+		classes.clear();
+	}
+}
@@ -4,9 +4,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
-import org.oddjob.arooa.beanutils.MagicBeanClassCreator;
 import org.oddjob.arooa.reflect.ArooaClass;
 import org.oddjob.arooa.reflect.BeanOverview;
 import org.oddjob.arooa.reflect.PropertyAccessor;
@@ -19,33 +17,52 @@ import org.oddjob.arooa.reflect.PropertyAccessor;
  */
 public class ResultSetBeanFactory {
 
-	private static AtomicInteger instance = new AtomicInteger();
-	
 	private final ResultSetExtractor resultSetExtractor;
 	
 	private final ArooaClass arooaClass;
 
 	private final PropertyAccessor accessor;
 	
+	/**
+	 * Create a factory that creates a new bean class for the result set.
+	 * 
+	 * @param resultSet The result set.
+	 * @param accessor The accessor used to set bean properties.
+	 * @param dialect The dialect used to extract the result set.
+	 * 
+	 * @throws SQLException
+	 * @throws ClassNotFoundException
+	 */
 	public ResultSetBeanFactory(ResultSet resultSet,
 			PropertyAccessor accessor,
 			DatabaseDialect dialect) throws SQLException, ClassNotFoundException {
+		this(resultSet, accessor, dialect, null);
+	}
+	
+	/**
+	 * Create a factory that takes the bean class for the result set from
+	 * a cache, so the same class is used for the same columns.
+	 * 
+	 * @param resultSet The result set.
+	 * @param accessor The accessor used to set bean properties.
+	 * @param dialect The dialect used to extract the result set.
+	 * @param classes The cache of classes. If null a new class is created.
+	 * 
+	 * @throws SQLException
+	 * @throws ClassNotFoundException
+	 */
+	public ResultSetBeanFactory(ResultSet resultSet,
+			PropertyAccessor accessor,
+			DatabaseDialect dialect,
+			QueryBeanClasses classes) throws SQLException, ClassNotFoundException {
 		
 		this.accessor = accessor;
 		
-		MagicBeanClassCreator magicDef = new MagicBeanClassCreator(
-				"QueryBean-" + instance.getAndIncrement());
-
 		this.resultSetExtractor = dialect.resultSetExtractorFor(resultSet);
 		
-		for (int i = 1; i <= resultSetExtractor.getColumnCount(); ++i) {
-			
-			magicDef.addProperty(
-					resultSetExtractor.getColumnName(i), 
-					resultSetExtractor.getColumnType(i));
-		}
-		
-		this.arooaClass = magicDef.create();
+		this.arooaClass = classes == null ? 
+				QueryBeanClasses.create(resultSetExtractor) :
+				classes.classFor(resultSetExtractor);
 	}
 	
 	public Object next() throws SQLException {
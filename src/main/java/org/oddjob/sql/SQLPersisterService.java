@@ -57,7 +57,8 @@ public class SQLPersisterService {
 	/** 
 	 * @oddjob.property
 	 * @oddjob.description A plugin for providers of the serialization.
-	 * The default is for HSQL.
+	 * The default is for HSQL. A {@link BatchedSQLSerializationFactory}
+	 * will write saves in batches.
 	 * @oddjob.required No. 
 	 */
 	private SQLSerializationFactory serializationFactory;
@@ -2,12 +2,27 @@ package org.oddjob.state;
 
 import org.oddjob.structural.OddjobChildException;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * A base state operator for state evaluation using scores for
  * different states.
+ * <p>
+ * Because the result only depends on the highest score, a
+ * {@link StructuralStateHelper} is able to evaluate the operators provided
+ * with Oddjob incrementally as each child state changes. Subclasses are
+ * evaluated with {@link #evaluate(StateEvent...)} unless they say otherwise
+ * with {@link #isIncremental()}.
  */
 abstract public class ScoringStateOperator implements StateOperator {
 
+    /** The operators that can be evaluated incrementally. */
+    private static final Set<Class<?>> INCREMENTAL = new HashSet<>(
+            Arrays.asList(WorstStateOp.class, AnyActiveStateOp.class,
+                    ServiceManagerStateOp.class));
+
     abstract protected int score(ParentState state);
 
     abstract protected ParentStateConverter getParentStateConverter();
@@ -24,7 +39,7 @@ abstract public class ScoringStateOperator implements StateOperator {
     public StateEvent evaluate(StateEvent... states) {
 
         if (states.length == 0) {
-            return null;
+            return evaluateNoStates();
         }
 
         StateEvent stateEvent = processEvent(states[0]);
@@ -46,6 +61,31 @@ abstract public class ScoringStateOperator implements StateOperator {
         return stateEvent;
     }
 
+    /**
+     * Provide the result of evaluating when there are no states. This is
+     * used by incremental evaluation too.
+     *
+     * @return The result. This implementation returns null.
+     */
+    protected StateEvent evaluateNoStates() {
+        return null;
+    }
+
+    /**
+     * Can a {@link StructuralStateHelper} evaluate this operator
+     * incrementally from the scores instead of with
+     * {@link #evaluate(StateEvent...)}. This is true for the operators
+     * provided with Oddjob but not their subclasses, as a subclass may change
+     * how evaluate works. A subclass that only provides its own
+     * {@link #score(ParentState)} or {@link #evaluateNoStates()} may override
+     * this to return true.
+     *
+     * @return true if the operator can be evaluated incrementally.
+     */
+    protected boolean isIncremental() {
+        return INCREMENTAL.contains(getClass());
+    }
+
     StateEvent processEvent(StateEvent childEvent) {
 
         ParentState parentState = getParentStateConverter().toStructuralState(childEvent.getState());
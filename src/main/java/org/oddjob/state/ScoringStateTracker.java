@@ -0,0 +1,188 @@
+package org.oddjob.state;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks the scores of child states for a {@link ScoringStateOperator} so
+ * that the result of evaluating all the states can be provided without
+ * re-evaluating every state each time a single child state changes.
+ * <p>
+ * Children with the same score are kept in position order so the
+ * result is identical to {@link ScoringStateOperator#evaluate(StateEvent...)},
+ * i.e. the first child with the highest score.
+ * <p>
+ * This class is not thread safe. It is expected to be used under the
+ * lock of a {@link StructuralStateHelper}.
+ */
+class ScoringStateTracker {
+
+    /** The operator providing scores. */
+    private final ScoringStateOperator operator;
+
+    /** Slots in child position order. */
+    private final List<Slot> slots = new ArrayList<>();
+
+    /** Slots for each holder. */
+    private final Map<AtomicReference<StateEvent>, Slot> holderToSlot =
+            new IdentityHashMap<>();
+
+    /** Slots for each score, ordered by position. */
+    private final TreeMap<Integer, TreeSet<Slot>> byScore = new TreeMap<>();
+
+    /** The number of slots with a state that can't be scored. */
+    private int unscorable;
+
+    ScoringStateTracker(ScoringStateOperator operator) {
+        this.operator = Objects.requireNonNull(operator);
+    }
+
+    /**
+     * Track a new child.
+     *
+     * @param index The position of the child.
+     * @param holder The holder of the child's state.
+     */
+    void insert(int index, AtomicReference<StateEvent> holder) {
+
+        Slot slot = new Slot(holder);
+        slots.add(index, slot);
+        holderToSlot.put(holder, slot);
+
+        // Shifting every following position by the same amount keeps
+        // the order of the score sets.
+        for (int i = index; i < slots.size(); ++i) {
+            slots.get(i).position = i;
+        }
+
+        changed(holder);
+    }
+
+    /**
+     * Stop tracking a child.
+     *
+     * @param index The position of the child.
+     */
+    void remove(int index) {
+
+        Slot slot = slots.get(index);
+        unscore(slot);
+
+        slots.remove(index);
+        holderToSlot.remove(slot.holder);
+
+        for (int i = index; i < slots.size(); ++i) {
+            slots.get(i).position = i;
+        }
+    }
+
+    /**
+     * Update the score of a child following a change to the state in its
+     * holder.
+     *
+     * @param holder The holder.
+     */
+    void changed(AtomicReference<StateEvent> holder) {
+
+        Slot slot = holderToSlot.get(holder);
+        if (slot == null) {
+            return;
+        }
+
+        unscore(slot);
+
+        StateEvent event = holder.get();
+        if (event == null) {
+            return;
+        }
+
+        try {
+            ParentState parentState = operator.getParentStateConverter()
+                    .toStructuralState(event.getState());
+            slot.score = operator.score(parentState);
+            if (slot.score < 0) {
+                slot.failure = new IllegalStateException(
+                        "Unexpected State " + parentState);
+            }
+        }
+        catch (RuntimeException e) {
+            slot.failure = e;
+        }
+
+        if (slot.failure == null) {
+            byScore.computeIfAbsent(slot.score,
+                            score -> new TreeSet<>(Comparator.comparingInt(s -> s.position)))
+                    .add(slot);
+        }
+        else {
+            ++unscorable;
+        }
+        slot.scored = true;
+    }
+
+    /**
+     * Provide the result of evaluating the states of all the children.
+     *
+     * @return The result, as it would be from the operator.
+     */
+    StateEvent evaluate() {
+
+        if (slots.isEmpty()) {
+            return operator.evaluate();
+        }
+
+        if (unscorable > 0) {
+            for (Slot slot : slots) {
+                if (slot.failure != null) {
+                    throw slot.failure;
+                }
+            }
+        }
+
+        Map.Entry<Integer, TreeSet<Slot>> highest = byScore.lastEntry();
+        if (highest == null) {
+            // No child state yet.
+            return null;
+        }
+
+        return operator.processEvent(highest.getValue().first().holder.get());
+    }
+
+    private void unscore(Slot slot) {
+        if (!slot.scored) {
+            return;
+        }
+        if (slot.failure == null) {
+            TreeSet<Slot> set = byScore.get(slot.score);
+            set.remove(slot);
+            if (set.isEmpty()) {
+                byScore.remove(slot.score);
+            }
+        }
+        else {
+            slot.failure = null;
+            --unscorable;
+        }
+        slot.scored = false;
+    }
+
+    /**
+     * Tracking for a single child.
+     */
+    static class Slot {
+
+        private final AtomicReference<StateEvent> holder;
+
+        private int position;
+
+        private int score;
+
+        private boolean scored;
+
+        private RuntimeException failure;
+
+        Slot(AtomicReference<StateEvent> holder) {
+            this.holder = holder;
+        }
+    }
+}
@@ -21,7 +21,7 @@ import org.oddjob.Structural;
  * @author rob
  *
  */
-public class ServiceManagerStateOp implements StateOperator {
+public class ServiceManagerStateOp extends WorstStateOp {
 
 	private static class ServiceManagerParentStateConverter
 	implements ParentStateConverter {
@@ -56,10 +56,8 @@ public class ServiceManagerStateOp implements StateOperator {
 		}
 	}
 
-	@Override
-	public StateEvent evaluate(StateEvent... states) {
-		return new WorstStateOp(new ServiceManagerParentStateConverter()
-		).evaluate(states);
+	public ServiceManagerStateOp() {
+		super(new ServiceManagerParentStateConverter());
 	}
 
 	public String toString() {
@@ -44,6 +44,10 @@ public class StructuralStateHelper implements Stateful {
 	/** The {@link StateOperator}. */
 	private volatile StateOperator stateOperator;
 
+	/** Incremental evaluation for when the State Operator is scoring. Null
+	 * if it isn't. */
+	private ScoringStateTracker tracker;
+
 	/**
 	 * Listens to a single child's state.
 	 */
@@ -61,6 +65,10 @@ public class StructuralStateHelper implements Stateful {
 			stateHandler.runLocked(() -> {
 				StateEvent previous = holder.getAndSet(event);
 
+				if (tracker != null) {
+					tracker.changed(holder);
+				}
+
 				// Don't check when listener initially added as this happens
 				// in when child added.
 				if (previous != null) {
@@ -122,6 +130,10 @@ public class StructuralStateHelper implements Stateful {
 					listeners.add(index, listener);
 					childStateEvents.add(index, stateHolder);
 
+					if (tracker != null) {
+						tracker.insert(index, stateHolder);
+					}
+
 					checkStates();
 				});
 			}
@@ -140,6 +152,10 @@ public class StructuralStateHelper implements Stateful {
 
 					childStateEvents.remove(index);
 
+					if (tracker != null) {
+						tracker.remove(index);
+					}
+
 					checkStates();
 				});
 			}				
@@ -157,11 +173,17 @@ public class StructuralStateHelper implements Stateful {
 	private void checkStates() {
 		
 		stateHandler.runLocked(() -> {
-			StateEvent[] stateArgs = childStateEvents.stream()
-					.map(AtomicReference::get)
-					.toArray(StateEvent[]::new);
+			StateEvent stateEvent;
+			if (tracker == null) {
+				StateEvent[] stateArgs = childStateEvents.stream()
+						.map(AtomicReference::get)
+						.toArray(StateEvent[]::new);
 
-			StateEvent stateEvent = stateOperator.evaluate(stateArgs);
+				stateEvent = stateOperator.evaluate(stateArgs);
+			}
+			else {
+				stateEvent = tracker.evaluate();
+			}
 
 			if (stateEvent == null) {
 				if (stateHandler.getState() == ParentState.READY) {
@@ -203,6 +225,36 @@ public class StructuralStateHelper implements Stateful {
 		return stateOperator;
 	}
 
+	/**
+	 * Is the State Operator evaluated incrementally as child states change
+	 * rather than by evaluating the states of all the children each time.
+	 *
+	 * @return true if it is.
+	 */
+	public boolean isIncremental() {
+		return stateHandler.supplyLocked(() -> tracker != null);
+	}
+
+	/**
+	 * Create a tracker for incremental evaluation of child states if
+	 * the operator is a {@link ScoringStateOperator} that supports it.
+	 *
+	 * @param stateOperator The State Operator.
+	 * @return A tracker of the current child states or null.
+	 */
+	private ScoringStateTracker trackerFor(StateOperator stateOperator) {
+		if (!(stateOperator instanceof ScoringStateOperator) ||
+				!((ScoringStateOperator) stateOperator).isIncremental()) {
+			return null;
+		}
+		ScoringStateTracker tracker = new ScoringStateTracker(
+				(ScoringStateOperator) stateOperator);
+		for (int i = 0; i < childStateEvents.size(); ++i) {
+			tracker.insert(i, childStateEvents.get(i));
+		}
+		return tracker;
+	}
+
 	/**
 	 * Change the State Operator to be used to combine child state.
 	 * 
@@ -223,7 +275,10 @@ public class StructuralStateHelper implements Stateful {
 					" to " + stateOperator);
 		}
 		
-		this.stateOperator = stateOperator;
+		stateHandler.runLocked(() -> {
+			this.stateOperator = stateOperator;
+			this.tracker = trackerFor(stateOperator);
+		});
 		checkStates();
 	}
 
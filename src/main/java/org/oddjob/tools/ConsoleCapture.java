@@ -45,6 +45,13 @@ public class ConsoleCapture {
 			lines.add(line);
 		}
 
+		@Override
+		public synchronized void logEvents(List<LogEvent> logEvents) {
+			for (LogEvent logEvent : logEvents) {
+				logEvent(logEvent);
+			}
+		}
+
 		synchronized List<String> getLines() {
 			return lines;
 		}
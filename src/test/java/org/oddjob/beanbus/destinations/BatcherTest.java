@@ -10,7 +10,19 @@ import org.oddjob.arooa.reflect.ArooaPropertyException;
 import org.oddjob.arooa.xml.XMLConfiguration;
 import org.oddjob.state.ParentState;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class BatcherTest extends OjTestCase {
 
@@ -64,4 +76,150 @@ public class BatcherTest extends OjTestCase {
         oddjob.destroy();
     }
 
+    @Test
+    public void testMaxLingerDispatchesPartBatch() throws Exception {
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        Thread schedulerThread = scheduler.submit(Thread::currentThread).get();
+
+        List<Collection<String>> results = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Batcher<String> test = new Batcher<>();
+        test.setBatchSize(10);
+        test.setMaxLinger(50L);
+        test.setScheduleExecutorService(scheduler);
+        test.setExecutorService(executor);
+        test.setTo(batch -> {
+            results.add(batch);
+            threads.add(Thread.currentThread());
+            latch.countDown();
+        });
+
+        test.run();
+
+        test.accept("Apple");
+        test.accept("Orange");
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, results.size());
+        assertEquals(Arrays.asList("Apple", "Orange"), results.get(0));
+        assertEquals(0, test.getSize());
+
+        // The scheduler isn't held up passing on the batch.
+        assertThat(threads.get(0), not(sameInstance(schedulerThread)));
+
+        test.accept("Pear");
+        test.flush();
+        test.close();
+
+        assertEquals(2, test.getDispatched());
+        assertEquals(2, results.size());
+        assertEquals(Collections.singletonList("Pear"), results.get(1));
+
+        scheduler.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAsyncDispatchWithBackPressure() throws Exception {
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        List<Collection<String>> results = new ArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Batcher<String> test = new Batcher<>();
+        test.setBatchSize(2);
+        test.setMaxInFlight(1);
+        test.setExecutorService(executor);
+        test.setTo(batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            results.add(batch);
+        });
+
+        test.run();
+
+        test.accept("Apple");
+        test.accept("Orange");
+
+        assertEquals(1, test.getInFlight());
+
+        Thread producer = new Thread(() -> {
+            test.accept("Pear");
+            test.accept("Kiwi");
+        });
+        producer.start();
+
+        // The second batch must wait for the first.
+        producer.join(200);
+        assertTrue(producer.isAlive());
+
+        release.countDown();
+
+        producer.join();
+
+        test.accept("Banana");
+        test.flush();
+
+        assertEquals(0, test.getInFlight());
+        assertEquals(3, test.getDispatched());
+        assertEquals(Arrays.asList(
+                Arrays.asList("Apple", "Orange"),
+                Arrays.asList("Pear", "Kiwi"),
+                Collections.singletonList("Banana")), results);
+
+        test.close();
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAsyncFailureIsThrown() throws Exception {
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        Batcher<String> test = new Batcher<>();
+        test.setBatchSize(2);
+        test.setMaxInFlight(2);
+        test.setExecutorService(executor);
+        test.setTo(batch -> {
+            throw new IllegalArgumentException("Bad batch " + batch);
+        });
+
+        test.run();
+
+        test.accept("Apple");
+        test.accept("Orange");
+
+        try {
+            test.flush();
+            fail("Should throw.");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("Bad batch [Apple, Orange]", e.getCause().getMessage());
+        }
+
+        try {
+            test.accept("Pear");
+            fail("Should throw.");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+
+        test.close();
+
+        assertEquals(0, test.getDispatched());
+
+        executor.shutdown();
+    }
 }
@@ -0,0 +1,125 @@
+package org.oddjob.beanbus.destinations;
+
+import org.oddjob.arooa.ArooaSession;
+import org.oddjob.arooa.ArooaTools;
+import org.oddjob.arooa.life.SimpleArooaClass;
+import org.oddjob.arooa.reflect.PropertyAccessor;
+import org.oddjob.arooa.standard.StandardArooaSession;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measure the beans per second {@link BeanCopy} copies with 10 properties,
+ * compared to getting and setting each property with a property accessor
+ * as it used to.
+ * <p>
+ * Run with the number of beans as an argument, the default is 1 million.
+ */
+public class BeanCopyMain {
+
+    public static class From {
+
+        private final int number;
+
+        public From(int number) {
+            this.number = number;
+        }
+
+        public int getA() { return number; }
+        public long getB() { return number; }
+        public double getC() { return number; }
+        public String getD() { return "d"; }
+        public String getE() { return "e"; }
+        public Integer getF() { return number; }
+        public BigDecimal getG() { return BigDecimal.ONE; }
+        public boolean isH() { return true; }
+        public String getI() { return "i"; }
+        public int getJ() { return number; }
+    }
+
+    public static class To {
+
+        private int a;
+        private long b;
+        private double c;
+        private String d;
+        private String e;
+        private Integer f;
+        private BigDecimal g;
+        private boolean h;
+        private String i;
+        private String j;
+
+        public void setA(int a) { this.a = a; }
+        public void setB(long b) { this.b = b; }
+        public void setC(double c) { this.c = c; }
+        public void setD(String d) { this.d = d; }
+        public void setE(String e) { this.e = e; }
+        public void setF(Integer f) { this.f = f; }
+        public void setG(BigDecimal g) { this.g = g; }
+        public void setH(boolean h) { this.h = h; }
+        public void setI(String i) { this.i = i; }
+        public void setJ(String j) { this.j = j; }
+    }
+
+    static final String[] PROPERTIES = { "a", "b", "c", "d", "e", "f", "g", "h", "i", "j" };
+
+    static long[] sink = new long[1];
+
+    static void measure(String name, Runnable copy, int beans) {
+        long start = System.nanoTime();
+        copy.run();
+        long time = System.nanoTime() - start;
+        System.out.printf("%-10s %8.0f beans per second%n",
+                name, beans * 1_000_000_000.0 / time);
+    }
+
+    public static void main(String... args) {
+
+        int beans = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        ArooaSession session = new StandardArooaSession();
+
+        BeanCopy<From, To> beanCopy = new BeanCopy<>();
+        beanCopy.setArooaSession(session);
+        beanCopy.setArooaClass(new SimpleArooaClass(To.class));
+        for (String property : PROPERTIES) {
+            beanCopy.setMappings(property, property);
+        }
+        beanCopy.setTo(to -> sink[0] += to.a);
+
+        ArooaTools tools = session.getTools();
+        PropertyAccessor accessor = tools.getPropertyAccessor().accessorWithConversions(
+                tools.getArooaConverter());
+        Map<String, String> mappings = new LinkedHashMap<>();
+        for (String property : PROPERTIES) {
+            mappings.put(property, property);
+        }
+
+        Runnable accessorCopy = () -> {
+            for (int i = 0; i < beans; ++i) {
+                From from = new From(i);
+                To to = new To();
+                for (Map.Entry<String, String> mapping : mappings.entrySet()) {
+                    accessor.setProperty(to, mapping.getValue(),
+                            accessor.getProperty(from, mapping.getKey()));
+                }
+                sink[0] += to.a;
+            }
+        };
+
+        Runnable planCopy = () -> {
+            for (int i = 0; i < beans; ++i) {
+                beanCopy.accept(new From(i));
+            }
+        };
+
+        // Once to warm up, then again to measure.
+        for (int i = 0; i < 2; ++i) {
+            measure("accessor", accessorCopy, beans);
+            measure("bean copy", planCopy, beans);
+        }
+    }
+}
@@ -6,13 +6,16 @@ import org.oddjob.Oddjob;
 import org.oddjob.OddjobLookup;
 import org.oddjob.OjTestCase;
 import org.oddjob.arooa.convert.ArooaConversionException;
+import org.oddjob.arooa.life.SimpleArooaClass;
 import org.oddjob.arooa.reflect.ArooaPropertyException;
+import org.oddjob.arooa.standard.StandardArooaSession;
 import org.oddjob.arooa.types.ArooaObject;
 import org.oddjob.arooa.xml.XMLConfiguration;
 import org.oddjob.state.ParentState;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -178,6 +181,53 @@ public class BeanCopyTest extends OjTestCase {
         oddjob.destroy();
     }
 
+    public static class Veg {
+
+        public String getFruit() {
+            return "carrot";
+        }
+
+        public int getQuantity() {
+            return 3;
+        }
+
+        public String getPrice() {
+            return "0.5";
+        }
+    }
+
+    @Test
+    public void testCopyDifferentClassesOfBean() {
+
+        BeanCopy<Object, BeanTo> test = new BeanCopy<>();
+        test.setArooaSession(new StandardArooaSession());
+        test.setArooaClass(new SimpleArooaClass(BeanTo.class));
+        test.setMappings("fruit", "snack");
+        test.setMappings("quantity", "number");
+        test.setMappings("price", "COST");
+
+        List<BeanTo> results = new ArrayList<>();
+        test.setTo(results::add);
+
+        test.accept(new Fruit("apple", 5, 2.45));
+        test.accept(new Veg());
+        test.accept(new Fruit("pear", 2, 1.25));
+
+        assertEquals(3, results.size());
+
+        assertEquals("apple", results.get(0).snack);
+        assertEquals(5, results.get(0).number);
+        assertEquals(2.45, results.get(0).COST, 0.01);
+
+        assertEquals("carrot", results.get(1).snack);
+        assertEquals(3, results.get(1).number);
+        assertEquals(0.5, results.get(1).COST, 0.01);
+
+        assertEquals("pear", results.get(2).snack);
+        assertEquals(2, results.get(2).number);
+        assertEquals(1.25, results.get(2).COST, 0.01);
+    }
+
     public static class Meal {
 
         private final Fruit fruit;
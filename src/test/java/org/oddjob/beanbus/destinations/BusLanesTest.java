@@ -0,0 +1,227 @@
+package org.oddjob.beanbus.destinations;
+
+import org.junit.Test;
+import org.oddjob.Oddjob;
+import org.oddjob.OddjobLookup;
+import org.oddjob.arooa.convert.ArooaConversionException;
+import org.oddjob.arooa.reflect.ArooaPropertyException;
+import org.oddjob.beanbus.SimpleBusConductor;
+import org.oddjob.state.ParentState;
+import org.oddjob.tools.StateSteps;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class BusLanesTest {
+
+    @Test
+    public void testBeansAreProcessedInLanesAndMerged() throws IOException {
+
+        List<Integer> results = new ArrayList<>();
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+
+        BusLanes<Integer, Integer> test = new BusLanes<>();
+        test.setLanes(4);
+        test.setFunction(x -> x * 2);
+        test.setTo(x -> {
+            // ArrayList isn't thread safe so this also checks the merge.
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            results.add(x);
+            concurrent.decrementAndGet();
+        });
+
+        test.start();
+
+        for (int i = 0; i < 1000; ++i) {
+            test.accept(i);
+        }
+
+        test.flush();
+
+        assertThat(results.size(), is(1000));
+        assertThat(maxConcurrent.get(), is(1));
+
+        Collections.sort(results);
+        assertThat(results, is(IntStream.range(0, 1000).map(x -> x * 2)
+                .boxed().collect(Collectors.toList())));
+
+        assertThat(test.getCount(), is(1000));
+        assertThat(test.getPassed(), is(1000));
+        assertThat(test.getLaneCounts(), contains(250, 250, 250, 250));
+
+        test.stop();
+
+        assertThat(test.getLaneCounts(), contains(250, 250, 250, 250));
+
+        test.reset();
+
+        assertThat(test.getCount(), is(0));
+        assertThat(test.getLaneCounts(), nullValue());
+    }
+
+    @Test
+    public void testOrderIsPreservedForEachKey() throws IOException {
+
+        Map<Integer, List<Integer>> results = new ConcurrentHashMap<>();
+        Map<Integer, String> threads = new ConcurrentHashMap<>();
+
+        BusLanes<Integer, Integer> test = new BusLanes<>();
+        test.setLanes(3);
+        test.setKey(x -> x % 10);
+        test.setMerge(false);
+        test.setTo(x -> {
+            int key = x % 10;
+            results.computeIfAbsent(key, k -> new ArrayList<>()).add(x);
+            String thread = threads.computeIfAbsent(key,
+                    k -> Thread.currentThread().getName());
+            assertThat(thread, is(Thread.currentThread().getName()));
+        });
+
+        test.start();
+
+        for (int i = 0; i < 10_000; ++i) {
+            test.accept(i);
+        }
+
+        test.flush();
+        test.stop();
+
+        assertThat(results.size(), is(10));
+
+        for (Map.Entry<Integer, List<Integer>> entry : results.entrySet()) {
+            List<Integer> expected = IntStream.range(0, 1000)
+                    .map(x -> x * 10 + entry.getKey())
+                    .boxed().collect(Collectors.toList());
+            assertThat(entry.getValue(), is(expected));
+        }
+
+        assertThat(test.getLaneCounts().stream().mapToInt(Integer::intValue).sum(),
+                is(10_000));
+    }
+
+    @Test
+    public void testNullResultsAreNotPassedOn() throws IOException {
+
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+
+        BusLanes<Integer, Integer> test = new BusLanes<>();
+        test.setLanes(2);
+        test.setFunction(x -> x % 2 == 0 ? x : null);
+        test.setTo(results::add);
+
+        test.start();
+
+        for (int i = 0; i < 10; ++i) {
+            test.accept(i);
+        }
+
+        test.flush();
+        test.stop();
+
+        assertThat(results, containsInAnyOrder(0, 2, 4, 6, 8));
+        assertThat(test.getCount(), is(10));
+        assertThat(test.getPassed(), is(5));
+    }
+
+    @Test
+    public void testFailureInLaneClosesBusAndIsThrown() throws Exception {
+
+        CountDownLatch closed = new CountDownLatch(1);
+
+        BusLanes<Integer, Integer> test = new BusLanes<>();
+        test.setLanes(2);
+        test.setFunction(x -> {
+            if (x == 5) {
+                throw new IllegalArgumentException("Bad bean " + x);
+            }
+            return x;
+        });
+
+        SimpleBusConductor busConductor = new SimpleBusConductor(test,
+                (AutoCloseable) closed::countDown);
+        busConductor.run();
+
+        test.setBusConductor(busConductor);
+
+        test.start();
+
+        // The failure is thrown from flush, or from accept if it happens first.
+        try {
+            for (int i = 0; i < 10; ++i) {
+                test.accept(i);
+            }
+            test.flush();
+            fail("Should throw.");
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getCause().getMessage(), is("Bad bean 5"));
+        }
+
+        // The bus is closed, which flushes the lanes, without a lane waiting for itself.
+        assertThat(closed.await(5, TimeUnit.SECONDS), is(true));
+
+        try {
+            test.accept(11);
+            fail("Should throw.");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+
+        test.stop();
+
+        // Starting again clears the failure.
+        test.start();
+        test.accept(1);
+        test.flush();
+        test.stop();
+    }
+
+    @Test
+    public void testExample() throws ArooaPropertyException, ArooaConversionException, InterruptedException {
+
+        File config = new File(Objects.requireNonNull(
+                getClass().getResource("BusLanesExample.xml")).getFile());
+
+        Oddjob oddjob = new Oddjob();
+        oddjob.setFile(config);
+
+        StateSteps states = new StateSteps(oddjob);
+        states.startCheck(ParentState.READY,
+                ParentState.EXECUTING,
+                ParentState.COMPLETE);
+
+        oddjob.run();
+
+        states.checkNow();
+
+        OddjobLookup lookup = new OddjobLookup(oddjob);
+
+        List<?> results = lookup.lookup("results.list", List.class);
+
+        assertThat(results.stream().map(x -> ((Number) x).intValue())
+                        .collect(Collectors.toList()),
+                containsInAnyOrder(2, 4, 6, 8, 10, 12));
+
+        assertThat(lookup.lookup("lanes.count", Integer.class), is(6));
+        assertThat(lookup.lookup("lanes.laneCounts", List.class), contains(3, 3));
+
+        oddjob.destroy();
+    }
+}
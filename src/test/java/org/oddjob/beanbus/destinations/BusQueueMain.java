@@ -0,0 +1,74 @@
+package org.oddjob.beanbus.destinations;
+
+/**
+ * Compare the throughput of a {@link BusQueue} as a blocking queue and as a ring buffer
+ * with each wait strategy, moving beans from one producer thread to one consumer thread.
+ * <p>
+ * Run with the number of beans as an argument, the default is 10 million.
+ */
+public class BusQueueMain {
+
+    static long transfer(BusQueue<Integer> queue, int beans) throws InterruptedException {
+
+        long[] sum = new long[1];
+
+        Thread consumer = new Thread(() -> {
+            long total = 0;
+            for (Integer i : queue) {
+                total += i;
+            }
+            sum[0] = total;
+        });
+
+        long start = System.nanoTime();
+
+        consumer.start();
+        queue.start();
+
+        Integer bean = 1;
+        for (int i = 0; i < beans; ++i) {
+            queue.accept(bean);
+        }
+        queue.stop();
+
+        consumer.join();
+
+        long time = System.nanoTime() - start;
+
+        if (sum[0] != beans) {
+            throw new IllegalStateException("Expected " + beans + " but was " + sum[0]);
+        }
+
+        return time;
+    }
+
+    static void measure(String name, BusQueue<Integer> queue, int beans)
+            throws InterruptedException {
+
+        queue.setName(name);
+        queue.setCapacity(1024);
+
+        long time = transfer(queue, beans);
+
+        System.out.printf("%-12s %8.1f ns per bean, %6.1f million beans per second%n",
+                name, (double) time / beans, beans * 1000.0 / time);
+    }
+
+    public static void main(String... args) throws InterruptedException {
+
+        int beans = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        // Once to warm up, then again to measure.
+        for (int i = 0; i < 2; ++i) {
+
+            measure("blocking", new BusQueue<>(), beans);
+
+            for (BusQueue.WaitStrategy waitStrategy : BusQueue.WaitStrategy.values()) {
+                BusQueue<Integer> queue = new BusQueue<>();
+                queue.setRingBuffer(true);
+                queue.setWaitStrategy(waitStrategy);
+                measure("ring " + waitStrategy.name().toLowerCase(), queue, beans);
+            }
+        }
+    }
+}
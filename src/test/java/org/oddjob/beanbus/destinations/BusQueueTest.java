@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
@@ -30,6 +31,7 @@ import java.util.function.Consumer;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
 
 public class BusQueueTest {
 
@@ -191,6 +193,141 @@ public class BusQueueTest {
                 is(100000));
     }
 
+    @Test
+    public void testRingBufferStop() throws InterruptedException {
+
+        final BusQueue<String> test = new BusQueue<>();
+        test.setRingBuffer(true);
+
+        test.start();
+
+        test.accept("apple");
+
+        final List<String> results = new ArrayList<>();
+
+        Thread t = new Thread(() -> {
+            for (String s : test) {
+                results.add(s);
+            }
+        });
+
+        t.start();
+
+        test.accept("pear");
+
+        // Ensure it's waiting
+        Thread.sleep(100);
+
+        test.stop();
+
+        t.join();
+
+        assertThat(results, contains("apple", "pear"));
+        assertThat(test.getTaken(), is(2));
+        assertThat(test.getSize(), is(0));
+
+        // A new consumer sees the stop too.
+        assertThat(test.iterator().hasNext(), is(false));
+    }
+
+    @Test
+    public void testRingBufferStopWhenFull() {
+
+        final BusQueue<String> test = new BusQueue<>();
+        test.setRingBuffer(true);
+        test.setCapacity(2);
+
+        test.start();
+
+        test.accept("apple");
+        test.accept("pear");
+
+        // Doesn't wait for space as stopping puts nothing in the buffer.
+        test.stop();
+
+        List<String> results = new ArrayList<>();
+        for (String s : test) {
+            results.add(s);
+        }
+
+        assertThat(results, contains("apple", "pear"));
+    }
+
+    @Test
+    public void testRingBufferOrderForEachWaitStrategy() throws InterruptedException {
+
+        for (BusQueue.WaitStrategy waitStrategy : BusQueue.WaitStrategy.values()) {
+
+            final BusQueue<Integer> test = new BusQueue<>();
+            test.setRingBuffer(true);
+            test.setCapacity(10);
+            test.setWaitStrategy(waitStrategy);
+
+            final List<Integer> results = new ArrayList<>();
+
+            Thread t = new Thread(() -> {
+                for (Integer i : test) {
+                    results.add(i);
+                }
+            });
+            t.start();
+
+            test.start();
+
+            for (int i = 0; i < 100000; ++i) {
+                test.accept(i);
+            }
+
+            test.stop();
+
+            t.join();
+
+            assertThat(waitStrategy.toString(), results.size(), is(100000));
+            for (int i = 0; i < 100000; ++i) {
+                assertThat(results.get(i), is(i));
+            }
+            assertThat(test.getTaken(), is(100000));
+        }
+    }
+
+    @Test
+    public void testRingBufferOnlyOneConsumer() throws InterruptedException {
+
+        final BusQueue<String> test = new BusQueue<>();
+        test.setRingBuffer(true);
+        test.start();
+
+        Iterator<String> it = test.iterator();
+
+        try {
+            test.iterator();
+            fail("Should fail.");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+
+        test.accept("apple");
+        test.stop();
+
+        assertThat(it.next(), is("apple"));
+        assertThat(it.hasNext(), is(false));
+
+        // Once finished another may consume.
+        assertThat(test.iterator().hasNext(), is(false));
+
+        test.onReset();
+
+        test.start();
+        test.accept("pear");
+        test.stop();
+
+        List<String> results = new ArrayList<>();
+        test.forEach(results::add);
+
+        assertThat(results, contains("pear"));
+    }
+
     @Test
     public void testInOddjob() throws ArooaPropertyException, ArooaConversionException, InterruptedException {
 
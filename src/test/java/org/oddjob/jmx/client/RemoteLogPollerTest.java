@@ -291,6 +291,59 @@ public class RemoteLogPollerTest extends OjTestCase {
 
     }
 
+    /**
+     * Full client server test of events pushed to a {@link RemoteLogStreamer}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStreamingUsingMBean() throws Exception {
+        LogThing component = new LogThing();
+
+        ServerInterfaceManagerFactoryImpl imf =
+                new ServerInterfaceManagerFactoryImpl();
+
+        MyServerContext serverContext = new MyServerContext();
+        serverContext.simf = imf;
+
+        OddjobMBean mb = OddjobMBean.create(
+                component, 0,
+                new OurServerSession(),
+                serverContext);
+
+        MBeanServer mbs = MBeanServerFactory.createMBeanServer();
+
+        long objectId = 2L;
+        ObjectName on = OddjobMBeanFactory.objectName(objectId);
+        mbs.registerMBean(mb, on);
+
+        ClientSession clientSession = new ClientSessionImpl(
+                mbs,
+                new DummyNotificationProcessor(),
+                clientInterfaceManagerFactory,
+                new OurArooaSession(),
+                logger);
+
+        Object proxy = clientSession.create(objectId);
+
+        RemoteLogStreamer streamer = new RemoteLogStreamer(
+                proxy, 10, 10);
+
+        LL cl = new LL();
+        LL ll = new LL();
+
+        streamer.addConsoleListener(cl, proxy, -1, 100);
+        streamer.addLogListener(ll, proxy, LogLevel.DEBUG, -1, 5);
+
+        assertEquals("Hello", ll.text);
+        assertEquals("Goodbye", cl.text);
+
+        streamer.removeConsoleListener(cl, proxy);
+        streamer.removeLogListener(ll, proxy);
+
+        streamer.onDestroy();
+    }
+
     /**
      * Full client server test of not logging.
      *
@@ -3,6 +3,7 @@ package org.oddjob.jmx.client;
 import org.junit.Test;
 import org.oddjob.OjTestCase;
 import org.oddjob.remote.Notification;
+import org.oddjob.remote.NotificationBatch;
 import org.oddjob.remote.NotificationListener;
 import org.oddjob.remote.NotificationType;
 
@@ -57,4 +58,49 @@ public class SynchronizerTest extends OjTestCase {
         assertEquals(n3, results.notifications.get(3));
     }
 
+    @Test
+    public void testFirstNotificationKeptWhenNothingToSyncWith() {
+
+        Notification<String> n0 = new Notification<>(1L, type, 0, "a");
+
+        OurListener results = new OurListener();
+
+        Synchronizer<String> test = new Synchronizer<>(results);
+
+        test.handleNotification(n0);
+
+        test.synchronize((Notification<String>) null);
+
+        assertEquals(Arrays.asList(n0), results.notifications);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Test
+    public void testCompoundNotificationsUnpacked() {
+
+        Notification<String> n0 = new Notification<>(1L, type, 100, "a");
+        Notification<String> n1 = new Notification<>(1L, type, 101, "b");
+        Notification<String> n2 = new Notification<>(1L, type, 102, "c");
+        Notification<String> n3 = new Notification<>(1L, type, 103, "d");
+
+        Notification<String> batch1 = new Notification(1L, type, 101,
+                new NotificationBatch(Arrays.asList(n0, n1)));
+        Notification<String> batch2 = new Notification(1L, type, 103,
+                new NotificationBatch(Arrays.asList(n2, n3)));
+
+        OurListener results = new OurListener();
+
+        Synchronizer<String> test = new Synchronizer<>(results);
+
+        test.handleNotification(batch1);
+
+        test.synchronize(n1);
+
+        assertEquals(Arrays.asList(n1), results.notifications);
+
+        test.handleNotification(batch2);
+
+        assertEquals(Arrays.asList(n1, n2, n3), results.notifications);
+    }
+
 }
@@ -2,19 +2,53 @@ package org.oddjob.jmx.handlers;
 
 import org.junit.Test;
 import org.oddjob.OjTestCase;
+import org.oddjob.Structural;
 import org.oddjob.arooa.logging.LogLevel;
 import org.oddjob.arooa.registry.ServerId;
+import org.oddjob.arooa.standard.StandardArooaSession;
+import org.oddjob.jmx.JMXClientJob;
+import org.oddjob.jmx.JMXServerJob;
+import org.oddjob.jmx.RemoteOperation;
 import org.oddjob.jmx.client.ClientSideToolkit;
 import org.oddjob.jmx.client.LogPollable;
 import org.oddjob.jmx.client.MockClientSideToolkit;
 import org.oddjob.jmx.server.*;
 import org.oddjob.logging.*;
+import org.oddjob.remote.NoSuchOperationException;
+import org.oddjob.remote.Notification;
+import org.oddjob.remote.NotificationListener;
+import org.oddjob.remote.NotificationType;
 import org.oddjob.remote.RemoteException;
+import org.oddjob.remote.util.NotifierListener;
+import org.oddjob.structural.ChildHelper;
+import org.oddjob.structural.StructuralListener;
+import org.oddjob.tools.OddjobTestHelper;
+import org.oddjob.tools.WaitForChildren;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 
 public class LogPollableHandlerFactoryTest extends OjTestCase {
 
     static class OurServerSideToolkit extends MockServerSideToolkit {
 
+        @Override
+        public <T> void setNotifierListener(NotificationType<T> type, NotifierListener<T> notifierListener) {
+        }
+
         @Override
         public ServerContext getContext() {
             return new MockServerContext() {
@@ -61,6 +95,10 @@ public class LogPollableHandlerFactoryTest extends OjTestCase {
 
         LogArchiver archiver;
 
+        @Override
+        public <T> void setNotifierListener(NotificationType<T> type, NotifierListener<T> notifierListener) {
+        }
+
         @Override
         public ServerContext getContext() {
             return new MockServerContext() {
@@ -157,6 +195,10 @@ public class LogPollableHandlerFactoryTest extends OjTestCase {
 
         ConsoleArchiver archiver;
 
+        @Override
+        public <T> void setNotifierListener(NotificationType<T> type, NotifierListener<T> notifierListener) {
+        }
+
         @Override
         public ServerContext getContext() {
             return new MockServerContext() {
@@ -243,4 +285,346 @@ public class LogPollableHandlerFactoryTest extends OjTestCase {
 
         assertNull(archiver.l);
     }
+
+    static class PushingServerSideToolkit extends SecondServerSideToolkit {
+
+        final Map<NotificationType<?>, NotificationListener<?>> clientListeners = new HashMap<>();
+
+        @Override
+        public <T> Notification<T> createNotification(NotificationType<T> type, T userData) {
+            return new Notification<>(1L, type, 0L, userData);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void sendNotification(Notification<?> notification) {
+            NotificationListener<Object> listener =
+                    (NotificationListener<Object>) clientListeners.get(notification.getType());
+            if (listener != null) {
+                listener.handleNotification((Notification<Object>) notification);
+            }
+        }
+    }
+
+    static LogListener messagesTo(List<String> received) {
+        return new LogListener() {
+            @Override
+            public void logEvent(LogEvent logEvent) {
+                received.add(logEvent.getMessage());
+            }
+
+            @Override
+            public void logEvents(List<LogEvent> logEvents) {
+                for (LogEvent logEvent : logEvents) {
+                    received.add(logEvent.getMessage());
+                }
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testPushedLogEvents() throws RemoteException {
+
+        OurArchiver archiver = new OurArchiver();
+
+        PushingServerSideToolkit serverKit = new PushingServerSideToolkit();
+        serverKit.archiver = archiver;
+
+        ServerInterfaceHandler serverHandler = new LogPollableHandlerFactory()
+                .createServerHandler(null, serverKit);
+
+        ClientSideToolkit toolkit = MockClientSideToolkit.mockToolkit(serverHandler);
+        doAnswer(invocation -> {
+            serverKit.clientListeners.put(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(toolkit).registerNotificationListener(any(NotificationType.class),
+                any(NotificationListener.class));
+        doAnswer(invocation -> {
+            serverKit.clientListeners.remove(invocation.getArgument(0));
+            return null;
+        }).when(toolkit).removeNotificationListener(any(NotificationType.class),
+                any(NotificationListener.class));
+
+        LogPollable client = new LogPollableHandlerFactory.ClientFactory(
+        ).createClientHandler(null, toolkit);
+
+        List<String> received = new CopyOnWriteArrayList<>();
+        LogListener listener = messagesTo(received);
+
+        assertThat(client.subscribeLogEvents(listener), is(true));
+
+        assertNotNull(archiver.l);
+
+        // Renewing doesn't subscribe twice.
+        assertThat(client.subscribeLogEvents(listener), is(true));
+
+        archiver.l.logEvent(archiver.logEvents[0]);
+        archiver.l.logEvents(Arrays.asList(
+                archiver.logEvents[1], archiver.logEvents[2]));
+
+        // Events are sent on by another thread.
+        awaitSize(received, 3);
+
+        assertThat(received, contains("1", "2", "3"));
+
+        client.unsubscribeLogEvents(listener);
+
+        assertNull(archiver.l);
+
+        serverHandler.destroy();
+    }
+
+    static void awaitSize(List<?> list, int size) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (list.size() < size) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Expected " + size + " but was " + list);
+            }
+            Thread.yield();
+        }
+    }
+
+    static void subscribe(ServerInterfaceHandler serverHandler, String subscriber)
+            throws NoSuchOperationException {
+        serverHandler.invoke(LogPollableHandlerFactory.SUBSCRIBE_EVENTS,
+                new Object[] { LogPollableHandlerFactory.LOG_EVENTS_NOTIF_TYPE.getName(),
+                        subscriber });
+    }
+
+    @Test
+    public void testBlockedDeliveryDoesNotHoldUpArchive() throws Exception {
+
+        OurArchiver archiver = new OurArchiver();
+
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<LogEvent[]> sent = new CopyOnWriteArrayList<>();
+
+        PushingServerSideToolkit serverKit = new PushingServerSideToolkit() {
+            @Override
+            public void sendNotification(Notification<?> notification) {
+                sending.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sent.add((LogEvent[]) notification.getData());
+            }
+        };
+        serverKit.archiver = archiver;
+
+        ServerInterfaceHandler serverHandler = new LogPollableHandlerFactory()
+                .createServerHandler(null, serverKit);
+
+        subscribe(serverHandler, "a");
+
+        assertNotNull(archiver.l);
+
+        archiver.l.logEvent(archiver.logEvents[0]);
+
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // Delivery is blocked but the archive can carry on.
+        archiver.l.logEvent(archiver.logEvents[1]);
+        archiver.l.logEvent(archiver.logEvents[2]);
+
+        release.countDown();
+
+        awaitSize(sent, 2);
+
+        assertThat(sent.get(0).length, is(1));
+        assertThat(sent.get(1).length, is(2));
+        assertEquals("3", sent.get(1)[1].getMessage());
+
+        serverHandler.destroy();
+    }
+
+    @Test
+    public void testLapsedSubscriptionStopsListening() throws Exception {
+
+        OurArchiver archiver = new OurArchiver();
+
+        List<LogEvent[]> sent = new CopyOnWriteArrayList<>();
+
+        PushingServerSideToolkit serverKit = new PushingServerSideToolkit() {
+            @Override
+            public void sendNotification(Notification<?> notification) {
+                sent.add((LogEvent[]) notification.getData());
+            }
+        };
+        serverKit.archiver = archiver;
+
+        ServerInterfaceHandler serverHandler = new LogPollableHandlerFactory(50L)
+                .createServerHandler(null, serverKit);
+
+        subscribe(serverHandler, "a");
+
+        archiver.l.logEvent(archiver.logEvents[0]);
+
+        awaitSize(sent, 1);
+
+        Thread.sleep(100L);
+
+        // The archive is listened to until there are events to push.
+        assertNotNull(archiver.l);
+
+        archiver.l.logEvent(archiver.logEvents[1]);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (archiver.l != null) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Still listening.");
+            }
+            Thread.yield();
+        }
+
+        assertThat(sent.size(), is(1));
+
+        // Subscribing again starts listening again.
+        subscribe(serverHandler, "a");
+
+        assertNotNull(archiver.l);
+
+        serverHandler.destroy();
+
+        assertNull(archiver.l);
+    }
+
+    @Test
+    public void testNoPushFromOldServer() throws RemoteException {
+
+        List<NotificationListener<?>> listeners = new CopyOnWriteArrayList<>();
+
+        ClientSideToolkit toolkit = new MockClientSideToolkit() {
+            @Override
+            public <T> T invoke(RemoteOperation<T> remoteOperation, Object... args) throws RemoteException {
+                if (remoteOperation.getActionName().startsWith("logEvents")) {
+                    throw NoSuchOperationException.of(1L,
+                            remoteOperation.getActionName(), remoteOperation.getSignature());
+                }
+                return null;
+            }
+
+            @Override
+            public <T> void registerNotificationListener(NotificationType<T> eventType,
+                                                         NotificationListener<T> notificationListener) {
+                listeners.add(notificationListener);
+            }
+
+            @Override
+            public <T> void removeNotificationListener(NotificationType<T> eventType,
+                                                       NotificationListener<T> notificationListener) {
+                listeners.remove(notificationListener);
+            }
+        };
+
+        LogPollable client = new LogPollableHandlerFactory.ClientFactory(
+        ).createClientHandler(null, toolkit);
+
+        assertThat(client.subscribeConsoleEvents(logEvent -> {}), is(false));
+
+        assertThat(listeners, empty());
+    }
+
+    /**
+     * A root that archives the logs of its children so that which the
+     * server is listening to can be seen.
+     */
+    public static class ArchivingRoot implements Structural, LogArchiver {
+
+        final ChildHelper<Object> childHelper = new ChildHelper<>(this);
+
+        final Map<Object, LogListener> listening = new ConcurrentHashMap<>();
+
+        @Override
+        public void addLogListener(LogListener l, Object component,
+                                   LogLevel level, long last, int max) {
+            listening.put(component, l);
+        }
+
+        @Override
+        public void removeLogListener(LogListener l, Object component) {
+            listening.remove(component, l);
+        }
+
+        @Override
+        public void addStructuralListener(StructuralListener listener) {
+            childHelper.addStructuralListener(listener);
+        }
+
+        @Override
+        public void removeStructuralListener(StructuralListener listener) {
+            childHelper.removeStructuralListener(listener);
+        }
+    }
+
+    /**
+     * The RMI connector listens to every MBean on behalf of its clients so
+     * this checks that only what's subscribed to is pushed.
+     */
+    @Test
+    public void testOnlySubscribedEventsArePushedOverRmi() throws Exception {
+
+        Object apple = new Object() {
+            @Override
+            public String toString() {
+                return "apple";
+            }
+        };
+        Object pear = new Object() {
+            @Override
+            public String toString() {
+                return "pear";
+            }
+        };
+
+        ArchivingRoot root = new ArchivingRoot();
+        root.childHelper.insertChild(0, apple);
+        root.childHelper.insertChild(1, pear);
+
+        JMXServerJob server = new JMXServerJob();
+        server.setRoot(root);
+        server.setArooaSession(new StandardArooaSession());
+        server.setUrl("service:jmx:rmi://");
+        server.start();
+
+        JMXClientJob client = new JMXClientJob();
+        client.setArooaSession(new StandardArooaSession());
+        client.setConnection(server.getAddress());
+        client.run();
+
+        Object rootProxy = OddjobTestHelper.getChildren(client)[0];
+
+        WaitForChildren wait = new WaitForChildren(rootProxy);
+        wait.waitFor(2);
+
+        LogPollable appleProxy = (LogPollable) wait.children()[0];
+
+        assertThat(root.listening.isEmpty(), is(true));
+
+        List<String> received = new CopyOnWriteArrayList<>();
+        LogListener listener = messagesTo(received);
+
+        assertThat(appleProxy.subscribeLogEvents(listener), is(true));
+
+        assertThat(root.listening.keySet(), contains(apple));
+
+        root.listening.get(apple).logEvent(
+                new LogEvent("apple", 0L, LogLevel.INFO, "Hello"));
+
+        awaitSize(received, 1);
+
+        assertThat(received, contains("Hello"));
+
+        appleProxy.unsubscribeLogEvents(listener);
+
+        assertThat(root.listening.isEmpty(), is(true));
+
+        client.stop();
+        server.stop();
+    }
 }
@@ -38,6 +38,8 @@ public class StructuralHandlerFactoryTest {
 
         Map<Long, Object> children = new HashMap<>();
 
+        List<String> calls = new ArrayList<>();
+
         long objectId = 2L;
         int seq = 0;
 
@@ -47,6 +49,11 @@ public class StructuralHandlerFactoryTest {
             notifications.add((Notification<ChildData>) notification);
         }
 
+        @Override
+        public void flushNotifications() {
+            calls.add("flush");
+        }
+
         @Override
         public void runSynchronized(Runnable runnable) {
             runnable.run();
@@ -70,6 +77,7 @@ public class StructuralHandlerFactoryTest {
                 public void destroy(long childName) {
                     Object child = children.remove(childName);
                     assertThat(child, notNullValue());
+                    calls.add("destroy " + childName);
                 }
             };
         }
@@ -103,6 +111,21 @@ public class StructuralHandlerFactoryTest {
         }
     }
 
+    @Test
+    public void testNotificationsFlushedBeforeChildDestroyed() {
+
+        MyStructural structural = new MyStructural();
+        structural.helper.insertChild(0, new Object());
+
+        OurServerSideToolkit toolkit = new OurServerSideToolkit();
+
+        new StructuralHandlerFactory().createServerHandler(structural, toolkit);
+
+        structural.helper.removeChildAt(0);
+
+        assertThat(toolkit.calls, is(List.of("flush", "destroy 2")));
+    }
+
     @Test
     public void testServerSide() throws Throwable {
 
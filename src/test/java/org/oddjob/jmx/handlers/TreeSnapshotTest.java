@@ -0,0 +1,319 @@
+package org.oddjob.jmx.handlers;
+
+import org.junit.Test;
+import org.oddjob.OddjobConsole;
+import org.oddjob.Stateful;
+import org.oddjob.Structural;
+import org.oddjob.arooa.*;
+import org.oddjob.arooa.registry.BeanRegistry;
+import org.oddjob.arooa.registry.ServerId;
+import org.oddjob.arooa.registry.SimpleBeanRegistry;
+import org.oddjob.arooa.standard.StandardArooaSession;
+import org.oddjob.jmx.SharedConstants;
+import org.oddjob.jmx.client.*;
+import org.oddjob.jmx.server.*;
+import org.oddjob.jobs.structural.JobFolder;
+import org.oddjob.state.FlagState;
+import org.oddjob.state.JobState;
+import org.oddjob.state.StateEvent;
+import org.oddjob.structural.StructuralEvent;
+import org.oddjob.structural.StructuralListener;
+import org.oddjob.util.MockThreadManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TreeSnapshotTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TreeSnapshotTest.class);
+
+    private static class OurArooaSession extends MockArooaSession {
+        @Override
+        public ArooaDescriptor getArooaDescriptor() {
+            return new MockArooaDescriptor() {
+                @Override
+                public ClassResolver getClassResolver() {
+                    return new MockClassResolver() {
+                        @Override
+                        public Class<?> findClass(String className) {
+                            try {
+                                return Class.forName(className);
+                            } catch (ClassNotFoundException e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * Count the operations invoked on the server.
+     */
+    static MBeanServerConnection countingConnection(MBeanServerConnection mbs, Map<String, Integer> counts) {
+        return (MBeanServerConnection) Proxy.newProxyInstance(
+                TreeSnapshotTest.class.getClassLoader(),
+                new Class<?>[]{MBeanServerConnection.class},
+                (proxy, method, args) -> {
+                    if ("invoke".equals(method.getName())) {
+                        counts.merge((String) args[1], 1, Integer::sum);
+                    }
+                    try {
+                        return method.invoke(mbs, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    static class ChildListener implements StructuralListener {
+
+        final List<Object> children = new ArrayList<>();
+
+        @Override
+        public void childAdded(StructuralEvent event) {
+            children.add(event.getIndex(), event.getChild());
+        }
+
+        @Override
+        public void childRemoved(StructuralEvent event) {
+            children.remove(event.getIndex());
+        }
+    }
+
+    /**
+     * A clock the test moves on.
+     */
+    static class OurClock extends Clock {
+
+        volatile long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    /**
+     * Create the MBeans for a tree.
+     *
+     * @return The remote id of the root.
+     */
+    static long registerTree(Object root, MBeanServer mbs) throws Exception {
+
+        ServerInterfaceManagerFactoryImpl imf =
+                new ServerInterfaceManagerFactoryImpl();
+        imf.addServerHandlerFactories(
+                new ServerInterfaceHandlerFactory<?, ?>[]{
+                        new StructuralHandlerFactory(),
+                        new StatefulHandlerFactory(),
+                        new IconicHandlerFactory()
+                });
+
+        ServerModel sm = new ServerModelImpl(
+                new ServerId("//whatever"),
+                new MockThreadManager(),
+                imf);
+
+        BeanRegistry beanRegistry = new SimpleBeanRegistry();
+        ServerContext parentContext = mock(ServerContext.class);
+        when(parentContext.getBeanDirectory()).thenReturn(beanRegistry);
+
+        ServerContext serverContext = new ServerContextImpl(
+                root, sm, parentContext);
+
+        OddjobMBeanFactory factory = new OddjobMBeanFactory(mbs,
+                new StandardArooaSession());
+
+        return factory.createMBeanFor(root, serverContext);
+    }
+
+    static ClientInterfaceManagerFactory clientInterfaceManagerFactory() {
+        return new ClientInterfaceManagerFactoryBuilder()
+                .addFactories(SharedConstants.DEFAULT_CLIENT_HANDLER_FACTORIES)
+                .addFactories(new StructuralHandlerFactory.ClientFactory(),
+                        new StatefulHandlerFactory.ClientFactory(),
+                        new IconicHandlerFactory.ClientFactory())
+                .build();
+    }
+
+    @Test
+    public void testTreeIsSynchronisedFromOneSnapshot() throws Exception {
+
+        try (OddjobConsole.Close close = OddjobConsole.initialise()) {
+
+            JobFolder root = new JobFolder();
+            for (int i = 0; i < 3; ++i) {
+                JobFolder folder = new JobFolder();
+                for (int j = 0; j < 3; ++j) {
+                    FlagState flag = new FlagState(JobState.COMPLETE);
+                    if (j == 1) {
+                        flag.run();
+                    }
+                    folder.setJobs(j, flag);
+                }
+                root.setJobs(i, folder);
+            }
+
+            MBeanServer mbs = MBeanServerFactory.createMBeanServer();
+
+            long rootId = registerTree(root, mbs);
+
+            Map<String, Integer> counts = new ConcurrentHashMap<>();
+
+            ClientSession clientSession = new ClientSessionImpl(
+                    countingConnection(mbs, counts),
+                    new DummyNotificationProcessor(),
+                    clientInterfaceManagerFactory(),
+                    new OurArooaSession(),
+                    logger);
+
+            Structural rootProxy = (Structural) clientSession.create(rootId);
+
+            ChildListener rootChildren = new ChildListener();
+            rootProxy.addStructuralListener(rootChildren);
+
+            assertThat(rootChildren.children.size(), is(3));
+
+            List<ChildListener> folderListeners = new ArrayList<>();
+            for (Object folderProxy : rootChildren.children) {
+                ChildListener folderChildren = new ChildListener();
+                ((Structural) folderProxy).addStructuralListener(folderChildren);
+                folderListeners.add(folderChildren);
+
+                assertThat(folderChildren.children.size(), is(3));
+
+                for (int j = 0; j < 3; ++j) {
+                    Stateful flagProxy = (Stateful) folderChildren.children.get(j);
+                    List<StateEvent> states = new ArrayList<>();
+                    flagProxy.addStateListener(states::add);
+
+                    assertThat(states.get(0).getState(),
+                            is(j == 1 ? JobState.COMPLETE : JobState.READY));
+                }
+            }
+
+            logger.info("Operations invoked: {}", counts);
+
+            assertThat(counts.get("structuralSnapshot"), is(1));
+            assertThat(counts.get("serverInfo"), is(1));
+            assertThat(counts.containsKey("structuralSynchronize"), is(false));
+            assertThat(counts.containsKey("statefulSynchronize"), is(false));
+
+            clientSession.destroyAll();
+        }
+    }
+
+    /**
+     * A state change the client's listener wasn't registered for in time
+     * over a real connector is only missed until the snapshot expires.
+     */
+    @Test
+    public void testExpiredSnapshotIsNotUsedOverRmi() throws Exception {
+
+        try (OddjobConsole.Close close = OddjobConsole.initialise()) {
+
+            FlagState flag = new FlagState(JobState.COMPLETE);
+
+            JobFolder root = new JobFolder();
+            root.setJobs(0, flag);
+
+            MBeanServer mbs = MBeanServerFactory.createMBeanServer();
+
+            long rootId = registerTree(root, mbs);
+
+            JMXConnectorServer connectorServer = JMXConnectorServerFactory.newJMXConnectorServer(
+                    new JMXServiceURL("service:jmx:rmi://"), null, mbs);
+            connectorServer.start();
+
+            JMXConnector connector = JMXConnectorFactory.connect(
+                    connectorServer.getAddress());
+
+            OurClock clock = new OurClock();
+            PrefetchCache prefetchCache = new PrefetchCache(1000L, clock);
+
+            Map<String, Integer> counts = new ConcurrentHashMap<>();
+
+            ClientSession clientSession = new ClientSessionImpl(
+                    countingConnection(connector.getMBeanServerConnection(), counts),
+                    new DummyNotificationProcessor(),
+                    clientInterfaceManagerFactory(),
+                    new OurArooaSession(),
+                    logger) {
+                @Override
+                public PrefetchCache getPrefetchCache() {
+                    return prefetchCache;
+                }
+            };
+
+            Structural rootProxy = (Structural) clientSession.create(rootId);
+
+            ChildListener rootChildren = new ChildListener();
+            rootProxy.addStructuralListener(rootChildren);
+
+            assertThat(rootChildren.children.size(), is(1));
+            assertThat(counts.get("structuralSnapshot"), is(1));
+
+            // Changed after the snapshot but before the client listens.
+            flag.run();
+
+            clock.millis = 2000L;
+
+            BlockingQueue<StateEvent> states = new LinkedBlockingQueue<>();
+            Stateful flagProxy = (Stateful) rootChildren.children.get(0);
+            flagProxy.addStateListener(states::add);
+
+            assertThat(counts.get("statefulSynchronize"), is(1));
+            assertThat(states.poll().getState(), is(JobState.COMPLETE));
+
+            flag.hardReset();
+
+            StateEvent reset = states.poll(5, TimeUnit.SECONDS);
+            assertThat(reset, notNullValue());
+            assertThat(reset.getState(), is(JobState.READY));
+
+            clientSession.destroyAll();
+
+            connector.close();
+            connectorServer.stop();
+        }
+    }
+}
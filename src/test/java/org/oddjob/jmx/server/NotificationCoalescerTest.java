@@ -0,0 +1,181 @@
+package org.oddjob.jmx.server;
+
+import org.junit.Test;
+import org.oddjob.jmx.client.Synchronizer;
+import org.oddjob.jmx.general.RemoteBridge;
+import org.oddjob.jmx.handlers.IconicHandlerFactory;
+import org.oddjob.jmx.handlers.IconicHandlerFactory.IconData;
+import org.oddjob.jmx.handlers.LogPollableHandlerFactory;
+import org.oddjob.jmx.handlers.StatefulHandlerFactory;
+import org.oddjob.jmx.handlers.StatefulHandlerFactory.StateData;
+import org.oddjob.logging.LogEvent;
+import org.oddjob.remote.Notification;
+import org.oddjob.remote.NotificationBatch;
+import org.oddjob.remote.NotificationType;
+import org.oddjob.remote.util.NotificationControl;
+import org.oddjob.remote.util.NotifierListener;
+import org.oddjob.state.JobState;
+import org.oddjob.state.StateInstant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class NotificationCoalescerTest {
+
+    static final NotificationType<StateData> STATE_TYPE =
+            StatefulHandlerFactory.STATE_CHANGE_NOTIF_TYPE;
+
+    static final NotificationType<IconData> ICON_TYPE =
+            IconicHandlerFactory.ICON_CHANGED_NOTIF_TYPE;
+
+    static class Recording implements NotificationControl {
+
+        final BlockingQueue<Notification<?>> sent = new LinkedBlockingQueue<>();
+
+        @Override
+        public void sendNotification(Notification<?> notification) {
+            sent.add(notification);
+        }
+
+        @Override
+        public <T> void setNotifierListener(NotificationType<T> type, NotifierListener<T> notifierListener) {
+        }
+    }
+
+    static Notification<StateData> stateNotification(long sequence, JobState state) {
+        return new Notification<>(2L, STATE_TYPE, sequence,
+                new StateData(state, StateInstant.now(), null));
+    }
+
+    static Notification<IconData> iconNotification(long sequence, String iconId) {
+        return new Notification<>(2L, ICON_TYPE, sequence, new IconData(iconId));
+    }
+
+    @Test
+    public void testStatesBatchedAndLatestIconKept() {
+
+        Recording recording = new Recording();
+
+        try (NotificationCoalescer coalescer = new NotificationCoalescer(60_000L)) {
+
+            NotificationCoalescer.Control test = coalescer.controlFor(recording);
+
+            test.sendNotification(stateNotification(0, JobState.EXECUTING));
+            test.sendNotification(iconNotification(1, "executing"));
+            test.sendNotification(stateNotification(2, JobState.COMPLETE));
+            test.sendNotification(iconNotification(3, "complete"));
+
+            Notification<LogEvent[]> logNotification = new Notification<>(2L,
+                    LogPollableHandlerFactory.LOG_EVENTS_NOTIF_TYPE, 4, new LogEvent[0]);
+            test.sendNotification(logNotification);
+
+            // Not a batched type so sent immediately.
+            assertThat(recording.sent.size(), is(1));
+            assertThat(recording.sent.poll(), sameInstance(logNotification));
+
+            test.flush();
+
+            assertThat(recording.sent.size(), is(2));
+
+            Notification<?> states = recording.sent.poll();
+            assertThat(states.getType(), is(STATE_TYPE));
+            assertThat(states.getSequence(), is(2L));
+            assertThat(states.getData(), instanceOf(NotificationBatch.class));
+
+            List<Long> sequences = ((NotificationBatch) states.getData()).getNotifications()
+                    .stream().map(Notification::getSequence).collect(Collectors.toList());
+            assertThat(sequences, contains(0L, 2L));
+
+            Notification<?> icon = recording.sent.poll();
+            assertThat(icon.getType(), is(ICON_TYPE));
+            assertThat(icon.getSequence(), is(3L));
+            assertThat(((IconData) icon.getData()).getIconId(), is("complete"));
+
+            test.flush();
+
+            assertThat(recording.sent.size(), is(0));
+        }
+    }
+
+    @Test
+    public void testSentAfterWindow() throws InterruptedException {
+
+        Recording recording = new Recording();
+
+        try (NotificationCoalescer coalescer = new NotificationCoalescer(50L)) {
+
+            NotificationCoalescer.Control test = coalescer.controlFor(recording);
+
+            for (int i = 0; i < 100; ++i) {
+                test.sendNotification(iconNotification(i, "icon-" + i));
+            }
+
+            Notification<?> icon = recording.sent.poll(5, TimeUnit.SECONDS);
+            assertThat(icon, notNullValue());
+            assertThat(icon.getSequence(), is(99L));
+
+            test.sendNotification(iconNotification(100, "icon-100"));
+
+            icon = recording.sent.poll(5, TimeUnit.SECONDS);
+            assertThat(icon, notNullValue());
+            assertThat(icon.getSequence(), is(100L));
+        }
+    }
+
+    /**
+     * Batches go through JMX to a client {@link Synchronizer} that unpacks them.
+     */
+    @Test
+    public void testSynchronizerUnpacksBatchSentThroughJmx() throws Exception {
+
+        JmxListenerHelper listenerHelper = new JmxListenerHelper(
+                OddjobMBeanFactory.objectName(2L));
+        listenerHelper.setNotificationTypes(Set.of(STATE_TYPE, ICON_TYPE));
+
+        List<Notification<StateData>> received = new ArrayList<>();
+
+        Synchronizer<StateData> synchronizer = new Synchronizer<>(received::add);
+
+        listenerHelper.addNotificationListener(
+                RemoteBridge.toJmxListener(2L, synchronizer, StateData.class),
+                RemoteBridge.createTypeFilterFor(STATE_TYPE), null);
+
+        try (NotificationCoalescer coalescer = new NotificationCoalescer(60_000L)) {
+
+            NotificationCoalescer.Control test = coalescer.controlFor(listenerHelper);
+
+            test.sendNotification(stateNotification(5, JobState.READY));
+            test.sendNotification(stateNotification(6, JobState.EXECUTING));
+            test.sendNotification(stateNotification(7, JobState.COMPLETE));
+
+            test.flush();
+
+            // Still synchronising so pending.
+            assertThat(received.size(), is(0));
+
+            synchronizer.synchronize(stateNotification(6, JobState.EXECUTING));
+
+            test.sendNotification(stateNotification(8, JobState.READY));
+            test.sendNotification(stateNotification(9, JobState.EXECUTING));
+
+            test.flush();
+        }
+
+        List<Long> sequences = received.stream()
+                .map(Notification::getSequence).collect(Collectors.toList());
+
+        assertThat(sequences, contains(6L, 7L, 8L, 9L));
+
+        for (Notification<StateData> notification : received) {
+            assertThat(notification.getData(), instanceOf(StateData.class));
+        }
+    }
+}
@@ -20,6 +20,7 @@ import org.oddjob.logging.LogEnabled;
 import org.oddjob.remote.Implementation;
 import org.oddjob.remote.Notification;
 import org.oddjob.remote.NotificationType;
+import org.oddjob.remote.util.NotifierListener;
 import org.oddjob.tools.OddjobTestHelper;
 
 import java.util.ArrayList;
@@ -96,6 +97,10 @@ public class ServerMainBeanTest {
             sent.add(notification);
         }
 
+        @Override
+        public <T> void setNotifierListener(NotificationType<T> type, NotifierListener<T> notifierListener) {
+        }
+
         @Override
         public ServerSession getServerSession() {
             return new MockServerSession() {
@@ -0,0 +1,334 @@
+package org.oddjob.jmx.socket;
+
+import org.junit.Test;
+import org.oddjob.Oddjob;
+import org.oddjob.OddjobLookup;
+import org.oddjob.Stateful;
+import org.oddjob.arooa.standard.StandardArooaSession;
+import org.oddjob.arooa.xml.XMLConfiguration;
+import org.oddjob.jmx.JMXClientJob;
+import org.oddjob.jmx.handlers.RemoteOddjobHandlerFactory;
+import org.oddjob.jmx.handlers.StatefulHandlerFactory;
+import org.oddjob.jmx.handlers.StatefulHandlerFactory.StateData;
+import org.oddjob.jmx.server.OddjobMBeanFactory;
+import org.oddjob.jmx.server.ServerInfo;
+import org.oddjob.jmx.server.ServerSide;
+import org.oddjob.jmx.server.ServerSideBuilder;
+import org.oddjob.remote.*;
+import org.oddjob.state.FlagState;
+import org.oddjob.state.JobState;
+import org.oddjob.state.ParentState;
+import org.oddjob.state.ServiceState;
+import org.oddjob.tools.OddjobTestHelper;
+import org.oddjob.tools.StateSteps;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.awt.Point;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class SocketConnectorTest {
+
+    @Test
+    public void testClientAndServerJobsOverSocket() throws Exception {
+
+        String xml =
+                "<oddjob xmlns:jmx='http://rgordon.co.uk/oddjob/jmx'>" +
+                        " <job>" +
+                        "  <sequential>" +
+                        "   <jobs>" +
+                        "    <jmx:server id='server' root='${apples}' url='service:jmx:oddjob://localhost:0'/>" +
+                        "    <folder>" +
+                        "     <jobs>" +
+                        "      <echo id='apples' name='Apples'>Apples</echo>" +
+                        "     </jobs>" +
+                        "    </folder>" +
+                        "   </jobs>" +
+                        "  </sequential>" +
+                        " </job>" +
+                        "</oddjob>";
+
+        Oddjob oddjob = new Oddjob();
+        oddjob.setConfiguration(new XMLConfiguration("XML", xml));
+
+        oddjob.run();
+
+        assertThat(oddjob.lastStateEvent().getState(), is(ParentState.STARTED));
+
+        String address = new OddjobLookup(oddjob).lookup("server.address", String.class);
+
+        assertThat(address, startsWith("service:jmx:oddjob://"));
+
+        JMXClientJob client = new JMXClientJob();
+        client.setArooaSession(new StandardArooaSession());
+        client.setConnection(address);
+
+        client.run();
+
+        assertThat(client.lastStateEvent().getState(), is(ServiceState.STARTED));
+
+        Object[] children = OddjobTestHelper.getChildren(client);
+
+        assertThat(children.length, is(1));
+        assertThat(children[0].toString(), is("Apples"));
+
+        StateSteps states = new StateSteps((Stateful) children[0]);
+        states.startCheck(JobState.READY, JobState.EXECUTING, JobState.COMPLETE);
+
+        ((Runnable) children[0]).run();
+
+        states.checkWait();
+
+        client.stop();
+
+        assertThat(client.lastStateEvent().getState(), is(ServiceState.STOPPED));
+
+        oddjob.destroy();
+    }
+
+    @Test
+    public void testRemoteConnectionInvokeAndNotify() throws Exception {
+
+        FlagState root = new FlagState();
+
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+
+        try (ServerSide serverSide = ServerSideBuilder.withSession(new StandardArooaSession())
+                .buildWith(mBeanServer, "TEST-SERVER", root);
+             SocketServer socketServer = SocketServer.start(
+                     new InetSocketAddress("localhost", 0), mBeanServer, null);
+             SocketRemoteConnection test = SocketRemoteConnection.connect(
+                     socketServer.getAddress(), null)) {
+
+            ServerInfo serverInfo = test.invoke(0L, OperationType
+                    .ofName(RemoteOddjobHandlerFactory.SERVER_INFO.getActionName())
+                    .returning(ServerInfo.class));
+
+            assertThat(serverInfo, notNullValue());
+
+            long remoteId = serverSide.getRemoteIdMappings().idFor(root);
+
+            BlockingQueue<Notification<StateData>> received = new LinkedBlockingQueue<>();
+            NotificationListener<StateData> listener = received::add;
+
+            test.addNotificationListener(remoteId,
+                    StatefulHandlerFactory.STATE_CHANGE_NOTIF_TYPE, listener);
+
+            root.run();
+
+            Notification<StateData> executing = received.poll(5, TimeUnit.SECONDS);
+            assertThat(executing, notNullValue());
+            assertThat(executing.getData().getJobState(), is(JobState.EXECUTING));
+
+            Notification<StateData> complete = received.poll(5, TimeUnit.SECONDS);
+            assertThat(complete, notNullValue());
+            assertThat(complete.getData().getJobState(), is(JobState.COMPLETE));
+            assertThat(complete.getSequence(), greaterThan(executing.getSequence()));
+
+            test.removeNotificationListener(remoteId,
+                    StatefulHandlerFactory.STATE_CHANGE_NOTIF_TYPE, listener);
+
+            try {
+                test.invoke(999L, OperationType.ofName("run").returningVoid());
+                fail("Should fail.");
+            }
+            catch (RemoteUnknownException e) {
+                // expected
+            }
+        }
+    }
+
+    public interface OrderedMBean {
+
+        void block() throws InterruptedException;
+
+        void record(String value);
+    }
+
+    public static class Ordered implements OrderedMBean {
+
+        final CountDownLatch blocking = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final List<String> recorded = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void block() throws InterruptedException {
+            blocking.countDown();
+            release.await();
+        }
+
+        @Override
+        public void record(String value) {
+            recorded.add(value);
+        }
+    }
+
+    @Test
+    public void testRequestsOfAConnectionAreProcessedInOrder() throws Exception {
+
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+
+        Ordered ordered = new Ordered();
+        ObjectName name = OddjobMBeanFactory.objectName(1L);
+        mBeanServer.registerMBean(new StandardMBean(ordered, OrderedMBean.class), name);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try (SocketServer socketServer = SocketServer.start(
+                new InetSocketAddress("localhost", 0), mBeanServer, null);
+             JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(
+                     SocketConnectorProvider.PROTOCOL, "localhost",
+                     socketServer.getAddress().getPort()))) {
+
+            MBeanServerConnection connection = connector.getMBeanServerConnection();
+
+            Future<?> blocked = executor.submit(() ->
+                    connection.invoke(name, "block", null, null));
+
+            assertThat(ordered.blocking.await(5, TimeUnit.SECONDS), is(true));
+
+            Future<?> recorded = executor.submit(() ->
+                    connection.invoke(name, "record", new Object[] { "Apple" },
+                            new String[] { String.class.getName() }));
+
+            try {
+                recorded.get(200, TimeUnit.MILLISECONDS);
+                fail("Should wait for the request before it.");
+            }
+            catch (TimeoutException e) {
+                // expected
+            }
+            assertThat(ordered.recorded, empty());
+
+            ordered.release.countDown();
+
+            blocked.get(5, TimeUnit.SECONDS);
+            recorded.get(5, TimeUnit.SECONDS);
+
+            assertThat(ordered.recorded, contains("Apple"));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQueriesInfoAndAttributes() throws Exception {
+
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+
+        try (SocketServer socketServer = SocketServer.start(
+                new InetSocketAddress("localhost", 0), mBeanServer, null);
+             JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(
+                     SocketConnectorProvider.PROTOCOL, "localhost",
+                     socketServer.getAddress().getPort()))) {
+
+            MBeanServerConnection connection = connector.getMBeanServerConnection();
+
+            ObjectName delegate = new ObjectName("JMImplementation:type=MBeanServerDelegate");
+
+            assertThat(connection.getMBeanCount(), is(mBeanServer.getMBeanCount()));
+
+            assertThat(connection.queryNames(new ObjectName("JMImplementation:*"), null),
+                    contains(delegate));
+
+            assertThat(connection.getMBeanInfo(delegate).getClassName(),
+                    is(mBeanServer.getMBeanInfo(delegate).getClassName()));
+
+            assertThat(connection.getAttribute(delegate, "MBeanServerId"),
+                    is(mBeanServer.getAttribute(delegate, "MBeanServerId")));
+
+            try {
+                connection.getAttribute(delegate, "NoSuchAttribute");
+                fail("Should fail.");
+            }
+            catch (AttributeNotFoundException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testSerializedValuesAreFiltered() throws Exception {
+
+        assertThat(readBack(new ArrayList<>(List.of("a", 1L)), null),
+                is((Object) List.of("a", 1L)));
+
+        // As with RMI, only the JVM-wide filter applies by default.
+        assertThat(readBack(new Point(1, 2), Frames.serialFilter(null)),
+                is((Object) new Point(1, 2)));
+
+        ObjectInputFilter filter = Frames.serialFilter("java.lang.*;java.util.*;!*");
+
+        assertThat(readBack(new ArrayList<>(List.of("a", 1L)), filter),
+                is((Object) List.of("a", 1L)));
+
+        try {
+            readBack(new Point(1, 2), filter);
+            fail("Should fail.");
+        }
+        catch (InvalidClassException e) {
+            assertThat(e.getMessage(), containsString("REJECTED"));
+        }
+    }
+
+    static Object readBack(Object value, ObjectInputFilter filter) throws Exception {
+        ByteBuffer frame = new Frames.Output(Frames.RESULT, 1L)
+                .writeValue(value)
+                .toBuffer();
+        byte[] body = new byte[frame.getInt()];
+        frame.get(body);
+        return new Frames.Input(body, null, filter).readValue();
+    }
+
+    @Test
+    public void testSecurityEnvironmentIsRejected() throws Exception {
+
+        try {
+            new SocketConnectorServer(new JMXServiceURL("service:jmx:oddjob://localhost:0"),
+                    Map.of("jmx.remote.x.password.file", "passwords"),
+                    MBeanServerFactory.newMBeanServer());
+            fail("Should fail.");
+        }
+        catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("jmx.remote.x.password.file"));
+        }
+    }
+
+    @Test
+    public void testNoHostListensOnLoopbackOnly() throws Exception {
+
+        SocketConnectorServer test = new SocketConnectorServer(
+                new JMXServiceURL("service:jmx:oddjob://"), null,
+                MBeanServerFactory.newMBeanServer());
+        test.start();
+        try {
+            assertThat(InetAddress.getByName(test.getAddress().getHost())
+                    .isLoopbackAddress(), is(true));
+        }
+        finally {
+            test.stop();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.oddjob.jmx.socket;
+
+import org.oddjob.arooa.standard.StandardArooaSession;
+import org.oddjob.jmx.general.RemoteBridge;
+import org.oddjob.jmx.handlers.RemoteOddjobHandlerFactory;
+import org.oddjob.jmx.handlers.StatefulHandlerFactory;
+import org.oddjob.jmx.handlers.StatefulHandlerFactory.StateData;
+import org.oddjob.jmx.server.ServerInfo;
+import org.oddjob.jmx.server.ServerSide;
+import org.oddjob.jmx.server.ServerSideBuilder;
+import org.oddjob.remote.NotificationListener;
+import org.oddjob.remote.OperationType;
+import org.oddjob.remote.RemoteConnection;
+import org.oddjob.state.FlagState;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the RMI connector with the Oddjob socket connector on localhost.
+ * For each it measures the latency of a single invocation, the throughput of
+ * invocations from many threads at once, and the rate at which state
+ * notifications arrive at a client.
+ * <p>
+ * Run with the number of invocations as an argument, the default is 20000.
+ */
+public class SocketTransportMain {
+
+    static final OperationType<ServerInfo> SERVER_INFO = OperationType
+            .ofName(RemoteOddjobHandlerFactory.SERVER_INFO.getActionName())
+            .returning(ServerInfo.class);
+
+    static final int THREADS = 8;
+
+    static final int STATE_CHANGES = 10_000;
+
+    static class Result {
+        double latencyMicros;
+        double invokesPerSecond;
+        double notificationsPerSecond;
+    }
+
+    static Result measure(String url, int invocations) throws Exception {
+
+        FlagState root = new FlagState();
+
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+
+        try (ServerSide serverSide = ServerSideBuilder.withSession(new StandardArooaSession())
+                .buildWith(mBeanServer, url, root)) {
+
+            JMXConnectorServer connectorServer = JMXConnectorServerFactory.newJMXConnectorServer(
+                    new JMXServiceURL(url), null, mBeanServer);
+            connectorServer.start();
+
+            try (JMXConnector connector = JMXConnectorFactory.connect(connectorServer.getAddress());
+                 RemoteConnection remote = new RemoteBridge(connector.getMBeanServerConnection())) {
+
+                Result result = new Result();
+
+                // Warm up.
+                for (int i = 0; i < invocations / 10; ++i) {
+                    remote.invoke(0L, SERVER_INFO);
+                }
+
+                long start = System.nanoTime();
+                for (int i = 0; i < invocations; ++i) {
+                    remote.invoke(0L, SERVER_INFO);
+                }
+                result.latencyMicros = (System.nanoTime() - start) / 1000.0 / invocations;
+
+                ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+                try {
+                    List<Future<?>> futures = new ArrayList<>();
+                    start = System.nanoTime();
+                    for (int t = 0; t < THREADS; ++t) {
+                        futures.add(executor.submit(() -> {
+                            for (int i = 0; i < invocations / THREADS; ++i) {
+                                remote.invoke(0L, SERVER_INFO);
+                            }
+                            return null;
+                        }));
+                    }
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                    result.invokesPerSecond = (invocations / THREADS * THREADS) * 1.0e9 /
+                            (System.nanoTime() - start);
+                }
+                finally {
+                    executor.shutdown();
+                }
+
+                long remoteId = serverSide.getRemoteIdMappings().idFor(root);
+
+                // Each run is Executing then Complete, and a reset is Ready.
+                int expected = STATE_CHANGES * 3;
+                CountDownLatch latch = new CountDownLatch(expected);
+                NotificationListener<StateData> listener = n -> latch.countDown();
+                remote.addNotificationListener(remoteId,
+                        StatefulHandlerFactory.STATE_CHANGE_NOTIF_TYPE, listener);
+
+                start = System.nanoTime();
+                for (int i = 0; i < STATE_CHANGES; ++i) {
+                    root.run();
+                    root.hardReset();
+                }
+                if (!latch.await(2, TimeUnit.MINUTES)) {
+                    throw new IllegalStateException("Only received " +
+                            (expected - latch.getCount()) + " of " + expected + " notifications.");
+                }
+                result.notificationsPerSecond = expected * 1.0e9 / (System.nanoTime() - start);
+
+                remote.removeNotificationListener(remoteId,
+                        StatefulHandlerFactory.STATE_CHANGE_NOTIF_TYPE, listener);
+
+                return result;
+            }
+            finally {
+                connectorServer.stop();
+            }
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+
+        int invocations = args.length == 0 ? 20_000 : Integer.parseInt(args[0]);
+
+        String[] urls = { "service:jmx:rmi://", "service:jmx:oddjob://localhost:0" };
+
+        System.out.printf("%36s %16s %20s %24s%n", "Transport", "Latency (us)",
+                "Invokes/s (" + THREADS + " threads)", "Notifications/s");
+
+        for (String url : urls) {
+            Result result = measure(url, invocations);
+            System.out.printf("%36s %16.1f %20.0f %24.0f%n", url,
+                    result.latencyMicros, result.invokesPerSecond, result.notificationsPerSecond);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.oddjob.jobs.structural;
+
+import org.oddjob.OddjobSessionFactory;
+import org.oddjob.arooa.ArooaSession;
+import org.oddjob.arooa.xml.XMLConfiguration;
+import org.oddjob.state.ParentState;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compare the rate at which {@link ForEachJob} creates and runs children with
+ * and without the configuration being cached.
+ * <p>
+ * Run with the number of values as arguments, the default is 1000, 10000 and 100000.
+ */
+public class ForEachCacheConfigurationMain {
+
+    static final String XML =
+            "<foreach id='loop'>" +
+                    " <job>" +
+                    "  <sequential name='Sequential ${loop.index}'>" +
+                    "   <jobs>" +
+                    "    <check name='Check ${loop.current}' value='${loop.current}' eq='${loop.current}'/>" +
+                    "    <check name='Check ${loop.index}' value='${loop.index}' gt='-1'/>" +
+                    "   </jobs>" +
+                    "  </sequential>" +
+                    " </job>" +
+                    "</foreach>";
+
+    static double childrenPerSecond(int count, boolean cacheConfiguration) {
+
+        ArooaSession session = new OddjobSessionFactory().createSession();
+
+        ForEachJob test = new ForEachJob();
+        test.setArooaSession(session);
+        test.setConfiguration(new XMLConfiguration("XML", XML));
+        test.setValues(IntStream.range(0, count).boxed().collect(Collectors.toList()));
+        test.setPreLoad(1);
+        test.setPurgeAfter(1);
+        test.setCacheConfiguration(cacheConfiguration);
+
+        long start = System.nanoTime();
+
+        test.run();
+
+        long elapsed = System.nanoTime() - start;
+
+        if (test.lastStateEvent().getState() != ParentState.COMPLETE) {
+            throw new IllegalStateException("Expected Complete but was " +
+                    test.lastStateEvent().getState());
+        }
+
+        test.destroy();
+
+        return count * 1_000_000_000.0 / elapsed;
+    }
+
+    public static void main(String... args) {
+
+        int[] counts;
+        if (args.length == 0) {
+            counts = new int[] { 1_000, 10_000, 100_000 };
+        }
+        else {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        // Warm up.
+        childrenPerSecond(1_000, false);
+        childrenPerSecond(1_000, true);
+
+        System.out.printf("%10s %20s %20s%n", "Values", "Parsed (children/s)", "Cached (children/s)");
+
+        for (int count : counts) {
+            double parsed = childrenPerSecond(count, false);
+            double cached = childrenPerSecond(count, true);
+            System.out.printf("%10d %20.0f %20.0f%n", count, parsed, cached);
+        }
+    }
+}
@@ -18,6 +18,7 @@ import org.xmlunit.diff.Diff;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -152,4 +153,73 @@ public class ForEachDragPointTest {
 		test.destroy();
 	}
 	
+
+	@Test
+	public void testChildDragPointWithCachedConfigurationIsSaved() throws ArooaParseException {
+		
+		ArooaSession session = new OddjobSessionFactory().createSession();
+		
+		String xml = 
+				"<foreach id='loop'>" +
+				" <job>" +
+				"  <echo name='Echo ${loop.current}'>${loop.current}</echo>" +
+				" </job>" +
+				"</foreach>";
+		
+		XMLConfiguration config = new XMLConfiguration("XML", xml);
+		
+		AtomicReference<String> savedXML = new AtomicReference<>();
+		config.setSaveHandler(savedXML::set);
+		
+		ForEachJob test = new ForEachJob();
+		test.setArooaSession(session);
+		test.setValues(Arrays.asList("Apples", "Oranges"));
+		test.setConfiguration(config);
+		test.setCacheConfiguration(true);
+		
+		test.run();
+		
+		assertEquals(ParentState.COMPLETE, test.lastStateEvent().getState());
+		
+		Object[] children = OddjobTestHelper.getChildren(test);
+		
+		ConfigurationSession configurationSession =
+				test.provideConfigurationSession();
+		
+		DragPoint dragPoint = configurationSession.dragPointFor(children[0]);
+		
+		ConfigurationHandle<SimpleParseContext> handle = new XMLArooaParser(session.getArooaDescriptor())
+				.parse(dragPoint);
+		
+		SimpleParseContext xmlDoc = handle.getDocumentContext();
+		
+		CutAndPasteSupport.replace(xmlDoc.getParent(), xmlDoc, 
+				new XMLConfiguration("XML", 
+						"<echo name='Altered ${loop.current}'>${loop.current}</echo>"));
+		handle.save();
+		
+		assertTrue(configurationSession.isModified());
+		
+		configurationSession.save();
+		
+		assertFalse(configurationSession.isModified());
+		
+		// The edit to the template is saved to the original configuration.
+		
+		String expected = "<foreach id='loop'>" +
+				" <job>" +
+				"  <echo name='Altered ${loop.current}'><![CDATA[${loop.current}]]></echo>" +
+				" </job>" +
+				"</foreach>";
+		
+		assertNotNull(savedXML.get());
+		
+		Diff diff = DiffBuilder.compare(expected)
+				.withTest(savedXML.get()).ignoreWhitespace().build();
+		
+		assertFalse(diff.toString(), diff.hasDifferences());
+		
+		test.destroy();
+	}
+	
 }
@@ -42,6 +42,8 @@ import javax.swing.event.TreeModelListener;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.ParseException;
 import java.util.*;
 import java.util.concurrent.Executor;
@@ -137,6 +139,75 @@ public class ForEachJobTest extends OjTestCase {
         assertTrue(job2.ran);
     }
 
+    @Test
+    public void testOneJobTwoValuesWithCachedConfiguration() throws IOException {
+
+        String xml =
+                "<foreach id='foreach'>" +
+                        " <job>" +
+                        "  <bean class='" + OurJob.class.getName() +
+                        "' name='Our Job ${foreach.index}' stuff='${foreach.current}' index='${foreach.index}'/>" +
+                        " </job>" +
+                        "</foreach>";
+
+        File file = OurDirs.workPathDir(getClass().getSimpleName() + "Cached", true)
+                .resolve("foreach.xml").toFile();
+        Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+
+        ForEachJob test = new ForEachJob();
+        ArooaSession session = new OddjobSessionFactory().createSession();
+        test.setArooaSession(session);
+        test.setFile(file);
+        test.setValues(Arrays.asList("apple", "orange"));
+        test.setCacheConfiguration(true);
+
+        ChildCatcher children = new ChildCatcher();
+
+        test.addStructuralListener(children);
+
+        test.run();
+
+        assertEquals(ParentState.COMPLETE, test.lastStateEvent().getState());
+
+        assertEquals(2, children.children.size());
+
+        OurJob job1 = (OurJob) children.children.get(0);
+        OurJob job2 = (OurJob) children.children.get(1);
+
+        assertTrue(job1 != job2);
+
+        assertEquals("Our Job 0", job1.toString());
+        assertEquals("apple", job1.stuff);
+        assertTrue(job1.ran);
+
+        assertEquals("Our Job 1", job2.toString());
+        assertEquals("orange", job2.stuff);
+        assertEquals(1, job2.index);
+        assertTrue(job2.ran);
+
+        // Hard reset discards the template, so a change to the file and new
+        // values are used.
+
+        Files.write(file.toPath(), xml.replace("Our Job", "New Job")
+                .getBytes(StandardCharsets.UTF_8));
+
+        test.hardReset();
+
+        test.setValues(Collections.singletonList("pear"));
+
+        test.run();
+
+        assertEquals(ParentState.COMPLETE, test.lastStateEvent().getState());
+
+        OurJob job3 = (OurJob) children.children.get(
+                children.children.size() - 1);
+
+        assertEquals("pear", job3.stuff);
+        assertEquals("New Job 0", job3.toString());
+
+        test.destroy();
+    }
+
     @Test
     public void testWithEmptyList() {
 
@@ -1202,4 +1273,46 @@ public class ForEachJobTest extends OjTestCase {
         assertThat(lookup.lookup("GREEN.index", Integer.class), is(2));
         assertThat(lookup.lookup("GREEN/echo.text"), is("Colour GREEN"));
     }
+
+    /**
+     * Provides access to how the state of the children is evaluated.
+     */
+    static class IncrementalForEach extends ForEachJob {
+
+        boolean isIncremental() {
+            return structuralState.isIncremental();
+        }
+    }
+
+    @Test
+    public void testChildStatesAreEvaluatedIncrementally() {
+
+        String xml =
+                "<foreach id='foreach'>" +
+                        " <job>" +
+                        "  <bean class='" + OurJob.class.getName() +
+                        "' name='Our Job ${foreach.index}' index='${foreach.index}'/>" +
+                        " </job>" +
+                        "</foreach>";
+
+        IncrementalForEach test = new IncrementalForEach();
+        test.setArooaSession(new OddjobSessionFactory().createSession());
+        test.setConfiguration(new XMLConfiguration("XML", xml));
+        test.setValues(Arrays.asList("apple", "orange"));
+
+        assertThat(test.isIncremental(), is(true));
+        assertThat(test.getInitialStateOp().toString(), is("ForEachStateOp"));
+
+        test.run();
+
+        assertThat(test.lastStateEvent().getState(), is(ParentState.COMPLETE));
+
+        test.setValues(Collections.emptyList());
+        test.hardReset();
+        test.run();
+
+        // Complete with no children is still provided.
+        assertThat(test.isIncremental(), is(true));
+        assertThat(test.lastStateEvent().getState(), is(ParentState.COMPLETE));
+    }
 }
@@ -0,0 +1,83 @@
+package org.oddjob.jobs.structural;
+
+import org.oddjob.OddjobSessionFactory;
+import org.oddjob.arooa.ArooaSession;
+import org.oddjob.arooa.xml.XMLConfiguration;
+import org.oddjob.state.ParentState;
+
+import java.util.Iterator;
+
+/**
+ * Show that the memory used by {@link ForEachJob} in streaming mode doesn't
+ * grow with the number of values. Used memory is measured after a GC once a
+ * tenth of the values have been provided and again at the end.
+ * <p>
+ * Run with the number of values as an argument, the default is 1 million.
+ */
+public class ForEachStreamingMain {
+
+    static long usedMemoryAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String... args) {
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long[] usedMemory = new long[2];
+
+        Iterable<Integer> values = () -> new Iterator<Integer>() {
+            int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Integer next() {
+                if (next == count / 10) {
+                    usedMemory[0] = usedMemoryAfterGc();
+                }
+                else if (next == count - 1) {
+                    usedMemory[1] = usedMemoryAfterGc();
+                }
+                return next++;
+            }
+        };
+
+        ForEachJob test = new ForEachJob();
+        ArooaSession session = new OddjobSessionFactory().createSession();
+        test.setArooaSession(session);
+        test.setConfiguration(new XMLConfiguration("XML",
+                ForEachStreamingTest.configFor(0)));
+        test.setValues(values);
+        test.setStreaming(true);
+        test.setCacheConfiguration(true);
+
+        ForEachStreamingTest.MaxChildren maxChildren =
+                new ForEachStreamingTest.MaxChildren();
+        test.addStructuralListener(maxChildren);
+
+        long start = System.nanoTime();
+
+        test.run();
+
+        long elapsed = System.nanoTime() - start;
+
+        if (test.lastStateEvent().getState() != ParentState.COMPLETE) {
+            throw new IllegalStateException("Expected Complete but was " +
+                    test.lastStateEvent().getState());
+        }
+
+        System.out.printf("%d values in %.1f s, most children %d, summary %s%n",
+                count, elapsed / 1_000_000_000.0, maxChildren.max.get(), test.getSummary());
+        System.out.printf("Used memory after %d values %d, after %d values %d, growth %d%n",
+                count / 10, usedMemory[0], count, usedMemory[1],
+                usedMemory[1] - usedMemory[0]);
+
+        test.destroy();
+    }
+}
@@ -0,0 +1,323 @@
+package org.oddjob.jobs.structural;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.Oddjob;
+import org.oddjob.OddjobSessionFactory;
+import org.oddjob.OjTestCase;
+import org.oddjob.arooa.ArooaSession;
+import org.oddjob.arooa.xml.XMLConfiguration;
+import org.oddjob.framework.extend.SimpleJob;
+import org.oddjob.scheduling.DefaultExecutors;
+import org.oddjob.state.ParentState;
+import org.oddjob.structural.StructuralEvent;
+import org.oddjob.structural.StructuralListener;
+import org.oddjob.tools.ConsoleCapture;
+import org.oddjob.tools.OddjobTestHelper;
+import org.oddjob.tools.StateSteps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ForEachStreamingTest extends OjTestCase {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForEachStreamingTest.class);
+
+    @Before
+    public void setUp() throws Exception {
+
+        logger.info("--------------------  " + getName() + "  ---------------");
+    }
+
+    public static class OurJob extends SimpleJob {
+
+        private int index;
+
+        private int failEvery;
+
+        private int exceptionAt = -1;
+
+        @Override
+        protected int execute() throws Throwable {
+            if (index == exceptionAt) {
+                throw new IllegalStateException("Exception at " + index);
+            }
+            return failEvery > 0 && index % failEvery == 0 ? 1 : 0;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public void setFailEvery(int failEvery) {
+            this.failEvery = failEvery;
+        }
+
+        public void setExceptionAt(int exceptionAt) {
+            this.exceptionAt = exceptionAt;
+        }
+    }
+
+    /**
+     * Provides values without holding them.
+     */
+    static class Counting implements Iterable<Integer> {
+
+        private final int count;
+
+        Counting(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<Integer>() {
+                int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < count;
+                }
+
+                @Override
+                public Integer next() {
+                    if (next >= count) {
+                        throw new NoSuchElementException();
+                    }
+                    return next++;
+                }
+            };
+        }
+    }
+
+    /**
+     * Tracks the most children there have ever been.
+     */
+    static class MaxChildren implements StructuralListener {
+
+        final AtomicInteger now = new AtomicInteger();
+
+        final AtomicInteger max = new AtomicInteger();
+
+        @Override
+        public void childAdded(StructuralEvent event) {
+            int count = now.incrementAndGet();
+            max.accumulateAndGet(count, Math::max);
+        }
+
+        @Override
+        public void childRemoved(StructuralEvent event) {
+            now.decrementAndGet();
+        }
+    }
+
+    static String configFor(int failEvery) {
+        return "<foreach id='loop'>" +
+                " <job>" +
+                "  <bean class='" + OurJob.class.getName() + "'" +
+                "   name='Job ${loop.index}' index='${loop.index}' failEvery='" + failEvery + "'/>" +
+                " </job>" +
+                "</foreach>";
+    }
+
+    @Test
+    public void testStreamingExample() {
+
+        Oddjob oddjob = new Oddjob();
+        oddjob.setConfiguration(new XMLConfiguration(
+                "org/oddjob/jobs/structural/ForEachStreaming.xml",
+                getClass().getClassLoader()));
+
+        ConsoleCapture console = new ConsoleCapture();
+        try (ConsoleCapture.Close close = console.captureConsole()) {
+
+            oddjob.run();
+        }
+
+        assertEquals(ParentState.COMPLETE, oddjob.lastStateEvent().getState());
+
+        console.dump(logger);
+
+        String[] lines = console.getLines();
+
+        assertEquals(11, lines.length);
+        assertEquals("Number 10", lines[9].trim());
+        assertEquals("Complete: 10, Incomplete: 0, Exception: 0", lines[10].trim());
+
+        oddjob.destroy();
+    }
+
+    @Test
+    public void testSequentialStreamingKeepsOnlyWindow() {
+
+        ForEachJob test = new ForEachJob();
+        ArooaSession session = new OddjobSessionFactory().createSession();
+        test.setArooaSession(session);
+        test.setConfiguration(new XMLConfiguration("XML", configFor(0)));
+        test.setValues(new Counting(100));
+        test.setStreaming(true);
+        test.setPreLoad(2);
+
+        MaxChildren maxChildren = new MaxChildren();
+        test.addStructuralListener(maxChildren);
+
+        test.load();
+
+        assertEquals(2, OddjobTestHelper.getChildren(test).length);
+
+        test.run();
+
+        assertEquals(ParentState.COMPLETE, test.lastStateEvent().getState());
+
+        assertEquals(0, OddjobTestHelper.getChildren(test).length);
+        assertThat(maxChildren.max.get(), lessThanOrEqualTo(3));
+
+        ForEachSummary summary = test.getSummary();
+        assertEquals(100L, summary.getComplete());
+        assertEquals(100L, summary.getTotal());
+        assertThat(summary.getFailures(), empty());
+
+        test.destroy();
+    }
+
+    @Test
+    public void testParallelStreamingWithFailures() throws InterruptedException {
+
+        DefaultExecutors defaultServices = new DefaultExecutors();
+
+        ForEachJob test = new ForEachJob();
+        test.setExecutorService(defaultServices.getPoolExecutor());
+        ArooaSession session = new OddjobSessionFactory().createSession();
+        test.setArooaSession(session);
+        test.setConfiguration(new XMLConfiguration("XML", configFor(10)));
+        test.setValues(new Counting(100));
+        test.setStreaming(true);
+        test.setParallel(true);
+        test.setPreLoad(4);
+        test.setKeepFailures(3);
+        test.setCacheConfiguration(true);
+
+        MaxChildren maxChildren = new MaxChildren();
+        test.addStructuralListener(maxChildren);
+
+        StateSteps state = new StateSteps(test);
+        state.startCheck(ParentState.READY,
+                ParentState.EXECUTING, ParentState.ACTIVE,
+                ParentState.INCOMPLETE);
+
+        test.run();
+
+        state.checkWait();
+
+        assertEquals(ParentState.INCOMPLETE, test.lastStateEvent().getState());
+
+        ForEachSummary summary = test.getSummary();
+        assertEquals(90L, summary.getComplete());
+        assertEquals(10L, summary.getIncomplete());
+
+        List<String> failures = summary.getFailures();
+        assertThat(failures.size(), is(3));
+
+        // Only failures should remain.
+        Object[] children = OddjobTestHelper.getChildren(test);
+        assertThat(children.length, is(3));
+
+        assertThat(maxChildren.max.get(), lessThanOrEqualTo(4 + 3 + 1));
+
+        test.destroy();
+
+        defaultServices.stop();
+    }
+
+    @Test
+    public void testRerunFailedChildIsNotCountedTwice() {
+
+        ForEachJob test = new ForEachJob();
+        ArooaSession session = new OddjobSessionFactory().createSession();
+        test.setArooaSession(session);
+        test.setConfiguration(new XMLConfiguration("XML", configFor(5)));
+        test.setValues(new Counting(10));
+        test.setStreaming(true);
+        test.setKeepFailures(5);
+
+        test.run();
+
+        assertEquals(ParentState.INCOMPLETE, test.lastStateEvent().getState());
+
+        ForEachSummary summary = test.getSummary();
+        assertEquals(8L, summary.getComplete());
+        assertEquals(2L, summary.getIncomplete());
+
+        Object[] children = OddjobTestHelper.getChildren(test);
+        assertThat(children.length, is(2));
+
+        OurJob failed = (OurJob) children[0];
+        failed.setFailEvery(0);
+
+        failed.hardReset();
+
+        assertEquals(8L, summary.getComplete());
+        assertEquals(1L, summary.getIncomplete());
+
+        failed.run();
+
+        assertEquals(9L, summary.getComplete());
+        assertEquals(1L, summary.getIncomplete());
+        assertEquals(10L, summary.getTotal());
+
+        test.destroy();
+    }
+
+    @Test
+    public void testExceptionIsNotPurgedBeforeIncomplete() throws InterruptedException {
+
+        DefaultExecutors defaultServices = new DefaultExecutors();
+
+        ForEachJob test = new ForEachJob();
+        test.setExecutorService(defaultServices.getPoolExecutor());
+        ArooaSession session = new OddjobSessionFactory().createSession();
+        test.setArooaSession(session);
+        test.setConfiguration(new XMLConfiguration("XML",
+                "<foreach id='loop'>" +
+                " <job>" +
+                "  <bean class='" + OurJob.class.getName() + "'" +
+                "   name='Job ${loop.index}' index='${loop.index}'" +
+                "   failEvery='1' exceptionAt='0'/>" +
+                " </job>" +
+                "</foreach>"));
+        test.setValues(new Counting(6));
+        test.setStreaming(true);
+        test.setParallel(true);
+        test.setPreLoad(1);
+        test.setKeepFailures(1);
+
+        StateSteps state = new StateSteps(test);
+        state.startCheck(ParentState.READY,
+                ParentState.EXECUTING, ParentState.ACTIVE,
+                ParentState.EXCEPTION);
+
+        test.run();
+
+        state.checkWait();
+
+        ForEachSummary summary = test.getSummary();
+        assertEquals(5L, summary.getIncomplete());
+        assertEquals(1L, summary.getException());
+
+        // The exception is kept as it's the worst failure.
+        Object[] children = OddjobTestHelper.getChildren(test);
+        assertThat(children.length, is(1));
+        assertThat(children[0].toString(), is("Job 0"));
+
+        test.destroy();
+
+        defaultServices.stop();
+    }
+}
@@ -14,6 +14,7 @@ import org.oddjob.OddjobSessionFactory;
 import org.oddjob.arooa.ArooaSession;
 import org.oddjob.arooa.xml.XMLConfiguration;
 import org.oddjob.state.ParentState;
+import org.oddjob.tools.ConsoleCapture;
 import org.oddjob.tools.OddjobTestHelper;
 
 public class ForEachWindowsTest extends OjTestCase {
@@ -151,4 +152,36 @@ public class ForEachWindowsTest extends OjTestCase {
     	oddjob.destroy();
     	
 	}
+
+	@Test
+	public void testCacheConfigurationExample() {
+
+    	Oddjob oddjob = new Oddjob();
+    	oddjob.setConfiguration(new XMLConfiguration(
+    			"org/oddjob/jobs/structural/ForEachCacheConfiguration.xml",
+    			getClass().getClassLoader()));
+
+    	ConsoleCapture console = new ConsoleCapture();
+    	try (ConsoleCapture.Close close = console.captureConsole()) {
+
+    		oddjob.run();
+    	}
+
+    	assertEquals(ParentState.COMPLETE, oddjob.lastStateEvent().getState());
+
+    	console.dump(logger);
+
+    	String[] lines = console.getLines();
+
+    	assertEquals(10, lines.length);
+    	assertEquals("Number 1", lines[0].trim());
+    	assertEquals("Number 10", lines[9].trim());
+
+    	Object[] children = OddjobTestHelper.getChildren(OddjobTestHelper.getChildren(oddjob)[0]);
+
+    	assertEquals(3, children.length);
+    	assertEquals("Echo 10", children[2].toString());
+
+    	oddjob.destroy();
+	}
 }
@@ -0,0 +1,127 @@
+package org.oddjob.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LineSplitterTest {
+
+    @Test
+    void linesAcrossWrites() {
+
+        List<String> results = new ArrayList<>();
+
+        LineSplitter test = new LineSplitter(StandardCharsets.UTF_8, 4);
+
+        byte[] bytes = "Apple\nBan".getBytes(StandardCharsets.UTF_8);
+        test.split(bytes, 0, bytes.length, results::add);
+
+        assertThat(results, contains("Apple\n"));
+        assertThat(test.getPending(), is(3));
+
+        bytes = "ana\nCherry\nDa".getBytes(StandardCharsets.UTF_8);
+        test.split(bytes, 0, bytes.length, results::add);
+
+        assertThat(results, contains("Apple\n", "Banana\n", "Cherry\n"));
+
+        test.split('t', results::add);
+        test.split('e', results::add);
+
+        test.flush(results::add);
+
+        assertThat(results, contains("Apple\n", "Banana\n", "Cherry\n", "Date"));
+        assertThat(test.getPending(), is(0));
+
+        test.flush(results::add);
+
+        assertThat(results.size(), is(4));
+    }
+
+    @Test
+    void multiByteCharacterSplitBetweenWrites() {
+
+        List<String> results = new ArrayList<>();
+
+        LineSplitter test = new LineSplitter(StandardCharsets.UTF_8);
+
+        byte[] bytes = "Caf\u00e9 \u20ac5\n".getBytes(StandardCharsets.UTF_8);
+
+        // Write one byte at a time, so each multi byte character is split.
+        for (byte b : bytes) {
+            test.split(new byte[] { b }, 0, 1, results::add);
+        }
+
+        assertThat(results, contains("Caf\u00e9 \u20ac5\n"));
+    }
+
+    @Test
+    void otherCharset() {
+
+        List<String> results = new ArrayList<>();
+
+        LineSplitter test = new LineSplitter(StandardCharsets.ISO_8859_1);
+
+        byte[] bytes = "Caf\u00e9\n".getBytes(StandardCharsets.ISO_8859_1);
+        for (byte b : bytes) {
+            test.split(b, results::add);
+        }
+
+        assertThat(results, contains("Caf\u00e9\n"));
+    }
+
+    @Test
+    void longLineDoesNotKeepBigBuffer() {
+
+        List<String> results = new ArrayList<>();
+
+        LineSplitter test = new LineSplitter(StandardCharsets.UTF_8);
+
+        byte[] bytes = new byte[LineSplitter.MAX_RETAINED_CAPACITY * 2];
+        java.util.Arrays.fill(bytes, (byte) 'x');
+
+        test.split(bytes, 0, 10, results::add);
+        test.split(bytes, 0, bytes.length, results::add);
+        test.split('\n', results::add);
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).length(), is(bytes.length + 11));
+
+        test.split(new byte[] { 'a', '\n' }, 0, 2, results::add);
+
+        assertThat(results.get(1), is("a\n"));
+    }
+
+    @Test
+    void charsetWithoutSingleByteNewLineRejected() {
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new LineSplitter(StandardCharsets.UTF_16));
+    }
+
+    @Test
+    void defaultCharsetWithoutSingleByteNewLineStillSplits() {
+
+        List<String> results = new ArrayList<>();
+
+        // As used when this is the default charset.
+        LineSplitter test = new LineSplitter(StandardCharsets.UTF_16BE,
+                LineSplitter.DEFAULT_CAPACITY, false);
+
+        byte[] bytes = "Apple\nPe".getBytes(StandardCharsets.UTF_16BE);
+        test.split(bytes, 0, bytes.length, results::add);
+
+        bytes = "ar".getBytes(StandardCharsets.UTF_16BE);
+        test.split(bytes, 0, bytes.length, results::add);
+
+        test.flush(results::add);
+
+        assertThat(results, contains("Apple\n", "Pear"));
+    }
+}
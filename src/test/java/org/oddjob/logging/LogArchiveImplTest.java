@@ -4,6 +4,8 @@
 package org.oddjob.logging;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Test;
@@ -168,5 +170,50 @@ public class LogArchiveImplTest extends OjTestCase {
 		assertEquals("5", l5.results.get(0).getMessage());
 		
 	}
+
+   @Test
+	public void testAddEventsNotifiesListenerOnce() {
+		class MyL implements LogListener {
+			List<LogEvent> results = new ArrayList<LogEvent>();
+			int notifications;
+			public void logEvent(LogEvent logEvent) {
+				++notifications;
+				results.add(logEvent);
+			}
+			public void logEvents(List<LogEvent> logEvents) {
+				++notifications;
+				results.addAll(logEvents);
+			}
+		}
+		
+		LogArchiveImpl test = new LogArchiveImpl("foo", 3);
+		
+		test.addEvent(LogLevel.INFO, "1");
+		
+		MyL l = new MyL();
+		test.addListener(l, LogLevel.INFO, 0, 1000);
+		
+		MyL l2 = new MyL();
+		test.addListener(l2, LogLevel.WARN, 0, 1000);
+		
+		test.addEvents(LogLevel.INFO, Arrays.asList("2", "3", "4", "5"));
+		
+		assertEquals(1, l.notifications);
+		assertEquals(4, l.results.size());
+		assertEquals(1, l.results.get(0).getNumber());
+		assertEquals("5", l.results.get(3).getMessage());
+		
+		assertEquals(0, l2.notifications);
+		
+		assertEquals(4, test.getLastMessageNumber());
+		
+		LogEvent[] events = test.retrieveEvents(-1, 1000);
+		assertEquals(3, events.length);
+		assertEquals("3", events[0].getMessage());
+		
+		test.addEvents(LogLevel.INFO, Collections.<String>emptyList());
+		
+		assertEquals(1, l.notifications);
+	}
 	
 }
@@ -0,0 +1,100 @@
+package org.oddjob.logging;
+
+import org.oddjob.arooa.logging.LogLevel;
+import org.oddjob.logging.cache.LogArchiveFactory;
+import org.oddjob.logging.cache.LogArchiveSink;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compare the throughput of the {@link org.oddjob.logging.cache.LogArchiveImpl}
+ * and the {@link org.oddjob.logging.cache.RingBufferLogArchive} with
+ * several threads adding events while another retrieves them.
+ * <p>
+ * Run with the number of adding threads as arguments, the default is 1, 4 and 8.
+ */
+public class LogArchiveMain {
+
+    static final int EVENTS_PER_THREAD = 200_000;
+
+    static final int MAX_HISTORY = 1000;
+
+    static long nanosToAdd(LogArchiveFactory factory, int threads) throws InterruptedException {
+
+        LogArchiveSink archive = factory.createArchive("bench", MAX_HISTORY);
+
+        // A listener as the explorer would have.
+        archive.addListener(logEvent -> {}, LogLevel.INFO, -1, MAX_HISTORY);
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; ++t) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < EVENTS_PER_THREAD; ++i) {
+                        archive.addEvent(LogLevel.INFO, "Message");
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        // Poll like a remote log poller.
+        Thread poller = new Thread(() -> {
+            long last = -1;
+            while (!Thread.currentThread().isInterrupted()) {
+                LogEvent[] events = archive.retrieveEvents(last, MAX_HISTORY);
+                if (events.length > 0) {
+                    last = events[events.length - 1].getNumber();
+                }
+            }
+        });
+        poller.start();
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        poller.interrupt();
+        poller.join();
+
+        return elapsed;
+    }
+
+    public static void main(String... args) throws InterruptedException {
+
+        int[] threadCounts;
+        if (args.length == 0) {
+            threadCounts = new int[] { 1, 4, 8 };
+        }
+        else {
+            threadCounts = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                threadCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        // Warm up.
+        for (int i = 0; i < 3; ++i) {
+            nanosToAdd(LogArchiveFactory.LINKED, 2);
+            nanosToAdd(LogArchiveFactory.RING, 2);
+        }
+
+        System.out.printf("%10s %22s %22s%n", "Threads", "Linked (ns/event)", "Ring (ns/event)");
+
+        for (int threads : threadCounts) {
+            long events = (long) threads * EVENTS_PER_THREAD;
+            long linked = nanosToAdd(LogArchiveFactory.LINKED, threads);
+            long ring = nanosToAdd(LogArchiveFactory.RING, threads);
+            System.out.printf("%10d %22d %22d%n", threads, linked / events, ring / events);
+        }
+    }
+}
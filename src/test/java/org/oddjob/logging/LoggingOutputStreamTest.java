@@ -15,7 +15,10 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -135,4 +138,51 @@ public class LoggingOutputStreamTest extends OjTestCase {
         assertEquals("hello\r\n", text.get(0));
         assertEquals("goodbye\r\n", text.get(1));
     }
+
+    @Test
+    public void testLinesFromOneWriteAreBatched() throws IOException {
+
+        final List<List<String>> batches = new ArrayList<>();
+
+        LogEventSink sink = new LogEventSink() {
+            @Override
+            public void addEvent(LogLevel level, String line) {
+                batches.add(Collections.singletonList(line));
+            }
+
+            @Override
+            public void addEvents(LogLevel level, List<String> lines) {
+                batches.add(new ArrayList<>(lines));
+            }
+        };
+
+        LoggingOutputStream test = new LoggingOutputStream(null,
+                LogLevel.INFO, sink, StandardCharsets.UTF_8);
+
+        test.write("One\nTwo\nThree\nFo".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList("One\n", "Two\n", "Three\n"), batches.get(0));
+
+        test.write("ur\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, batches.size());
+        assertEquals(Collections.singletonList("Four\n"), batches.get(1));
+
+        test.close();
+
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    public void testCharset() throws IOException {
+
+        LoggingOutputStream test = new LoggingOutputStream(null,
+                LogLevel.INFO, new OurLogEventSink(), StandardCharsets.ISO_8859_1);
+
+        test.write("Caf\u00e9\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        assertEquals(1, text.size());
+        assertEquals("Caf\u00e9\n", text.get(0));
+    }
 }
@@ -0,0 +1,380 @@
+package org.oddjob.logging;
+
+import org.junit.Test;
+import org.oddjob.OjTestCase;
+import org.oddjob.arooa.logging.LogLevel;
+import org.oddjob.logging.cache.LogArchiveFactory;
+import org.oddjob.logging.cache.LogArchiveSink;
+import org.oddjob.logging.cache.RingBufferLogArchive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class RingBufferLogArchiveTest extends OjTestCase {
+
+    static class Results implements LogListener {
+
+        final List<LogEvent> results = new ArrayList<>();
+
+        @Override
+        public synchronized void logEvent(LogEvent logEvent) {
+            results.add(logEvent);
+        }
+    }
+
+    @Test
+    public void testFullArchive() {
+
+        RingBufferLogArchive test = new RingBufferLogArchive("foo", 1);
+
+        Results l = new Results();
+        test.addListener(l, LogLevel.DEBUG, 0, 1);
+
+        test.addEvent(LogLevel.DEBUG, "1");
+        test.addEvent(LogLevel.DEBUG, "2");
+        test.addEvent(LogLevel.DEBUG, "3");
+
+        assertEquals(3, l.results.size());
+        assertEquals("3", l.results.get(2).getMessage());
+
+        Results l2 = new Results();
+        test.addListener(l2, LogLevel.DEBUG, 0, 1000);
+
+        // check that there really was only one message in the buffer.
+        assertEquals(1, l2.results.size());
+        assertEquals("3", l2.results.get(0).getMessage());
+    }
+
+    @Test
+    public void testOneMessage() {
+
+        RingBufferLogArchive test = new RingBufferLogArchive("foo", 1000);
+
+        test.addEvent(LogLevel.DEBUG, "1");
+
+        Results l = new Results();
+        test.addListener(l, LogLevel.DEBUG, -1, 1000);
+
+        assertEquals(1, l.results.size());
+        assertEquals(0, l.results.get(0).getNumber());
+
+        Results l2 = new Results();
+        test.addListener(l2, LogLevel.DEBUG, 0, 1000);
+
+        assertEquals(0, l2.results.size());
+    }
+
+    @Test
+    public void testFromMessage() {
+
+        RingBufferLogArchive test = new RingBufferLogArchive("foo", 1000);
+
+        for (int i = 1; i <= 7; ++i) {
+            test.addEvent(LogLevel.DEBUG, Integer.toString(i));
+        }
+
+        Results l = new Results();
+        test.addListener(l, LogLevel.DEBUG, 3, 2);
+
+        assertEquals(2, l.results.size());
+        assertEquals("7", l.results.get(1).getMessage());
+
+        Results l2 = new Results();
+        test.addListener(l2, LogLevel.DEBUG, 6, 2);
+
+        assertEquals(0, l2.results.size());
+
+        test.removeListener(l2);
+
+        test.addListener(l2, LogLevel.DEBUG, 20, 2);
+
+        assertEquals(0, l2.results.size());
+    }
+
+    @Test
+    public void testLevel() {
+
+        RingBufferLogArchive test = new RingBufferLogArchive("foo", 1000);
+
+        test.addEvent(LogLevel.DEBUG, "1");
+        test.addEvent(LogLevel.INFO, "2");
+        test.addEvent(LogLevel.WARN, "3");
+        test.addEvent(LogLevel.ERROR, "4");
+        test.addEvent(LogLevel.FATAL, "5");
+
+        Results l = new Results();
+        test.addListener(l, LogLevel.WARN, -1, 1000);
+
+        assertEquals(3, l.results.size());
+        assertEquals("5", l.results.get(2).getMessage());
+
+        test.addEvent(LogLevel.INFO, "6");
+        test.addEvent(LogLevel.ERROR, "7");
+
+        assertEquals(4, l.results.size());
+        assertEquals("7", l.results.get(3).getMessage());
+    }
+
+    @Test
+    public void testRetrieveEvents() {
+
+        RingBufferLogArchive test = new RingBufferLogArchive("foo", 5);
+
+        assertEquals(-1, test.getLastMessageNumber());
+        assertEquals(0, test.retrieveEvents(-1, 10).length);
+
+        for (int i = 0; i < 12; ++i) {
+            test.addEvent(LogLevel.INFO, "Line " + i);
+        }
+
+        assertEquals(11, test.getLastMessageNumber());
+
+        LogEvent[] events = test.retrieveEvents(-1, 10);
+        assertEquals(5, events.length);
+        assertEquals(7, events[0].getNumber());
+        assertEquals("Line 11", events[4].getMessage());
+
+        events = test.retrieveEvents(9, 10);
+        assertEquals(2, events.length);
+        assertEquals(10, events[0].getNumber());
+
+        events = test.retrieveEvents(-1, 3);
+        assertEquals(3, events.length);
+        assertEquals(9, events[0].getNumber());
+
+        assertEquals(0, test.retrieveEvents(11, 10).length);
+    }
+
+    @Test
+    public void testAddEventsNotifiesListenerOnce() {
+
+        class Counting extends Results {
+            int notifications;
+
+            @Override
+            public synchronized void logEvent(LogEvent logEvent) {
+                ++notifications;
+                super.logEvent(logEvent);
+            }
+
+            @Override
+            public synchronized void logEvents(List<LogEvent> logEvents) {
+                ++notifications;
+                results.addAll(logEvents);
+            }
+        }
+
+        RingBufferLogArchive test = new RingBufferLogArchive("foo", 3);
+
+        test.addEvent(LogLevel.INFO, "1");
+
+        Counting l = new Counting();
+        test.addListener(l, LogLevel.INFO, 0, 1000);
+
+        Counting l2 = new Counting();
+        test.addListener(l2, LogLevel.WARN, 0, 1000);
+
+        test.addEvents(LogLevel.INFO, Arrays.asList("2", "3", "4", "5"));
+
+        assertEquals(1, l.notifications);
+        assertEquals(4, l.results.size());
+        assertEquals(1, l.results.get(0).getNumber());
+        assertEquals("5", l.results.get(3).getMessage());
+
+        assertEquals(0, l2.notifications);
+
+        assertEquals(4, test.getLastMessageNumber());
+
+        LogEvent[] events = test.retrieveEvents(-1, 1000);
+        assertEquals(3, events.length);
+        assertEquals("3", events[0].getMessage());
+
+        // History and new events are delivered together.
+        Counting l3 = new Counting();
+        test.addListener(l3, LogLevel.INFO, -1, 1000);
+
+        assertEquals(1, l3.notifications);
+        assertEquals(3, l3.results.size());
+    }
+
+    @Test
+    public void testConcurrentAddsAreDeliveredInOrder() throws InterruptedException {
+
+        int threads = 4;
+        int perThread = 10_000;
+
+        RingBufferLogArchive test = new RingBufferLogArchive("foo", 1000);
+
+        Results early = new Results();
+        test.addListener(early, LogLevel.DEBUG, -1, 0);
+
+        Results late = new Results();
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; ++t) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; ++i) {
+                        test.addEvent(LogLevel.INFO, Thread.currentThread().getName());
+                        if (i == perThread / 2 && Thread.currentThread().getName().endsWith("-0")) {
+                            test.addListener(late, LogLevel.DEBUG, -1, 10);
+                        }
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    done.countDown();
+                }
+            }, "Adder-" + t).start();
+        }
+
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+
+        long last = test.getLastMessageNumber();
+        assertThat(last, is((long) threads * perThread - 1));
+
+        assertThat(early.results.size(), is(threads * perThread));
+        for (int i = 0; i < early.results.size(); ++i) {
+            assertEquals(i, early.results.get(i).getNumber());
+        }
+
+        // The late listener must see a gapless run up to the end.
+        long expected = late.results.get(0).getNumber();
+        for (LogEvent event : late.results) {
+            assertEquals(expected++, event.getNumber());
+        }
+        assertEquals(last + 1, expected);
+
+        LogEvent[] history = test.retrieveEvents(-1, 1000);
+        assertEquals(1000, history.length);
+        assertEquals(last, history[999].getNumber());
+    }
+
+    @Test
+    public void testSlowListenerDoesNotHoldUpRetrieving() throws InterruptedException {
+
+        RingBufferLogArchive test = new RingBufferLogArchive("foo", 10);
+
+        CountDownLatch notified = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        test.addListener(new LogListener() {
+            @Override
+            public void logEvent(LogEvent logEvent) {
+                notified.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, LogLevel.DEBUG, -1, 0);
+
+        Thread adder = new Thread(() -> test.addEvent(LogLevel.INFO, "slow"));
+        adder.start();
+
+        assertTrue(notified.await(5, TimeUnit.SECONDS));
+
+        // The event is published while the listener is still being notified.
+        assertEquals(0, test.getLastMessageNumber());
+        assertEquals("slow", test.retrieveEvents(-1, 10)[0].getMessage());
+
+        Results other = new Results();
+        test.addListener(other, LogLevel.DEBUG, -1, 10);
+
+        assertEquals(1, other.results.size());
+
+        release.countDown();
+        adder.join(5000);
+
+        assertFalse(adder.isAlive());
+        assertEquals(1, other.results.size());
+    }
+
+    @Test
+    public void testFactoryFromSystemProperty() {
+
+        String before = System.getProperty(LogArchiveFactory.ARCHIVE_TYPE_PROPERTY);
+        try {
+            System.setProperty(LogArchiveFactory.ARCHIVE_TYPE_PROPERTY, "ring");
+
+            LogArchiveSink archive = LogArchiveFactory.fromSystemProperty()
+                    .createArchive("foo", 10);
+
+            assertTrue(archive instanceof RingBufferLogArchive);
+        }
+        finally {
+            if (before == null) {
+                System.clearProperty(LogArchiveFactory.ARCHIVE_TYPE_PROPERTY);
+            }
+            else {
+                System.setProperty(LogArchiveFactory.ARCHIVE_TYPE_PROPERTY, before);
+            }
+        }
+    }
+
+    @Test
+    public void testThreadHeldUpBySlowListenerWaitsWithoutSpinning() throws InterruptedException {
+
+        RingBufferLogArchive test = new RingBufferLogArchive("foo", 10);
+
+        CountDownLatch listening = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Results results = new Results() {
+            @Override
+            public synchronized void logEvent(LogEvent logEvent) {
+                super.logEvent(logEvent);
+                if (logEvent.getNumber() == 0) {
+                    listening.countDown();
+                    try {
+                        release.await();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        test.addListener(results, LogLevel.DEBUG, -1, 0);
+
+        Thread slow = new Thread(() -> test.addEvent(LogLevel.INFO, "slow"));
+        slow.start();
+
+        assertTrue(listening.await(5, TimeUnit.SECONDS));
+
+        Thread held = new Thread(() -> test.addEvent(LogLevel.INFO, "held"));
+        held.start();
+
+        long giveUp = System.currentTimeMillis() + 5000;
+        while (held.getState() != Thread.State.WAITING) {
+            assertTrue("Thread should be waiting, but is " + held.getState(),
+                    System.currentTimeMillis() < giveUp);
+            Thread.sleep(10);
+        }
+
+        // Published even though not notified yet.
+        assertThat(test.getLastMessageNumber(), is(1L));
+
+        release.countDown();
+
+        slow.join(5000);
+        held.join(5000);
+
+        assertThat(results.results.size(), is(2));
+        assertThat(results.results.get(1).getMessage(), is("held"));
+    }
+}
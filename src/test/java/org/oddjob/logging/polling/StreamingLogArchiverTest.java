@@ -0,0 +1,260 @@
+package org.oddjob.logging.polling;
+
+import org.junit.Test;
+import org.oddjob.OjTestCase;
+import org.oddjob.arooa.logging.LogLevel;
+import org.oddjob.logging.LogEvent;
+import org.oddjob.logging.LogListener;
+import org.oddjob.logging.cache.LogEventStream;
+import org.oddjob.logging.cache.StreamingLogArchiver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class StreamingLogArchiverTest extends OjTestCase {
+
+	private static final String ARCHIVE = "org.oddjob.TestLogger";
+
+	/**
+	 * Pretends to be the server.
+	 */
+	private static class OurStream implements LogEventStream {
+
+		boolean canPush;
+
+		final List<LogEvent> events = new ArrayList<>();
+
+		LogListener subscriber;
+
+		int retrieved;
+
+		int subscribed;
+
+		OurStream(boolean canPush) {
+			this.canPush = canPush;
+		}
+
+		/** Log on the server without pushing. */
+		LogEvent log(String message) {
+			LogEvent event = new LogEvent(ARCHIVE, events.size(), LogLevel.INFO, message);
+			events.add(event);
+			return event;
+		}
+
+		/** Log on the server and push. */
+		void logAndPush(String... messages) {
+			List<LogEvent> pushed = new ArrayList<>();
+			for (String message : messages) {
+				pushed.add(log(message));
+			}
+			if (subscriber != null) {
+				subscriber.logEvents(pushed);
+			}
+		}
+
+		@Override
+		public boolean subscribe(Object component, LogListener listener) {
+			++subscribed;
+			if (canPush) {
+				subscriber = listener;
+			}
+			return canPush;
+		}
+
+		@Override
+		public void unsubscribe(Object component, LogListener listener) {
+			assertThat(listener, is(subscriber));
+			subscriber = null;
+		}
+
+		@Override
+		public LogEvent[] retrieveEvents(Object component, long from, int max) {
+			++retrieved;
+			return events.stream()
+					.filter(e -> e.getNumber() > from)
+					.toArray(LogEvent[]::new);
+		}
+	}
+
+	private static class OurLogListener implements LogListener {
+
+		final List<String> messages = new ArrayList<>();
+
+		@Override
+		public void logEvent(LogEvent logEvent) {
+			messages.add(logEvent.getMessage());
+		}
+	}
+
+	@Test
+	public void testHistoryThenPushedEvents() {
+
+		OurStream stream = new OurStream(true);
+		stream.log("a");
+		stream.log("b");
+
+		StreamingLogArchiver test = new StreamingLogArchiver(
+				component -> ARCHIVE, stream);
+
+		Object component = new Object();
+		OurLogListener l = new OurLogListener();
+
+		test.addLogListener(l, component, LogLevel.INFO, -1, 10);
+
+		assertThat(l.messages, contains("a", "b"));
+		assertThat(stream.retrieved, is(1));
+
+		stream.logAndPush("c", "d");
+
+		assertThat(l.messages, contains("a", "b", "c", "d"));
+
+		// Pushed archives aren't polled.
+		test.poll();
+		assertThat(stream.retrieved, is(1));
+
+		test.removeLogListener(l, component);
+
+		assertThat(stream.subscriber, nullValue());
+
+		test.onDestroy();
+	}
+
+	@Test
+	public void testGapInPushedEventsIsRetrieved() {
+
+		OurStream stream = new OurStream(true);
+
+		StreamingLogArchiver test = new StreamingLogArchiver(
+				component -> ARCHIVE, stream);
+
+		Object component = new Object();
+		OurLogListener l = new OurLogListener();
+
+		test.addLogListener(l, component, LogLevel.INFO, -1, 10);
+
+		stream.logAndPush("a");
+
+		// A lost notification.
+		stream.log("b");
+		stream.log("c");
+
+		stream.logAndPush("d");
+
+		assertThat(l.messages, contains("a", "b", "c", "d"));
+		assertThat(stream.retrieved, is(2));
+
+		// Events already archived are ignored.
+		stream.subscriber.logEvents(Arrays.asList(stream.events.get(3)));
+
+		assertThat(l.messages, contains("a", "b", "c", "d"));
+
+		test.onDestroy();
+	}
+
+	@Test
+	public void testPollsWhenCantPush() {
+
+		OurStream stream = new OurStream(false);
+		stream.log("a");
+
+		StreamingLogArchiver test = new StreamingLogArchiver(
+				component -> ARCHIVE, stream);
+
+		Object component = new Object();
+		OurLogListener l = new OurLogListener();
+
+		test.addLogListener(l, component, LogLevel.INFO, -1, 10);
+
+		assertThat(l.messages, contains("a"));
+
+		stream.log("b");
+
+		test.poll();
+
+		assertThat(l.messages, contains("a", "b"));
+
+		test.onDestroy();
+	}
+
+	@Test
+	public void testSubscriptionRenewedWhenPolled() {
+
+		OurStream stream = new OurStream(true);
+
+		StreamingLogArchiver test = new StreamingLogArchiver(
+				component -> ARCHIVE, stream);
+
+		Object component = new Object();
+		OurLogListener l = new OurLogListener();
+
+		test.addLogListener(l, component, LogLevel.INFO, -1, 10);
+
+		assertThat(stream.subscribed, is(1));
+
+		test.poll();
+
+		assertThat(stream.subscribed, is(2));
+		assertThat(stream.retrieved, is(1));
+
+		// The server stops pushing.
+		stream.canPush = false;
+		stream.subscriber = null;
+
+		stream.log("a");
+
+		test.poll();
+
+		assertThat(l.messages, contains("a"));
+
+		stream.log("b");
+
+		test.poll();
+
+		assertThat(l.messages, contains("a", "b"));
+		assertThat(stream.subscribed, is(3));
+
+		test.onDestroy();
+	}
+
+	@Test
+	public void testSharedArchiveSubscribedOnce() {
+
+		OurStream stream = new OurStream(true);
+
+		StreamingLogArchiver test = new StreamingLogArchiver(
+				component -> ARCHIVE, stream);
+
+		Object component1 = new Object();
+		Object component2 = new Object();
+		OurLogListener l1 = new OurLogListener();
+		OurLogListener l2 = new OurLogListener();
+
+		test.addLogListener(l1, component1, LogLevel.INFO, -1, 10);
+		test.addLogListener(l2, component2, LogLevel.INFO, -1, 10);
+
+		stream.logAndPush("a");
+
+		assertThat(l1.messages, contains("a"));
+		assertThat(l2.messages, contains("a"));
+
+		// Subscription moves to the remaining component.
+		test.removeLogListener(l1, component1);
+
+		stream.logAndPush("b");
+
+		assertThat(l1.messages, contains("a"));
+		assertThat(l2.messages, contains("a", "b"));
+
+		test.removeLogListener(l2, component2);
+
+		assertThat(stream.subscriber, nullValue());
+
+		test.onDestroy();
+	}
+}
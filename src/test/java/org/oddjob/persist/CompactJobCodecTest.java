@@ -0,0 +1,268 @@
+package org.oddjob.persist;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.OurDirs;
+import org.oddjob.arooa.life.ComponentPersister;
+import org.oddjob.framework.extend.SerializableJob;
+import org.oddjob.state.JobState;
+import org.oddjob.tools.OddjobTestHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class CompactJobCodecTest {
+
+    private File workDir;
+
+    @Before
+    public void setUp() throws Exception {
+        workDir = OurDirs.workPathDir(getClass().getSimpleName(), true)
+                .toFile();
+    }
+
+    public static class FieldsJob extends SerializableJob {
+        private static final long serialVersionUID = 2026101800L;
+
+        private String text;
+
+        private int count;
+
+        private long total;
+
+        private boolean flag;
+
+        private TimeUnit unit;
+
+        private File file;
+
+        private transient String notSaved = "Initial";
+
+        private boolean fail;
+
+        @Override
+        protected int execute() throws Throwable {
+            if (fail) {
+                throw new IllegalStateException("Failed on purpose.");
+            }
+            return 0;
+        }
+    }
+
+    public static class CustomJob extends SerializableJob {
+        private static final long serialVersionUID = 2026101800L;
+
+        private String text;
+
+        @Override
+        protected int execute() {
+            return 0;
+        }
+
+        private void writeObject(ObjectOutputStream s) throws IOException {
+            s.defaultWriteObject();
+        }
+    }
+
+    public static class SharedJob extends SerializableJob {
+        private static final long serialVersionUID = 2026101800L;
+
+        private List<String> first;
+
+        private List<String> second;
+
+        private Object self;
+
+        @Override
+        protected int execute() {
+            return 0;
+        }
+    }
+
+    static byte[] encode(PersistCodec codec, Object object) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.encode(object, out);
+        return out.toByteArray();
+    }
+
+    static Object decode(PersistCodec codec, byte[] bytes) throws Exception {
+        return codec.decode(new ByteArrayInputStream(bytes),
+                CompactJobCodecTest.class.getClassLoader());
+    }
+
+    @Test
+    public void testFieldsAndStateRestored() throws Exception {
+
+        FieldsJob job = new FieldsJob();
+        job.setName("Fields Job");
+        job.text = "Apples";
+        job.count = 42;
+        job.total = Long.MAX_VALUE;
+        job.flag = true;
+        job.unit = TimeUnit.SECONDS;
+        job.file = new File("some/file.txt");
+        job.notSaved = "Changed";
+
+        job.run();
+
+        CompactJobCodec test = new CompactJobCodec();
+
+        byte[] bytes = encode(test, job);
+
+        assertThat(bytes.length, lessThan(encode(new JavaSerializationCodec(), job).length));
+
+        FieldsJob copy = (FieldsJob) decode(test, bytes);
+
+        assertThat(copy.toString(), is("Fields Job"));
+        assertThat(copy.text, is("Apples"));
+        assertThat(copy.count, is(42));
+        assertThat(copy.total, is(Long.MAX_VALUE));
+        assertThat(copy.flag, is(true));
+        assertThat(copy.unit, is(TimeUnit.SECONDS));
+        assertThat(copy.file, is(new File("some/file.txt")));
+        assertThat(copy.notSaved, is("Initial"));
+
+        assertThat(OddjobTestHelper.getJobState(copy), is(JobState.COMPLETE));
+        assertThat(copy.lastStateEvent().getInstant(),
+                is(job.lastStateEvent().getInstant()));
+    }
+
+    @Test
+    public void testExceptionRestored() throws Exception {
+
+        FieldsJob job = new FieldsJob();
+        job.fail = true;
+
+        job.run();
+
+        assertThat(OddjobTestHelper.getJobState(job), is(JobState.EXCEPTION));
+
+        CompactJobCodec test = new CompactJobCodec();
+
+        FieldsJob copy = (FieldsJob) decode(test, encode(test, job));
+
+        assertThat(OddjobTestHelper.getJobState(copy), is(JobState.EXCEPTION));
+        assertThat(copy.lastStateEvent().getException().getMessage(),
+                is("Failed on purpose."));
+    }
+
+    @Test
+    public void testOtherObjectsUseJavaSerialization() throws Exception {
+
+        CompactJobCodec test = new CompactJobCodec();
+
+        CustomJob job = new CustomJob();
+        job.text = "Apples";
+
+        byte[] bytes = encode(test, job);
+
+        assertThat(bytes[0], is((byte) 0xAC));
+        assertThat(bytes[1], is((byte) 0xED));
+
+        CustomJob copy = (CustomJob) decode(test, bytes);
+
+        assertThat(copy.text, is("Apples"));
+
+        assertThat(decode(test, encode(test, "Not a job")), is("Not a job"));
+    }
+
+    @Test
+    public void testReadsJavaSerialization() throws Exception {
+
+        FieldsJob job = new FieldsJob();
+        job.text = "Apples";
+        job.run();
+
+        FieldsJob copy = (FieldsJob) decode(new CompactJobCodec(),
+                encode(new JavaSerializationCodec(), job));
+
+        assertThat(copy.text, is("Apples"));
+        assertThat(OddjobTestHelper.getJobState(copy), is(JobState.COMPLETE));
+    }
+
+    @Test
+    public void testWithFilePersister() throws Exception {
+
+        FieldsJob job = new FieldsJob();
+        job.text = "Apples";
+        job.run();
+
+        FilePersister javaPersister = new FilePersister();
+        javaPersister.setDir(workDir);
+
+        javaPersister.persisterFor("java").persist("job", job, null);
+
+        FilePersister test = new FilePersister();
+        test.setDir(workDir);
+        test.setCodec(new CompactJobCodec());
+
+        ComponentPersister persister = test.persisterFor("compact");
+
+        persister.persist("job", job, null);
+
+        assertThat(new File(workDir, "compact/job.ser").length(),
+                lessThan(new File(workDir, "java/job.ser").length()));
+
+        FieldsJob copy = (FieldsJob) persister.restore("job",
+                getClass().getClassLoader(), null);
+
+        assertThat(copy.text, is("Apples"));
+
+        // Existing Java Serialization files can still be read.
+        FieldsJob old = (FieldsJob) test.persisterFor("java").restore("job",
+                getClass().getClassLoader(), null);
+
+        assertThat(old.text, is("Apples"));
+    }
+
+    @Test
+    public void testSharedReferencesKept() throws Exception {
+
+        List<String> list = new ArrayList<>();
+        list.add("Apples");
+
+        SharedJob job = new SharedJob();
+        job.first = list;
+        job.second = list;
+
+        CompactJobCodec test = new CompactJobCodec();
+
+        byte[] bytes = encode(test, job);
+
+        assertThat(bytes[0], is((byte) 0x4F));
+
+        SharedJob copy = (SharedJob) decode(test, bytes);
+
+        assertThat(copy.first, is(list));
+        assertThat(copy.second, sameInstance(copy.first));
+    }
+
+    @Test
+    public void testSelfReferenceUsesJavaSerialization() throws Exception {
+
+        List<Object> list = new ArrayList<>();
+
+        SharedJob job = new SharedJob();
+        job.self = list;
+        list.add(job);
+
+        CompactJobCodec test = new CompactJobCodec();
+
+        byte[] bytes = encode(test, job);
+
+        assertThat(bytes[0], is((byte) 0xAC));
+
+        SharedJob copy = (SharedJob) decode(test, bytes);
+
+        assertThat(((List<?>) copy.self).get(0), sameInstance(copy));
+    }
+}
@@ -0,0 +1,287 @@
+package org.oddjob.persist;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.Loadable;
+import org.oddjob.Oddjob;
+import org.oddjob.OddjobLookup;
+import org.oddjob.OurDirs;
+import org.oddjob.arooa.life.ComponentPersister;
+import org.oddjob.arooa.standard.StandardArooaSession;
+import org.oddjob.state.JobState;
+import org.oddjob.state.ParentState;
+import org.oddjob.tools.OddjobTestHelper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class JournalPersisterTest {
+
+    private File workDir;
+
+    @Before
+    public void setUp() throws Exception {
+        workDir = OurDirs.workPathDir(getClass().getSimpleName(), true)
+                .toFile();
+    }
+
+    File[] segmentFiles() {
+        return workDir.listFiles((dir, name) -> name.startsWith("journal-"));
+    }
+
+    @Test
+    public void testPersistAndRestore() throws Exception {
+
+        FilePersisterTest.OurJob job = new FilePersisterTest.OurJob();
+        job.setName("Test");
+        job.run();
+
+        StandardArooaSession session = new StandardArooaSession();
+
+        JournalPersister test = new JournalPersister();
+        test.setDir(workDir);
+
+        ComponentPersister persister = test.persisterFor("oj");
+
+        persister.persist("test-persist", job, session);
+
+        assertThat(segmentFiles().length, is(1));
+
+        Object restored = persister.restore("test-persist",
+                getClass().getClassLoader(), session);
+
+        assertThat(restored, instanceOf(FilePersisterTest.OurJob.class));
+        assertThat(OddjobTestHelper.getJobState(restored), is(JobState.COMPLETE));
+
+        assertThat(persister.list(), arrayContaining("test-persist"));
+
+        persister.remove("test-persist", session);
+
+        assertThat(persister.restore("test-persist",
+                getClass().getClassLoader(), session), nullValue());
+
+        test.close();
+    }
+
+    @Test
+    public void testLatestRestoredAfterReopening() throws Exception {
+
+        JournalPersister test = new JournalPersister();
+        test.setDir(workDir);
+
+        ComponentPersister persister = test.persisterFor("oj");
+
+        persister.persist("a", "apple", null);
+        persister.persist("b", "banana", null);
+        persister.persist("a", "avocado", null);
+        persister.remove("b", null);
+
+        test.close();
+
+        JournalPersister test2 = new JournalPersister();
+        test2.setDir(workDir);
+
+        ComponentPersister persister2 = test2.persisterFor("oj");
+
+        assertThat(persister2.list(), arrayContaining("a"));
+        assertThat(persister2.restore("a", getClass().getClassLoader(), null), is("avocado"));
+        assertThat(persister2.restore("b", getClass().getClassLoader(), null), nullValue());
+
+        // And again, now it's not from what was read at startup.
+        assertThat(persister2.restore("a", getClass().getClassLoader(), null), is("avocado"));
+
+        test2.close();
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+
+        JournalPersister test = new JournalPersister();
+        test.setDir(workDir);
+        test.setSegmentSize(1024);
+
+        ComponentPersister persister = test.persisterFor("oj");
+
+        persister.persist("b", "banana", null);
+
+        for (int i = 0; i < 500; ++i) {
+            persister.persist("a", "apple " + i, null);
+        }
+
+        assertThat(segmentFiles().length, lessThanOrEqualTo(2));
+
+        assertThat(persister.restore("a", getClass().getClassLoader(), null), is("apple 499"));
+        assertThat(persister.restore("b", getClass().getClassLoader(), null), is("banana"));
+
+        test.close();
+
+        JournalPersister test2 = new JournalPersister();
+        test2.setDir(workDir);
+
+        ComponentPersister persister2 = test2.persisterFor("oj");
+
+        assertThat(persister2.restore("a", getClass().getClassLoader(), null), is("apple 499"));
+        assertThat(persister2.restore("b", getClass().getClassLoader(), null), is("banana"));
+
+        test2.close();
+    }
+
+    @Test
+    public void testSegmentLeftByCompactionDoesNotRestoreRemoved() throws Exception {
+
+        JournalPersister test = new JournalPersister();
+        test.setDir(workDir);
+        test.setSegmentSize(1024);
+
+        ComponentPersister persister = test.persisterFor("oj");
+
+        persister.persist("x", "xigua", null);
+
+        File first = segmentFiles()[0];
+        byte[] firstBytes = Files.readAllBytes(first.toPath());
+
+        persister.remove("x", null);
+
+        for (int i = 0; i < 500; ++i) {
+            persister.persist("a", "apple " + i, null);
+        }
+
+        test.close();
+
+        assertThat(first.exists(), is(false));
+
+        // As if the process died before compaction deleted it.
+        Files.write(first.toPath(), firstBytes);
+
+        JournalPersister test2 = new JournalPersister();
+        test2.setDir(workDir);
+
+        ComponentPersister persister2 = test2.persisterFor("oj");
+
+        assertThat(persister2.restore("x", getClass().getClassLoader(), null), nullValue());
+        assertThat(persister2.restore("a", getClass().getClassLoader(), null), is("apple 499"));
+        assertThat(first.exists(), is(false));
+
+        test2.close();
+    }
+
+    @Test
+    public void testIncompleteRecordIsIgnored() throws Exception {
+
+        JournalPersister test = new JournalPersister();
+        test.setDir(workDir);
+
+        test.persisterFor("oj").persist("a", "apple", null);
+
+        test.close();
+
+        File[] segments = segmentFiles();
+        assertThat(segments.length, is(1));
+
+        long goodLength = segments[0].length();
+
+        // As if the process died part way through writing.
+        try (OutputStream out = new FileOutputStream(segments[0], true)) {
+            out.write(new byte[] { 0, 0, 1, 0, 7, 7 });
+        }
+
+        JournalPersister test2 = new JournalPersister();
+        test2.setDir(workDir);
+
+        ComponentPersister persister2 = test2.persisterFor("oj");
+
+        assertThat(persister2.restore("a", getClass().getClassLoader(), null), is("apple"));
+        assertThat(segments[0].length(), is(goodLength));
+
+        persister2.persist("b", "banana", null);
+
+        test2.close();
+
+        JournalPersister test3 = new JournalPersister();
+        test3.setDir(workDir);
+
+        ComponentPersister persister3 = test3.persisterFor("oj");
+
+        assertThat(persister3.restore("a", getClass().getClassLoader(), null), is("apple"));
+        assertThat(persister3.restore("b", getClass().getClassLoader(), null), is("banana"));
+
+        test3.close();
+    }
+
+    @Test
+    public void testClearIncludesChildren() throws Exception {
+
+        JournalPersister test = new JournalPersister();
+        test.setDir(workDir);
+
+        ComponentPersister persister = test.persisterFor("oj");
+        ComponentPersister child = ((OddjobPersister) persister).persisterFor("inner");
+        ComponentPersister other = test.persisterFor("other");
+
+        persister.persist("a", "apple", null);
+        child.persist("b", "banana", null);
+        other.persist("c", "cherry", null);
+
+        persister.clear();
+
+        test.close();
+
+        JournalPersister test2 = new JournalPersister();
+        test2.setDir(workDir);
+
+        assertThat(test2.persisterFor("oj").restore("a", getClass().getClassLoader(), null),
+                nullValue());
+        assertThat(((OddjobPersister) test2.persisterFor("oj")).persisterFor("inner")
+                .restore("b", getClass().getClassLoader(), null), nullValue());
+        assertThat(test2.persisterFor("other").restore("c", getClass().getClassLoader(), null),
+                is("cherry"));
+
+        test2.close();
+    }
+
+    @Test
+    public void testPersistExample() throws Exception {
+
+        URL url = getClass().getClassLoader().getResource("org/oddjob/persist/JournalPersisterExample.xml");
+
+        File file = new File(url.toURI().getPath());
+
+        Properties props = new Properties();
+        props.setProperty("important.stuff", "Important Stuff!");
+
+        Oddjob oddjob1 = new Oddjob();
+        oddjob1.setFile(file);
+        oddjob1.setArgs(new String[]{workDir.getAbsolutePath()});
+        oddjob1.setProperties(props);
+        oddjob1.run();
+
+        assertThat(oddjob1.lastStateEvent().getState(), is(ParentState.COMPLETE));
+        oddjob1.destroy();
+
+        assertThat(segmentFiles().length, is(1));
+
+        Oddjob oddjob2 = new Oddjob();
+        oddjob2.setFile(file);
+        oddjob2.setArgs(new String[]{workDir.getAbsolutePath()});
+        oddjob2.load();
+
+        OddjobLookup lookup = new OddjobLookup(oddjob2);
+
+        Loadable loadable = lookup.lookup("important-jobs", Loadable.class);
+        loadable.load();
+
+        String text = lookup.lookup("important-jobs/save-me.text",
+                String.class);
+
+        assertThat(text, is("Important Stuff!"));
+
+        oddjob2.destroy();
+    }
+}
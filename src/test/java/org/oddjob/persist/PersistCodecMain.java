@@ -0,0 +1,84 @@
+package org.oddjob.persist;
+
+import org.oddjob.OurDirs;
+import org.oddjob.arooa.life.ComponentPersister;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Compare codecs for a {@link FilePersister}. An archive of jobs is written
+ * with each codec and then restored as Oddjob would at startup, each
+ * restore using a new persister and codec.
+ * <p>
+ * Run with the number of jobs as an argument, the default is 10000.
+ */
+public class PersistCodecMain {
+
+    static final int ROUNDS = 5;
+
+    static void measure(String name, Supplier<PersistCodec> codecs,
+                        File dir, int jobs) throws Exception {
+
+        FilePersister persister = new FilePersister();
+        persister.setDir(dir);
+        persister.setCodec(codecs.get());
+
+        ComponentPersister componentPersister = persister.persisterFor("archive");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < jobs; ++i) {
+            CompactJobCodecTest.FieldsJob job = new CompactJobCodecTest.FieldsJob();
+            job.setName("Job " + i);
+            job.run();
+            componentPersister.persist("job" + i, job, null);
+        }
+        long writeNanos = System.nanoTime() - start;
+
+        long bytes = Arrays.stream(new File(dir, "archive").listFiles())
+                .mapToLong(File::length).sum();
+
+        long bestRestore = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; ++round) {
+
+            FilePersister restorer = new FilePersister();
+            restorer.setDir(dir);
+            restorer.setCodec(codecs.get());
+
+            ComponentPersister restoring = restorer.persisterFor("archive");
+
+            start = System.nanoTime();
+            for (String id : restoring.list()) {
+                if (restoring.restore(id, PersistCodecMain.class.getClassLoader(),
+                        null) == null) {
+                    throw new IllegalStateException("Failed restoring " + id);
+                }
+            }
+            bestRestore = Math.min(bestRestore, System.nanoTime() - start);
+        }
+
+        System.out.printf("%-12s write %6d ms, %8d bytes (%4d per job), restore %6d ms%n",
+                name, writeNanos / 1_000_000, bytes, bytes / jobs,
+                bestRestore / 1_000_000);
+    }
+
+    public static void main(String... args) throws Exception {
+
+        int jobs = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+
+        File workDir = OurDirs.workPathDir(PersistCodecMain.class.getSimpleName(), true)
+                .toFile();
+
+        File javaDir = new File(workDir, "java");
+        File compactDir = new File(workDir, "compact");
+        javaDir.mkdir();
+        compactDir.mkdir();
+
+        // Once to warm up, then again to measure.
+        for (int i = 0; i < 2; ++i) {
+            measure("java", JavaSerializationCodec::new, javaDir, jobs);
+            measure("compact", CompactJobCodec::new, compactDir, jobs);
+        }
+    }
+}
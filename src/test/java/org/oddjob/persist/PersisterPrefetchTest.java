@@ -0,0 +1,134 @@
+package org.oddjob.persist;
+
+import org.junit.Test;
+import org.oddjob.Oddjob;
+import org.oddjob.OddjobLookup;
+import org.oddjob.arooa.life.ComponentPersister;
+import org.oddjob.arooa.xml.XMLConfiguration;
+import org.oddjob.state.FlagState;
+import org.oddjob.state.JobState;
+import org.oddjob.state.ParentState;
+import org.oddjob.tools.OddjobTestHelper;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PersisterPrefetchTest {
+
+    @Test
+    public void testPrefetchedComponentsAreRestored() throws Exception {
+
+        MapPersister test = new MapPersister();
+        test.setPrefetchThreads(4);
+
+        ComponentPersister persister = test.persisterFor("oj");
+
+        for (int i = 0; i < 20; ++i) {
+            persister.persist("job" + i, "Job " + i, null);
+        }
+
+        ComponentPersister restoring = test.persisterFor("oj");
+
+        ((PrefetchingPersister) restoring).prefetch(getClass().getClassLoader());
+
+        for (int i = 0; i < 20; ++i) {
+            assertThat(restoring.restore("job" + i, getClass().getClassLoader(), null),
+                    is("Job " + i));
+        }
+
+        assertThat(test.getPrefetchHits(), is(20L));
+        assertThat(test.getRestoreTimes().keySet(), hasItems("oj/job0", "oj/job19"));
+
+        // Only used once.
+        assertThat(restoring.restore("job0", getClass().getClassLoader(), null),
+                is("Job 0"));
+        assertThat(test.getPrefetchHits(), is(20L));
+    }
+
+    @Test
+    public void testPersistReplacesWhatWasPrefetched() throws Exception {
+
+        MapPersister test = new MapPersister();
+        test.setPrefetchThreads(2);
+
+        ComponentPersister persister = test.persisterFor("oj");
+
+        persister.persist("a", "apple", null);
+        persister.persist("b", "banana", null);
+
+        ComponentPersister restoring = test.persisterFor("oj");
+
+        ((PrefetchingPersister) restoring).prefetch(getClass().getClassLoader());
+
+        restoring.persist("a", "avocado", null);
+        restoring.remove("b", null);
+
+        assertThat(restoring.restore("a", getClass().getClassLoader(), null),
+                is("avocado"));
+        assertThat(restoring.restore("b", getClass().getClassLoader(), null),
+                nullValue());
+
+        assertThat(test.getPrefetchHits(), is(0L));
+    }
+
+    @Test
+    public void testNoPrefetchByDefault() throws Exception {
+
+        MapPersister test = new MapPersister();
+
+        ComponentPersister persister = test.persisterFor("oj");
+
+        persister.persist("a", "apple", null);
+
+        ComponentPersister restoring = test.persisterFor("oj");
+
+        ((PrefetchingPersister) restoring).prefetch(getClass().getClassLoader());
+
+        assertThat(restoring.restore("a", getClass().getClassLoader(), null),
+                is("apple"));
+
+        assertThat(test.getPrefetchHits(), is(0L));
+        assertThat(test.getRestoreTimes().keySet(), contains("oj/a"));
+    }
+
+    @Test
+    public void testOddjobPrefetches() throws Exception {
+
+        String xml =
+                "<oddjob xmlns:state='http://rgordon.co.uk/oddjob/state'>" +
+                " <job>" +
+                "  <sequential>" +
+                "   <jobs>" +
+                "    <state:flag id='flag1'/>" +
+                "    <state:flag id='flag2'/>" +
+                "   </jobs>" +
+                "  </sequential>" +
+                " </job>" +
+                "</oddjob>";
+
+        MapPersister persister = new MapPersister();
+        persister.setPath("testOddjobPrefetches");
+        persister.setPrefetchThreads(2);
+
+        Oddjob oddjob1 = new Oddjob();
+        oddjob1.setConfiguration(new XMLConfiguration("XML", xml));
+        oddjob1.setPersister(persister);
+        oddjob1.run();
+
+        assertThat(oddjob1.lastStateEvent().getState(), is(ParentState.COMPLETE));
+
+        oddjob1.destroy();
+
+        Oddjob oddjob2 = new Oddjob();
+        oddjob2.setConfiguration(new XMLConfiguration("XML", xml));
+        oddjob2.setPersister(persister);
+        oddjob2.load();
+
+        FlagState flag1 = new OddjobLookup(oddjob2).lookup("flag1", FlagState.class);
+
+        assertThat(OddjobTestHelper.getJobState(flag1), is(JobState.COMPLETE));
+        assertThat(persister.getPrefetchHits(), is(2L));
+
+        oddjob2.destroy();
+    }
+}
@@ -0,0 +1,192 @@
+package org.oddjob.persist;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.Loadable;
+import org.oddjob.Oddjob;
+import org.oddjob.OddjobLookup;
+import org.oddjob.OurDirs;
+import org.oddjob.arooa.life.ComponentPersister;
+import org.oddjob.arooa.registry.Path;
+import org.oddjob.state.ParentState;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class WriteBehindPersisterServiceTest {
+
+    private File workDir;
+
+    @Before
+    public void setUp() throws Exception {
+        workDir = OurDirs.workPathDir(getClass().getSimpleName(), true)
+                .toFile();
+    }
+
+    @Test
+    public void testSavesCoalescedAndWrittenOnStop() throws Exception {
+
+        MapPersister writeTo = new MapPersister();
+
+        WriteBehindPersisterService test = new WriteBehindPersisterService();
+        test.setWriteTo(writeTo);
+        test.setInterval(60_000);
+
+        test.start();
+
+        ComponentPersister persister = test.getPersister("jobs").persisterFor("oj");
+
+        persister.persist("a", "apple", null);
+        persister.persist("b", "banana", null);
+        persister.persist("a", "apricot", null);
+        persister.persist("a", "avocado", null);
+
+        assertThat(test.getQueueDepth(), is(2));
+        assertThat(test.getSaves(), is(4L));
+        assertThat(test.getCoalesced(), is(2L));
+
+        Path path = new Path("jobs").addId("oj");
+
+        assertThat(writeTo.restore(path, "a", getClass().getClassLoader()), nullValue());
+
+        test.stop();
+
+        assertThat(test.getQueueDepth(), is(0));
+        assertThat(test.getFlushes(), is(1L));
+        assertThat(writeTo.restore(path, "a", getClass().getClassLoader()), is("avocado"));
+        assertThat(writeTo.restore(path, "b", getClass().getClassLoader()), is("banana"));
+    }
+
+    @Test
+    public void testComponentIsCopiedWhenSaved() throws Exception {
+
+        MapPersister writeTo = new MapPersister();
+
+        WriteBehindPersisterService test = new WriteBehindPersisterService();
+        test.setWriteTo(writeTo);
+        test.setInterval(60_000);
+
+        test.start();
+
+        ComponentPersister persister = test.getPersister("jobs").persisterFor("oj");
+
+        ArrayList<String> fruit = new ArrayList<>(List.of("apple"));
+
+        persister.persist("a", fruit, null);
+
+        // Changes after the save aren't written.
+        fruit.add("banana");
+
+        test.stop();
+
+        Path path = new Path("jobs").addId("oj");
+
+        assertThat(writeTo.restore(path, "a", getClass().getClassLoader()),
+                is(List.of("apple")));
+    }
+
+    @Test
+    public void testRestoreAndListSeePendingSaves() throws Exception {
+
+        MapPersister writeTo = new MapPersister();
+
+        WriteBehindPersisterService test = new WriteBehindPersisterService();
+        test.setWriteTo(writeTo);
+        test.setInterval(60_000);
+
+        test.start();
+
+        ComponentPersister persister = test.getPersister("jobs").persisterFor("oj");
+
+        persister.persist("a", "apple", null);
+        persister.persist("b", "banana", null);
+
+        assertThat(persister.restore("a", getClass().getClassLoader(), null), is("apple"));
+
+        // Only what was restored has been written.
+        assertThat(test.getQueueDepth(), is(1));
+
+        assertThat(persister.list(), arrayContainingInAnyOrder("a", "b"));
+
+        persister.persist("c", "cherry", null);
+        persister.remove("c", null);
+
+        assertThat(test.getQueueDepth(), is(0));
+
+        test.stop();
+
+        assertThat(persister.restore("c", getClass().getClassLoader(), null), nullValue());
+    }
+
+    @Test
+    public void testWrittenAtInterval() throws Exception {
+
+        MapPersister writeTo = new MapPersister();
+
+        WriteBehindPersisterService test = new WriteBehindPersisterService();
+        test.setWriteTo(writeTo);
+        test.setInterval(10);
+
+        test.start();
+
+        test.getPersister("jobs").persisterFor("oj").persist("a", "apple", null);
+
+        Path path = new Path("jobs").addId("oj");
+
+        for (int i = 0; i < 500 && writeTo.restore(path, "a", getClass().getClassLoader()) == null; ++i) {
+            Thread.sleep(10);
+        }
+
+        assertThat(writeTo.restore(path, "a", getClass().getClassLoader()), is("apple"));
+        assertThat(test.getQueueDepth(), is(0));
+
+        test.stop();
+    }
+
+    @Test
+    public void testPersistExample() throws Exception {
+
+        URL url = getClass().getClassLoader().getResource(
+                "org/oddjob/persist/WriteBehindPersisterExample.xml");
+
+        File file = new File(url.toURI().getPath());
+
+        Properties props = new Properties();
+        props.setProperty("important.stuff", "Important Stuff!");
+
+        Oddjob oddjob1 = new Oddjob();
+        oddjob1.setFile(file);
+        oddjob1.setArgs(new String[]{workDir.getAbsolutePath()});
+        oddjob1.setProperties(props);
+        oddjob1.run();
+
+        assertThat(oddjob1.lastStateEvent().getState(), is(ParentState.COMPLETE));
+
+        oddjob1.destroy();
+
+        assertThat(new File(workDir, "saved/important-jobs/save-me.ser").exists(), is(true));
+
+        Oddjob oddjob2 = new Oddjob();
+        oddjob2.setFile(file);
+        oddjob2.setArgs(new String[]{workDir.getAbsolutePath()});
+        oddjob2.load();
+
+        OddjobLookup lookup = new OddjobLookup(oddjob2);
+
+        Loadable loadable = lookup.lookup("important-jobs", Loadable.class);
+        loadable.load();
+
+        String text = lookup.lookup("important-jobs/save-me.text",
+                String.class);
+
+        assertThat(text, is("Important Stuff!"));
+
+        oddjob2.destroy();
+    }
+}
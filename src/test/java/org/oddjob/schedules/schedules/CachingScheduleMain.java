@@ -0,0 +1,124 @@
+package org.oddjob.schedules.schedules;
+
+import org.oddjob.arooa.utils.DateHelper;
+import org.oddjob.schedules.Schedule;
+import org.oddjob.schedules.ScheduleContext;
+import org.oddjob.schedules.ScheduleList;
+import org.oddjob.schedules.ScheduleResult;
+import org.oddjob.schedules.units.DayOfMonth;
+import org.oddjob.schedules.units.DayOfWeek;
+
+import java.util.Date;
+import java.util.function.Supplier;
+
+/**
+ * Compare evaluating schedules with and without a {@link CachingSchedule}.
+ * Many timers share the same schedule and each rolls forward through a
+ * year of occurrences from the same start, as timers restarted with
+ * Oddjob would.
+ * <p>
+ * Run with the number of timers as an argument, the default is 100.
+ */
+public class CachingScheduleMain {
+
+    static final int OCCURRENCES = 365;
+
+    static Schedule time() {
+        TimeSchedule schedule = new TimeSchedule();
+        schedule.setAt("10:00");
+        return schedule;
+    }
+
+    static Schedule daily() {
+        DailySchedule schedule = new DailySchedule();
+        schedule.setAt("10:00");
+        return schedule;
+    }
+
+    static Schedule weekly() {
+        WeeklySchedule schedule = new WeeklySchedule();
+        schedule.setFrom(DayOfWeek.Days.MONDAY);
+        schedule.setTo(DayOfWeek.Days.FRIDAY);
+        schedule.setRefinement(daily());
+        return schedule;
+    }
+
+    static Schedule monthly() {
+        MonthlySchedule schedule = new MonthlySchedule();
+        schedule.setOnDay(new DayOfMonth.Number(15));
+        schedule.setRefinement(daily());
+        return schedule;
+    }
+
+    static Schedule broken() {
+
+        String[] holidays = { "01-01", "04-10", "04-13", "05-04", "05-25",
+                "08-31", "12-25", "12-26", "12-28" };
+
+        Schedule[] breaks = new Schedule[holidays.length];
+        for (int i = 0; i < holidays.length; ++i) {
+            YearlySchedule holiday = new YearlySchedule();
+            holiday.setOnDate(holidays[i]);
+            breaks[i] = holiday;
+        }
+
+        ScheduleList breakList = new ScheduleList();
+        breakList.setSchedules(breaks);
+
+        BrokenSchedule schedule = new BrokenSchedule();
+        schedule.setSchedule(weekly());
+        schedule.setBreaks(breakList);
+        return schedule;
+    }
+
+    static Schedule cached(Schedule schedule) {
+        CachingSchedule caching = new CachingSchedule();
+        caching.setSchedule(schedule);
+        caching.setAhead(8);
+        return caching;
+    }
+
+    static long roll(Schedule schedule, Date from, int timers) {
+
+        long start = System.nanoTime();
+        for (int timer = 0; timer < timers; ++timer) {
+            ScheduleContext context = new ScheduleContext(from);
+            for (int i = 0; i < OCCURRENCES; ++i) {
+                ScheduleResult result = schedule.nextDue(context);
+                if (result == null || result.getUseNext() == null) {
+                    break;
+                }
+                context = context.move(result.getUseNext());
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    static void measure(String name, Supplier<Schedule> schedules,
+                        Date from, int timers) {
+
+        long plain = roll(schedules.get(), from, timers);
+        long cached = roll(cached(schedules.get()), from, timers);
+
+        long evaluations = (long) timers * OCCURRENCES;
+
+        System.out.printf("%-8s plain %8.2f us, cached %8.2f us per evaluation%n",
+                name, plain / 1000.0 / evaluations, cached / 1000.0 / evaluations);
+    }
+
+    public static void main(String... args) throws Exception {
+
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+
+        Date from = DateHelper.parseDateTime("2020-01-01 12:00");
+
+        // Once to warm up, then again to measure.
+        for (int i = 0; i < 2; ++i) {
+            measure("time", CachingScheduleMain::time, from, timers);
+            measure("daily", CachingScheduleMain::daily, from, timers);
+            measure("weekly", CachingScheduleMain::weekly, from, timers);
+            measure("monthly", CachingScheduleMain::monthly, from, timers);
+            measure("broken", CachingScheduleMain::broken, from, timers);
+        }
+    }
+}
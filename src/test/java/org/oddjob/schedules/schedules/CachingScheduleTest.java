@@ -0,0 +1,248 @@
+package org.oddjob.schedules.schedules;
+
+import org.junit.Test;
+import org.oddjob.OddjobDescriptorFactory;
+import org.oddjob.arooa.ArooaDescriptor;
+import org.oddjob.arooa.standard.StandardFragmentParser;
+import org.oddjob.arooa.utils.DateHelper;
+import org.oddjob.arooa.xml.XMLConfiguration;
+import org.oddjob.schedules.IntervalTo;
+import org.oddjob.schedules.Schedule;
+import org.oddjob.schedules.ScheduleList;
+import org.oddjob.schedules.ScheduleContext;
+import org.oddjob.schedules.ScheduleResult;
+import org.oddjob.schedules.ScheduleRoller;
+import org.oddjob.tools.OddjobTestHelper;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class CachingScheduleTest {
+
+    private static class Counter implements Schedule, Serializable {
+        private static final long serialVersionUID = 2026101800L;
+
+        transient int count;
+
+        final DailySchedule daily = new DailySchedule();
+        {
+            daily.setAt("10:00");
+        }
+
+        @Override
+        public boolean isStateless() {
+            return true;
+        }
+
+        @Override
+        public ScheduleResult nextDue(ScheduleContext context) {
+            count++;
+            return daily.nextDue(context);
+        }
+    }
+
+    @Test
+    public void testSameResultsAsCachedSchedule() throws Exception {
+
+        Schedule broken = BrokenScheduleTest.brokenSchedule();
+
+        CachingSchedule test = new CachingSchedule();
+        test.setSchedule(BrokenScheduleTest.brokenSchedule());
+
+        Date from = DateHelper.parseDate("2003-02-01");
+
+        ScheduleResult[] expected = new ScheduleRoller(broken, 20).resultsFrom(from);
+
+        assertThat(new ScheduleRoller(test, 20).resultsFrom(from), is(expected));
+        assertThat(test.getHits(), is(0L));
+
+        assertThat(new ScheduleRoller(test, 20).resultsFrom(from), is(expected));
+        assertThat(test.getHits(), is(20L));
+    }
+
+    @Test
+    public void testAheadPrecomputesFollowingOccurrences() throws Exception {
+
+        Counter counter = new Counter();
+
+        CachingSchedule test = new CachingSchedule();
+        test.setSchedule(counter);
+        test.setAhead(5);
+
+        Date from = DateHelper.parseDateTime("2020-03-01 12:00");
+
+        ScheduleResult[] results = new ScheduleRoller(test, 6).resultsFrom(from);
+
+        assertThat(results[5], is(new IntervalTo(
+                DateHelper.parseDateTime("2020-03-07 10:00"))));
+
+        // One for the first and five ahead.
+        assertThat(counter.count, is(6));
+        assertThat(test.getHits(), is(5L));
+    }
+
+    @Test
+    public void testParentIntervalAndTimeZoneArePartOfKey() throws Exception {
+
+        Counter counter = new Counter();
+
+        CachingSchedule test = new CachingSchedule();
+        test.setSchedule(counter);
+
+        Date date = DateHelper.parseDateTime("2020-03-01 12:00");
+
+        ScheduleContext context = new ScheduleContext(date);
+
+        test.nextDue(context);
+        test.nextDue(context.spawn(new IntervalTo(
+                DateHelper.parseDate("2020-03-01"),
+                DateHelper.parseDate("2020-03-02"))));
+        test.nextDue(new ScheduleContext(date,
+                TimeZone.getTimeZone("Asia/Tokyo")));
+
+        assertThat(test.getHits(), is(0L));
+        assertThat(test.getMisses(), is(3L));
+
+        test.nextDue(context);
+
+        assertThat(test.getHits(), is(1L));
+    }
+
+    @Test
+    public void testScheduleWithStateIsNotCached() {
+
+        CachingSchedule test = new CachingSchedule();
+        test.setSchedule(new CountSchedule(3));
+
+        ScheduleContext context = new ScheduleContext(new Date());
+
+        int count = 0;
+        while (test.nextDue(context) != null) {
+            context = context.move(new Date(
+                    context.getDate().getTime() + 1));
+            ++count;
+        }
+
+        assertThat(count, is(3));
+        assertThat(test.getHits(), is(0L));
+    }
+
+    @Test
+    public void testStatelessIsWorkedOutFromTheTree() throws Exception {
+
+        BrokenSchedule broken = (BrokenSchedule) BrokenScheduleTest.brokenSchedule();
+
+        assertThat(broken.isStateless(), is(true));
+
+        ScheduleList list = new ScheduleList();
+        list.setSchedules(new Schedule[] { new DailySchedule(), new CountSchedule(2) });
+
+        broken.setAlternative(list);
+
+        assertThat(broken.isStateless(), is(false));
+
+        Schedule unknown = context -> null;
+
+        assertThat(unknown.isStateless(), is(false));
+    }
+
+    @Test
+    public void testChangedScheduleIsNotUsedFromCache() throws Exception {
+
+        DailySchedule daily = new DailySchedule();
+        daily.setAt("10:00");
+
+        CachingSchedule test = new CachingSchedule();
+        test.setSchedule(daily);
+
+        ScheduleContext context = new ScheduleContext(
+                DateHelper.parseDateTime("2020-03-01 08:00"));
+
+        assertThat(test.nextDue(context), is(new IntervalTo(
+                DateHelper.parseDateTime("2020-03-01 10:00"))));
+        assertThat(test.nextDue(context), is(new IntervalTo(
+                DateHelper.parseDateTime("2020-03-01 10:00"))));
+        assertThat(test.getHits(), is(1L));
+
+        daily.setAt("11:00");
+
+        assertThat(test.nextDue(context), is(new IntervalTo(
+                DateHelper.parseDateTime("2020-03-01 11:00"))));
+        assertThat(test.getHits(), is(1L));
+    }
+
+    @Test
+    public void testSizeLimitAndInvalidate() throws Exception {
+
+        Counter counter = new Counter();
+
+        CachingSchedule test = new CachingSchedule();
+        test.setSchedule(counter);
+        test.setSize(2);
+
+        Date d1 = DateHelper.parseDateTime("2020-03-01 12:00");
+        Date d2 = DateHelper.parseDateTime("2020-03-02 12:00");
+        Date d3 = DateHelper.parseDateTime("2020-03-03 12:00");
+
+        test.nextDue(new ScheduleContext(d1));
+        test.nextDue(new ScheduleContext(d2));
+        test.nextDue(new ScheduleContext(d3));
+        test.nextDue(new ScheduleContext(d1));
+
+        assertThat(test.getHits(), is(0L));
+
+        test.nextDue(new ScheduleContext(d1));
+
+        assertThat(test.getHits(), is(1L));
+
+        test.invalidate();
+
+        test.nextDue(new ScheduleContext(d1));
+
+        assertThat(test.getHits(), is(1L));
+    }
+
+    @Test
+    public void testSerialize() throws Exception {
+
+        CachingSchedule test = new CachingSchedule();
+        test.setSchedule(BrokenScheduleTest.brokenSchedule());
+
+        ScheduleContext context = new ScheduleContext(
+                DateHelper.parseDate("2003-02-01"));
+
+        ScheduleResult result = test.nextDue(context);
+
+        CachingSchedule copy = OddjobTestHelper.copy(test);
+
+        assertThat(copy.nextDue(context), is(result));
+        assertThat(copy.getHits(), is(0L));
+    }
+
+    @Test
+    public void testExample() throws Exception {
+
+        OddjobDescriptorFactory df = new OddjobDescriptorFactory();
+
+        ArooaDescriptor descriptor = df.createDescriptor(
+                getClass().getClassLoader());
+
+        StandardFragmentParser parser = new StandardFragmentParser(descriptor);
+
+        parser.parse(new XMLConfiguration(
+                "org/oddjob/schedules/schedules/CachingScheduleExample.xml",
+                getClass().getClassLoader()));
+
+        Schedule schedule = (Schedule) parser.getRoot();
+
+        ScheduleResult next = schedule.nextDue(new ScheduleContext(
+                DateHelper.parseDateTime("2011-12-24 11:00")));
+
+        assertThat(next, is(new IntervalTo(
+                DateHelper.parseDateTime("2011-12-27 10:00"))));
+    }
+}
@@ -0,0 +1,136 @@
+package org.oddjob.schedules.time;
+
+import org.oddjob.arooa.utils.DateHelper;
+import org.oddjob.schedules.Schedule;
+import org.oddjob.schedules.ScheduleContext;
+import org.oddjob.schedules.ScheduleList;
+import org.oddjob.schedules.ScheduleResult;
+import org.oddjob.schedules.schedules.DailySchedule;
+import org.oddjob.schedules.schedules.IntervalSchedule;
+import org.oddjob.schedules.schedules.MonthlySchedule;
+import org.oddjob.schedules.schedules.TimeSchedule;
+import org.oddjob.schedules.schedules.WeeklySchedule;
+import org.oddjob.schedules.schedules.YearlySchedule;
+import org.oddjob.schedules.units.DayOfMonth;
+import org.oddjob.schedules.units.DayOfWeek;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.function.Supplier;
+
+/**
+ * Compare evaluating schedules directly and with a
+ * {@link JavaTimeSchedule}, by time and by the bytes allocated. Each
+ * schedule is rolled forward through a number of years of occurrences.
+ * <p>
+ * Run with the number of years as an argument, the default is 20.
+ */
+public class JavaTimeScheduleMain {
+
+    static Schedule time() {
+        TimeSchedule schedule = new TimeSchedule();
+        schedule.setFrom("08:00");
+        schedule.setTo("18:00");
+        schedule.setRefinement(new IntervalSchedule(3_600_000L));
+        return schedule;
+    }
+
+    static Schedule daily() {
+        DailySchedule schedule = new DailySchedule();
+        schedule.setAt("10:00");
+        return schedule;
+    }
+
+    static Schedule weekly() {
+        WeeklySchedule schedule = new WeeklySchedule();
+        schedule.setFrom(DayOfWeek.Days.MONDAY);
+        schedule.setTo(DayOfWeek.Days.FRIDAY);
+        schedule.setRefinement(daily());
+        return schedule;
+    }
+
+    static Schedule monthly() {
+        MonthlySchedule schedule = new MonthlySchedule();
+        schedule.setOnDay(DayOfMonth.Shorthands.LAST);
+        schedule.setRefinement(daily());
+        return schedule;
+    }
+
+    static Schedule list() {
+
+        YearlySchedule yearly = new YearlySchedule();
+        yearly.setFromDate("03-01");
+        yearly.setToDate("10-31");
+        yearly.setRefinement(weekly());
+
+        MonthlySchedule monthly = new MonthlySchedule();
+        monthly.setFromDay(new DayOfMonth.Number(1));
+        monthly.setToDay(new DayOfMonth.Number(7));
+        monthly.setRefinement(daily());
+
+        ScheduleList schedule = new ScheduleList();
+        schedule.setSchedules(new Schedule[] { yearly, monthly });
+        return schedule;
+    }
+
+    static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    static long roll(Schedule schedule, Date from, Date until) {
+
+        long evaluations = 0;
+
+        ScheduleContext context = new ScheduleContext(from);
+        while (context.getDate().before(until)) {
+            ScheduleResult result = schedule.nextDue(context);
+            ++evaluations;
+            if (result == null || result.getUseNext() == null) {
+                break;
+            }
+            context = context.move(result.getUseNext());
+        }
+        return evaluations;
+    }
+
+    static void measure(String name, Supplier<Schedule> schedules,
+                        Date from, Date until) {
+
+        Schedule schedule = schedules.get();
+        long bytes = allocated();
+        long start = System.nanoTime();
+        long evaluations = roll(schedule, from, until);
+        long calendarTime = System.nanoTime() - start;
+        long calendarBytes = allocated() - bytes;
+
+        Schedule javaTime = new JavaTimeSchedule(schedules.get());
+        bytes = allocated();
+        start = System.nanoTime();
+        roll(javaTime, from, until);
+        long javaTimeTime = System.nanoTime() - start;
+        long javaTimeBytes = allocated() - bytes;
+
+        System.out.printf("%-8s calendar %7.2f us %7d bytes, java time %7.2f us %7d bytes per evaluation%n",
+                name,
+                calendarTime / 1000.0 / evaluations, calendarBytes / evaluations,
+                javaTimeTime / 1000.0 / evaluations, javaTimeBytes / evaluations);
+    }
+
+    public static void main(String... args) {
+
+        int years = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        Date from = DateHelper.parseDateTime("2010-01-01 12:00");
+        Date until = new Date(from.getTime() + years * 365L * 86_400_000L);
+
+        // Once to warm up, then again to measure.
+        for (int i = 0; i < 2; ++i) {
+            measure("time", JavaTimeScheduleMain::time, from, until);
+            measure("daily", JavaTimeScheduleMain::daily, from, until);
+            measure("weekly", JavaTimeScheduleMain::weekly, from, until);
+            measure("monthly", JavaTimeScheduleMain::monthly, from, until);
+            measure("list", JavaTimeScheduleMain::list, from, until);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package org.oddjob.schedules.time;
+
+import org.junit.Test;
+import org.oddjob.arooa.utils.DateHelper;
+import org.oddjob.schedules.AbstractSchedule;
+import org.oddjob.schedules.Interval;
+import org.oddjob.schedules.IntervalTo;
+import org.oddjob.schedules.Schedule;
+import org.oddjob.schedules.ScheduleContext;
+import org.oddjob.schedules.ScheduleList;
+import org.oddjob.schedules.ScheduleResult;
+import org.oddjob.schedules.ScheduleRoller;
+import org.oddjob.schedules.schedules.CountSchedule;
+import org.oddjob.schedules.schedules.DailySchedule;
+import org.oddjob.schedules.schedules.IntervalSchedule;
+import org.oddjob.schedules.schedules.MonthlySchedule;
+import org.oddjob.schedules.schedules.TimeSchedule;
+import org.oddjob.schedules.schedules.WeeklySchedule;
+import org.oddjob.schedules.schedules.YearlySchedule;
+import org.oddjob.schedules.units.DayOfMonth;
+import org.oddjob.schedules.units.DayOfWeek;
+import org.oddjob.schedules.units.Month;
+import org.oddjob.schedules.units.WeekOfMonth;
+
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class JavaTimeScheduleTest {
+
+    private static final String[] ZONES = {
+            "Europe/London", "America/New_York", "Australia/Sydney",
+            "America/Sao_Paulo", "Australia/Lord_Howe", "America/Santiago",
+            "Asia/Tehran", "UTC", "America/St_Johns", "Pacific/Apia",
+            "Asia/Kolkata", "Pacific/Chatham", "America/Havana", "Europe/Dublin" };
+
+    private static final String[] TIMES = {
+            "00:00", "00:30", "01:00", "01:30", "02:00", "02:30", "03:00",
+            "12:00", "23:00", "23:30", "23:59", "10:15:30" };
+
+    /**
+     * Builds random schedules, times and parent intervals.
+     */
+    private static class Generator {
+
+        private final Random random;
+
+        Generator(long seed) {
+            this.random = new Random(seed);
+        }
+
+        Schedule schedule(int depth) {
+            AbstractSchedule schedule;
+            switch (random.nextInt(depth > 2 ? 2 : 7)) {
+                case 0:
+                    TimeSchedule time = new TimeSchedule();
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            time.setAt(anyTime());
+                            break;
+                        case 1:
+                            time.setFrom(time());
+                            time.setTo(time());
+                            break;
+                        case 2:
+                            time.setFrom(time());
+                            time.setToLast(anyTime());
+                            break;
+                        default:
+                            time.setFrom(time());
+                    }
+                    schedule = time;
+                    break;
+                case 1:
+                    return new IntervalSchedule(1 + random.nextInt(4) * 900_000L);
+                case 2:
+                    DailySchedule daily = new DailySchedule();
+                    if (random.nextBoolean()) {
+                        daily.setAt(anyTime());
+                    }
+                    else {
+                        daily.setFrom(time());
+                        daily.setTo(time());
+                    }
+                    schedule = daily;
+                    break;
+                case 3:
+                    WeeklySchedule weekly = new WeeklySchedule();
+                    if (random.nextBoolean()) {
+                        weekly.setOn(dayOfWeek());
+                    }
+                    else {
+                        weekly.setFrom(random.nextBoolean() ? dayOfWeek() : null);
+                        weekly.setTo(random.nextBoolean() ? dayOfWeek() : null);
+                    }
+                    schedule = weekly;
+                    break;
+                case 4:
+                    MonthlySchedule monthly = new MonthlySchedule();
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            monthly.setOnDay(dayOfMonth());
+                            break;
+                        case 1:
+                            monthly.setFromDay(random.nextBoolean() ? dayOfMonth() : null);
+                            monthly.setToDay(random.nextBoolean() ? dayOfMonth() : null);
+                            break;
+                        default:
+                            monthly.setInWeek(WeekOfMonth.Weeks.values()[random.nextInt(7)]);
+                            monthly.setOnDayOfWeek(dayOfWeek());
+                    }
+                    schedule = monthly;
+                    break;
+                case 5:
+                    YearlySchedule yearly = new YearlySchedule();
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            yearly.setInMonth(Month.Months.values()[random.nextInt(12)]);
+                            break;
+                        case 1:
+                            yearly.setOnDate(monthDay());
+                            break;
+                        default:
+                            yearly.setFromDate(random.nextBoolean() ? monthDay() : null);
+                            yearly.setToDate(random.nextBoolean() ? monthDay() : null);
+                    }
+                    schedule = yearly;
+                    break;
+                default:
+                    Schedule[] schedules = new Schedule[1 + random.nextInt(3)];
+                    for (int i = 0; i < schedules.length; ++i) {
+                        schedules[i] = schedule(depth + 1);
+                    }
+                    ScheduleList list = new ScheduleList();
+                    list.setSchedules(schedules);
+                    return list;
+            }
+            if (depth < 3 && random.nextInt(3) > 0) {
+                schedule.setRefinement(schedule(depth + 1));
+            }
+            return schedule;
+        }
+
+        String anyTime() {
+            return TIMES[random.nextInt(TIMES.length)];
+        }
+
+        String time() {
+            return random.nextInt(3) == 0 ? null : anyTime();
+        }
+
+        DayOfWeek dayOfWeek() {
+            return DayOfWeek.Days.values()[random.nextInt(7)];
+        }
+
+        DayOfMonth dayOfMonth() {
+            int day = random.nextInt(33);
+            return day < 31 ? new DayOfMonth.Number(day + 1) :
+                    DayOfMonth.Shorthands.values()[day - 31];
+        }
+
+        String monthDay() {
+            return String.format("%02d-%02d",
+                    1 + random.nextInt(12), 1 + random.nextInt(31));
+        }
+
+        TimeZone timeZone() {
+            return TimeZone.getTimeZone(ZONES[random.nextInt(ZONES.length)]);
+        }
+
+        /**
+         * A time between 1970 and 2035, often close to a daylight saving
+         * change.
+         */
+        long time(TimeZone timeZone) {
+            long time = (long) (random.nextDouble() * 65 * 365.25 * 86_400_000L);
+            if (random.nextBoolean()) {
+                ZoneOffsetTransition transition = timeZone.toZoneId().getRules()
+                        .nextTransition(Instant.ofEpochMilli(time));
+                if (transition != null) {
+                    time = transition.toEpochSecond() * 1000 +
+                            (random.nextInt(8) - 4) * 1_800_000L + random.nextInt(3) - 1;
+                }
+            }
+            return time;
+        }
+    }
+
+    private static String describe(Schedule schedule, ScheduleContext context) {
+        try {
+            ScheduleResult result = schedule.nextDue(context);
+            if (result == null) {
+                return "Never";
+            }
+            return result.getFromDate().getTime() + " to " +
+                    result.getToDate().getTime() + " use next " +
+                    (result.getUseNext() == null ? null : result.getUseNext().getTime());
+        }
+        catch (RuntimeException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    @Test
+    public void testSameResultsAsScheduleForRandomSchedules() {
+
+        Generator generator = new Generator(20261018L);
+
+        for (int i = 0; i < 3000; ++i) {
+
+            Schedule schedule = generator.schedule(0);
+            TimeZone timeZone = generator.timeZone();
+
+            long now = generator.time(timeZone);
+            Interval parent = null;
+            if (generator.random.nextInt(4) == 0) {
+                long from = generator.time(timeZone);
+                parent = new IntervalTo(new Date(from),
+                        new Date(from + generator.random.nextInt(5 * 86_400_000)));
+            }
+
+            JavaTimeSchedule test = new JavaTimeSchedule(schedule);
+
+            for (int step = 0; step < 5; ++step) {
+
+                ScheduleContext context = new ScheduleContext(
+                        new Date(now), timeZone, new HashMap<>(), parent);
+
+                String expected = describe(schedule, context);
+
+                assertThat("Case " + i + " step " + step + ": " + schedule +
+                                " in " + timeZone.getID() + " at " + now,
+                        describe(test, context), is(expected));
+
+                ScheduleResult result;
+                try {
+                    result = schedule.nextDue(context);
+                }
+                catch (RuntimeException e) {
+                    break;
+                }
+                if (result == null || result.getUseNext() == null) {
+                    break;
+                }
+                now = result.getUseNext().getTime();
+            }
+        }
+    }
+
+    @Test
+    public void testDailyOverDaylightSaving() {
+
+        DailySchedule daily = new DailySchedule();
+        daily.setFrom("01:30");
+        daily.setTo("02:30");
+
+        JavaTimeSchedule test = new JavaTimeSchedule(daily);
+
+        TimeZone timeZone = TimeZone.getTimeZone("Europe/London");
+
+        ScheduleContext context = new ScheduleContext(
+                DateHelper.parseDateTime("2026-03-27T12:00:00Z"), timeZone);
+
+        for (int i = 0; i < 4; ++i) {
+
+            ScheduleResult expected = daily.nextDue(context);
+
+            assertThat(test.nextDue(context), is(expected));
+
+            context = context.move(expected.getUseNext());
+        }
+    }
+
+    @Test
+    public void testUnsupportedSchedulesAreStillEvaluated() {
+
+        IntervalSchedule interval = new IntervalSchedule(20 * 60_000L);
+
+        TimeSchedule time = new TimeSchedule();
+        time.setFrom("09:00");
+        time.setTo("10:00");
+        time.setRefinement(interval);
+
+        WeeklySchedule weekly = new WeeklySchedule();
+        weekly.setOn(DayOfWeek.Days.MONDAY);
+        weekly.setRefinement(time);
+
+        Date from = DateHelper.parseDateTime("2026-10-18 12:00");
+
+        ScheduleResult[] expected = new ScheduleRoller(weekly, 8).resultsFrom(from);
+
+        ScheduleResult[] results = new ScheduleRoller(
+                new JavaTimeSchedule(weekly), 8).resultsFrom(from);
+
+        assertThat(results, is(expected));
+        assertThat(results[0].getFromDate(),
+                is(DateHelper.parseDateTime("2026-10-19 09:00")));
+        assertThat(results[3].getFromDate(),
+                is(DateHelper.parseDateTime("2026-10-26 09:00")));
+    }
+
+    @Test
+    public void testCustomTimeZoneAndDistantDatesUseCalendars() throws Exception {
+
+        DailySchedule daily = new DailySchedule();
+        daily.setAt("10:00");
+
+        JavaTimeSchedule test = new JavaTimeSchedule(daily);
+
+        TimeZone custom = new SimpleTimeZone(3_600_000, "Europe/London");
+
+        ScheduleContext context = new ScheduleContext(
+                DateHelper.parseDateTime("2026-07-01 12:00"), custom);
+
+        assertThat(test.nextDue(context), is(daily.nextDue(context)));
+
+        context = new ScheduleContext(
+                DateHelper.parseDateTime("2099-07-01 12:00"));
+
+        assertThat(test.nextDue(context), is(daily.nextDue(context)));
+
+        context = new ScheduleContext(
+                DateHelper.parseDateTime("1850-07-01 12:00"));
+
+        assertThat(test.nextDue(context), is(daily.nextDue(context)));
+    }
+
+    @Test
+    public void testCountNotCountedTwiceNearEndOfRange() {
+
+        // Until the end of the day, which is the end of the supported range.
+        DailySchedule daily = new DailySchedule();
+        daily.setFrom("13:00");
+
+        ScheduleList list = new ScheduleList();
+        list.setSchedules(new Schedule[] { new CountSchedule(2), daily });
+
+        JavaTimeSchedule test = new JavaTimeSchedule(list);
+
+        Date now = Date.from(Instant.parse("2035-12-31T12:00:00Z"));
+
+        ScheduleContext expectedContext = new ScheduleContext(
+                now, TimeZone.getTimeZone("UTC"), new HashMap<>());
+        ScheduleContext context = new ScheduleContext(
+                now, TimeZone.getTimeZone("UTC"), new HashMap<>());
+
+        for (int i = 0; i < 3; ++i) {
+            assertThat(test.nextDue(context), is(list.nextDue(expectedContext)));
+        }
+
+        assertThat(test.nextDue(context).getFromDate(),
+                is(Date.from(Instant.parse("2035-12-31T13:00:00Z"))));
+    }
+}
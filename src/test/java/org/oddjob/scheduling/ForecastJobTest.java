@@ -0,0 +1,159 @@
+package org.oddjob.scheduling;
+
+import org.junit.Test;
+import org.oddjob.Oddjob;
+import org.oddjob.OddjobLookup;
+import org.oddjob.arooa.utils.DateHelper;
+import org.oddjob.arooa.xml.XMLConfiguration;
+import org.oddjob.jobs.structural.SequentialJob;
+import org.oddjob.schedules.ScheduleOccurrences;
+import org.oddjob.schedules.ScheduleResult;
+import org.oddjob.schedules.schedules.CountSchedule;
+import org.oddjob.schedules.schedules.DailySchedule;
+import org.oddjob.schedules.schedules.IntervalSchedule;
+import org.oddjob.state.JobState;
+import org.oddjob.state.ParentState;
+import org.oddjob.tools.ManualClock;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ForecastJobTest {
+
+    static Timer timer(String from, String to, long interval) {
+        IntervalSchedule intervalSchedule = new IntervalSchedule(interval);
+
+        DailySchedule daily = new DailySchedule();
+        daily.setFrom(from);
+        daily.setTo(to);
+        daily.setRefinement(intervalSchedule);
+
+        Timer timer = new Timer();
+        timer.setSchedule(daily);
+        return timer;
+    }
+
+    @Test
+    public void testOccurrencesAreLazyAndLimited() {
+
+        DailySchedule daily = new DailySchedule();
+        daily.setAt("10:00");
+
+        Timer timer = new Timer();
+        timer.setSchedule(daily);
+
+        ScheduleOccurrences occurrences = timer.occurrencesFrom(
+                DateHelper.parseDateTime("2026-10-19 12:00"));
+
+        List<Date> dates = occurrences.limit(3).stream()
+                .map(ScheduleResult::getFromDate)
+                .collect(Collectors.toList());
+
+        assertThat(dates, contains(
+                DateHelper.parseDateTime("2026-10-20 10:00"),
+                DateHelper.parseDateTime("2026-10-21 10:00"),
+                DateHelper.parseDateTime("2026-10-22 10:00")));
+
+        assertThat(occurrences.until(DateHelper.parseDateTime("2026-11-01")).count(),
+                is(12L));
+
+        assertThat(occurrences.limit(5).until(DateHelper.parseDateTime("2026-10-22")).count(),
+                is(2L));
+    }
+
+    @Test
+    public void testOccurrencesDontChangeState() {
+
+        CountSchedule count = new CountSchedule(2);
+
+        count.setRefinement(new IntervalSchedule(60_000L));
+
+        Timer timer = new Timer();
+        timer.setSchedule(count);
+
+        ScheduleOccurrences occurrences = timer.occurrencesFrom(
+                DateHelper.parseDateTime("2026-10-19 12:00"));
+
+        assertThat(occurrences.count(), is(2L));
+        assertThat(occurrences.count(), is(2L));
+    }
+
+    @Test
+    public void testHistogramForTimersInTree() {
+
+        SequentialJob sequential = new SequentialJob();
+        sequential.setJobs(0, timer("08:00", "10:00", 15 * 60_000L));
+        sequential.setJobs(1, timer("09:00", "09:30", 5 * 60_000L));
+        sequential.setJobs(2, new Timer());
+
+        ForecastJob test = new ForecastJob();
+        test.setRoot(sequential);
+        test.setClock(new ManualClock("2026-10-19 08:00"));
+        test.setTo(DateHelper.parseDateTime("2026-10-19 12:00"));
+        test.setInterval("00:30");
+
+        test.run();
+
+        assertThat(test.lastStateEvent().getState(), is(JobState.COMPLETE));
+
+        assertThat(test.getTimers(), is(2));
+        assertThat(test.getExecutions(), is(14L));
+
+        Map<Date, Integer> histogram = test.getHistogram();
+
+        assertThat(histogram.size(), is(4));
+        assertThat(histogram.get(DateHelper.parseDateTime("2026-10-19 08:00")), is(2));
+        assertThat(histogram.get(DateHelper.parseDateTime("2026-10-19 09:00")), is(8));
+        assertThat(test.getPeak(), is(DateHelper.parseDateTime("2026-10-19 09:00")));
+        assertThat(test.getPeakExecutions(), is(8));
+
+        test.hardReset();
+
+        assertThat(test.getHistogram(), nullValue());
+    }
+
+    @Test
+    public void testExecutionInProgressCountsInFirstInterval() {
+
+        ForecastJob test = new ForecastJob();
+        test.setRoot(timer("08:00", "18:00", 60 * 60_000L));
+        test.setFrom(DateHelper.parseDateTime("2026-10-19 08:30"));
+        test.setTo(DateHelper.parseDateTime("2026-10-19 10:00"));
+
+        test.run();
+
+        assertThat(test.getExecutions(), is(2L));
+        assertThat(test.getHistogram().get(DateHelper.parseDateTime("2026-10-19 08:30")),
+                is(1));
+        assertThat(test.getHistogram().get(DateHelper.parseDateTime("2026-10-19 09:00")),
+                is(1));
+    }
+
+    @Test
+    public void testExample() throws Exception {
+
+        Oddjob oddjob = new Oddjob();
+        oddjob.setConfiguration(new XMLConfiguration(
+                "org/oddjob/scheduling/ForecastExample.xml",
+                getClass().getClassLoader()));
+
+        oddjob.run();
+
+        assertThat(oddjob.lastStateEvent().getState(), is(ParentState.COMPLETE));
+
+        ForecastJob forecast = new OddjobLookup(oddjob).lookup(
+                "forecast", ForecastJob.class);
+
+        assertThat(forecast.getTimers(), is(2));
+        assertThat(forecast.getExecutions(), is(11L));
+        assertThat(forecast.getPeak(), is(DateHelper.parseDateTime("2026-10-19 10:00")));
+        assertThat(forecast.getPeakExecutions(), is(2));
+
+        oddjob.destroy();
+    }
+}
@@ -0,0 +1,171 @@
+package org.oddjob.scheduling;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.schedules.schedules.CountSchedule;
+import org.oddjob.schedules.schedules.IntervalSchedule;
+import org.oddjob.scheduling.state.TimerState;
+import org.oddjob.state.FlagState;
+import org.oddjob.state.JobState;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class HashedWheelScheduledExecutorTest {
+
+    private HashedWheelScheduledExecutor test;
+
+    @Before
+    public void setUp() {
+        test = new HashedWheelScheduledExecutor(2, new OddjobThreadFactory("WheelTest"),
+                1, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @After
+    public void tearDown() {
+        test.shutdownNow();
+    }
+
+    @Test
+    public void testTasksRunInDeadlineOrder() throws Exception {
+
+        Queue<Integer> order = new ConcurrentLinkedQueue<>();
+        CountDownLatch latch = new CountDownLatch(3);
+
+        // More than one turn of the wheel.
+        test.schedule(() -> { order.add(3); latch.countDown(); }, 60, TimeUnit.MILLISECONDS);
+        test.schedule(() -> { order.add(1); latch.countDown(); }, 5, TimeUnit.MILLISECONDS);
+        test.schedule(() -> { order.add(2); latch.countDown(); }, 30, TimeUnit.MILLISECONDS);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+
+        assertThat(order, contains(1, 2, 3));
+        assertThat(test.getScheduledCount(), is(0));
+    }
+
+    @Test
+    public void testCallableAndCancel() throws Exception {
+
+        ScheduledFuture<String> future = test.schedule(() -> "Apples",
+                10, TimeUnit.MILLISECONDS);
+
+        ScheduledFuture<?> cancelled = test.schedule((Runnable) () -> {
+                    throw new IllegalStateException("Shouldn't run.");
+                }, 20, TimeUnit.MILLISECONDS);
+
+        assertThat(cancelled.cancel(false), is(true));
+
+        assertThat(future.get(5, TimeUnit.SECONDS), is("Apples"));
+
+        Thread.sleep(50);
+
+        assertThat(cancelled.isCancelled(), is(true));
+        assertThat(test.getScheduledCount(), is(0));
+    }
+
+    @Test
+    public void testFixedRateUntilCancelled() throws Exception {
+
+        CountDownLatch latch = new CountDownLatch(5);
+
+        ScheduledFuture<?> future = test.scheduleAtFixedRate(latch::countDown,
+                0, 5, TimeUnit.MILLISECONDS);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+
+        future.cancel(false);
+
+        assertThat(future.isDone(), is(true));
+    }
+
+    @Test
+    public void testShutdownNowReturnsWaitingTasks() throws Exception {
+
+        test.schedule(() -> {}, 1, TimeUnit.HOURS);
+        test.schedule(() -> {}, 2, TimeUnit.HOURS);
+
+        List<Runnable> waiting = test.shutdownNow();
+
+        assertThat(waiting.size(), is(2));
+        assertThat(test.awaitTermination(5, TimeUnit.SECONDS), is(true));
+        assertThat(test.isTerminated(), is(true));
+    }
+
+    @Test
+    public void testNoTaskLeftWaitingWhenScheduledDuringShutdown() throws Exception {
+
+        Queue<ScheduledFuture<?>> accepted = new ConcurrentLinkedQueue<>();
+        CountDownLatch started = new CountDownLatch(4);
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread(() -> {
+                started.countDown();
+                try {
+                    while (true) {
+                        accepted.add(test.schedule(() -> {}, 1, TimeUnit.HOURS));
+                    }
+                }
+                catch (RejectedExecutionException e) {
+                    // Expected once shut down.
+                }
+            });
+            threads[i].start();
+        }
+
+        started.await();
+
+        test.shutdownNow();
+
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        for (ScheduledFuture<?> future : accepted) {
+            assertThat(future.isCancelled(), is(true));
+        }
+        assertThat(test.getScheduledCount(), is(0));
+    }
+
+    @Test
+    public void testTimerWithTimingWheel() throws Exception {
+
+        DefaultExecutors executors = new DefaultExecutors();
+        executors.setTimingWheel(true);
+
+        ScheduledExecutorService scheduler = executors.getScheduledExecutor();
+
+        assertThat(scheduler, instanceOf(HashedWheelScheduledExecutor.class));
+
+        CountSchedule schedule = new CountSchedule(3);
+        schedule.setRefinement(new IntervalSchedule(20));
+
+        FlagState job = new FlagState();
+        job.setState(JobState.COMPLETE);
+
+        Timer timer = new Timer();
+        timer.setSchedule(schedule);
+        timer.setJob(job);
+        timer.setScheduleExecutorService(scheduler);
+
+        timer.run();
+
+        for (int i = 0; i < 500 && timer.lastStateEvent().getState() != TimerState.COMPLETE; ++i) {
+            Thread.sleep(10);
+        }
+
+        assertThat(timer.lastStateEvent().getState(), is(TimerState.COMPLETE));
+
+        executors.stop();
+    }
+}
@@ -444,6 +444,52 @@ public class TimerTest extends OjTestCase {
 
     }
 
+    @Test
+    public void testForecastDoesntChangeTimerState() {
+
+        FlagState sample = new FlagState();
+        sample.setState(JobState.COMPLETE);
+
+        Timer test = new Timer();
+
+        CountSchedule count = new CountSchedule();
+        count.setCount(3);
+        count.setRefinement(new IntervalSchedule(5000L));
+
+        ManualClock clock = new ManualClock("2009-02-10 14:30");
+
+        test.setSchedule(count);
+        test.setJob(sample);
+        test.setClock(clock);
+
+        OurScheduledExecutorService oddjobServices = new OurScheduledExecutorService();
+
+        test.setScheduleExecutorService(oddjobServices);
+
+        test.run();
+
+        oddjobServices.runnable.run();
+
+        Date expectedNextDue = DateHelper.parseDateTime("2009-02-10 14:30:05");
+
+        assertEquals(expectedNextDue, test.getNextDue());
+
+        assertEquals(1, test.occurrencesFrom(expectedNextDue).count());
+        assertEquals(1, test.occurrencesFrom(expectedNextDue).count());
+
+        assertEquals(expectedNextDue, test.getNextDue());
+        assertEquals(5000, oddjobServices.delay);
+
+        oddjobServices.runnable.run();
+
+        assertEquals(DateHelper.parseDateTime("2009-02-10 14:30:10"),
+                test.getNextDue());
+
+        oddjobServices.runnable.run();
+
+        assertNull(test.getNextDue());
+    }
+
     @Test
     public void testSerializeNotComplete() throws Exception {
 
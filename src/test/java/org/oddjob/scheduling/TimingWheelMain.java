@@ -0,0 +1,99 @@
+package org.oddjob.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compare the throughput of scheduling and cancelling with a
+ * {@link ScheduledThreadPoolExecutor} and a
+ * {@link HashedWheelScheduledExecutor} when there are already many timers
+ * pending. Each thread repeatedly cancels one of its timers and schedules
+ * a replacement, as a Timer or Retry does when it is rescheduled.
+ * <p>
+ * Run with the number of operations per thread as an argument, the
+ * default is 200000.
+ */
+public class TimingWheelMain {
+
+    static final int THREADS = 8;
+
+    static double measure(Supplier<ScheduledExecutorService> executors,
+                          int pending, int operations) throws Exception {
+
+        ScheduledExecutorService executor = executors.get();
+
+        Runnable task = () -> {};
+
+        try {
+            List<List<ScheduledFuture<?>>> perThread = new ArrayList<>();
+            for (int t = 0; t < THREADS; ++t) {
+                List<ScheduledFuture<?>> futures = new ArrayList<>();
+                for (int i = 0; i < pending / THREADS; ++i) {
+                    futures.add(executor.schedule(task,
+                            ThreadLocalRandom.current().nextLong(60_000, 120_000),
+                            TimeUnit.MILLISECONDS));
+                }
+                perThread.add(futures);
+            }
+
+            Thread[] threads = new Thread[THREADS];
+            for (int t = 0; t < THREADS; ++t) {
+                List<ScheduledFuture<?>> futures = perThread.get(t);
+                threads[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < operations; ++i) {
+                        int index = random.nextInt(futures.size());
+                        futures.get(index).cancel(false);
+                        futures.set(index, executor.schedule(task,
+                                random.nextLong(60_000, 120_000),
+                                TimeUnit.MILLISECONDS));
+                    }
+                });
+            }
+
+            long start = System.nanoTime();
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long nanos = System.nanoTime() - start;
+
+            return (double) THREADS * operations * 1_000_000_000L / nanos;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        // As DefaultExecutors creates it, so cancelled tasks stay in the
+        // heap until they are due.
+        Supplier<ScheduledExecutorService> heap = () ->
+                new ScheduledThreadPoolExecutor(4);
+        Supplier<ScheduledExecutorService> wheel = () ->
+                new HashedWheelScheduledExecutor(4, new OddjobThreadFactory("Wheel"));
+
+        for (int pending : new int[] { 10_000, 100_000 }) {
+
+            // Once to warm up, then again to measure.
+            measure(heap, pending, operations / 10);
+            measure(wheel, pending, operations / 10);
+
+            System.out.printf("%7d pending: heap %,12.0f ops/s, wheel %,12.0f ops/s%n",
+                    pending,
+                    measure(heap, pending, operations),
+                    measure(wheel, pending, operations));
+        }
+    }
+}
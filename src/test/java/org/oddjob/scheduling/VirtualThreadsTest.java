@@ -0,0 +1,115 @@
+package org.oddjob.scheduling;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.jobs.WaitJob;
+import org.oddjob.logging.OddjobNDC;
+import org.oddjob.state.JobState;
+import org.oddjob.util.Restore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class VirtualThreadsTest {
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Virtual threads not supported.",
+                OddjobThreadFactory.isVirtualThreadsSupported());
+    }
+
+    @Test
+    public void testThreadFactoryNamesThreads() throws Exception {
+
+        OddjobThreadFactory test = new OddjobThreadFactory("VirtualTest", true);
+
+        assertThat(test.isVirtual(), is(true));
+
+        Thread thread = test.newThread(() -> {});
+
+        assertThat(thread.getName(), startsWith("VirtualTest-"));
+        assertThat(thread.isDaemon(), is(true));
+    }
+
+    @Test
+    public void testLoggingContextIsInherited() throws Exception {
+
+        DefaultExecutors executors = new DefaultExecutors();
+        executors.setVirtualThreads(true);
+
+        ExecutorService pool = executors.getPoolExecutor();
+
+        assertThat(pool, not(instanceOf(ThreadPoolExecutor.class)));
+
+        Future<String> future;
+        try (Restore restore = OddjobNDC.push("org.oddjob.TestLogger", this)) {
+            future = pool.submit(() -> OddjobNDC.current()
+                    .map(OddjobNDC.LogContext::getLogger)
+                    .orElse(null));
+        }
+
+        assertThat(future.get(5, TimeUnit.SECONDS), is("org.oddjob.TestLogger"));
+
+        executors.stop();
+    }
+
+    @Test
+    public void testFiftyThousandWaitJobs() throws Exception {
+
+        int jobCount = 50_000;
+        long pause = 2000;
+
+        DefaultExecutors executors = new DefaultExecutors();
+        executors.setVirtualThreads(true);
+
+        ExecutorService pool = executors.getPoolExecutor();
+
+        AtomicInteger waiting = new AtomicInteger();
+        AtomicInteger maxWaiting = new AtomicInteger();
+
+        List<WaitJob> jobs = new ArrayList<>(jobCount);
+        List<Future<?>> futures = new ArrayList<>(jobCount);
+
+        long startNanos = System.nanoTime();
+
+        for (int i = 0; i < jobCount; ++i) {
+            WaitJob job = new WaitJob();
+            job.setPause(pause);
+            jobs.add(job);
+            futures.add(pool.submit(() -> {
+                maxWaiting.accumulateAndGet(waiting.incrementAndGet(), Math::max);
+                try {
+                    job.run();
+                }
+                finally {
+                    waiting.decrementAndGet();
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+
+        for (WaitJob job : jobs) {
+            assertThat(job.lastStateEvent().getState(), is(JobState.COMPLETE));
+        }
+
+        // Far more than any sensible platform thread pool.
+        assertThat(maxWaiting.get(), greaterThan(10_000));
+        assertThat(seconds, lessThan(60L));
+
+        executors.stop();
+    }
+}
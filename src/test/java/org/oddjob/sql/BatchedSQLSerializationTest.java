@@ -0,0 +1,182 @@
+package org.oddjob.sql;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oddjob.Oddjob;
+import org.oddjob.OddjobLookup;
+import org.oddjob.arooa.life.ComponentPersister;
+import org.oddjob.arooa.registry.Path;
+import org.oddjob.arooa.xml.XMLConfiguration;
+import org.oddjob.state.ParentState;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class BatchedSQLSerializationTest {
+
+    private ConnectionType connectionType;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Oddjob setUp = new Oddjob();
+        setUp.setConfiguration(new XMLConfiguration("Resource",
+                getClass().getResourceAsStream("create.xml")));
+        setUp.run();
+
+        assertThat(setUp.lastStateEvent().getState(), is(ParentState.COMPLETE));
+
+        connectionType = new OddjobLookup(setUp).lookup("vars.con", ConnectionType.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try (Connection c = connectionType.toValue()) {
+            c.createStatement().execute("shutdown");
+        }
+    }
+
+    int rowCount() throws Exception {
+        try (Connection c = connectionType.toValue();
+             Statement statement = c.createStatement();
+             ResultSet rs = statement.executeQuery("select count(*) from oddjob")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void testSavesQueuedUntilBatchIsFull() throws Exception {
+
+        BatchedSQLSerializationFactory factory = new BatchedSQLSerializationFactory();
+        factory.setBatchSize(3);
+        factory.setInterval(60_000);
+
+        SQLSerialization test = factory.createSerialization(connectionType.toValue());
+
+        Path path = new Path("test");
+
+        test.persist(path, "a", "apple");
+        test.persist(path, "b", "banana");
+        test.persist(path, "a", "avocado");
+
+        assertThat(rowCount(), is(0));
+
+        assertThat(test.restore(path, "a", getClass().getClassLoader()), is("avocado"));
+        assertThat(test.children(path), arrayContainingInAnyOrder("a", "b"));
+
+        test.persist(path, "c", "cherry");
+
+        assertThat(rowCount(), is(3));
+
+        test.persist(path, "a", "apricot");
+        test.remove(path, "b");
+
+        test.close();
+
+        assertThat(rowCount(), is(2));
+
+        SQLSerialization test2 = factory.createSerialization(connectionType.toValue());
+
+        assertThat(test2.children(path), arrayContainingInAnyOrder("a", "c"));
+        assertThat(test2.restore(path, "a", getClass().getClassLoader()), is("apricot"));
+        assertThat(test2.restore(path, "b", getClass().getClassLoader()), nullValue());
+        assertThat(test2.restore(path, "c", getClass().getClassLoader()), is("cherry"));
+
+        // Again, now not from the select of the whole path.
+        assertThat(test2.restore(path, "c", getClass().getClassLoader()), is("cherry"));
+
+        test2.clear(path);
+
+        assertThat(rowCount(), is(0));
+
+        test2.close();
+    }
+
+    @Test
+    public void testWithPersisterService() throws Exception {
+
+        SQLPersisterService service = new SQLPersisterService();
+        service.setConnection(connectionType.toValue());
+        service.setSerializationFactory(new BatchedSQLSerializationFactory());
+        service.start();
+
+        ComponentPersister persister = service.getPersister("test").persisterFor("oj");
+
+        SQLPersisterTest.Sample sample = new SQLPersisterTest.Sample();
+        sample.value = "Apples";
+
+        persister.persist("foo", sample, null);
+
+        SQLPersisterTest.Sample copy = (SQLPersisterTest.Sample) persister.restore(
+                "foo", getClass().getClassLoader(), null);
+
+        assertThat(copy.value, is("Apples"));
+
+        service.stop();
+
+        assertThat(rowCount(), is(1));
+    }
+
+    @Test
+    public void testMergeSQL() {
+
+        String sql = new MergeDialect().upsertSQL("oddjob",
+                new String[] { "path", "id" }, new String[] { "job" });
+
+        assertThat(sql, is("merge into oddjob using (values (?, ?, ?)) as vals (path, id, job)" +
+                " on (oddjob.path = vals.path and oddjob.id = vals.id)" +
+                " when matched then update set job = vals.job" +
+                " when not matched then insert (path, id, job)" +
+                " values (vals.path, vals.id, vals.job)"));
+
+        MergeDialect oracle = new MergeDialect();
+        oracle.setFromDual(true);
+
+        assertThat(oracle.upsertSQL("oddjob",
+                new String[] { "path", "id" }, new String[] { "job" }),
+                is("merge into oddjob using (select ? path, ? id, ? job from dual) vals" +
+                " on (oddjob.path = vals.path and oddjob.id = vals.id)" +
+                " when matched then update set job = vals.job" +
+                " when not matched then insert (path, id, job)" +
+                " values (vals.path, vals.id, vals.job)"));
+
+        assertThat(new BasicGenericDialect().upsertSQL("oddjob",
+                new String[] { "path", "id" }, new String[] { "job" }), nullValue());
+    }
+
+    @Test
+    public void testMergeIntoHsql() throws Exception {
+
+        MergeDialect dialect = new MergeDialect();
+        dialect.setParameterTypes(new String[] { "VARCHAR(128)", "VARCHAR(32)", "BLOB" });
+
+        BatchedSQLSerializationFactory factory = new BatchedSQLSerializationFactory();
+        factory.setDialect(dialect);
+        factory.setBatchSize(1);
+
+        SQLSerialization test = factory.createSerialization(connectionType.toValue());
+
+        Path path = new Path("test");
+
+        test.persist(path, "a", "apple");
+        test.persist(path, "b", "banana");
+        test.persist(path, "a", "apricot");
+
+        test.close();
+
+        assertThat(rowCount(), is(2));
+
+        SQLSerialization test2 = factory.createSerialization(connectionType.toValue());
+
+        assertThat(test2.restore(path, "a", getClass().getClassLoader()), is("apricot"));
+        assertThat(test2.restore(path, "b", getClass().getClassLoader()), is("banana"));
+
+        test2.close();
+    }
+}
@@ -0,0 +1,65 @@
+package org.oddjob.sql;
+
+import org.oddjob.arooa.ArooaSession;
+import org.oddjob.arooa.standard.StandardArooaSession;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Run the same query many times and report the time taken and the number
+ * of classes loaded, which should be nothing like one per query because
+ * the bean class for a query is reused.
+ * <p>
+ * Run with the number of queries as an argument, the default is 100000.
+ */
+public class QueryBeanClassesMain {
+
+    public static void main(String... args) throws Exception {
+
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        ArooaSession session = new StandardArooaSession();
+
+        ConnectionType ct = new ConnectionType();
+        ct.setDriver("org.hsqldb.jdbcDriver");
+        ct.setUrl("jdbc:hsqldb:mem:QueryBeanClassesMain");
+        ct.setUsername("sa");
+        ct.setPassword("");
+
+        try (Connection connection = ct.toValue();
+             Statement statement = connection.createStatement()) {
+
+            statement.execute("create table FRUIT(FRUIT_NAME VARCHAR(20), QTY INTEGER)");
+            statement.execute("insert into FRUIT values ('apple', 5)");
+
+            ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+
+            QueryBeanClassesTest.Handler handler = new QueryBeanClassesTest.Handler(session);
+            try (ResultSet resultSet = statement.executeQuery("select * from FRUIT")) {
+                handler.handleResultSet(resultSet, null);
+            }
+
+            long loadedBefore = classLoading.getTotalLoadedClassCount();
+            long start = System.nanoTime();
+
+            for (int i = 0; i < queries; ++i) {
+                try (ResultSet resultSet = statement.executeQuery("select * from FRUIT")) {
+                    handler.handleResultSet(resultSet, null);
+                }
+            }
+
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            long loaded = classLoading.getTotalLoadedClassCount() - loadedBefore;
+
+            System.out.println(queries + " queries in " + millis + " ms, " +
+                    loaded + " classes loaded, " + handler.classes.size() +
+                    " bean classes.");
+
+            statement.execute("shutdown");
+        }
+    }
+}
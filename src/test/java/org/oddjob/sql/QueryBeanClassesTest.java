@@ -0,0 +1,149 @@
+package org.oddjob.sql;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.junit.Test;
+import org.oddjob.OjTestCase;
+import org.oddjob.arooa.ArooaSession;
+import org.oddjob.arooa.standard.StandardArooaSession;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+public class QueryBeanClassesTest extends OjTestCase {
+
+    static class Handler extends BeanFactoryResultHandler {
+
+        final Set<Class<?>> classes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Object last;
+
+        Handler(ArooaSession session) {
+            super(session);
+        }
+
+        @Override
+        protected void accept(Object bean) {
+            classes.add(bean.getClass());
+            last = bean;
+        }
+
+        @Override
+        public void run() {
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+
+    @Test
+    public void testSameQueryManyTimesUsesOneClass() throws Exception {
+
+        ArooaSession session = new StandardArooaSession();
+
+        ConnectionType ct = new ConnectionType();
+        ct.setDriver("org.hsqldb.jdbcDriver");
+        ct.setUrl("jdbc:hsqldb:mem:QueryBeanClassesTest");
+        ct.setUsername("sa");
+        ct.setPassword("");
+
+        try (Connection connection = ct.toValue();
+             Statement statement = connection.createStatement()) {
+
+            statement.execute("create table FRUIT(FRUIT_NAME VARCHAR(20), QTY INTEGER)");
+            statement.execute("insert into FRUIT values ('apple', 5)");
+
+            Handler first = new Handler(session);
+            try (ResultSet resultSet = statement.executeQuery("select * from FRUIT")) {
+                first.handleResultSet(resultSet, null);
+            }
+
+            Handler handler = new Handler(session);
+            for (int i = 0; i < 5; ++i) {
+                try (ResultSet resultSet = statement.executeQuery("select * from FRUIT")) {
+                    handler.handleResultSet(resultSet, null);
+                }
+                assertSame(first.last.getClass(), handler.last.getClass());
+            }
+
+            assertEquals(1, handler.classes.size());
+            assertEquals("apple", ((DynaBean) handler.last).get("FRUIT_NAME"));
+            assertEquals(5, ((DynaBean) handler.last).get("QTY"));
+
+            assertEquals(1, QueryBeanClasses.forSession(session).getSize());
+
+            // Different columns need a different class.
+            try (ResultSet resultSet = statement.executeQuery("select FRUIT_NAME from FRUIT")) {
+                handler.handleResultSet(resultSet, null);
+            }
+
+            assertEquals(2, handler.classes.size());
+            assertEquals(2, QueryBeanClasses.forSession(session).getSize());
+
+            // Another session has its own classes.
+            Handler other = new Handler(new StandardArooaSession());
+            try (ResultSet resultSet = statement.executeQuery("select * from FRUIT")) {
+                other.handleResultSet(resultSet, null);
+            }
+
+            assertEquals(1, other.classes.size());
+            assertFalse(handler.classes.containsAll(other.classes));
+
+            statement.execute("shutdown");
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedClassIsDropped() throws Exception {
+
+        QueryBeanClasses test = new QueryBeanClasses(2);
+
+        ResultSetExtractor a = extractor("A");
+        ResultSetExtractor b = extractor("B");
+        ResultSetExtractor c = extractor("C");
+
+        Object classA = test.classFor(a);
+        Object classB = test.classFor(b);
+
+        assertSame(classA, test.classFor(a));
+
+        test.classFor(c);
+
+        assertEquals(2, test.getSize());
+        assertSame(classA, test.classFor(a));
+        assertFalse(classB == test.classFor(b));
+    }
+
+    static ResultSetExtractor extractor(String column) {
+        return new ResultSetExtractor() {
+            @Override
+            public Class<?> getColumnType(int columnIndex) {
+                return String.class;
+            }
+
+            @Override
+            public String getColumnName(int columnIndex) {
+                return column;
+            }
+
+            @Override
+            public int getColumnCount() {
+                return 1;
+            }
+
+            @Override
+            public boolean next() {
+                return false;
+            }
+
+            @Override
+            public Object getColumn(int columnIndex) {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package org.oddjob.state;
+
+import org.junit.Test;
+import org.oddjob.MockStateful;
+import org.oddjob.OjTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ScoringStateTrackerTest extends OjTestCase {
+
+    private static final State[] STATES = {
+            JobState.READY, JobState.EXECUTING, JobState.ACTIVE,
+            JobState.INCOMPLETE, JobState.COMPLETE, JobState.EXCEPTION,
+            ServiceState.STARTABLE, ServiceState.STARTING, ServiceState.STARTED,
+            ServiceState.STOPPED
+    };
+
+    private static class Child extends MockStateful {
+
+        private final int id;
+
+        Child(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public String toString() {
+            return "Child " + id;
+        }
+    }
+
+    /**
+     * Apply random child insertions, removals and state changes, checking
+     * each time that the tracker agrees with a full evaluation.
+     */
+    void checkAgreesWithFullEvaluation(ScoringStateOperator operator, long seed) {
+
+        Random random = new Random(seed);
+
+        ScoringStateTracker test = new ScoringStateTracker(operator);
+
+        List<AtomicReference<StateEvent>> holders = new ArrayList<>();
+
+        assertThat(test.evaluate(), is(operator.evaluate()));
+
+        for (int i = 0; i < 2000; ++i) {
+
+            int action = random.nextInt(10);
+
+            if (action == 0 || holders.isEmpty()) {
+                int index = random.nextInt(holders.size() + 1);
+                AtomicReference<StateEvent> holder = new AtomicReference<>(
+                        StateEvent.now(new Child(i), STATES[random.nextInt(STATES.length)]));
+                holders.add(index, holder);
+                test.insert(index, holder);
+            }
+            else if (action == 1) {
+                int index = random.nextInt(holders.size());
+                holders.remove(index);
+                test.remove(index);
+            }
+            else {
+                AtomicReference<StateEvent> holder = holders.get(
+                        random.nextInt(holders.size()));
+                holder.set(StateEvent.now(holder.get().getSource(),
+                        STATES[random.nextInt(STATES.length)]));
+                test.changed(holder);
+            }
+
+            StateEvent[] states = holders.stream()
+                    .map(AtomicReference::get)
+                    .toArray(StateEvent[]::new);
+
+            StateEvent expected = operator.evaluate(states);
+
+            assertThat("At step " + i, test.evaluate(), is(expected));
+        }
+    }
+
+    @Test
+    public void testAnyActiveAgreesWithFullEvaluation() {
+
+        checkAgreesWithFullEvaluation(new AnyActiveStateOp(), 42L);
+    }
+
+    @Test
+    public void testWorstAgreesWithFullEvaluation() {
+
+        checkAgreesWithFullEvaluation(new WorstStateOp(), 43L);
+    }
+
+    @Test
+    public void testServiceManagerAgreesWithFullEvaluation() {
+
+        checkAgreesWithFullEvaluation(new ServiceManagerStateOp(), 44L);
+    }
+
+    @Test
+    public void testFirstChildWithHighestScoreProvidesEvent() {
+
+        ScoringStateTracker test = new ScoringStateTracker(new AnyActiveStateOp());
+
+        Child child1 = new Child(1);
+        Child child2 = new Child(2);
+        Child child3 = new Child(3);
+
+        AtomicReference<StateEvent> holder1 = new AtomicReference<>(
+                StateEvent.now(child1, JobState.COMPLETE));
+        AtomicReference<StateEvent> holder2 = new AtomicReference<>(
+                StateEvent.now(child2, JobState.EXECUTING));
+        AtomicReference<StateEvent> holder3 = new AtomicReference<>(
+                StateEvent.now(child3, JobState.EXECUTING));
+
+        test.insert(0, holder1);
+        test.insert(1, holder3);
+        test.insert(1, holder2);
+
+        StateEvent result = test.evaluate();
+
+        assertThat(result.getState(), is(ParentState.ACTIVE));
+        assertThat(result.getSource(), sameInstance(child2));
+
+        holder1.set(StateEvent.now(child1, JobState.EXECUTING));
+        test.changed(holder1);
+
+        assertThat(test.evaluate().getSource(), sameInstance(child1));
+
+        test.remove(0);
+
+        assertThat(test.evaluate().getSource(), sameInstance(child2));
+
+        holder2.set(StateEvent.now(child2, JobState.COMPLETE));
+        test.changed(holder2);
+
+        assertThat(test.evaluate().getSource(), sameInstance(child3));
+
+        holder3.set(StateEvent.now(child3, JobState.COMPLETE));
+        test.changed(holder3);
+
+        result = test.evaluate();
+
+        assertThat(result.getState(), is(ParentState.COMPLETE));
+        assertThat(result.getSource(), sameInstance(child2));
+    }
+
+    @Test
+    public void testDestroyedChildFailsUntilRemoved() {
+
+        ScoringStateTracker test = new ScoringStateTracker(new AnyActiveStateOp());
+
+        Child child1 = new Child(1);
+        Child child2 = new Child(2);
+
+        AtomicReference<StateEvent> holder1 = new AtomicReference<>(
+                StateEvent.now(child1, JobState.COMPLETE));
+        AtomicReference<StateEvent> holder2 = new AtomicReference<>(
+                StateEvent.now(child2, JobState.DESTROYED));
+
+        test.insert(0, holder1);
+        test.insert(1, holder2);
+
+        try {
+            test.evaluate();
+            fail("Should fail.");
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+
+        test.remove(1);
+
+        assertThat(test.evaluate().getState(), is(ParentState.COMPLETE));
+    }
+}
@@ -0,0 +1,97 @@
+package org.oddjob.state;
+
+import org.oddjob.Structural;
+import org.oddjob.structural.ChildHelper;
+import org.oddjob.structural.StructuralListener;
+
+/**
+ * Compare the time taken for a {@link StructuralStateHelper} to follow the
+ * state of many children when the {@link StateOperator} is evaluated
+ * incrementally against when it is evaluated over all child states.
+ * <p>
+ * Run with the number of children as arguments, the default is 10, 1000 and 10000.
+ */
+public class StructuralStateHelperMain {
+
+    static class NoStructural implements Structural {
+        @Override
+        public void addStructuralListener(StructuralListener listener) {
+        }
+
+        @Override
+        public void removeStructuralListener(StructuralListener listener) {
+        }
+    }
+
+    /**
+     * Hides the scoring so that all states are evaluated every time.
+     */
+    static class FullEvaluation implements StateOperator {
+
+        private final StateOperator delegate = new AnyActiveStateOp();
+
+        @Override
+        public StateEvent evaluate(StateEvent... states) {
+            return delegate.evaluate(states);
+        }
+    }
+
+    static long nanosToRunChildren(int count, StateOperator operator) {
+
+        ChildHelper<Object> childHelper = new ChildHelper<>(new NoStructural());
+
+        StructuralStateHelper test = new StructuralStateHelper(
+                childHelper, operator);
+
+        FlagState[] children = new FlagState[count];
+        for (int i = 0; i < count; ++i) {
+            children[i] = new FlagState(JobState.COMPLETE);
+            childHelper.insertChild(i, children[i]);
+        }
+
+        long start = System.nanoTime();
+
+        for (FlagState child : children) {
+            child.run();
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        if (test.lastStateEvent().getState() != ParentState.COMPLETE) {
+            throw new IllegalStateException("Expected Complete but was " +
+                    test.lastStateEvent().getState());
+        }
+
+        return elapsed;
+    }
+
+    public static void main(String... args) {
+
+        int[] counts;
+        if (args.length == 0) {
+            counts = new int[] { 10, 1_000, 10_000 };
+        }
+        else {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        // Warm up.
+        for (int i = 0; i < 10; ++i) {
+            nanosToRunChildren(1_000, new FullEvaluation());
+            nanosToRunChildren(1_000, new AnyActiveStateOp());
+        }
+
+        System.out.printf("%10s %22s %22s%n", "Children", "Full (ns/child event)", "Incremental (ns/child event)");
+
+        for (int count : counts) {
+            // Each child goes to Executing and then Complete.
+            int events = count * 2;
+            long full = nanosToRunChildren(count, new FullEvaluation());
+            long incremental = nanosToRunChildren(count, new AnyActiveStateOp());
+            System.out.printf("%10d %22d %22d%n", count, full / events, incremental / events);
+        }
+    }
+}
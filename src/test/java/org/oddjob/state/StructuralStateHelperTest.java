@@ -208,4 +208,32 @@ public class StructuralStateHelperTest extends OjTestCase {
 		
 		assertEquals(ParentState.READY, test.lastStateEvent().getState());
 	}
+
+	/** A subclass that changes how states are evaluated. */
+	static class AlwaysCompleteOp extends WorstStateOp {
+		@Override
+		public StateEvent evaluate(StateEvent... states) {
+			StateEvent event = super.evaluate(states);
+			return event == null ? null :
+					new StateEvent(event.getSource(), ParentState.COMPLETE);
+		}
+	}
+
+	@Test
+	public void testSubclassThatOverridesEvaluateIsUsed() {
+		
+		ChildHelper<Object> childHelper = new ChildHelper<Object>(new DummyStructural());
+		
+		StructuralStateHelper test = new StructuralStateHelper(
+				childHelper, new AlwaysCompleteOp());
+		
+		childHelper.insertChild(0, new FlagState(JobState.COMPLETE));
+		
+		FlagState failing = new FlagState(JobState.EXCEPTION);
+		childHelper.insertChild(1, failing);
+		
+		failing.run();
+		
+		assertEquals(ParentState.COMPLETE, test.lastStateEvent().getState());
+	}
 }